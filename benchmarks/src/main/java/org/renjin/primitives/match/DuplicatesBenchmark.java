@@ -0,0 +1,70 @@
+package org.renjin.primitives.match;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.sexp.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares duplicated() using the primitive {@link HashIndex}es against
+ * the generic path which boxes each element into a {@code HashMap}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DuplicatesBenchmark {
+
+  @Param({"10000", "1000000"})
+  private int size;
+
+  @Param({"double", "integer", "logical", "character"})
+  private String type;
+
+  private Vector x;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(42);
+    int distinct = Math.max(1, size / 10);
+
+    if(type.equals("double")) {
+      double[] values = new double[size];
+      for (int i = 0; i < size; i++) {
+        values[i] = random.nextInt(distinct) / 10d;
+      }
+      x = new DoubleArrayVector(values);
+
+    } else if(type.equals("integer")) {
+      int[] values = new int[size];
+      for (int i = 0; i < size; i++) {
+        values[i] = random.nextInt(distinct);
+      }
+      x = new IntArrayVector(values);
+
+    } else if(type.equals("logical")) {
+      LogicalArrayVector.Builder values = new LogicalArrayVector.Builder(size);
+      for (int i = 0; i < size; i++) {
+        values.set(i, random.nextBoolean());
+      }
+      x = values.build();
+
+    } else {
+      String[] values = new String[size];
+      for (int i = 0; i < size; i++) {
+        values[i] = "key" + random.nextInt(distinct);
+      }
+      x = new StringArrayVector(values);
+    }
+  }
+
+  @Benchmark
+  public LogicalVector hashed() {
+    return Duplicates.hashSearch(x, Duplicates.hashIndex(x), false, new DuplicatedAlgorithm());
+  }
+
+  @Benchmark
+  public LogicalVector boxed() {
+    return Duplicates.boxedSearch(x, false, new DuplicatedAlgorithm());
+  }
+}
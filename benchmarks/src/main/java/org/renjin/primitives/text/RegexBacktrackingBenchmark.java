@@ -0,0 +1,75 @@
+package org.renjin.primitives.text;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.primitives.text.regex.REFactory;
+import org.renjin.sexp.StringArrayVector;
+import org.renjin.sexp.StringVector;
+import org.renjin.sexp.Vector;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures grepl() with the pattern {@code (a|aa)*b}, for which both backends backtrack exponentially
+ * in the length of a run of {@code a}s that cannot be matched. Runs are kept short so that the
+ * benchmark completes; the time roughly doubles with every few characters added to the run.
+ *
+ * <p>The input is one of:</p>
+ * <ul>
+ *   <li>{@code match}: the run followed by {@code b}, which matches at the first position</li>
+ *   <li>{@code noLiteral}: the run alone, which the JDK backend rejects since it does not contain {@code b}</li>
+ *   <li>{@code noMatch}: the run followed by {@code cb}, which only matches at the {@code b}, after
+ *   backtracking through the run from each earlier position</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RegexBacktrackingBenchmark {
+
+  private static final String PATTERN = "(a|aa)*b";
+
+  @Param({"10", "20"})
+  private int runLength;
+
+  @Param({"match", "noLiteral", "noMatch"})
+  private String input;
+
+  @Param({"jdk", "interpreted"})
+  private String backend;
+
+  private StringVector x;
+
+  private boolean defaultBackend;
+
+  @Setup
+  public void setup() {
+    defaultBackend = REFactory.JDK_BACKEND;
+    REFactory.JDK_BACKEND = backend.equals("jdk");
+
+    StringBuilder run = new StringBuilder();
+    for (int i = 0; i < runLength; i++) {
+      run.append('a');
+    }
+    switch (input) {
+      case "match":
+        x = new StringArrayVector(run + "b");
+        break;
+      case "noLiteral":
+        x = new StringArrayVector(run.toString());
+        break;
+      default:
+        x = new StringArrayVector(run + "cb");
+        break;
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    REFactory.JDK_BACKEND = defaultBackend;
+  }
+
+  @Benchmark
+  public Vector grepl() {
+    return Text.grepl(PATTERN, x, false, false, false, false, false, false);
+  }
+}
@@ -0,0 +1,85 @@
+package org.renjin.primitives.text;
+
+import org.openjdk.jmh.annotations.*;
+import org.renjin.primitives.text.regex.REFactory;
+import org.renjin.sexp.StringArrayVector;
+import org.renjin.sexp.StringVector;
+import org.renjin.sexp.Vector;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares grepl() and gsub() over typical log-line, file name and whitespace workloads
+ * using the JDK regular expression backend against the interpreted {@code ExtendedRE}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RegexBenchmark {
+
+  @Param({"100000"})
+  private int size;
+
+  @Param({"jdk", "interpreted"})
+  private String backend;
+
+  @Param({
+      "ERROR: code [0-9]+",
+      "\\.csv$",
+      "^[[:alpha:]]+_[0-9]{4}",
+      "(foo|bar)baz",
+      "^\\s+|\\s+$" })
+  private String pattern;
+
+  private StringVector x;
+
+  private boolean defaultBackend;
+
+  @Setup
+  public void setup() {
+    defaultBackend = REFactory.JDK_BACKEND;
+    REFactory.JDK_BACKEND = backend.equals("jdk");
+
+    Random random = new Random(42);
+    String[] values = new String[size];
+    for (int i = 0; i < size; i++) {
+      StringBuilder line = new StringBuilder();
+      if(i % 7 == 0) {
+        line.append("  ");
+      }
+      for (int j = 0; j < 30; j++) {
+        line.append((char)('a' + random.nextInt(26)));
+      }
+      line.append('_').append(1900 + random.nextInt(200));
+      switch (i % 10) {
+        case 0:
+          line.append(" ERROR: code ").append(random.nextInt(500));
+          break;
+        case 1:
+          line.append(".csv");
+          break;
+        case 2:
+          line.append(" foobaz ");
+          break;
+      }
+      values[i] = line.toString();
+    }
+    x = new StringArrayVector(values);
+  }
+
+  @TearDown
+  public void tearDown() {
+    REFactory.JDK_BACKEND = defaultBackend;
+  }
+
+  @Benchmark
+  public Vector grepl() {
+    return Text.grepl(pattern, x, false, false, false, false, false, false);
+  }
+
+  @Benchmark
+  public StringVector gsub() {
+    return Text.gsub(pattern, "", x, false, false, false, false);
+  }
+}
@@ -6,6 +6,7 @@ import org.renjin.aether.AetherPackageLoader;
 import org.renjin.cli.build.Builder;
 import org.renjin.compiler.pipeline.MultiThreadedVectorPipeliner;
 import org.renjin.compiler.pipeline.VectorPipeliner;
+import org.renjin.eval.ClosureDispatcher;
 import org.renjin.eval.Profiler;
 import org.renjin.eval.Session;
 import org.renjin.eval.SessionBuilder;
@@ -61,17 +62,19 @@ public class Main {
     if(optionSet.isFlagSet(OptionSet.COMPILE_LOOPS)) {
       ForFunction.COMPILE_LOOPS = true;
     }
-    if(optionSet.isFlagSet(OptionSet.PROFILE)) {
-      Profiler.ENABLED = true;
+    if(optionSet.isFlagSet(OptionSet.COMPILE_CLOSURES)) {
+      ClosureDispatcher.COMPILE_CLOSURES = true;
     }
-    
+    Main main = new Main(optionSet);
     try {
-      new Main(optionSet).run();
+      main.run();
     } finally {
-      if(Profiler.ENABLED) {
+      if(optionSet.isFlagSet(OptionSet.PROFILE) && main.session != null) {
+        Profiler profiler = main.session.getProfiler();
+        profiler.stop();
         System.out.flush();
-        Profiler.dumpTotalRunningTime();
-        Profiler.dump(System.out);
+        profiler.dumpTotalRunningTime(System.out);
+        profiler.dump(System.out);
       }
     }
   }
@@ -86,7 +89,10 @@ public class Main {
 
     try {
       initSession();
-      Profiler.reset();
+      if(options.isFlagSet(OptionSet.PROFILE)) {
+        session.getProfiler().reset();
+        session.getProfiler().start(Profiler.Mode.INSTRUMENTING, 0);
+      }
       
       this.session.setCommandLineArguments("renjin", options.getArguments());
 
@@ -1,11 +1,26 @@
 package org.renjin;
 
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.CodeSource;
+import java.util.Enumeration;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 public class RenjinVersion {
 
+  private static String buildFingerprint;
+  private static boolean buildFingerprintComputed;
+
   public static String getVersionName() {
 
     String propFileName = "Renjin.version.properties";
@@ -24,5 +39,72 @@ public class RenjinVersion {
     return prop.getProperty("renjin.display.version");
   }
 
+  /**
+   * Returns a digest of the classes of this build of Renjin, for code generated against Renjin's internals
+   * which must not be loaded by a different build. Unlike the version name, the fingerprint changes
+   * between snapshot builds whenever any class changes.
+   *
+   * <p>The fingerprint is computed from the names and CRC-32 checksums of the classes, which are read from
+   * the jar's index without reading the classes themselves.</p>
+   *
+   * @return the fingerprint, or {@code null} if the classes of this build cannot be found.
+   */
+  public static synchronized String getBuildFingerprint() {
+    if(!buildFingerprintComputed) {
+      buildFingerprint = computeBuildFingerprint();
+      buildFingerprintComputed = true;
+    }
+    return buildFingerprint;
+  }
+
+  private static String computeBuildFingerprint() {
+    Map<String, Long> checksums = new TreeMap<>();
+    try {
+      CodeSource codeSource = RenjinVersion.class.getProtectionDomain().getCodeSource();
+      if(codeSource == null) {
+        return null;
+      }
+      File location = new File(codeSource.getLocation().toURI());
+      if(location.isDirectory()) {
+        addClassChecksums(checksums, location, "");
+      } else {
+        try(ZipFile jar = new ZipFile(location)) {
+          Enumeration<? extends ZipEntry> entries = jar.entries();
+          while(entries.hasMoreElements()) {
+            ZipEntry entry = entries.nextElement();
+            if(entry.getName().endsWith(".class")) {
+              checksums.put(entry.getName(), entry.getCrc());
+            }
+          }
+        }
+      }
+    } catch (Exception e) {
+      return null;
+    }
+    if(checksums.isEmpty()) {
+      return null;
+    }
+
+    Hasher hasher = Hashing.sha1().newHasher();
+    for (Map.Entry<String, Long> entry : checksums.entrySet()) {
+      hasher.putString(entry.getKey(), Charsets.UTF_8);
+      hasher.putLong(entry.getValue());
+    }
+    return hasher.hash().toString();
+  }
 
+  private static void addClassChecksums(Map<String, Long> checksums, File dir, String prefix) throws IOException {
+    File[] files = dir.listFiles();
+    if(files == null) {
+      return;
+    }
+    for (File file : files) {
+      String name = prefix + file.getName();
+      if(file.isDirectory()) {
+        addClassChecksums(checksums, file, name + "/");
+      } else if(name.endsWith(".class")) {
+        checksums.put(name, Files.hash(file, Hashing.crc32()).padToLong() & 0xFFFFFFFFL);
+      }
+    }
+  }
 }
@@ -27,6 +27,7 @@ import org.renjin.invoke.annotations.Current;
 import org.renjin.methods.Methods;
 import org.renjin.primitives.Evaluation;
 import org.renjin.primitives.io.serialization.Serialization;
+import org.renjin.primitives.match.Match;
 import org.renjin.primitives.matrix.Matrix;
 import org.renjin.primitives.matrix.MatrixBuilder;
 import org.renjin.primitives.vector.BinCodeVector;
@@ -141,14 +142,19 @@ public class Base {
     Matrix source = new Matrix(x, ncol);
     MatrixBuilder result = source.newBuilder(numGroups, ncol);
     
+    // look up the group of each row once, rather than for each column
+    int[] rowGroups = Match.match(groups, ugroup, 0, Null.INSTANCE);
+
     for(int col=0;col!=ncol;++col) {
       
       // sum the rows in this column by group
       
       double groupSums[] = new double[numGroups];
       for(int row=0;row!=source.getNumRows();++row) {
-        int group = ugroup.indexOf(groups, row, 0);
-        groupSums[group] += source.getElementAsDouble(row, col);
+        double value = source.getElementAsDouble(row, col);
+        if(!(naRm && Double.isNaN(value))) {
+          groupSums[rowGroups[row] - 1] += value;
+        }
       }
       
       // copy sums to matrix
@@ -175,7 +175,7 @@ public class BaseFrame implements Frame {
   }
   
   public void load(Context context) throws IOException {
-    Iterable<NamedValue> frame = LazyLoadFrame.load(context, new com.google.common.base.Function<String, InputStream>() {
+    load(LazyLoadFrame.load(context, new com.google.common.base.Function<String, InputStream>() {
 
       @Override
       public InputStream apply(String name) {
@@ -186,7 +186,14 @@ public class BaseFrame implements Frame {
         }
         return in;
       }
-    });
+    }));
+  }
+
+  /**
+   * Binds the R-language functions and values of the base package, which have
+   * been loaded elsewhere, for example by a {@link org.renjin.eval.SessionTemplate}
+   */
+  public void load(Iterable<NamedValue> frame) {
     for(NamedValue name : frame) {
       loaded.put(Symbol.get(name.getName()), name.getValue());
     }
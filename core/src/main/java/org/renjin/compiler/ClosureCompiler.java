@@ -0,0 +1,226 @@
+package org.renjin.compiler;
+
+import org.renjin.compiler.cfg.ControlFlowGraph;
+import org.renjin.compiler.cfg.DominanceTree;
+import org.renjin.compiler.cfg.UseDefMap;
+import org.renjin.compiler.codegen.ByteCodeEmitter;
+import org.renjin.compiler.ir.ssa.SsaTransformer;
+import org.renjin.compiler.ir.tac.IRBody;
+import org.renjin.compiler.ir.tac.IRBodyBuilder;
+import org.renjin.compiler.ir.tac.RuntimeState;
+import org.renjin.eval.ClosureDispatcher;
+import org.renjin.eval.Context;
+import org.renjin.sexp.*;
+
+import java.util.Arrays;
+
+/**
+ * Compiles the body of a frequently called closure to JVM byte code.
+ *
+ * <p>Once a closure has been called {@link #COMPILE_THRESHOLD} times, its body is compiled
+ * against the types of its arguments and of the other variables it reads from its
+ * environment. The resulting {@link CompiledBody} is only used for later calls for which
+ * these assumptions, recorded by a {@link RuntimeGuard}, still hold. Otherwise the body is
+ * interpreted, or compiled again for the new types, up to {@link #MAX_SPECIALIZATIONS} times.</p>
+ *
+ * <p>Because the arguments of a closure are lazily evaluated, the body is only compiled
+ * for calls whose arguments can all be evaluated without side effects, such as constants or
+ * variables.</p>
+ *
+ * <p>Bodies may also be compiled ahead of time, when a package is built, and added with
+ * {@link #addPrecompiledBody(RuntimeGuard, CompiledBody)}. These are used even if compilation
+ * at runtime is not enabled, and are dropped if they cannot be linked against this build.</p>
+ */
+public class ClosureCompiler {
+
+  public static final int COMPILE_THRESHOLD = 1000;
+
+  public static final int MAX_SPECIALIZATIONS = 4;
+
+  private final Closure closure;
+
+  private int invocationCount = 0;
+
+  /**
+   * True if the body cannot be compiled, or has already been compiled too many times.
+   */
+  private boolean disabled = false;
+
+  private Specialization[] specializations = new Specialization[0];
+
+  public ClosureCompiler(Closure closure) {
+    this.closure = closure;
+  }
+
+  /**
+   * Evaluates the closure's body using compiled code if possible, compiling the body
+   * first if the closure has been called often enough.
+   *
+   * @param functionContext the context of the call to the closure
+   * @param functionEnvironment the function environment, into which the arguments have already been matched
+   * @return the value of the closure's body, or {@code null} if the body must be interpreted.
+   */
+  public SEXP tryEvaluate(Context functionContext, Environment functionEnvironment) {
+    if(disabled) {
+      return null;
+    }
+
+    Specialization[] current = this.specializations;
+    for (Specialization specialization : current) {
+      if(specialization.guard.test(functionEnvironment)) {
+        SEXP result = evaluate(specialization.body, functionContext, functionEnvironment);
+        if(result == null) {
+          // A body compiled ahead of time which cannot be used with this build of Renjin
+          removeSpecialization(specialization);
+        }
+        return result;
+      }
+    }
+
+    if(!ClosureDispatcher.COMPILE_CLOSURES) {
+      // Only bodies compiled ahead of time are used
+      return null;
+    }
+
+    if(++invocationCount < COMPILE_THRESHOLD) {
+      return null;
+    }
+    invocationCount = 0;
+
+    if(current.length >= MAX_SPECIALIZATIONS || !hasSimpleFormals()) {
+      disabled = true;
+      return null;
+    }
+    if(!argumentsCanBeResolved(functionEnvironment)) {
+      // Try again after another round of calls
+      return null;
+    }
+
+    RuntimeGuard guard = new RuntimeGuard(functionEnvironment);
+    CompiledBody body;
+    try {
+      body = compile(functionContext, functionEnvironment, guard);
+    } catch (Exception | LinkageError e) {
+      // Leave the closure to the interpreter, which will report
+      // any errors in the body when they are actually evaluated
+      disabled = true;
+      return null;
+    }
+
+    Specialization[] updated = Arrays.copyOf(current, current.length + 1);
+    updated[current.length] = new Specialization(guard, body);
+    this.specializations = updated;
+
+    return evaluate(body, functionContext, functionEnvironment);
+  }
+
+  private SEXP evaluate(CompiledBody body, Context functionContext, Environment functionEnvironment) {
+    functionContext.clearInvisibleFlag();
+    return body.evaluate(functionContext, functionEnvironment);
+  }
+
+  private boolean hasSimpleFormals() {
+    for (PairList.Node formal : closure.getFormals().nodes()) {
+      if(formal.getTag() == Symbols.ELLIPSES) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean argumentsCanBeResolved(Environment functionEnvironment) {
+    for (PairList.Node formal : closure.getFormals().nodes()) {
+      SEXP value = functionEnvironment.getFrame().getVariable(formal.getTag());
+      if(RuntimeGuard.resolve(value) == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private CompiledBody compile(Context context, Environment rho, RuntimeGuard guard) throws Exception {
+    return emitter(context, rho, guard, closure.getBody()).compile().newInstance();
+  }
+
+  /**
+   * Runs the body of a closure through the IR pipeline.
+   *
+   * @return an emitter for the compiled body, which is valid as long as the assumptions recorded
+   * in {@code guard} hold.
+   */
+  static ByteCodeEmitter emitter(Context context, Environment rho, RuntimeGuard guard, SEXP closureBody) {
+
+    RuntimeState runtimeState = new RuntimeState(context, rho, guard);
+    IRBodyBuilder builder = new IRBodyBuilder(runtimeState);
+    IRBody body = builder.build(closureBody);
+
+    ControlFlowGraph cfg = new ControlFlowGraph(body);
+
+    DominanceTree dTree = new DominanceTree(cfg);
+    SsaTransformer ssaTransformer = new SsaTransformer(cfg, dTree);
+    ssaTransformer.transform();
+
+    UseDefMap useDefMap = new UseDefMap(cfg);
+    TypeSolver types = new TypeSolver(cfg, useDefMap);
+    types.execute();
+
+    types.verifyFunctionAssumptions(runtimeState);
+
+    ssaTransformer.removePhiFunctions(types);
+
+    return new ByteCodeEmitter(cfg, types);
+  }
+
+  /**
+   * Adds a body compiled ahead of time, which is used for the calls for which {@code guard} holds,
+   * before any body compiled by this {@code ClosureCompiler} itself.
+   */
+  public void addPrecompiledBody(RuntimeGuard guard, CompiledBody body) {
+    Specialization[] current = this.specializations;
+    if(current.length < MAX_SPECIALIZATIONS) {
+      Specialization[] updated = Arrays.copyOf(current, current.length + 1);
+      updated[current.length] = new Specialization(guard, body);
+      this.specializations = updated;
+    }
+  }
+
+  private void removeSpecialization(Specialization removed) {
+    Specialization[] current = this.specializations;
+    Specialization[] updated = new Specialization[current.length];
+    int count = 0;
+    for (Specialization specialization : current) {
+      if(specialization != removed) {
+        updated[count++] = specialization;
+      }
+    }
+    this.specializations = Arrays.copyOf(updated, count);
+  }
+
+  /**
+   * Adds the bodies compiled ahead of time for this closure to a copy of the closure.
+   */
+  public void copyPrecompiledBodiesTo(Closure copy) {
+    for (Specialization specialization : specializations) {
+      if(specialization.body instanceof PrecompiledBody && !((PrecompiledBody) specialization.body).isUnusable()) {
+        copy.getCompiler().addPrecompiledBody(specialization.guard, specialization.body);
+      }
+    }
+  }
+
+  /**
+   * @return the number of compiled versions of the closure's body
+   */
+  public int getSpecializationCount() {
+    return specializations.length;
+  }
+
+  private static class Specialization {
+    private final RuntimeGuard guard;
+    private final CompiledBody body;
+
+    private Specialization(RuntimeGuard guard, CompiledBody body) {
+      this.guard = guard;
+      this.body = body;
+    }
+  }
+}
@@ -3,8 +3,9 @@ package org.renjin.compiler;
 
 import org.renjin.eval.Context;
 import org.renjin.sexp.Environment;
+import org.renjin.sexp.SEXP;
 
 public interface CompiledBody {
 
-  void evaluate(Context context, Environment rho);
+  SEXP evaluate(Context context, Environment rho);
 }
@@ -0,0 +1,184 @@
+package org.renjin.compiler;
+
+import org.renjin.compiler.ir.ValueBounds;
+import org.renjin.sexp.Environment;
+import org.renjin.sexp.FunctionCall;
+import org.renjin.sexp.SEXP;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches the compiled bodies of loops, so that a loop which is executed many
+ * times, for example in the body of a function, is only compiled once.
+ *
+ * <p>Compiled bodies are cached by call site, that is, by the identity of the loop's call,
+ * together with the {@link RuntimeGuard} recording the types and functions that the compiled
+ * body assumes. A call site may have up to {@link #MAX_SPECIALIZATIONS} compiled bodies, after which
+ * the oldest is replaced. At most {@link #MAX_CALL_SITES} call sites are cached, after which the
+ * least recently used call site is evicted.</p>
+ *
+ * <p>There is one cache per {@link org.renjin.eval.Session}, obtained through
+ * {@code Session.getSingleton(CompiledLoopCache.class)}.</p>
+ */
+public class CompiledLoopCache {
+
+  public static final int MAX_CALL_SITES = 500;
+
+  public static final int MAX_SPECIALIZATIONS = 4;
+
+  private static final Specialization[] NOT_COMPILABLE = new Specialization[0];
+
+  private final Map<CallSite, Specialization[]> callSites = new LinkedHashMap<CallSite, Specialization[]>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<CallSite, Specialization[]> eldest) {
+      if(size() > MAX_CALL_SITES) {
+        evictionCount++;
+        return true;
+      }
+      return false;
+    }
+  };
+
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  /**
+   * Finds a compiled body for the loop {@code call} whose assumptions hold for the given environment
+   * and sequence.
+   *
+   * @param sequence the sequence of a {@code for} loop, or {@code NULL} for {@code while} and
+   *                 {@code repeat} loops.
+   * @return the compiled body, or {@code null} if the loop must be compiled first.
+   */
+  public synchronized CompiledLoopBody get(FunctionCall call, Environment rho, SEXP sequence) {
+    Specialization[] specializations = callSites.get(new CallSite(call));
+    if(specializations != null) {
+      for (Specialization specialization : specializations) {
+        if(specialization.sequenceBounds.test(sequence) && specialization.guard.test(rho)) {
+          hitCount++;
+          return specialization.body;
+        }
+      }
+    }
+    missCount++;
+    return null;
+  }
+
+  /**
+   * Adds a newly compiled body for the loop {@code call}.
+   *
+   * @param guard the assumptions made about the environment while compiling {@code body}
+   * @param sequenceBounds the bounds of the loop sequence assumed by {@code body}
+   */
+  public synchronized void put(FunctionCall call, RuntimeGuard guard, ValueBounds sequenceBounds, CompiledLoopBody body) {
+    CallSite callSite = new CallSite(call);
+    Specialization specialization = new Specialization(guard, sequenceBounds, body);
+    Specialization[] specializations = callSites.get(callSite);
+    if(specializations == null || specializations == NOT_COMPILABLE) {
+      specializations = new Specialization[] { specialization };
+
+    } else if(specializations.length < MAX_SPECIALIZATIONS) {
+      specializations = Arrays.copyOf(specializations, specializations.length + 1);
+      specializations[specializations.length - 1] = specialization;
+
+    } else {
+      // Replace the oldest specialization, whose assumptions
+      // most likely no longer hold
+      evictionCount++;
+      Specialization[] updated = new Specialization[specializations.length];
+      System.arraycopy(specializations, 1, updated, 0, specializations.length - 1);
+      updated[updated.length - 1] = specialization;
+      specializations = updated;
+    }
+    callSites.put(callSite, specializations);
+  }
+
+  /**
+   * Records that the loop {@code call} could not be compiled, so that compilation is not
+   * attempted again each time the loop is executed.
+   */
+  public synchronized void markNotCompilable(FunctionCall call) {
+    callSites.put(new CallSite(call), NOT_COMPILABLE);
+  }
+
+  public synchronized boolean isCompilable(FunctionCall call) {
+    return callSites.get(new CallSite(call)) != NOT_COMPILABLE;
+  }
+
+  /**
+   * Removes all compiled bodies for the loop {@code call}
+   */
+  public synchronized void invalidate(FunctionCall call) {
+    callSites.remove(new CallSite(call));
+  }
+
+  public synchronized void clear() {
+    callSites.clear();
+  }
+
+  /**
+   * @return the number of lookups which found a compiled body
+   */
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * @return the number of lookups which did not find a compiled body, either because the loop
+   * had not yet been compiled, or because none of its compiled bodies' assumptions held.
+   */
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return the number of compiled bodies or call sites which have been evicted from the cache
+   */
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * @return the number of call sites currently cached
+   */
+  public synchronized int size() {
+    return callSites.size();
+  }
+
+  /**
+   * Identifies a loop by the identity of its {@code for} call, rather than
+   * its structure, which would be expensive to hash and compare.
+   */
+  private static class CallSite {
+    private final FunctionCall call;
+
+    private CallSite(FunctionCall call) {
+      this.call = call;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof CallSite && ((CallSite) o).call == call;
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(call);
+    }
+  }
+
+  private static class Specialization {
+    private final RuntimeGuard guard;
+    private final ValueBounds sequenceBounds;
+    private final CompiledLoopBody body;
+
+    private Specialization(RuntimeGuard guard, ValueBounds sequenceBounds, CompiledLoopBody body) {
+      this.guard = guard;
+      this.sequenceBounds = sequenceBounds;
+      this.body = body;
+    }
+  }
+}
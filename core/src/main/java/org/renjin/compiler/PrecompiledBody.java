@@ -0,0 +1,174 @@
+package org.renjin.compiler;
+
+import com.google.common.collect.Lists;
+import org.renjin.compiler.codegen.ByteCodeEmitter;
+import org.renjin.eval.Context;
+import org.renjin.sexp.*;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The body of a closure compiled when its package is built, stored together with
+ * the {@link RuntimeGuard} under which it may be used.
+ *
+ * <p>Only package functions which can be compiled under assumed arguments, and whose bodies
+ * depend on nothing but their arguments and builtins, can be compiled ahead of time.
+ * The class is only loaded when the body is first used.</p>
+ */
+public class PrecompiledBody implements CompiledBody {
+
+  /**
+   * The arguments under which closures are compiled: first for scalars, then for
+   * vectors of any length.
+   */
+  private static final SEXP[] ASSUMED_ARGUMENTS = new SEXP[] {
+      DoubleArrayVector.valueOf(0),
+      new DoubleArrayVector(0, 0)
+  };
+
+  private final RuntimeGuard guard;
+  private final String className;
+  private final byte[] classFile;
+
+  private volatile CompiledBody instance;
+
+  private volatile boolean unusable;
+
+  private PrecompiledBody(RuntimeGuard guard, String className, byte[] classFile) {
+    this.guard = guard;
+    this.className = className;
+    this.classFile = classFile;
+  }
+
+  /**
+   * Tries to compile the body of {@code closure} for each of the assumed arguments.
+   *
+   * @return the bodies which could be compiled, which may be none at all.
+   */
+  public static List<PrecompiledBody> tryCompile(Context context, Closure closure) {
+    PairList formals = closure.getFormals();
+    for (PairList.Node formal : formals.nodes()) {
+      if(formal.getTag() == Symbols.ELLIPSES) {
+        return Collections.emptyList();
+      }
+    }
+
+    List<PrecompiledBody> bodies = Lists.newArrayList();
+    for (SEXP argument : ASSUMED_ARGUMENTS) {
+      PrecompiledBody body = tryCompile(context, closure, argument);
+      if(body != null) {
+        bodies.add(body);
+      }
+      if(formals == Null.INSTANCE) {
+        break;
+      }
+    }
+    return bodies;
+  }
+
+  private static PrecompiledBody tryCompile(Context context, Closure closure, SEXP argument) {
+    PairList.Builder arguments = new PairList.Builder();
+    for (PairList.Node formal : closure.getFormals().nodes()) {
+      arguments.add(formal.getTag(), argument);
+    }
+    PairList promisedArgs = arguments.build();
+    FunctionCall call = new FunctionCall(closure, promisedArgs);
+
+    Context functionContext = context.beginFunction(context.getGlobalEnvironment(), call, closure, promisedArgs);
+    Environment rho = functionContext.getEnvironment();
+    for (PairList.Node formal : closure.getFormals().nodes()) {
+      rho.setArgument(formal.getTag(), argument);
+    }
+
+    RuntimeGuard guard = new RuntimeGuard(rho);
+    try {
+      ByteCodeEmitter emitter = ClosureCompiler.emitter(functionContext, rho, guard, closure.getBody());
+      if(!guard.isPortable()) {
+        return null;
+      }
+      byte[] classFile = emitter.compileToByteArray();
+
+      // Make sure that the class can actually be loaded
+      ByteCodeEmitter.defineClass(emitter.getClassName(), classFile).newInstance();
+
+      return new PrecompiledBody(guard, emitter.getClassName(), classFile);
+
+    } catch (Exception | LinkageError e) {
+      return null;
+
+    } finally {
+      functionContext.exit();
+    }
+  }
+
+  /**
+   * Adds this body to the compiled bodies of {@code closure}.
+   */
+  public void attachTo(Closure closure) {
+    closure.getCompiler().addPrecompiledBody(guard, this);
+  }
+
+  /**
+   * Evaluates the compiled body, loading its class on first use.
+   *
+   * <p>A class which can still be read may nonetheless fail to link against this build, for example if a
+   * method it calls has since been removed. The class is then dropped, and this and later calls are
+   * interpreted instead.</p>
+   *
+   * @return the value of the body, or {@code null} if the compiled class cannot be used and the body must
+   * be interpreted.
+   */
+  @Override
+  public SEXP evaluate(Context context, Environment rho) {
+    if(unusable) {
+      return null;
+    }
+    CompiledBody instance = this.instance;
+    if(instance != null) {
+      return instance.evaluate(context, rho);
+    }
+    try {
+      instance = ByteCodeEmitter.defineClass(className, classFile).newInstance();
+    } catch (InstantiationException | IllegalAccessException | LinkageError e) {
+      unusable = true;
+      return null;
+    }
+
+    // Most linkage errors are only raised once the class is first run
+    SEXP result;
+    try {
+      result = instance.evaluate(context, rho);
+    } catch (LinkageError e) {
+      unusable = true;
+      return null;
+    }
+    this.instance = instance;
+    return result;
+  }
+
+  /**
+   * @return true if the compiled class could not be loaded or linked.
+   */
+  public boolean isUnusable() {
+    return unusable;
+  }
+
+  public void write(DataOutputStream out) throws IOException {
+    guard.write(out);
+    out.writeUTF(className);
+    out.writeInt(classFile.length);
+    out.write(classFile);
+  }
+
+  public static PrecompiledBody read(DataInputStream in) throws IOException {
+    RuntimeGuard guard = RuntimeGuard.read(in);
+    String className = in.readUTF();
+    byte[] classFile = new byte[in.readInt()];
+    in.readFully(classFile);
+    return new PrecompiledBody(guard, className, classFile);
+  }
+}
@@ -0,0 +1,398 @@
+package org.renjin.compiler;
+
+import com.google.common.collect.Lists;
+import org.renjin.compiler.ir.ValueBounds;
+import org.renjin.primitives.Primitives;
+import org.renjin.sexp.*;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Records the assumptions made while compiling the body of a closure or loop about the
+ * variables and functions it reads from its environment, so that they can be
+ * checked before the compiled body is run again.
+ *
+ * <p>Variables are only assumed to keep their type, attributes and "scalar-ness", not their
+ * value, so that the same compiled body can be reused for calls with different arguments.
+ * Functions are assumed to resolve to exactly the same instance.</p>
+ *
+ * <p>Looking up each assumed name through the whole chain of environments on every call would cost
+ * about as much as small compiled bodies save, so only the frame of the environment being tested, which
+ * holds the arguments of each new call, is searched every time. The result of the lookups in the enclosing
+ * environments is reused for as long as the same enclosing environment is reached, none of the assumed
+ * names has been bound or removed in any environment, and no environment's parent has changed, as tracked
+ * by {@link Symbol#getBindingVersion()} and {@link Environment#getChainVersion()}.</p>
+ */
+public class RuntimeGuard {
+
+  private final Environment compileTimeEnvironment;
+  private final List<VariableAssumption> variables = Lists.newArrayList();
+  private final List<FunctionAssumption> functions = Lists.newArrayList();
+
+  /**
+   * The lookups in enclosing environments which were last found to hold, or {@code null}
+   */
+  private volatile Validation validation;
+
+  /**
+   * @param rho the environment in which the body is evaluated at the time it is compiled.
+   */
+  public RuntimeGuard(Environment rho) {
+    this.compileTimeEnvironment = rho;
+  }
+
+  /**
+   * Records the assumption that {@code name}, looked up from {@code rho}, will continue to
+   * be bound to a value of the same type as {@code value}.
+   *
+   * @return the bounds which the compiled code may assume, or {@code null} if {@code name} is unbound
+   */
+  public ValueBounds assumeVariable(Environment rho, Symbol name, SEXP value) {
+    ValueBounds bounds = null;
+    if(value != Symbol.UNBOUND_VALUE) {
+      bounds = ValueBounds.typeOf(value);
+    }
+    variables.add(new VariableAssumption(relativeTo(rho), name, bounds));
+    validation = null;
+    return bounds;
+  }
+
+  /**
+   * Records the assumption that {@code name}, looked up from {@code rho}, will continue
+   * to resolve to {@code function}.
+   */
+  public void assumeFunction(Environment rho, Symbol name, Function function) {
+    functions.add(new FunctionAssumption(relativeTo(rho), name, function));
+    validation = null;
+  }
+
+  /**
+   * Lookups from the compile-time environment itself need to be repeated from each
+   * new environment, so they are stored as {@code null}.
+   */
+  private Environment relativeTo(Environment rho) {
+    return rho == compileTimeEnvironment ? null : rho;
+  }
+
+  /**
+   * Checks whether all of the assumptions made at compile time hold when the body
+   * is evaluated in {@code rho}. Promises are never forced, so this check has no side effects.
+   */
+  public boolean test(Environment rho) {
+    Environment enclosing = rho == Environment.EMPTY ? rho : rho.getParent();
+    Validation validation = this.validation;
+    boolean enclosingValid = validation != null && validation.isValid(enclosing);
+
+    // Record the versions before searching, so that any change made concurrently
+    // invalidates the result
+    Validation next = null;
+    if(!enclosingValid) {
+      next = new Validation(this, enclosing);
+    }
+
+    for (int i = 0; i < variables.size(); i++) {
+      VariableAssumption variable = variables.get(i);
+      SEXP value;
+      if(variable.environment == null && variable.name.isVarArgReference()) {
+        value = rho.findVariable(variable.name);
+      } else {
+        value = Symbol.UNBOUND_VALUE;
+        if(variable.environment == null) {
+          value = rho.getFrame().getVariable(variable.name);
+        }
+        if(value == Symbol.UNBOUND_VALUE) {
+          if(enclosingValid && validation.variables[i]) {
+            continue;
+          }
+          Environment start = variable.environment == null ? enclosing : variable.environment;
+          value = start.findVariable(variable.name);
+          if(next != null && !(value instanceof Promise && !((Promise) value).isEvaluated())) {
+            next.variables[i] = true;
+          }
+        }
+      }
+      if(!variable.test(value)) {
+        return false;
+      }
+    }
+    for (int i = 0; i < functions.size(); i++) {
+      FunctionAssumption function = functions.get(i);
+      Environment start;
+      if(function.environment == null) {
+        SEXP value = rho.getFrame().getVariable(function.name);
+        if(value instanceof Promise) {
+          Promise promise = (Promise) value;
+          if(!promise.isEvaluated()) {
+            return false;
+          }
+          value = promise.getValue();
+        }
+        if(value instanceof Function) {
+          if(value != function.function) {
+            return false;
+          }
+          continue;
+        }
+        start = enclosing;
+      } else {
+        start = function.environment;
+      }
+      if(enclosingValid && validation.functions[i]) {
+        continue;
+      }
+      if(!resolvesTo(start, function.name, function.function)) {
+        return false;
+      }
+      if(next != null) {
+        next.functions[i] = true;
+      }
+    }
+
+    if(next != null) {
+      this.validation = next;
+    }
+    return true;
+  }
+
+  /**
+   * Checks whether this guard can be written out and tested in another session.
+   *
+   * <p>This is only possible if every lookup was made from the compile-time environment itself,
+   * if no variable was assumed to have attributes, and if every function was resolved
+   * to a builtin, which are the same instances in every session.</p>
+   */
+  public boolean isPortable() {
+    for (VariableAssumption variable : variables) {
+      if(variable.environment != null) {
+        return false;
+      }
+      if(variable.bounds != null) {
+        if(variable.bounds.isConstant() || !variable.bounds.isAttributeConstant() ||
+           !variable.bounds.getConstantAttributes().empty()) {
+          return false;
+        }
+      }
+    }
+    for (FunctionAssumption function : functions) {
+      if(function.environment != null) {
+        return false;
+      }
+      if(function.function != null) {
+        if(!(function.function instanceof PrimitiveFunction)) {
+          return false;
+        }
+        String builtinName = ((PrimitiveFunction) function.function).getName();
+        if(Primitives.getBuiltin(builtinName) != function.function) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Writes a portable guard to {@code out}.
+   *
+   * @throws IllegalStateException if the guard is not {@link #isPortable() portable}
+   */
+  public void write(DataOutputStream out) throws IOException {
+    if(!isPortable()) {
+      throw new IllegalStateException("Guard refers to values of this session");
+    }
+    out.writeInt(variables.size());
+    for (VariableAssumption variable : variables) {
+      out.writeUTF(variable.name.getPrintName());
+      out.writeBoolean(variable.bounds != null);
+      if(variable.bounds != null) {
+        out.writeInt(variable.bounds.getTypeSet());
+        out.writeInt(variable.bounds.getLength());
+      }
+    }
+    out.writeInt(functions.size());
+    for (FunctionAssumption function : functions) {
+      out.writeUTF(function.name.getPrintName());
+      out.writeBoolean(function.function != null);
+      if(function.function != null) {
+        out.writeUTF(((PrimitiveFunction) function.function).getName());
+      }
+    }
+  }
+
+  /**
+   * Reads a guard written by {@link #write(DataOutputStream)}.
+   */
+  public static RuntimeGuard read(DataInputStream in) throws IOException {
+    RuntimeGuard guard = new RuntimeGuard(null);
+    int variableCount = in.readInt();
+    for (int i = 0; i < variableCount; i++) {
+      Symbol name = Symbol.get(in.readUTF());
+      ValueBounds bounds = null;
+      if(in.readBoolean()) {
+        int typeSet = in.readInt();
+        int length = in.readInt();
+        bounds = ValueBounds.vector(typeSet, length).withAttributes(AttributeMap.EMPTY);
+      }
+      guard.variables.add(new VariableAssumption(null, name, bounds));
+    }
+    int functionCount = in.readInt();
+    for (int i = 0; i < functionCount; i++) {
+      Symbol name = Symbol.get(in.readUTF());
+      Function function = null;
+      if(in.readBoolean()) {
+        String builtinName = in.readUTF();
+        function = Primitives.getBuiltin(builtinName);
+        if(function == null) {
+          throw new IOException("Unknown builtin: " + builtinName);
+        }
+      }
+      guard.functions.add(new FunctionAssumption(null, name, function));
+    }
+    return guard;
+  }
+
+  /**
+   * Determines the value of {@code value} without side effects.
+   *
+   * <p>Unevaluated promises can be resolved if their expressions are constants, or symbols bound to values
+   * which can in turn be resolved, such as the argument {@code x} in {@code f(x)}. Forcing such promises
+   * later has no side effects and cannot change the order of evaluation.</p>
+   *
+   * @return the value, or {@code null} if it cannot be determined without evaluating R code.
+   */
+  public static SEXP resolve(SEXP value) {
+    if(value instanceof Promise) {
+      Promise promise = (Promise) value;
+      if(promise.isEvaluated()) {
+        return promise.getValue();
+      }
+      if(promise.getClass() != Promise.class) {
+        return null;
+      }
+      SEXP expression = promise.getExpression();
+      if(expression instanceof AtomicVector) {
+        return expression;
+      }
+      if(expression instanceof Symbol && expression != Symbol.MISSING_ARG &&
+          !((Symbol) expression).isVarArgReference()) {
+        SEXP boundValue = promise.getEnvironment().findVariable((Symbol) expression);
+        if(boundValue != Symbol.UNBOUND_VALUE) {
+          return resolve(boundValue);
+        }
+      }
+      return null;
+    }
+    if(value == Symbol.MISSING_ARG || value == Symbol.UNBOUND_VALUE) {
+      return null;
+    }
+    return value;
+  }
+
+  /**
+   * Repeats the lookup made by {@link org.renjin.compiler.ir.tac.RuntimeState#findFunctionIfExists(Symbol)}
+   */
+  private static boolean resolvesTo(Environment rho, Symbol name, Function expected) {
+    Environment environment = rho;
+    while(environment != Environment.EMPTY) {
+      SEXP value = environment.getVariable(name);
+      if(value instanceof Promise) {
+        Promise promise = (Promise) value;
+        if(!promise.isEvaluated()) {
+          return false;
+        }
+        value = promise.getValue();
+      }
+      if(value instanceof Function) {
+        return value == expected;
+      }
+      environment = environment.getParent();
+    }
+    return expected == null;
+  }
+
+  private static class VariableAssumption {
+    private final Environment environment;
+    private final Symbol name;
+    private final ValueBounds bounds;
+
+    private VariableAssumption(Environment environment, Symbol name, ValueBounds bounds) {
+      this.environment = environment;
+      this.name = name;
+      this.bounds = bounds;
+    }
+
+    private boolean test(SEXP value) {
+      if(bounds == null) {
+        return value == Symbol.UNBOUND_VALUE;
+      }
+      value = resolve(value);
+      return value != null && bounds.test(value);
+    }
+  }
+
+  private static class FunctionAssumption {
+    private final Environment environment;
+    private final Symbol name;
+    private final Function function;
+
+    private FunctionAssumption(Environment environment, Symbol name, Function function) {
+      this.environment = environment;
+      this.name = name;
+      this.function = function;
+    }
+  }
+
+  /**
+   * Records which lookups in the enclosing environments were found to hold, and the versions
+   * of the bindings on which they depended.
+   */
+  private static class Validation {
+    private final Environment enclosing;
+    private final int chainVersion;
+    private final Symbol[] names;
+    private final int[] bindingVersions;
+
+    /**
+     * True for each variable whose lookup in the enclosing environments held, and did not
+     * depend on an unevaluated promise
+     */
+    private final boolean[] variables;
+
+    /**
+     * True for each function whose lookup in the enclosing environments held
+     */
+    private final boolean[] functions;
+
+    private Validation(RuntimeGuard guard, Environment enclosing) {
+      this.enclosing = enclosing;
+      this.chainVersion = Environment.getChainVersion();
+      this.names = new Symbol[guard.variables.size() + guard.functions.size()];
+      this.bindingVersions = new int[names.length];
+      int i = 0;
+      for (VariableAssumption variable : guard.variables) {
+        names[i] = variable.name;
+        bindingVersions[i++] = variable.name.getBindingVersion();
+      }
+      for (FunctionAssumption function : guard.functions) {
+        names[i] = function.name;
+        bindingVersions[i++] = function.name.getBindingVersion();
+      }
+      this.variables = new boolean[guard.variables.size()];
+      this.functions = new boolean[guard.functions.size()];
+    }
+
+    private boolean isValid(Environment enclosing) {
+      if(this.enclosing != enclosing || chainVersion != Environment.getChainVersion()) {
+        return false;
+      }
+      for (int i = 0; i < names.length; i++) {
+        if(bindingVersions[i] != names[i].getBindingVersion()) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -41,12 +41,31 @@ public class ByteCodeEmitter implements Opcodes {
   }
 
   public Class<CompiledBody> compile() {
+    return defineClass(className, compileToByteArray());
+  }
+
+  /**
+   * Generates the class file of the {@link CompiledBody} without loading it, so that it can be stored
+   * and loaded later with {@link #defineClass(String, byte[])}.
+   */
+  public byte[] compileToByteArray() {
     startClass(CompiledBody.class);
     writeImplementation();
     writeConstructor();
     writeClassEnd();
 
-    return new MyClassLoader().defineClass(className.replace('/', '.'), cw.toByteArray());
+    return cw.toByteArray();
+  }
+
+  public String getClassName() {
+    return className;
+  }
+
+  /**
+   * Loads a class generated by {@link #compileToByteArray()}.
+   */
+  public static Class<CompiledBody> defineClass(String className, byte[] classFile) {
+    return new MyClassLoader().defineClass(className.replace('/', '.'), classFile);
   }
 
   public Class<CompiledLoopBody> compileLoopBody() {
@@ -82,9 +101,10 @@ public class ByteCodeEmitter implements Opcodes {
     int argumentSize = 3; // this + context + environment
     VariableSlots variableSlots = new VariableSlots(argumentSize, types);
     EmitContext emitContext = new EmitContext(cfg, argumentSize, variableSlots);
+    emitContext.setReturningValue(true);
     
     MethodVisitor mv = cv.visitMethod(ACC_PUBLIC, "evaluate", 
-        getMethodDescriptor(Type.VOID_TYPE, getType(Context.class), getType(Environment.class)), 
+        getMethodDescriptor(getType(SEXP.class), getType(Context.class), getType(Environment.class)), 
         null, null);
     mv.visitCode();
     writeBody(emitContext, mv);
@@ -137,7 +157,13 @@ public class ByteCodeEmitter implements Opcodes {
     cv.visitEnd();
   }
 
-  private class MyClassLoader extends ClassLoader {
+  private static class MyClassLoader extends ClassLoader {
+    MyClassLoader() {
+      // Generated classes must be able to see Renjin's own classes, even when
+      // these are not on the system class path
+      super(ByteCodeEmitter.class.getClassLoader());
+    }
+
     Class defineClass(String name, byte[] b) {
       return defineClass(name, b, 0, b.length);
     }
@@ -28,6 +28,8 @@ public class EmitContext {
   
   private int loopVectorIndex;
   private int loopIterationIndex;
+
+  private boolean returningValue;
   
   private int maxInlineVariables = 0;
   
@@ -108,6 +110,18 @@ public class EmitContext {
     this.loopIterationIndex = loopIterationIndex;
   }
 
+  /**
+   * @return true if the method being emitted returns the value of the body as an {@code SEXP},
+   * rather than {@code void}
+   */
+  public boolean isReturningValue() {
+    return returningValue;
+  }
+
+  public void setReturningValue(boolean returningValue) {
+    this.returningValue = returningValue;
+  }
+
   public int getRegister(LValue lValue) {
     return variableSlots.getSlot(lValue);
   }
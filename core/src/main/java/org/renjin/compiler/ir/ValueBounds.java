@@ -78,6 +78,39 @@ public class ValueBounds {
     return valueBounds;
   }
 
+  /**
+   * Describes the type, attributes, and whether {@code value} is a scalar, but not the value
+   * itself, so that code compiled against these bounds remains valid for other values
+   * of the same type.
+   */
+  public static ValueBounds typeOf(SEXP value) {
+    ValueBounds valueBounds = new ValueBounds();
+    valueBounds.typeSet = TypeSet.of(value);
+    valueBounds.length = value.length() == 1 ? SCALAR_LENGTH : UNKNOWN_LENGTH;
+    valueBounds.constantClassAttribute = value.getAttributes().getClassVector();
+    valueBounds.constantAttributes = value.getAttributes();
+    return valueBounds;
+  }
+
+  /**
+   * @return true if {@code value} falls within these bounds.
+   */
+  public boolean test(SEXP value) {
+    if((typeSet & TypeSet.of(value)) == 0) {
+      return false;
+    }
+    if(length != UNKNOWN_LENGTH && length != value.length()) {
+      return false;
+    }
+    if(constantAttributes != null && !constantAttributes.equals(value.getAttributes())) {
+      return false;
+    }
+    if(constantValue != null && constantValue != value) {
+      return false;
+    }
+    return true;
+  }
+
 
   public ValueBounds of(Object value) {
     if(value instanceof SEXP) {
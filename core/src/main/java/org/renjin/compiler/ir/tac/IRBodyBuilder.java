@@ -63,14 +63,14 @@ public class IRBodyBuilder {
     return new IRBody(statements, labels);
   }
   
-  public IRBody buildLoopBody(FunctionCall call, SEXP sequence) {
+  public IRBody buildLoopBody(FunctionCall call, ValueBounds sequenceBounds) {
     statements = Lists.newArrayList();
     labels = Maps.newHashMap();
 
     LocalVariable vector = newLocalVariable("elements");
     LocalVariable counter = newLocalVariable("i");
 
-    statements.add(new Assignment(vector, new ReadLoopVector(sequence)));
+    statements.add(new Assignment(vector, new ReadLoopVector(sequenceBounds)));
     statements.add(new Assignment(counter, new ReadLoopIt()));
 
     LoopBodyContext bodyContext = new LoopBodyContext(runtimeContext);
@@ -86,6 +86,26 @@ public class IRBodyBuilder {
     return new IRBody(statements, labels);
   }
   
+  /**
+   * Builds the body of a {@code while} or {@code repeat} loop, starting with the next check
+   * of its condition.
+   */
+  public IRBody buildLoop(FunctionCall call) {
+    statements = Lists.newArrayList();
+    labels = Maps.newHashMap();
+
+    LoopBodyContext bodyContext = new LoopBodyContext(runtimeContext);
+    translateStatements(bodyContext, call);
+
+    addStatement(new ReturnStatement(new Constant(Null.INSTANCE)));
+
+    removeRedundantJumps();
+    insertVariableInitializations();
+    updateVariableReturn();
+
+    return new IRBody(statements, labels);
+  }
+  
   public IRBody buildFunctionBody(Closure closure, Set<Symbol> suppliedArguments) {
     
     statements = Lists.newArrayList();
@@ -161,11 +181,11 @@ public class IRBodyBuilder {
     
     for (EnvironmentVariable environmentVariable : variables.values()) {
       if(!paramSet.contains(environmentVariable.getName())) {
-        SEXP value = runtimeContext.findVariable(environmentVariable.getName());
+        ValueBounds bounds = runtimeContext.findVariableBounds(environmentVariable.getName());
 
-        if (value != Symbol.UNBOUND_VALUE) {
+        if (bounds != null) {
           initializations.add(new Assignment(environmentVariable,
-              new ReadEnvironment(environmentVariable.getName(), ValueBounds.of(value))));
+              new ReadEnvironment(environmentVariable.getName(), bounds)));
         }
       }
     }
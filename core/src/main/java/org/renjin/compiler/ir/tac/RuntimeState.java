@@ -1,7 +1,9 @@
 package org.renjin.compiler.ir.tac;
 
 import com.google.common.collect.Maps;
+import org.renjin.compiler.RuntimeGuard;
 import org.renjin.compiler.NotCompilableException;
+import org.renjin.compiler.ir.ValueBounds;
 import org.renjin.compiler.ir.exception.InvalidSyntaxException;
 import org.renjin.eval.Context;
 import org.renjin.packaging.SerializedPromise;
@@ -26,13 +28,24 @@ public class RuntimeState {
    */
   private Map<Symbol, Function> resolvedFunctions = Maps.newHashMap();
 
+  /**
+   * If not {@code null}, the guard which records all variable and function lookups
+   * so that they can be checked before the compiled code is reused.
+   */
+  private RuntimeGuard guard;
+
   public RuntimeState(Context context, Environment rho) {
     this.context = context;
     this.rho = rho;
   }
 
+  public RuntimeState(Context context, Environment rho, RuntimeGuard guard) {
+    this(context, rho);
+    this.guard = guard;
+  }
+
   public RuntimeState(RuntimeState parentState, Environment enclosingEnvironment) {
-    this(parentState.context, enclosingEnvironment);
+    this(parentState.context, enclosingEnvironment, parentState.guard);
   }
 
   public PairList getEllipsesVariable() {
@@ -49,6 +62,9 @@ public class RuntimeState {
       Promise promisedValue = (Promise) value;
       if(promisedValue.isEvaluated()) {
         value = promisedValue.force(context);
+      } else if(guard != null && RuntimeGuard.resolve(promisedValue) != null) {
+        // The promise can be forced later without side effects
+        value = RuntimeGuard.resolve(promisedValue);
       } else {
         // Promises can have side effects, and evaluation order is important 
         // so we can't just force all the promises in the beginning of the loop
@@ -58,6 +74,20 @@ public class RuntimeState {
     return value;
   }
 
+  /**
+   * @return the bounds of the value bound to {@code name}, or {@code null} if {@code name} is unbound
+   */
+  public ValueBounds findVariableBounds(Symbol name) {
+    SEXP value = findVariable(name);
+    if(guard != null) {
+      return guard.assumeVariable(rho, name, value);
+    }
+    if(value == Symbol.UNBOUND_VALUE) {
+      return null;
+    }
+    return ValueBounds.of(value);
+  }
+
 
   public Function findFunction(Symbol functionName) {
 
@@ -78,10 +108,16 @@ public class RuntimeState {
       Function f = isFunction(functionName, environment.getVariable(functionName));
       if(f != null) {
         resolvedFunctions.put(functionName, f);
+        if(guard != null) {
+          guard.assumeFunction(rho, functionName, f);
+        }
         return f;
       }
       environment = environment.getParent();
     }
+    if(guard != null) {
+      guard.assumeFunction(rho, functionName, null);
+    }
     return null;
   }
 
@@ -16,6 +16,10 @@ public class LoopContext implements TranslationContext {
     this.exitLabel = exitLabel;
   }
 
+  public TranslationContext getParentContext() {
+    return parentContext;
+  }
+
   public IRLabel getStartLabel() {
     return startLabel;
   }
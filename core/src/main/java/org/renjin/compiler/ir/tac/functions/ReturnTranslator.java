@@ -1,5 +1,6 @@
 package org.renjin.compiler.ir.tac.functions;
 
+import org.renjin.compiler.NotCompilableException;
 import org.renjin.compiler.ir.tac.IRBodyBuilder;
 import org.renjin.compiler.ir.tac.expressions.Constant;
 import org.renjin.compiler.ir.tac.expressions.Expression;
@@ -18,6 +19,12 @@ public class ReturnTranslator extends FunctionCallTranslator {
   public void addStatement(IRBodyBuilder builder, TranslationContext context,
                            Function resolvedFunction, FunctionCall call) {
 
+    if(isWithinCompiledLoop(context)) {
+      // The compiled loop body can only return to the interpreted function,
+      // which would then carry on after the loop
+      throw new NotCompilableException(call, "return() within a compiled loop");
+    }
+
     Expression returnExpression;
     if(call.getArguments().length() == 1) {
       returnExpression = builder.translateExpression(context, call.getArgument(0));
@@ -26,4 +33,11 @@ public class ReturnTranslator extends FunctionCallTranslator {
     }
     builder.addStatement(new ReturnStatement(returnExpression));
   }
+
+  private boolean isWithinCompiledLoop(TranslationContext context) {
+    while(context instanceof LoopContext) {
+      context = ((LoopContext) context).getParentContext();
+    }
+    return context instanceof LoopBodyContext;
+  }
 }
@@ -3,6 +3,7 @@ package org.renjin.compiler.ir.tac.statements;
 import com.google.common.collect.Lists;
 import org.renjin.compiler.codegen.EmitContext;
 import org.renjin.compiler.codegen.VariableStorage;
+import org.renjin.compiler.ir.TypeSet;
 import org.renjin.compiler.ir.ValueBounds;
 import org.renjin.compiler.ir.tac.IRLabel;
 import org.renjin.compiler.ir.tac.expressions.EnvironmentVariable;
@@ -100,18 +101,7 @@ public class ReturnStatement implements Statement, BasicBlockEndingStatement {
         mv.aconst(environmentVariableNames.get(i).getPrintName());
         
         mv.load(variableStorage.getSlotIndex(), variableStorage.getType());
-        emitContext.convert(mv, variableStorage.getType(), Type.getType(SEXP.class));
-
-        if(variableStorage.getType().getSort() != Type.OBJECT) {
-          ValueBounds bounds = environmentVariables.get(i).getValueBounds();
-          if(bounds.isAttributeConstant()) {
-            if(bounds.getConstantAttributes() != AttributeMap.EMPTY) {
-              generateAttributes(mv, bounds.getConstantAttributes());
-            } 
-          } else {
-            throw new UnsupportedOperationException("Lost attributes");
-          }
-        }
+        convertToSexp(emitContext, mv, variableStorage.getType(), environmentVariables.get(i).getValueBounds());
 
         mv.invokevirtual(Type.getInternalName(Environment.class), "setVariable",
             Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(String.class), Type.getType(SEXP.class)), false);
@@ -119,10 +109,48 @@ public class ReturnStatement implements Statement, BasicBlockEndingStatement {
       }
     }
     
-    mv.areturn(Type.VOID_TYPE);
+    if(emitContext.isReturningValue()) {
+      Type returnType;
+      if(returnValue instanceof LValue) {
+        returnType = emitContext.getVariableStorage((LValue) returnValue).getType();
+      } else {
+        returnType = returnValue.getType();
+      }
+      returnValue.load(emitContext, mv);
+      convertToSexp(emitContext, mv, returnType, returnValue.getValueBounds());
+      mv.areturn(Type.getType(SEXP.class));
+      
+    } else {
+      mv.areturn(Type.VOID_TYPE);
+    }
     return 0;
   }
 
+  /**
+   * Converts the value on the stack to an SEXP, restoring the attributes of 
+   * values stored as primitives.
+   */
+  private void convertToSexp(EmitContext emitContext, InstructionAdapter mv, Type type, ValueBounds bounds) {
+    if(type.getSort() != Type.OBJECT) {
+      if(!bounds.isAttributeConstant()) {
+        throw new UnsupportedOperationException("Lost attributes");
+      }
+      if(type.equals(Type.INT_TYPE) && bounds.getTypeSet() == TypeSet.LOGICAL) {
+        mv.invokestatic(Type.getInternalName(Logical.class), "valueOf",
+            Type.getMethodDescriptor(Type.getType(Logical.class), Type.INT_TYPE), false);
+        mv.invokestatic(Type.getInternalName(LogicalVector.class), "valueOf",
+            Type.getMethodDescriptor(Type.getType(SEXP.class), Type.getType(Logical.class)), false);
+      } else {
+        emitContext.convert(mv, type, Type.getType(SEXP.class));
+      }
+      if(bounds.getConstantAttributes() != AttributeMap.EMPTY) {
+        generateAttributes(mv, bounds.getConstantAttributes());
+      }
+    } else {
+      emitContext.convert(mv, type, Type.getType(SEXP.class));
+    }
+  }
+
   private void generateAttributes(InstructionAdapter mv, AttributeMap constantAttributes) {
     
     // SEXP should be on the stack
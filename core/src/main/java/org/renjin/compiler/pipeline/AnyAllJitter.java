@@ -0,0 +1,87 @@
+package org.renjin.compiler.pipeline;
+
+import org.renjin.compiler.pipeline.accessor.InputGraph;
+import org.renjin.repackaged.asm.Label;
+import org.renjin.repackaged.asm.MethodVisitor;
+
+import static org.renjin.repackaged.asm.Opcodes.*;
+
+/**
+ * Computes {@code any} or {@code all} of a vector, stopping as soon as the
+ * result is known. The result is 1 for {@code TRUE}, 0 for {@code FALSE}, or {@code NA}
+ */
+public class AnyAllJitter extends SinglePassJitter {
+
+  private final boolean any;
+
+  private int valueLocal;
+  private int naLocal;
+  private int foundLocal;
+
+  /**
+   * @param any true to compute {@code any}, which stops at the first non-zero element, or false
+   *            to compute {@code all}, which stops at the first zero.
+   */
+  public AnyAllJitter(boolean any) {
+    this.any = any;
+  }
+
+  @Override
+  protected void init(ComputeMethod method, DeferredNode node, InputGraph inputGraph) {
+    valueLocal = method.reserveLocal(2);
+    naLocal = reserveFlag(method);
+    foundLocal = reserveFlag(method);
+  }
+
+  @Override
+  protected void accumulate(ComputeMethod method, Label loopExit) {
+    MethodVisitor mv = method.getVisitor();
+    mv.visitVarInsn(DSTORE, valueLocal);
+
+    // NaN and NA are both NA when coerced to logical
+    Label notNaN = new Label();
+    Label next = new Label();
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitInsn(DCMPL);
+    mv.visitJumpInsn(IFEQ, notNaN);
+    mv.visitInsn(ICONST_1);
+    mv.visitVarInsn(ISTORE, naLocal);
+    mv.visitJumpInsn(GOTO, next);
+
+    // compare to zero and stop if we have found
+    // the element which determines the result
+    mv.visitLabel(notNaN);
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitInsn(DCONST_0);
+    mv.visitInsn(DCMPL);
+    mv.visitJumpInsn(any ? IFEQ : IFNE, next);
+    mv.visitInsn(ICONST_1);
+    mv.visitVarInsn(ISTORE, foundLocal);
+    mv.visitJumpInsn(GOTO, loopExit);
+
+    mv.visitLabel(next);
+  }
+
+  @Override
+  protected void pushResult(ComputeMethod method) {
+    MethodVisitor mv = method.getVisitor();
+    int resultLocal = method.reserveLocal(2);
+
+    Label notFound = new Label();
+    Label done = new Label();
+    mv.visitVarInsn(ILOAD, foundLocal);
+    mv.visitJumpInsn(IFEQ, notFound);
+    mv.visitInsn(any ? DCONST_1 : DCONST_0);
+    mv.visitVarInsn(DSTORE, resultLocal);
+    mv.visitJumpInsn(GOTO, done);
+
+    mv.visitLabel(notFound);
+    mv.visitInsn(any ? DCONST_0 : DCONST_1);
+    mv.visitVarInsn(DSTORE, resultLocal);
+    replaceMissing(mv, resultLocal, naLocal, -1);
+
+    mv.visitLabel(done);
+    pushScalarArray(mv, resultLocal);
+  }
+}
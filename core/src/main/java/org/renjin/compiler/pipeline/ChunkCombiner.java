@@ -0,0 +1,147 @@
+package org.renjin.compiler.pipeline;
+
+import org.renjin.sexp.DoubleVector;
+
+/**
+ * Combines the results of a jitted reduction computed separately over consecutive
+ * chunks of its operand.
+ *
+ * @see JittedComputation#compute(org.renjin.sexp.Vector[], int, int)
+ */
+public abstract class ChunkCombiner {
+
+  /**
+   * @param partials the results of each chunk, in order
+   * @return the result of the reduction over the whole operand
+   */
+  public abstract double[] combine(double[][] partials);
+
+  /**
+   * @return the combiner for the given computation, or {@code null} if the computation
+   * cannot be split into chunks.
+   */
+  public static ChunkCombiner forComputation(String computationName) {
+    switch (computationName) {
+      case "sum":
+      // The mean jitter divides each chunk's sum by the length of the
+      // whole vector, so the partial means simply add up
+      case "mean":
+        return new CompensatedSum();
+      case "prod":
+        return new Product();
+      case "min":
+        return new Extreme(false);
+      case "max":
+        return new Extreme(true);
+      case "range":
+        return new Range();
+      case "any":
+        return new AnyAll(true);
+      case "all":
+        return new AnyAll(false);
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Adds the partial sums using Neumaier's variant of Kahan summation,
+   * so that adding many chunks does not lose more precision than a single pass.
+   */
+  private static class CompensatedSum extends ChunkCombiner {
+    @Override
+    public double[] combine(double[][] partials) {
+      double sum = 0;
+      double compensation = 0;
+      for (double[] partial : partials) {
+        double x = partial[0];
+        double t = sum + x;
+        if(Math.abs(sum) >= Math.abs(x)) {
+          compensation += (sum - t) + x;
+        } else {
+          compensation += (x - t) + sum;
+        }
+        sum = t;
+      }
+      return new double[] { sum + compensation };
+    }
+  }
+
+  private static class Product extends ChunkCombiner {
+    @Override
+    public double[] combine(double[][] partials) {
+      double product = 1;
+      for (double[] partial : partials) {
+        if(DoubleVector.isNA(partial[0])) {
+          return new double[] { DoubleVector.NA };
+        }
+        product *= partial[0];
+      }
+      return new double[] { product };
+    }
+  }
+
+  private static class Extreme extends ChunkCombiner {
+    private final boolean maximum;
+
+    private Extreme(boolean maximum) {
+      this.maximum = maximum;
+    }
+
+    @Override
+    public double[] combine(double[][] partials) {
+      return new double[] { combineExtremes(partials, 0, maximum) };
+    }
+  }
+
+  private static class Range extends ChunkCombiner {
+    @Override
+    public double[] combine(double[][] partials) {
+      return new double[] { combineExtremes(partials, 0, false), combineExtremes(partials, 1, true) };
+    }
+  }
+
+  /**
+   * Combines minimums or maximums: the result is {@code NaN} if any chunk's result
+   * is {@code NaN}, and otherwise {@code NA} if any chunk's result is {@code NA}.
+   */
+  private static double combineExtremes(double[][] partials, int index, boolean maximum) {
+    double extreme = maximum ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+    boolean naEncountered = false;
+    for (double[] partial : partials) {
+      double x = partial[index];
+      if(Double.isNaN(x)) {
+        if(!DoubleVector.isNA(x)) {
+          return Double.NaN;
+        }
+        naEncountered = true;
+      } else {
+        extreme = maximum ? Math.max(extreme, x) : Math.min(extreme, x);
+      }
+    }
+    return naEncountered ? DoubleVector.NA : extreme;
+  }
+
+  private static class AnyAll extends ChunkCombiner {
+    private final boolean any;
+
+    private AnyAll(boolean any) {
+      this.any = any;
+    }
+
+    @Override
+    public double[] combine(double[][] partials) {
+      // any() is decided by the first TRUE chunk, all() by the first FALSE chunk
+      double decisive = any ? 1 : 0;
+      boolean naEncountered = false;
+      for (double[] partial : partials) {
+        if(Double.isNaN(partial[0])) {
+          naEncountered = true;
+        } else if(partial[0] == decisive) {
+          return new double[] { decisive };
+        }
+      }
+      return new double[] { naEncountered ? DoubleVector.NA : 1 - decisive };
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package org.renjin.compiler.pipeline;
+
+import com.google.common.collect.Lists;
+import org.renjin.sexp.Vector;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Computes a jitted reduction in parallel, by splitting its first operand into chunks
+ * which are each computed on a {@link ForkJoinPool}, and then combining their results.
+ */
+public class ChunkedComputation {
+
+  public static final int DEFAULT_MIN_CHUNK_SIZE = 64 * 1024;
+
+  private final ForkJoinPool pool;
+  private final int minChunkSize;
+
+  /**
+   * @param pool the pool on which to compute the chunks
+   * @param minChunkSize the minimum number of elements in each chunk, below which
+   *                     the cost of scheduling a chunk outweighs the benefit.
+   */
+  public ChunkedComputation(ForkJoinPool pool, int minChunkSize) {
+    this.pool = pool;
+    this.minChunkSize = minChunkSize;
+  }
+
+  /**
+   * @return the combiner for the {@code node}'s reduction, or {@code null} if {@code node}
+   * cannot or should not be computed in chunks.
+   */
+  public ChunkCombiner getCombiner(DeferredNode node) {
+    if(node.getOperands().isEmpty() ||
+        node.getOperand(0).getVector().length() < minChunkSize * 2) {
+      return null;
+    }
+    return ChunkCombiner.forComputation(node.getComputation().getComputationName());
+  }
+
+  public double[] compute(final JittedComputation computation, final Vector[] operands,
+                          int length, ChunkCombiner combiner) {
+
+    // Use a few more chunks than threads so that a slow chunk
+    // does not leave the other threads idle
+    int chunkCount = Math.min(pool.getParallelism() * 4, length / minChunkSize);
+    int chunkSize = (length + chunkCount - 1) / chunkCount;
+
+    List<Callable<double[]>> chunks = Lists.newArrayList();
+    for(int start = 0; start < length; start += chunkSize) {
+      final int chunkStart = start;
+      final int chunkEnd = Math.min(length, start + chunkSize);
+      chunks.add(new Callable<double[]>() {
+        @Override
+        public double[] call() throws Exception {
+          return computation.compute(operands, chunkStart, chunkEnd);
+        }
+      });
+    }
+
+    List<Future<double[]>> futures = pool.invokeAll(chunks);
+    double[][] partials = new double[futures.size()][];
+    for(int i = 0; i != partials.length; ++i) {
+      try {
+        partials[i] = futures.get(i).get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
+      } catch (ExecutionException e) {
+        throw new RuntimeException(e.getCause());
+      }
+    }
+    return combiner.combine(partials);
+  }
+}
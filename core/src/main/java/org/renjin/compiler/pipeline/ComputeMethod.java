@@ -3,7 +3,7 @@ package org.renjin.compiler.pipeline;
 import org.renjin.repackaged.asm.MethodVisitor;
 
 public class ComputeMethod {
-  private int localCount = 2; // includes instance pointer and argument
+  private int localCount = 4; // includes instance pointer and arguments
 
   private MethodVisitor visitor;
   private int maxStackSize = 0;
@@ -38,6 +38,22 @@ public class ComputeMethod {
     return 1;
   }
 
+  /**
+   * @return the index of the {@code int} argument holding the index of the
+   * first element of the first operand to compute
+   */
+  public int getStartLocalIndex() {
+    return 2;
+  }
+
+  /**
+   * @return the index of the {@code int} argument holding the index after the last element
+   * of the first operand to compute. This may be greater than the operand's length.
+   */
+  public int getEndLocalIndex() {
+    return 3;
+  }
+
   public int getMaxLocals() {
     return localCount;
   }
@@ -0,0 +1,57 @@
+package org.renjin.compiler.pipeline;
+
+import org.renjin.compiler.pipeline.accessor.InputGraph;
+import org.renjin.repackaged.asm.Label;
+import org.renjin.repackaged.asm.MethodVisitor;
+
+import static org.renjin.repackaged.asm.Opcodes.*;
+
+/**
+ * Computes the cumulative sum of a vector. As in the interpreter, all elements
+ * from the first {@code NA} or {@code NaN} onwards are {@code NA}.
+ */
+public class CumsumJitter extends SinglePassJitter {
+
+  private int sumLocal;
+  private int resultLocal;
+
+  @Override
+  protected void init(ComputeMethod method, DeferredNode node, InputGraph inputGraph) {
+    MethodVisitor mv = method.getVisitor();
+
+    sumLocal = reserveDouble(method, 0);
+
+    // double[] result = new double[length]; Arrays.fill(result, NA)
+    resultLocal = method.reserveLocal(1);
+    mv.visitVarInsn(ILOAD, lengthLocal);
+    mv.visitIntInsn(NEWARRAY, T_DOUBLE);
+    mv.visitInsn(DUP);
+    mv.visitVarInsn(ASTORE, resultLocal);
+    mv.visitFieldInsn(GETSTATIC, "org/renjin/sexp/DoubleVector", "NA", "D");
+    mv.visitMethodInsn(INVOKESTATIC, "java/util/Arrays", "fill", "([DD)V");
+  }
+
+  @Override
+  protected void accumulate(ComputeMethod method, Label loopExit) {
+    MethodVisitor mv = method.getVisitor();
+    mv.visitVarInsn(DLOAD, sumLocal);
+    mv.visitInsn(DADD);
+    mv.visitVarInsn(DSTORE, sumLocal);
+
+    // stop at the first NaN, leaving the remaining elements NA
+    mv.visitVarInsn(DLOAD, sumLocal);
+    mv.visitVarInsn(DLOAD, sumLocal);
+    mv.visitInsn(DCMPL);
+    mv.visitJumpInsn(IFNE, loopExit);
+
+    mv.visitVarInsn(ALOAD, resultLocal);
+    mv.visitVarInsn(ILOAD, counterLocal);
+    mv.visitVarInsn(DLOAD, sumLocal);
+    mv.visitInsn(DASTORE);
+  }
+
+  @Override
+  protected void pushResult(ComputeMethod method) {
+    method.getVisitor().visitVarInsn(ALOAD, resultLocal);
+  }
+}
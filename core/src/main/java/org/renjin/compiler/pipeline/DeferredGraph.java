@@ -33,7 +33,9 @@ public class DeferredGraph {
     this.rootNode = new DeferredNode(nextNodeId(), root);
     nodes.add(rootNode);
     nodeMap.put(root, rootNode);
-    addChildren(this.rootNode);
+    if(rootNode.isComputation()) {
+      addChildren(this.rootNode);
+    }
 
     Optimizers optimizers = new Optimizers();
     optimizers.optimize(this);
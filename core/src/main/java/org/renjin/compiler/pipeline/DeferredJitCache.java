@@ -1,22 +1,58 @@
 package org.renjin.compiler.pipeline;
 
+import com.google.common.base.Strings;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 
+import org.renjin.RenjinVersion;
+import org.renjin.sexp.Vector;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
  * Maintains a cache of recently used JITted classes.
+ *
+ * <p>If the {@code renjin.jit.cache.dir} system property is set, the generated classes are
+ * also stored in that directory by a {@link PersistentJitCache}, and loaded from there
+ * by later JVMs rather than generated again. Classes are only shared by JVMs running the same build of
+ * Renjin, but a class which still fails to link when it is first run is replaced by a newly generated
+ * one.</p>
  */
 public class DeferredJitCache {
 
-  public static final DeferredJitCache INSTANCE = new DeferredJitCache();
+  public static final String CACHE_DIR_PROPERTY = "renjin.jit.cache.dir";
+
+  public static final DeferredJitCache INSTANCE = new DeferredJitCache(cacheDirFromProperty());
 
   private final Cache<JitKey, JittedComputation> cache;
 
-  private DeferredJitCache() {
+  private final PersistentJitCache persistentCache;
+
+  private final AtomicLong compileCount = new AtomicLong();
+  private final AtomicLong diskHitCount = new AtomicLong();
+  private final AtomicLong timeSaved = new AtomicLong();
+
+  /**
+   * @param cacheDir the directory in which to persist generated classes, or {@code null}
+   *                 to keep them only in memory.
+   */
+  DeferredJitCache(File cacheDir) {
     cache = CacheBuilder.newBuilder()
             .softValues()
             .maximumSize(100)
             .build();
+    String buildFingerprint = cacheDir == null ? null : RenjinVersion.getBuildFingerprint();
+    persistentCache = buildFingerprint == null ? null : new PersistentJitCache(cacheDir, buildFingerprint);
+  }
+
+  private static File cacheDirFromProperty() {
+    String dir = System.getProperty(CACHE_DIR_PROPERTY);
+    if(Strings.isNullOrEmpty(dir)) {
+      return null;
+    }
+    return new File(dir);
   }
 
   public JittedComputation compile(DeferredNode node) {
@@ -25,10 +61,144 @@ public class DeferredJitCache {
     if(computation != null) {
       return computation;
     }
-    DeferredJitter jitter = new DeferredJitter();
-    computation = jitter.compile(node);
+    if(persistentCache != null) {
+      computation = loadPersisted(key, node);
+    }
+    if(computation == null) {
+      computation = generate(key, node);
+    }
     cache.put(key, computation);
 
     return computation;
   }
+
+  private JittedComputation loadPersisted(JitKey key, DeferredNode node) {
+    long startTime = System.nanoTime();
+    PersistentJitCache.Entry entry = persistentCache.read(key);
+    if(entry == null) {
+      return null;
+    }
+    JittedComputation computation;
+    try {
+      computation = new PersistedComputation(key, node,
+          DeferredJitter.load(entry.getClassName(), entry.getClassBytes()));
+    } catch (RuntimeException | LinkageError e) {
+      // The class no longer matches the classes it was compiled against
+      persistentCache.remove(key);
+      return null;
+    }
+    long loadTime = System.nanoTime() - startTime;
+
+    diskHitCount.incrementAndGet();
+    timeSaved.addAndGet(Math.max(0, entry.getCompileTime() - loadTime));
+
+    return computation;
+  }
+
+  private JittedComputation generate(JitKey key, DeferredNode node) {
+    if(persistentCache == null) {
+      compileCount.incrementAndGet();
+      return new DeferredJitter().compile(node);
+    }
+
+    long startTime = System.nanoTime();
+    DeferredJitter jitter = new DeferredJitter("Jit" + key.getDigest());
+    byte[] classBytes = jitter.generate(node);
+    JittedComputation computation = DeferredJitter.load(jitter.getClassName(), classBytes);
+    long compileTime = System.nanoTime() - startTime;
+
+    compileCount.incrementAndGet();
+    persistentCache.write(key, jitter.getClassName(), classBytes, compileTime);
+
+    return computation;
+  }
+
+  /**
+   * A class loaded from the persistent cache. Most linkage errors are only raised when a class is
+   * first run, so the first computation is checked, and if the class fails to link, it is removed from
+   * the cache and generated again.
+   */
+  private class PersistedComputation implements JittedComputation {
+    private final JitKey key;
+    private volatile JittedComputation computation;
+    private volatile boolean linked;
+
+    /**
+     * The node for which the class was loaded, kept until the first computation in order to
+     * generate the class again.
+     */
+    private DeferredNode node;
+
+    private PersistedComputation(JitKey key, DeferredNode node, JittedComputation computation) {
+      this.key = key;
+      this.node = node;
+      this.computation = computation;
+    }
+
+    @Override
+    public double[] compute(Vector[] operands) {
+      if(linked) {
+        return computation.compute(operands);
+      }
+      double[] result;
+      try {
+        result = computation.compute(operands);
+      } catch (LinkageError e) {
+        return regenerate().compute(operands);
+      }
+      linked();
+      return result;
+    }
+
+    @Override
+    public double[] compute(Vector[] operands, int start, int end) {
+      if(linked) {
+        return computation.compute(operands, start, end);
+      }
+      double[] result;
+      try {
+        result = computation.compute(operands, start, end);
+      } catch (LinkageError e) {
+        return regenerate().compute(operands, start, end);
+      }
+      linked();
+      return result;
+    }
+
+    private synchronized void linked() {
+      linked = true;
+      node = null;
+    }
+
+    private synchronized JittedComputation regenerate() {
+      if(!linked) {
+        persistentCache.remove(key);
+        computation = generate(key, node);
+        linked();
+      }
+      return computation;
+    }
+  }
+
+  /**
+   * @return the number of classes generated by this JVM
+   */
+  public long getCompileCount() {
+    return compileCount.get();
+  }
+
+  /**
+   * @return the number of classes loaded from the persistent cache rather than generated
+   */
+  public long getDiskHitCount() {
+    return diskHitCount.get();
+  }
+
+  /**
+   * @return the time saved by loading classes from the persistent cache, that is, the time
+   * originally taken to generate and load each class less the time taken to read and load it from disk.
+   */
+  public long getJitTimeSaved(TimeUnit unit) {
+    return unit.convert(timeSaved.get(), TimeUnit.NANOSECONDS);
+  }
 }
@@ -35,6 +35,10 @@ import static org.renjin.repackaged.asm.Opcodes.*;
  * the jvm should be capable of inlining virtual invocations in loops of 25m + iterations, but it doesn't seem
  * to happen in practice.
  *
+ * <p>Summary functions such as {@code sum}, {@code max} or {@code var} are compiled by the
+ * {@link FunctionJitter} registered for their computation name. Other deferred vectors whose
+ * operations can be inlined are materialized element-wise by the {@link ElementwiseJitter}.</p>
+ *
  * <p>Because we totally inline getElementAsDouble,
  * we need a new Jitted class for each combination of operators and vector classes.</p>
  */
@@ -44,11 +48,43 @@ public class DeferredJitter {
   private ClassVisitor cv;
 
   public DeferredJitter() {
-    className = "Jit" + System.identityHashCode(this);
+    this("Jit" + System.identityHashCode(new Object()));
+  }
+
+  /**
+   * @param className the name of the class to generate, which must be a valid
+   *                  binary class name in the default package
+   */
+  public DeferredJitter(String className) {
+    this.className = className;
+  }
+
+  public String getClassName() {
+    return className;
   }
 
   public JittedComputation compile(DeferredNode node)  {
     long startTime = System.nanoTime();
+
+    byte[] classBytes = generate(node);
+    long compileTime = System.nanoTime() - startTime;
+
+    JittedComputation computation = load(className, classBytes);
+
+    long loadTime = System.nanoTime() - startTime - compileTime;
+
+    if(VectorPipeliner.DEBUG) {
+      System.out.println("compile: " + (compileTime/1e6) + "ms");
+      System.out.println("load: " + (loadTime/1e6) + "ms");
+    }
+
+    return computation;
+  }
+
+  /**
+   * Generates the byte code of the class which computes {@code node}
+   */
+  public byte[] generate(DeferredNode node) {
     ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
     cv = cw;
 //    if(DeferredGraph.DEBUG) {
@@ -63,18 +99,15 @@ public class DeferredJitter {
 
     cv.visitEnd();
 
-    byte[] classBytes = cw.toByteArray();
-    long compileTime = System.nanoTime() - startTime;
+    return cw.toByteArray();
+  }
 
+  /**
+   * Defines a class previously generated by {@link #generate(DeferredNode)} and
+   * creates a new instance.
+   */
+  public static JittedComputation load(String className, byte[] classBytes) {
     Class jitClass = new MyClassLoader().defineClass(className, classBytes);
-
-    long loadTime = System.nanoTime() - startTime - compileTime;
-
-    if(VectorPipeliner.DEBUG) {
-      System.out.println("compile: " + (compileTime/1e6) + "ms");
-      System.out.println("load: " + (loadTime/1e6) + "ms");
-    }
-
     try {
       return (JittedComputation) jitClass.newInstance();
     } catch (Exception e) {
@@ -93,7 +126,7 @@ public class DeferredJitter {
   }
 
   private void writeCompute(DeferredNode node) {
-    MethodVisitor mv = cv.visitMethod(ACC_PUBLIC, "compute", "([Lorg/renjin/sexp/Vector;)[D", null, null);
+    MethodVisitor mv = cv.visitMethod(ACC_PUBLIC, "compute", "([Lorg/renjin/sexp/Vector;II)[D", null, null);
     mv.visitCode();
 
     ComputeMethod methodContext = new ComputeMethod(mv);
@@ -103,21 +136,80 @@ public class DeferredJitter {
 
     mv.visitMaxs(1, methodContext.getMaxLocals());
     mv.visitEnd();
+
+    // compute(operands) => compute(operands, 0, Integer.MAX_VALUE)
+    mv = cv.visitMethod(ACC_PUBLIC, "compute", "([Lorg/renjin/sexp/Vector;)[D", null, null);
+    mv.visitCode();
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitVarInsn(ALOAD, 1);
+    mv.visitInsn(ICONST_0);
+    mv.visitLdcInsn(Integer.MAX_VALUE);
+    mv.visitMethodInsn(INVOKEVIRTUAL, className, "compute", "([Lorg/renjin/sexp/Vector;II)[D");
+    mv.visitInsn(ARETURN);
+    mv.visitMaxs(4, 2);
+    mv.visitEnd();
+  }
+
+  /**
+   * @return true if the deferred computation {@code node} can be compiled by
+   * a {@link FunctionJitter}
+   */
+  public static boolean isSupported(DeferredNode node) {
+    return createFunction(node.getComputation().getComputationName()) != null;
   }
 
   private FunctionJitter getFunction(DeferredNode node) {
-    if(node.getComputation().getComputationName().equals("mean")) {
-      return new MeanJitter();
-    } else if(node.getComputation().getComputationName().equals("rowMeans")) {
-      return new RowMeanJitter();
-    } else if(node.getComputation().getComputationName().equals("sum")) {
-      return new SumJitter();
-    } else {
-      throw new UnsupportedOperationException(node.toString());
+    FunctionJitter function = createFunction(node.getComputation().getComputationName());
+    if(function != null) {
+      return function;
+    }
+    if(ElementwiseJitter.accept(node)) {
+      return new ElementwiseJitter();
+    }
+    throw new UnsupportedOperationException(node.toString());
+  }
+
+  private static FunctionJitter createFunction(String computationName) {
+    switch (computationName) {
+      case "sum":
+        return new SumJitter();
+      case "mean":
+        return new MeanJitter();
+      case "prod":
+        return new ProdJitter();
+      case "min":
+        return new MinMaxJitter(false);
+      case "max":
+        return new MinMaxJitter(true);
+      case "range":
+        return new RangeJitter();
+      case "any":
+        return new AnyAllJitter(true);
+      case "all":
+        return new AnyAllJitter(false);
+      case "var":
+        return new VarianceJitter();
+      case "cumsum":
+        return new CumsumJitter();
+      case "rowSums":
+        return new MarginJitter(true, false);
+      case "rowMeans":
+        return new MarginJitter(true, true);
+      case "colSums":
+        return new MarginJitter(false, false);
+      case "colMeans":
+        return new MarginJitter(false, true);
+      default:
+        return null;
     }
   }
 
-  class MyClassLoader extends ClassLoader {
+  static class MyClassLoader extends ClassLoader {
+
+    MyClassLoader() {
+      super(JittedComputation.class.getClassLoader());
+    }
+
     public Class defineClass(String name, byte[] b) {
       return defineClass(name, b, 0, b.length);
     }
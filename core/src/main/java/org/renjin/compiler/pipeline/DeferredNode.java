@@ -4,6 +4,7 @@ import com.google.common.base.Joiner;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.renjin.primitives.sequence.RepDoubleVector;
+import org.renjin.primitives.vector.AdaptiveDoubleVector;
 import org.renjin.primitives.vector.DeferredComputation;
 import org.renjin.primitives.vector.MemoizedComputation;
 import org.renjin.sexp.DoubleArrayVector;
@@ -24,6 +25,10 @@ public class DeferredNode {
     this.id = id;
     if(vector instanceof MemoizedComputation && ((MemoizedComputation) vector).isCalculated()) {
       this.vector = ((MemoizedComputation)vector).forceResult();
+    } else if(vector instanceof AdaptiveDoubleVector) {
+      // Read the stored elements, if the vector has been read often enough to store them
+      Vector stored = ((AdaptiveDoubleVector) vector).recordScan();
+      this.vector = stored == null ? vector : stored;
     } else {
       this.vector = vector;
     }
@@ -167,10 +172,12 @@ public class DeferredNode {
   public JitKey jitKey() {
     List<DeferredNode> nodes = flatten();
     Class[] classes = new Class[nodes.size()];
+    int[] operandCounts = new int[nodes.size()];
     for(int i=0;i!=classes.length;++i) {
       classes[i] = nodes.get(i).getVector().getClass();
+      operandCounts[i] = nodes.get(i).getOperands().size();
     }
-    return new JitKey(classes);
+    return new JitKey(classes, operandCounts);
   }
 
   public void setResult(Vector result) {
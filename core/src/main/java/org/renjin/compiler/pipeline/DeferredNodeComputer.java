@@ -11,26 +11,34 @@ import org.renjin.sexp.Vector;
 public class DeferredNodeComputer implements Runnable {
 
   private final DeferredNode node;
+  private final ChunkedComputation chunkedComputation;
 
   public DeferredNodeComputer(DeferredNode node) {
+    this(node, null);
+  }
+
+  /**
+   * @param chunkedComputation used to compute reductions over large vectors in parallel,
+   *                           or {@code null} to compute all nodes on the current thread.
+   */
+  public DeferredNodeComputer(DeferredNode node, ChunkedComputation chunkedComputation) {
     this.node = node;
+    this.chunkedComputation = chunkedComputation;
   }
 
   @Override
   public void run() {
-    // TODO: at the moment, we can compile only a small number of summary
-    // function, eventually we want to generate bytecode on the fly based
+    // TODO: at the moment, we can compile only the summary functions
+    // known to DeferredJitter, eventually we want to generate bytecode on the fly based
     // on their implementations elsewhere.
-    if(node.getComputation().getComputationName().equals("mean") ||
-        node.getComputation().getComputationName().equals("rowMeans") ||
-        node.getComputation().getComputationName().equals("sum")) {
+    if(DeferredJitter.isSupported(node)) {
       try {
         Vector[] operands = node.flattenVectors();
         JittedComputation computer = DeferredJitCache.INSTANCE.compile(node);
 
         long start = System.nanoTime();
 
-        Vector result = DoubleArrayVector.unsafe(computer.compute(operands));
+        Vector result = DoubleArrayVector.unsafe(compute(computer, operands));
 
         long time = System.nanoTime() - start;
         if(VectorPipeliner.DEBUG) {
@@ -46,4 +54,15 @@ public class DeferredNodeComputer implements Runnable {
       node.setResult(((MemoizedComputation) node.getVector()).forceResult());
     }
   }
+
+  private double[] compute(JittedComputation computer, Vector[] operands) {
+    if(chunkedComputation != null) {
+      ChunkCombiner combiner = chunkedComputation.getCombiner(node);
+      if(combiner != null) {
+        int length = node.getOperand(0).getVector().length();
+        return chunkedComputation.compute(computer, operands, length, combiner);
+      }
+    }
+    return computer.compute(operands);
+  }
 }
@@ -0,0 +1,59 @@
+package org.renjin.compiler.pipeline;
+
+import org.renjin.compiler.pipeline.accessor.Accessors;
+import org.renjin.compiler.pipeline.accessor.InputGraph;
+import org.renjin.repackaged.asm.Label;
+import org.renjin.repackaged.asm.MethodVisitor;
+
+import static org.renjin.repackaged.asm.Opcodes.*;
+
+/**
+ * Materializes a deferred vector into a new {@code double[]} array, computing
+ * each element with the inlined operations of the whole graph rather than through
+ * a chain of virtual {@code getElementAsDouble()} calls.
+ *
+ * <p>Unlike the other jitters, the root node itself is the vector to compute, rather than
+ * a function of its first operand.</p>
+ */
+public class ElementwiseJitter extends SinglePassJitter {
+
+  private int resultLocal;
+  private int valueLocal;
+
+  /**
+   * @return true if the elements of {@code node} can be computed by inlined operations
+   */
+  public static boolean accept(DeferredNode node) {
+    return Accessors.isInlined(node);
+  }
+
+  @Override
+  protected DeferredNode getInput(DeferredNode node) {
+    return node;
+  }
+
+  @Override
+  protected void init(ComputeMethod method, DeferredNode node, InputGraph inputGraph) {
+    MethodVisitor mv = method.getVisitor();
+    resultLocal = method.reserveLocal(1);
+    mv.visitVarInsn(ILOAD, lengthLocal);
+    mv.visitIntInsn(NEWARRAY, T_DOUBLE);
+    mv.visitVarInsn(ASTORE, resultLocal);
+    valueLocal = method.reserveLocal(2);
+  }
+
+  @Override
+  protected void accumulate(ComputeMethod method, Label loopExit) {
+    MethodVisitor mv = method.getVisitor();
+    mv.visitVarInsn(DSTORE, valueLocal);
+    mv.visitVarInsn(ALOAD, resultLocal);
+    mv.visitVarInsn(ILOAD, counterLocal);
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitInsn(DASTORE);
+  }
+
+  @Override
+  protected void pushResult(ComputeMethod method) {
+    method.getVisitor().visitVarInsn(ALOAD, resultLocal);
+  }
+}
@@ -1,18 +1,45 @@
 package org.renjin.compiler.pipeline;
 
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hashing;
+
+import java.io.Serializable;
 import java.util.Arrays;
 
 /**
  * Uniquely identifies a Jitted computation subgraph.
+ *
+ * <p>The key is made up of the names of the vector classes in the flattened
+ * subgraph, together with the number of operands of each node, so that it is
+ * stable across JVMs and can be used to look up classes persisted by an
+ * earlier run.</p>
  */
-public class JitKey {
+public class JitKey implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String[] classNames;
+  private final int[] operandCounts;
+  private final int hash;
 
-  private Class[] classes;
-  private int hash;
+  public JitKey(Class[] classes, int[] operandCounts) {
+    if(classes.length != operandCounts.length) {
+      throw new IllegalArgumentException("classes.length != operandCounts.length");
+    }
+    this.classNames = new String[classes.length];
+    for(int i=0;i!=classes.length;++i) {
+      this.classNames[i] = classes[i].getName();
+    }
+    this.operandCounts = operandCounts;
+    this.hash = 31 * Arrays.hashCode(classNames) + Arrays.hashCode(operandCounts);
+  }
 
-  public JitKey(Class[] classes) {
-    this.classes = classes;
-    this.hash = Arrays.hashCode(classes);
+  /**
+   * @return a hex-encoded SHA-1 digest of this key, which is the same
+   * in every JVM and can be used as a file name.
+   */
+  public String getDigest() {
+    return Hashing.sha1().hashString(toString(), Charsets.UTF_8).toString();
   }
 
   @Override
@@ -26,6 +53,19 @@ public class JitKey {
       return false;
     }
     JitKey other = (JitKey)obj;
-    return Arrays.equals(classes, other.classes);
+    return Arrays.equals(classNames, other.classNames) &&
+           Arrays.equals(operandCounts, other.operandCounts);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder s = new StringBuilder();
+    for(int i=0;i!=classNames.length;++i) {
+      if(i > 0) {
+        s.append(' ');
+      }
+      s.append(classNames[i]).append('/').append(operandCounts[i]);
+    }
+    return s.toString();
   }
 }
@@ -14,4 +14,17 @@ public interface JittedComputation {
    * @return
    */
   public double[] compute(Vector[] operands);
+
+  /**
+   * Computes the function over only the elements {@code start} (inclusive) to {@code end} (exclusive)
+   * of the first operand. Reductions such as {@code sum} or {@code max} can then be computed in
+   * parallel, and their partial results combined by a {@link ChunkCombiner}. The
+   * results of other functions, such as {@code cumsum}, will be incomplete.
+   *
+   * @param operands the flattened set of vectors from a {@link DeferredNode} and its descendants.
+   * @param start the index of the first element to include
+   * @param end the index after the last element to include, which may be greater than
+   *            the length of the first operand.
+   */
+  public double[] compute(Vector[] operands, int start, int end);
 }
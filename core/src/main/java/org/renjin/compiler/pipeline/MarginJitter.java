@@ -0,0 +1,141 @@
+package org.renjin.compiler.pipeline;
+
+import org.renjin.compiler.pipeline.accessor.Accessor;
+import org.renjin.compiler.pipeline.accessor.Accessors;
+import org.renjin.compiler.pipeline.accessor.InputGraph;
+import org.renjin.repackaged.asm.Label;
+import org.renjin.repackaged.asm.MethodVisitor;
+
+import static org.renjin.repackaged.asm.Opcodes.*;
+
+/**
+ * Computes the sums or means of the rows or columns of a matrix, in a single pass over
+ * the matrix in column-major order.
+ *
+ * <p>The node's operands are the matrix and the number of rows.</p>
+ */
+public class MarginJitter extends SinglePassJitter {
+
+  private final boolean rows;
+  private final boolean mean;
+
+  private int numRowsLocal;
+  private int rowLocal;
+  private int colLocal;
+  private int sumsLocal;
+
+  /**
+   * @param rows true to compute the sums of rows, false to compute the sums of columns
+   * @param mean true to divide the sums by the number of elements summed
+   */
+  public MarginJitter(boolean rows, boolean mean) {
+    this.rows = rows;
+    this.mean = mean;
+  }
+
+  @Override
+  protected void init(ComputeMethod method, DeferredNode node, InputGraph inputGraph) {
+    MethodVisitor mv = method.getVisitor();
+
+    Accessor numRows = Accessors.create(node.getOperand(1), inputGraph);
+    numRows.init(method);
+
+    numRowsLocal = method.reserveLocal(1);
+    mv.visitInsn(ICONST_0);
+    numRows.pushInt(method);
+    mv.visitVarInsn(ISTORE, numRowsLocal);
+
+    rowLocal = reserveFlag(method);
+    colLocal = reserveFlag(method);
+
+    // create the array of sums, with one element per row or column
+    sumsLocal = method.reserveLocal(1);
+    pushMarginLength(mv);
+    mv.visitIntInsn(NEWARRAY, T_DOUBLE);
+    mv.visitVarInsn(ASTORE, sumsLocal);
+  }
+
+  private void pushMarginLength(MethodVisitor mv) {
+    if(rows) {
+      mv.visitVarInsn(ILOAD, numRowsLocal);
+    } else {
+      mv.visitVarInsn(ILOAD, lengthLocal);
+      mv.visitVarInsn(ILOAD, numRowsLocal);
+      mv.visitInsn(IDIV);
+    }
+  }
+
+  @Override
+  protected void accumulate(ComputeMethod method, Label loopExit) {
+    MethodVisitor mv = method.getVisitor();
+    int valueLocal = method.reserveLocal(2);
+    mv.visitVarInsn(DSTORE, valueLocal);
+
+    // sums[row or col] += value
+    mv.visitVarInsn(ALOAD, sumsLocal);
+    mv.visitVarInsn(ILOAD, rows ? rowLocal : colLocal);
+    mv.visitInsn(DUP2);
+    mv.visitInsn(DALOAD);
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitInsn(DADD);
+    mv.visitInsn(DASTORE);
+
+    // advance to the next row, and wrap around to the
+    // next column when we hit the end of the rows
+    mv.visitIincInsn(rowLocal, 1);
+    mv.visitVarInsn(ILOAD, rowLocal);
+    mv.visitVarInsn(ILOAD, numRowsLocal);
+    Label sameColumn = new Label();
+    mv.visitJumpInsn(IF_ICMPNE, sameColumn);
+    mv.visitInsn(ICONST_0);
+    mv.visitVarInsn(ISTORE, rowLocal);
+    mv.visitIincInsn(colLocal, 1);
+    mv.visitLabel(sameColumn);
+  }
+
+  @Override
+  protected void pushResult(ComputeMethod method) {
+    MethodVisitor mv = method.getVisitor();
+
+    if(mean) {
+      // divide each sum by the number of elements in the row or column,
+      // which is the number of columns or rows respectively
+      int divisorLocal = method.reserveLocal(2);
+      if(rows) {
+        mv.visitVarInsn(ILOAD, lengthLocal);
+        mv.visitVarInsn(ILOAD, numRowsLocal);
+        mv.visitInsn(IDIV);
+      } else {
+        mv.visitVarInsn(ILOAD, numRowsLocal);
+      }
+      mv.visitInsn(I2D);
+      mv.visitVarInsn(DSTORE, divisorLocal);
+
+      int iLocal = reserveFlag(method);
+      int marginLengthLocal = method.reserveLocal(1);
+      pushMarginLength(mv);
+      mv.visitVarInsn(ISTORE, marginLengthLocal);
+
+      Label loopCheck = new Label();
+      Label loopExit = new Label();
+      mv.visitLabel(loopCheck);
+      mv.visitVarInsn(ILOAD, iLocal);
+      mv.visitVarInsn(ILOAD, marginLengthLocal);
+      mv.visitJumpInsn(IF_ICMPEQ, loopExit);
+
+      mv.visitVarInsn(ALOAD, sumsLocal);
+      mv.visitVarInsn(ILOAD, iLocal);
+      mv.visitInsn(DUP2);
+      mv.visitInsn(DALOAD);
+      mv.visitVarInsn(DLOAD, divisorLocal);
+      mv.visitInsn(DDIV);
+      mv.visitInsn(DASTORE);
+
+      mv.visitIincInsn(iLocal, 1);
+      mv.visitJumpInsn(GOTO, loopCheck);
+      mv.visitLabel(loopExit);
+    }
+
+    mv.visitVarInsn(ALOAD, sumsLocal);
+  }
+}
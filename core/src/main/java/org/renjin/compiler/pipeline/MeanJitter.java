@@ -1,76 +1,41 @@
 package org.renjin.compiler.pipeline;
 
-import org.renjin.compiler.pipeline.accessor.Accessor;
-import org.renjin.compiler.pipeline.accessor.Accessors;
 import org.renjin.compiler.pipeline.accessor.InputGraph;
 import org.renjin.repackaged.asm.Label;
 import org.renjin.repackaged.asm.MethodVisitor;
 
 import static org.renjin.repackaged.asm.Opcodes.*;
 
-public class MeanJitter implements FunctionJitter {
+public class MeanJitter extends SinglePassJitter {
 
-  @Override
-  public void compute(ComputeMethod method, DeferredNode node) {
-
-    InputGraph inputGraph = new InputGraph(node);
+  private int sumLocal;
 
-    Accessor accessor = Accessors.create(node.getOperands().get(0), inputGraph);
-    accessor.init(method);
+  @Override
+  protected void init(ComputeMethod method, DeferredNode node, InputGraph inputGraph) {
+    sumLocal = reserveDouble(method, 0);
+  }
 
+  @Override
+  protected void accumulate(ComputeMethod method, Label loopExit) {
     MethodVisitor mv = method.getVisitor();
 
-    // get the length of the vector
-    int lengthLocal = method.reserveLocal(1);
-    accessor.pushLength(method);
-    mv.visitVarInsn(ISTORE, lengthLocal);
-
-    // initial the sum variable
-    int sumLocal = method.reserveLocal(2);
-    mv.visitInsn(DCONST_0);
-
-    mv.visitVarInsn(DSTORE, sumLocal);
-
-    int counterLocal = method.reserveLocal(1);
-    mv.visitInsn(ICONST_0);
-    mv.visitVarInsn(ISTORE, counterLocal);
-
-    Label l3 = new Label();
-    mv.visitLabel(l3);
-    mv.visitVarInsn(ILOAD, counterLocal);
-    mv.visitVarInsn(ILOAD, lengthLocal);
-
-    Label l4 = new Label();
-    mv.visitJumpInsn(IF_ICMPEQ, l4);
-
-    Label l5 = new Label();
-    mv.visitLabel(l5);
-
-    // load the sum on to the stack, and the next value
+    // add the next value to the sum
     mv.visitVarInsn(DLOAD, sumLocal);
-    mv.visitVarInsn(ILOAD, counterLocal);
-    accessor.pushDouble(method);
-
-    // add the two values and store back into sum
     mv.visitInsn(DADD);
     mv.visitVarInsn(DSTORE, sumLocal);
+  }
 
-    Label l6 = new Label();
-    mv.visitLabel(l6);
-    mv.visitIincInsn(counterLocal, 1);
-    mv.visitJumpInsn(GOTO, l3);
-    mv.visitLabel(l4);
+  @Override
+  protected void pushResult(ComputeMethod method) {
+    MethodVisitor mv = method.getVisitor();
 
-    // return result
-    mv.visitInsn(ICONST_1);
-    mv.visitIntInsn(NEWARRAY, T_DOUBLE);
-    mv.visitInsn(DUP);
-    mv.visitInsn(ICONST_0);
+    // divide out the mean
     mv.visitVarInsn(DLOAD, sumLocal);
     mv.visitVarInsn(ILOAD, lengthLocal);
     mv.visitInsn(I2D);
     mv.visitInsn(DDIV);
-    mv.visitInsn(DASTORE);
-    mv.visitInsn(ARETURN);
+    mv.visitVarInsn(DSTORE, sumLocal);
+
+    pushScalarArray(mv, sumLocal);
   }
 }
@@ -0,0 +1,54 @@
+package org.renjin.compiler.pipeline;
+
+import org.renjin.compiler.pipeline.accessor.InputGraph;
+import org.renjin.repackaged.asm.Label;
+import org.renjin.repackaged.asm.MethodVisitor;
+
+import static org.renjin.repackaged.asm.Opcodes.*;
+
+/**
+ * Computes the minimum or maximum of a vector. As in the interpreter,
+ * the result is {@code NaN} if the vector contains any {@code NaN}s, and otherwise {@code NA} if
+ * the vector contains any {@code NA}s.
+ */
+public class MinMaxJitter extends SinglePassJitter {
+
+  private final boolean maximum;
+
+  private int extremeLocal;
+  private int valueLocal;
+  private int naLocal;
+  private int nanLocal;
+
+  public MinMaxJitter(boolean maximum) {
+    this.maximum = maximum;
+  }
+
+  @Override
+  protected void init(ComputeMethod method, DeferredNode node, InputGraph inputGraph) {
+    extremeLocal = reserveDouble(method, maximum ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY);
+    valueLocal = method.reserveLocal(2);
+    naLocal = reserveFlag(method);
+    nanLocal = reserveFlag(method);
+  }
+
+  @Override
+  protected void accumulate(ComputeMethod method, Label loopExit) {
+    MethodVisitor mv = method.getVisitor();
+    mv.visitInsn(DUP2);
+    mv.visitVarInsn(DSTORE, valueLocal);
+
+    mv.visitVarInsn(DLOAD, extremeLocal);
+    mv.visitMethodInsn(INVOKESTATIC, "java/lang/Math", maximum ? "max" : "min", "(DD)D");
+    mv.visitVarInsn(DSTORE, extremeLocal);
+
+    markMissing(mv, valueLocal, naLocal, nanLocal);
+  }
+
+  @Override
+  protected void pushResult(ComputeMethod method) {
+    MethodVisitor mv = method.getVisitor();
+    replaceMissing(mv, extremeLocal, naLocal, nanLocal);
+    pushScalarArray(mv, extremeLocal);
+  }
+}
@@ -12,14 +12,27 @@ import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 
 public class MultiThreadedVectorPipeliner implements VectorPipeliner {
 
   private final ExecutorService executorService;
+  private final ChunkedComputation chunkedComputation;
 
   public MultiThreadedVectorPipeliner(ExecutorService executorService) {
     this.executorService = executorService;
+    this.chunkedComputation = null;
+  }
+
+  /**
+   * Creates a pipeliner which computes independent nodes in parallel on the {@code executorService},
+   * and additionally splits reductions of large vectors into chunks which are computed in
+   * parallel on the {@code pool}
+   */
+  public MultiThreadedVectorPipeliner(ExecutorService executorService, ForkJoinPool pool) {
+    this.executorService = executorService;
+    this.chunkedComputation = new ChunkedComputation(pool, ChunkedComputation.DEFAULT_MIN_CHUNK_SIZE);
   }
 
   @Override
@@ -81,7 +94,7 @@ public class MultiThreadedVectorPipeliner implements VectorPipeliner {
           if(VectorPipeliner.DEBUG) {
             System.out.println("Starting " + node);
           }
-          service.submit(new DeferredNodeComputer(node), node);
+          service.submit(new DeferredNodeComputer(node, chunkedComputation), node);
           running ++;
           it.remove();
         }
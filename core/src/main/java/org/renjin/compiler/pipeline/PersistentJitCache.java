@@ -0,0 +1,160 @@
+package org.renjin.compiler.pipeline;
+
+import org.renjin.RenjinVersion;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Stores the byte code of jitted classes in a local directory, so that
+ * later JVMs executing the same vector expressions can load the classes instead of
+ * generating them again.
+ *
+ * <p>Each class is stored in a file named after the {@link JitKey#getDigest() digest} of its key,
+ * in a subdirectory for the current {@link RenjinVersion#getBuildFingerprint() build} of Renjin, as the
+ * generated code refers to the internals of Renjin's vector classes. Files are written to a temporary file and then renamed,
+ * so that several JVMs can safely share the same directory.</p>
+ */
+public class PersistentJitCache {
+
+  private static final int MAGIC = 0x524A4954;
+
+  private static final int FORMAT_VERSION = 1;
+
+  private final File directory;
+
+  /**
+   * @param baseDirectory the directory in which the subdirectory of each build is created
+   * @param buildFingerprint the fingerprint of the build of Renjin which loads the classes
+   */
+  public PersistentJitCache(File baseDirectory, String buildFingerprint) {
+    this.directory = new File(baseDirectory, sanitize(versionName()) + "-" + buildFingerprint);
+  }
+
+  public File getDirectory() {
+    return directory;
+  }
+
+  /**
+   * A class read from the cache directory.
+   */
+  public static class Entry {
+    private final String className;
+    private final byte[] classBytes;
+    private final long compileTime;
+
+    public Entry(String className, byte[] classBytes, long compileTime) {
+      this.className = className;
+      this.classBytes = classBytes;
+      this.compileTime = compileTime;
+    }
+
+    public String getClassName() {
+      return className;
+    }
+
+    public byte[] getClassBytes() {
+      return classBytes;
+    }
+
+    /**
+     * @return the time, in nanoseconds, originally taken to generate the class
+     */
+    public long getCompileTime() {
+      return compileTime;
+    }
+  }
+
+  /**
+   * @return the class stored for {@code key}, or {@code null} if there is no such class,
+   * or if it cannot be read.
+   */
+  public Entry read(JitKey key) {
+    File file = fileFor(key);
+    if(!file.exists()) {
+      return null;
+    }
+    try(DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if(in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        return null;
+      }
+      if(!in.readUTF().equals(key.toString())) {
+        // Digest collision, extremely unlikely
+        return null;
+      }
+      String className = in.readUTF();
+      long compileTime = in.readLong();
+      byte[] classBytes = new byte[in.readInt()];
+      in.readFully(classBytes);
+      return new Entry(className, classBytes, compileTime);
+
+    } catch (IOException e) {
+      if(VectorPipeliner.DEBUG) {
+        System.out.println("Failed to read cached jit class " + file + ": " + e.getMessage());
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Stores the class generated for {@code key}. Failures are ignored, as the class can
+   * always be generated again.
+   */
+  public void write(JitKey key, String className, byte[] classBytes, long compileTime) {
+    File file = fileFor(key);
+    File tempFile = null;
+    try {
+      if(!directory.exists() && !directory.mkdirs() && !directory.exists()) {
+        return;
+      }
+      tempFile = File.createTempFile(key.getDigest(), ".tmp", directory);
+      try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(key.toString());
+        out.writeUTF(className);
+        out.writeLong(compileTime);
+        out.writeInt(classBytes.length);
+        out.write(classBytes);
+      }
+      try {
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      if(VectorPipeliner.DEBUG) {
+        System.out.println("Failed to write cached jit class " + file + ": " + e.getMessage());
+      }
+      if(tempFile != null) {
+        tempFile.delete();
+      }
+    }
+  }
+
+  /**
+   * Removes the class stored for {@code key}, for example because it could no longer be loaded.
+   */
+  public void remove(JitKey key) {
+    fileFor(key).delete();
+  }
+
+  private File fileFor(JitKey key) {
+    return new File(directory, key.getDigest() + ".jit");
+  }
+
+  private static String versionName() {
+    try {
+      String version = RenjinVersion.getVersionName();
+      return version == null ? "unknown" : version;
+    } catch (Throwable e) {
+      return "unknown";
+    }
+  }
+
+  private static String sanitize(String name) {
+    return name.replaceAll("[^A-Za-z0-9._-]", "_");
+  }
+}
@@ -0,0 +1,44 @@
+package org.renjin.compiler.pipeline;
+
+import org.renjin.compiler.pipeline.accessor.InputGraph;
+import org.renjin.repackaged.asm.Label;
+import org.renjin.repackaged.asm.MethodVisitor;
+
+import static org.renjin.repackaged.asm.Opcodes.*;
+
+/**
+ * Computes the product of a vector, which is {@code NA} if any element is {@code NA}
+ */
+public class ProdJitter extends SinglePassJitter {
+
+  private int productLocal;
+  private int valueLocal;
+  private int naLocal;
+
+  @Override
+  protected void init(ComputeMethod method, DeferredNode node, InputGraph inputGraph) {
+    productLocal = reserveDouble(method, 1);
+    valueLocal = method.reserveLocal(2);
+    naLocal = reserveFlag(method);
+  }
+
+  @Override
+  protected void accumulate(ComputeMethod method, Label loopExit) {
+    MethodVisitor mv = method.getVisitor();
+    mv.visitInsn(DUP2);
+    mv.visitVarInsn(DSTORE, valueLocal);
+
+    mv.visitVarInsn(DLOAD, productLocal);
+    mv.visitInsn(DMUL);
+    mv.visitVarInsn(DSTORE, productLocal);
+
+    markMissing(mv, valueLocal, naLocal, -1);
+  }
+
+  @Override
+  protected void pushResult(ComputeMethod method) {
+    MethodVisitor mv = method.getVisitor();
+    replaceMissing(mv, productLocal, naLocal, -1);
+    pushScalarArray(mv, productLocal);
+  }
+}
@@ -0,0 +1,66 @@
+package org.renjin.compiler.pipeline;
+
+import org.renjin.compiler.pipeline.accessor.InputGraph;
+import org.renjin.repackaged.asm.Label;
+import org.renjin.repackaged.asm.MethodVisitor;
+
+import static org.renjin.repackaged.asm.Opcodes.*;
+
+/**
+ * Computes the minimum and maximum of a vector in a single pass.
+ *
+ * @see MinMaxJitter
+ */
+public class RangeJitter extends SinglePassJitter {
+
+  private int minLocal;
+  private int maxLocal;
+  private int valueLocal;
+  private int naLocal;
+  private int nanLocal;
+
+  @Override
+  protected void init(ComputeMethod method, DeferredNode node, InputGraph inputGraph) {
+    minLocal = reserveDouble(method, Double.POSITIVE_INFINITY);
+    maxLocal = reserveDouble(method, Double.NEGATIVE_INFINITY);
+    valueLocal = method.reserveLocal(2);
+    naLocal = reserveFlag(method);
+    nanLocal = reserveFlag(method);
+  }
+
+  @Override
+  protected void accumulate(ComputeMethod method, Label loopExit) {
+    MethodVisitor mv = method.getVisitor();
+    mv.visitVarInsn(DSTORE, valueLocal);
+
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitVarInsn(DLOAD, minLocal);
+    mv.visitMethodInsn(INVOKESTATIC, "java/lang/Math", "min", "(DD)D");
+    mv.visitVarInsn(DSTORE, minLocal);
+
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitVarInsn(DLOAD, maxLocal);
+    mv.visitMethodInsn(INVOKESTATIC, "java/lang/Math", "max", "(DD)D");
+    mv.visitVarInsn(DSTORE, maxLocal);
+
+    markMissing(mv, valueLocal, naLocal, nanLocal);
+  }
+
+  @Override
+  protected void pushResult(ComputeMethod method) {
+    MethodVisitor mv = method.getVisitor();
+    replaceMissing(mv, minLocal, naLocal, nanLocal);
+    replaceMissing(mv, maxLocal, naLocal, nanLocal);
+
+    mv.visitInsn(ICONST_2);
+    mv.visitIntInsn(NEWARRAY, T_DOUBLE);
+    mv.visitInsn(DUP);
+    mv.visitInsn(ICONST_0);
+    mv.visitVarInsn(DLOAD, minLocal);
+    mv.visitInsn(DASTORE);
+    mv.visitInsn(DUP);
+    mv.visitInsn(ICONST_1);
+    mv.visitVarInsn(DLOAD, maxLocal);
+    mv.visitInsn(DASTORE);
+  }
+}
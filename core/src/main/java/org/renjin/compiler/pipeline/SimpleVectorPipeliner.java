@@ -7,7 +7,39 @@ import org.renjin.sexp.DoubleArrayVector;
 import org.renjin.sexp.DoubleVector;
 import org.renjin.sexp.Vector;
 
+import java.util.concurrent.ForkJoinPool;
+
 public class SimpleVectorPipeliner implements VectorPipeliner {
+
+  private final ChunkedComputation chunkedComputation;
+
+  /**
+   * Creates a pipeliner which computes everything on the calling thread.
+   */
+  public SimpleVectorPipeliner() {
+    this.chunkedComputation = null;
+  }
+
+  /**
+   * Creates a pipeliner which computes reductions of large vectors, such as {@code sum(x*y+z)},
+   * by splitting them into chunks which are computed in parallel on the given {@code pool}:
+   *
+   * <pre>
+   * new SessionBuilder()
+   *   .bind(VectorPipeliner.class, new SimpleVectorPipeliner(new ForkJoinPool()))
+   *   .build();
+   * </pre>
+   */
+  public SimpleVectorPipeliner(ForkJoinPool pool) {
+    this(pool, ChunkedComputation.DEFAULT_MIN_CHUNK_SIZE);
+  }
+
+  /**
+   * @param minChunkSize the minimum number of elements to compute in each chunk
+   */
+  public SimpleVectorPipeliner(ForkJoinPool pool, int minChunkSize) {
+    this.chunkedComputation = new ChunkedComputation(pool, minChunkSize);
+  }
   @Override
   public Vector materialize(DeferredComputation root) {
     DeferredGraph graph = new DeferredGraph(root);
@@ -31,9 +63,16 @@ public class SimpleVectorPipeliner implements VectorPipeliner {
       graph.dumpGraph();
     }
 
-    Vector vector = materialize(root);
+    forceMemoizedValues(graph.getRoot());
+
+    Vector vector = graph.getRoot().getVector();
     if(vector instanceof MemoizedDoubleVector) {
       return vector;
+    } else if(vector instanceof DoubleVector && ElementwiseJitter.accept(graph.getRoot())) {
+      // compute all the elements in a single jitted loop
+      JittedComputation computation = DeferredJitCache.INSTANCE.compile(graph.getRoot());
+      double[] result = computation.compute(graph.getRoot().flattenVectors());
+      return DoubleArrayVector.unsafe(result, vector.getAttributes());
     } else if(vector instanceof DeferredComputation && vector instanceof DoubleVector) {
       return DoubleArrayVector.unsafe(((DoubleVector) vector).toDoubleArray(), vector.getAttributes());
     } else {
@@ -46,7 +85,7 @@ public class SimpleVectorPipeliner implements VectorPipeliner {
       forceMemoizedValues(child);
     }
     if(node.isMemoized()) {
-      new DeferredNodeComputer(node).run();
+      new DeferredNodeComputer(node, chunkedComputation).run();
     }
   }
 }
@@ -0,0 +1,220 @@
+package org.renjin.compiler.pipeline;
+
+import org.renjin.compiler.pipeline.accessor.Accessor;
+import org.renjin.compiler.pipeline.accessor.Accessors;
+import org.renjin.compiler.pipeline.accessor.InputGraph;
+import org.renjin.repackaged.asm.Label;
+import org.renjin.repackaged.asm.MethodVisitor;
+
+import static org.renjin.repackaged.asm.Opcodes.*;
+
+/**
+ * Base class for functions which can be computed in a single pass over
+ * the elements of their first operand, such as {@code sum} or {@code max}.
+ *
+ * <p>The generated loop looks something like this:</p>
+ *
+ * <pre>
+ *   int length = x.length();
+ *   init();
+ *   for(int i=start;i &lt; min(end, length);++i) {
+ *     accumulate(x[i]);
+ *   }
+ *   return result();
+ * </pre>
+ *
+ * <p>Subclasses emit the code to initialize and update their accumulators, and
+ * to push the final result on to the stack.</p>
+ */
+public abstract class SinglePassJitter implements FunctionJitter {
+
+  /**
+   * Local variable holding the length of the first operand, {@code int}. This is the length of
+   * the whole operand, even if only a range of its elements is being computed.
+   */
+  protected int lengthLocal;
+
+  /**
+   * Local variable holding the index of the current element, {@code int}
+   */
+  protected int counterLocal;
+
+  @Override
+  public final void compute(ComputeMethod method, DeferredNode node) {
+
+    InputGraph inputGraph = new InputGraph(node);
+
+    Accessor accessor = Accessors.create(getInput(node), inputGraph);
+    accessor.init(method);
+
+    MethodVisitor mv = method.getVisitor();
+
+    // get the length of the vector
+    lengthLocal = method.reserveLocal(1);
+    accessor.pushLength(method);
+    mv.visitVarInsn(ISTORE, lengthLocal);
+
+    // only visit the elements in the requested range
+    int endLocal = method.reserveLocal(1);
+    mv.visitVarInsn(ILOAD, method.getEndLocalIndex());
+    mv.visitVarInsn(ILOAD, lengthLocal);
+    mv.visitMethodInsn(INVOKESTATIC, "java/lang/Math", "min", "(II)I");
+    mv.visitVarInsn(ISTORE, endLocal);
+
+    counterLocal = method.reserveLocal(1);
+
+    init(method, node, inputGraph);
+
+    mv.visitVarInsn(ILOAD, method.getStartLocalIndex());
+    mv.visitVarInsn(ISTORE, counterLocal);
+
+    Label loopCheck = new Label();
+    Label loopExit = new Label();
+
+    mv.visitLabel(loopCheck);
+    mv.visitVarInsn(ILOAD, counterLocal);
+    mv.visitVarInsn(ILOAD, endLocal);
+    mv.visitJumpInsn(IF_ICMPGE, loopExit);
+
+    // load the next value on to the stack
+    mv.visitVarInsn(ILOAD, counterLocal);
+    accessor.pushDouble(method);
+
+    accumulate(method, loopExit);
+
+    mv.visitIincInsn(counterLocal, 1);
+    mv.visitJumpInsn(GOTO, loopCheck);
+    mv.visitLabel(loopExit);
+
+    pushResult(method);
+    mv.visitInsn(ARETURN);
+  }
+
+  /**
+   * @return the node whose elements are to be visited, by default the first operand
+   * of {@code node}
+   */
+  protected DeferredNode getInput(DeferredNode node) {
+    return node.getOperand(0);
+  }
+
+  /**
+   * Reserves and initializes any local variables needed to
+   * accumulate the result. The length of the first operand is already available in
+   * {@link #lengthLocal}.
+   */
+  protected abstract void init(ComputeMethod method, DeferredNode node, InputGraph inputGraph);
+
+  /**
+   * Emits the body of the loop. The current element is on the stack, as a {@code double},
+   * and must be consumed. The index of the current element is available in {@link #counterLocal}.
+   *
+   * @param loopExit a label which the loop body may jump to if the result is already
+   *                 known before the end of the vector is reached
+   */
+  protected abstract void accumulate(ComputeMethod method, Label loopExit);
+
+  /**
+   * Pushes the result of the computation, {@code double[]}, on to the stack.
+   */
+  protected abstract void pushResult(ComputeMethod method);
+
+
+  /**
+   * Pushes a new {@code double[1]} array containing the value
+   * of the {@code double} local variable {@code valueLocal}
+   */
+  protected final void pushScalarArray(MethodVisitor mv, int valueLocal) {
+    mv.visitInsn(ICONST_1);
+    mv.visitIntInsn(NEWARRAY, T_DOUBLE);
+    mv.visitInsn(DUP);
+    mv.visitInsn(ICONST_0);
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitInsn(DASTORE);
+  }
+
+  /**
+   * Reserves a new {@code double} local variable, initialized to {@code value}
+   */
+  protected final int reserveDouble(ComputeMethod method, double value) {
+    int local = method.reserveLocal(2);
+    MethodVisitor mv = method.getVisitor();
+    if(value == 0) {
+      mv.visitInsn(DCONST_0);
+    } else if(value == 1) {
+      mv.visitInsn(DCONST_1);
+    } else {
+      mv.visitLdcInsn(value);
+    }
+    mv.visitVarInsn(DSTORE, local);
+    return local;
+  }
+
+  /**
+   * Reserves a new {@code int} local variable, initialized to zero.
+   */
+  protected final int reserveFlag(ComputeMethod method) {
+    int local = method.reserveLocal(1);
+    MethodVisitor mv = method.getVisitor();
+    mv.visitInsn(ICONST_0);
+    mv.visitVarInsn(ISTORE, local);
+    return local;
+  }
+
+  /**
+   * Emits code which sets the {@code naFlagLocal} to 1 if the {@code double} local {@code valueLocal}
+   * is {@code NA}, or sets the {@code nanFlagLocal} to 1 if the value is {@code NaN}, but not {@code NA}.
+   *
+   * @param nanFlagLocal the local to set if the value is {@code NaN}, or -1 if {@code NaN}s are to be
+   *                     treated like any other number.
+   */
+  protected final void markMissing(MethodVisitor mv, int valueLocal, int naFlagLocal, int nanFlagLocal) {
+    Label notNaN = new Label();
+    Label done = new Label();
+
+    // Double.isNaN(x) without the method call: x != x
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitInsn(DCMPL);
+    mv.visitJumpInsn(IFEQ, notNaN);
+
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitMethodInsn(INVOKESTATIC, "org/renjin/sexp/DoubleVector", "isNA", "(D)Z");
+    Label isNaN = new Label();
+    mv.visitJumpInsn(IFEQ, isNaN);
+    mv.visitInsn(ICONST_1);
+    mv.visitVarInsn(ISTORE, naFlagLocal);
+    mv.visitJumpInsn(GOTO, done);
+
+    mv.visitLabel(isNaN);
+    if(nanFlagLocal != -1) {
+      mv.visitInsn(ICONST_1);
+      mv.visitVarInsn(ISTORE, nanFlagLocal);
+    }
+    mv.visitLabel(notNaN);
+    mv.visitLabel(done);
+  }
+
+  /**
+   * Emits code which replaces the value of the {@code double} local {@code valueLocal} with
+   * {@code NaN} if the {@code nanFlagLocal} is set, or otherwise with {@code NA} if the {@code naFlagLocal}
+   * is set.
+   */
+  protected final void replaceMissing(MethodVisitor mv, int valueLocal, int naFlagLocal, int nanFlagLocal) {
+    Label checkNA = new Label();
+    Label done = new Label();
+    if(nanFlagLocal != -1) {
+      mv.visitVarInsn(ILOAD, nanFlagLocal);
+      mv.visitJumpInsn(IFEQ, checkNA);
+      mv.visitFieldInsn(GETSTATIC, "java/lang/Double", "NaN", "D");
+      mv.visitVarInsn(DSTORE, valueLocal);
+      mv.visitJumpInsn(GOTO, done);
+    }
+    mv.visitLabel(checkNA);
+    mv.visitVarInsn(ILOAD, naFlagLocal);
+    mv.visitJumpInsn(IFEQ, done);
+    mv.visitFieldInsn(GETSTATIC, "org/renjin/sexp/DoubleVector", "NA", "D");
+    mv.visitVarInsn(DSTORE, valueLocal);
+    mv.visitLabel(done);
+  }
+}
@@ -0,0 +1,89 @@
+package org.renjin.compiler.pipeline;
+
+import org.renjin.compiler.pipeline.accessor.InputGraph;
+import org.renjin.repackaged.asm.Label;
+import org.renjin.repackaged.asm.MethodVisitor;
+
+import static org.renjin.repackaged.asm.Opcodes.*;
+
+/**
+ * Computes the sample variance of a vector in a single pass, using Welford's method:
+ *
+ * <pre>
+ *   n += 1;
+ *   delta = x - mean;
+ *   mean += delta / n;
+ *   m2 += delta * (x - mean);
+ * </pre>
+ *
+ * <p>The variance is then {@code m2 / (n - 1)}. Unlike the naive sum of squares, this
+ * does not lose precision when the variance is small relative to the mean.</p>
+ */
+public class VarianceJitter extends SinglePassJitter {
+
+  private int valueLocal;
+  private int countLocal;
+  private int meanLocal;
+  private int m2Local;
+  private int deltaLocal;
+
+  @Override
+  protected void init(ComputeMethod method, DeferredNode node, InputGraph inputGraph) {
+    valueLocal = method.reserveLocal(2);
+    countLocal = reserveDouble(method, 0);
+    meanLocal = reserveDouble(method, 0);
+    m2Local = reserveDouble(method, 0);
+    deltaLocal = method.reserveLocal(2);
+  }
+
+  @Override
+  protected void accumulate(ComputeMethod method, Label loopExit) {
+    MethodVisitor mv = method.getVisitor();
+    mv.visitVarInsn(DSTORE, valueLocal);
+
+    // n += 1
+    mv.visitVarInsn(DLOAD, countLocal);
+    mv.visitInsn(DCONST_1);
+    mv.visitInsn(DADD);
+    mv.visitVarInsn(DSTORE, countLocal);
+
+    // delta = x - mean
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitVarInsn(DLOAD, meanLocal);
+    mv.visitInsn(DSUB);
+    mv.visitVarInsn(DSTORE, deltaLocal);
+
+    // mean += delta / n
+    mv.visitVarInsn(DLOAD, meanLocal);
+    mv.visitVarInsn(DLOAD, deltaLocal);
+    mv.visitVarInsn(DLOAD, countLocal);
+    mv.visitInsn(DDIV);
+    mv.visitInsn(DADD);
+    mv.visitVarInsn(DSTORE, meanLocal);
+
+    // m2 += delta * (x - mean)
+    mv.visitVarInsn(DLOAD, m2Local);
+    mv.visitVarInsn(DLOAD, deltaLocal);
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitVarInsn(DLOAD, meanLocal);
+    mv.visitInsn(DSUB);
+    mv.visitInsn(DMUL);
+    mv.visitInsn(DADD);
+    mv.visitVarInsn(DSTORE, m2Local);
+  }
+
+  @Override
+  protected void pushResult(ComputeMethod method) {
+    MethodVisitor mv = method.getVisitor();
+
+    // m2 / (n - 1)
+    mv.visitVarInsn(DLOAD, m2Local);
+    mv.visitVarInsn(DLOAD, countLocal);
+    mv.visitInsn(DCONST_1);
+    mv.visitInsn(DSUB);
+    mv.visitInsn(DDIV);
+    mv.visitVarInsn(DSTORE, m2Local);
+
+    pushScalarArray(mv, m2Local);
+  }
+}
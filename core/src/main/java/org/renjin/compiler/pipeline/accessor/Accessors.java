@@ -34,4 +34,13 @@ public class Accessors {
       return new VirtualAccessor(node.getVector(), inputGraph.getOperandIndex(node));
     }
   }
+
+  /**
+   * @return true if the elements of {@code node} are computed by an operation which
+   * can be inlined into the jitted code, rather than accessed through
+   * {@code getElementAsDouble()}
+   */
+  public static boolean isInlined(DeferredNode node) {
+    return UnaryVectorOpAccessor.accept(node) || BinaryVectorOpAccessor.accept(node);
+  }
 }
@@ -35,13 +35,27 @@ public class UnaryVectorOpAccessor extends Accessor {
       if(method.getName().equals("compute") &&
               Modifier.isPublic(method.getModifiers()) &&
               Modifier.isStatic(method.getModifiers()) &&
-              method.getParameterTypes().length == 1) {
+              method.getParameterTypes().length == 1 &&
+              isDoubleOperation(method)) {
         return method;
       }
     }
     return null;
   }
 
+  /**
+   * Operations on logical or integer vectors use {@code int}s, with their own NA value, so
+   * they can only be accessed through {@code getElementAsDouble()}
+   */
+  private static boolean isDoubleOperation(Method method) {
+    for(Class<?> parameterType : method.getParameterTypes()) {
+      if(parameterType != double.class) {
+        return false;
+      }
+    }
+    return method.getReturnType() == double.class;
+  }
+
   @Override
   public void init(ComputeMethod method) {
     operandAccessor.init(method);
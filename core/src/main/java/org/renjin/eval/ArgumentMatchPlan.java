@@ -0,0 +1,192 @@
+package org.renjin.eval;
+
+import org.renjin.sexp.*;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The result of matching the actual arguments of a call to a closure's formals, recorded
+ * in terms of the positions of the actual arguments rather than their values.
+ *
+ * <p>The outcome of {@link ClosureDispatcher#matchArguments(PairList, PairList, boolean) argument matching}
+ * depends only on the formals and on the names of the actual arguments, so a plan computed
+ * once can be reused for each subsequent call with the same formals and the same argument names,
+ * reducing matching to copying the actual values into place.</p>
+ *
+ * <p>Plans are cached at each call site. A few plans are kept for each call site, as the same call
+ * is matched against the formals of both an S3 generic and its methods.</p>
+ */
+public class ArgumentMatchPlan {
+
+  private static final int MISSING = -1;
+  private static final int ELLIPSES = -2;
+
+  private static final int MAX_PLANS_PER_CALL = 4;
+
+  private final PairList formals;
+
+  private final Symbol[] formalNames;
+  private final SEXP[] defaultValues;
+
+  /**
+   * The raw tags of the actual arguments for which this plan was computed
+   */
+  private final SEXP[] actualTags;
+
+  /**
+   * For each formal, the index of the actual argument matched to it, or {@link #MISSING},
+   * or {@link #ELLIPSES} for the {@code ...} formal.
+   */
+  private final int[] formalSources;
+
+  /**
+   * The indexes of the actual arguments matched to the {@code ...} formal
+   */
+  private final int[] ellipsesSources;
+
+  /**
+   * The next plan cached at the same call site, or {@code null}
+   */
+  private final ArgumentMatchPlan next;
+  private final int depth;
+
+  private ArgumentMatchPlan(PairList formals, SEXP[] actualTags, Map<SEXP, Integer> placeholderIndexes,
+                            PairList matched, ArgumentMatchPlan next) {
+    this.formals = formals;
+    this.actualTags = actualTags;
+    this.next = next;
+    this.depth = next == null ? 1 : next.depth + 1;
+
+    int numFormals = formals.length();
+    formalNames = new Symbol[numFormals];
+    defaultValues = new SEXP[numFormals];
+    int i = 0;
+    for (PairList.Node formal : formals.nodes()) {
+      formalNames[i] = formal.getTag();
+      defaultValues[i] = formal.getValue();
+      i++;
+    }
+
+    Map<SEXP, Integer> formalIndexes = new IdentityHashMap<>();
+    for (i = 0; i < numFormals; i++) {
+      formalIndexes.put(formalNames[i], i);
+    }
+
+    formalSources = new int[numFormals];
+    int[] ellipses = new int[0];
+    for (PairList.Node node : matched.nodes()) {
+      int formalIndex = formalIndexes.get(node.getTag());
+      SEXP value = node.getValue();
+      if(node.getTag() == Symbols.ELLIPSES) {
+        formalSources[formalIndex] = ELLIPSES;
+        ellipses = new int[value.length()];
+        int j = 0;
+        for (PairList.Node promise : ((PairList) value).nodes()) {
+          ellipses[j++] = placeholderIndexes.get(promise.getValue());
+        }
+      } else if(value == Symbol.MISSING_ARG) {
+        formalSources[formalIndex] = MISSING;
+      } else {
+        formalSources[formalIndex] = placeholderIndexes.get(value);
+      }
+    }
+    this.ellipsesSources = ellipses;
+  }
+
+  /**
+   * Finds the plan cached at {@code call} for the given formals and actual arguments, computing
+   * and caching a new plan if there is none.
+   *
+   * @throws EvalException if the arguments cannot be matched
+   */
+  public static ArgumentMatchPlan forCall(FunctionCall call, PairList formals, PairList actuals) {
+    ArgumentMatchPlan cached = call.getArgumentMatchPlan();
+    for(ArgumentMatchPlan plan = cached; plan != null; plan = plan.next) {
+      if(plan.matches(formals, actuals)) {
+        return plan;
+      }
+    }
+    if(cached != null && cached.depth >= MAX_PLANS_PER_CALL) {
+      cached = null;
+    }
+    ArgumentMatchPlan plan = compute(formals, actuals, cached);
+    call.setArgumentMatchPlan(plan);
+    return plan;
+  }
+
+  /**
+   * Matches the given actual arguments to the formals by name and position, and records
+   * the result as a plan.
+   *
+   * @throws EvalException if the arguments cannot be matched
+   */
+  private static ArgumentMatchPlan compute(PairList formals, PairList actuals, ArgumentMatchPlan next) {
+
+    // Match placeholders in place of the actual values, so that each matched
+    // value can be traced back to the position of the actual argument
+    SEXP[] actualTags = new SEXP[actuals.length()];
+    Map<SEXP, Integer> placeholderIndexes = new IdentityHashMap<>();
+    PairList.Builder placeholders = new PairList.Builder();
+    int i = 0;
+    for (PairList.Node actual : actuals.nodes()) {
+      SEXP placeholder = new IntArrayVector(i);
+      actualTags[i] = actual.getRawTag();
+      placeholderIndexes.put(placeholder, i);
+      placeholders.add(actual.getRawTag(), placeholder);
+      i++;
+    }
+
+    PairList matched = ClosureDispatcher.matchArguments(formals, placeholders.build(), true);
+
+    return new ArgumentMatchPlan(formals, actualTags, placeholderIndexes, matched, next);
+  }
+
+  /**
+   * @return true if this plan can be applied to the given formals and actual arguments
+   */
+  public boolean matches(PairList formals, PairList actuals) {
+    if(formals != this.formals) {
+      return false;
+    }
+    int i = 0;
+    for (PairList.Node actual : actuals.nodes()) {
+      if(i == actualTags.length || actual.getRawTag() != actualTags[i]) {
+        return false;
+      }
+      i++;
+    }
+    return i == actualTags.length;
+  }
+
+  /**
+   * Binds the actual arguments to the formals in {@code innerEnv}, creating promises
+   * to evaluate the default values of formals that were not supplied.
+   */
+  public void bindInto(PairList actuals, Environment innerEnv) {
+    SEXP[] values = new SEXP[actualTags.length];
+    int i = 0;
+    for (PairList.Node actual : actuals.nodes()) {
+      values[i++] = actual.getValue();
+    }
+
+    for (int formal = 0; formal < formalNames.length; formal++) {
+      int source = formalSources[formal];
+      SEXP value;
+      if(source == ELLIPSES) {
+        PromisePairList.Builder promises = new PromisePairList.Builder();
+        for (int ellipsesSource : ellipsesSources) {
+          promises.add(actualTags[ellipsesSource], values[ellipsesSource]);
+        }
+        value = promises.build();
+
+      } else {
+        value = source == MISSING ? Symbol.MISSING_ARG : values[source];
+        if(value == Symbol.MISSING_ARG && defaultValues[formal] != Symbol.MISSING_ARG) {
+          value = Promise.promiseMissing(innerEnv, defaultValues[formal]);
+        }
+      }
+      innerEnv.setArgument(formalNames[formal], value);
+    }
+  }
+}
@@ -38,6 +38,8 @@ import static com.google.common.collect.Collections2.transform;
 
 public class ClosureDispatcher {
 
+  public static boolean COMPILE_CLOSURES = Boolean.getBoolean("renjin.compile.closures");
+
   private final FunctionCall call;
   private final Environment callingEnvironment;
   private final Context callingContext;
@@ -73,7 +75,13 @@ public class ClosureDispatcher {
         dispatchChain.populateEnvironment(functionEnvironment);
       }
 
-      SEXP result = closure.doApply(functionContext);
+      SEXP result = null;
+      if(dispatchChain == null && (COMPILE_CLOSURES || closure.hasCompiledBody())) {
+        result = closure.getCompiler().tryEvaluate(functionContext, functionEnvironment);
+      }
+      if(result == null) {
+        result = closure.doApply(functionContext);
+      }
       
       functionContext.exit();
 
@@ -121,6 +129,12 @@ public class ClosureDispatcher {
   public static void matchArgumentsInto(PairList formals, PairList actuals, 
       Context innerContext, Environment innerEnv) {
 
+    FunctionCall call = innerContext == null ? null : innerContext.getCall();
+    if(call != null) {
+      ArgumentMatchPlan.forCall(call, formals, actuals).bindInto(actuals, innerEnv);
+      return;
+    }
+
     PairList matched = matchArguments(formals, actuals);
     for(PairList.Node node : matched.nodes()) {
       SEXP value = node.getValue();
@@ -130,7 +144,7 @@ public class ClosureDispatcher {
           value =  Promise.promiseMissing(innerEnv, defaultValue);
         }
       }
-      innerEnv.setVariable(node.getTag(), value);
+      innerEnv.setArgument(node.getTag(), value);
     }
   }
 
@@ -32,6 +32,7 @@ import org.renjin.parser.RParser;
 import org.renjin.primitives.Warning;
 import org.renjin.primitives.packaging.NamespaceRegistry;
 import org.renjin.primitives.special.ControlFlowException;
+import org.renjin.primitives.special.InPlaceReplacement;
 import org.renjin.primitives.vector.DeferredComputation;
 import org.renjin.sexp.*;
 
@@ -51,6 +52,8 @@ import java.util.Map;
  */
 public class Context {
 
+  private static final Symbol SUBSET = Symbol.get("[");
+  private static final Symbol SUBSET2 = Symbol.get("[[");
 
   public enum Type {
     /** toplevel context */
@@ -141,7 +144,7 @@ public class Context {
     context.parent = this;
     context.evaluationDepth = evaluationDepth+1;
     context.closure = closure;
-    context.environment = Environment.createChildEnvironment(closure.getEnclosingEnvironment());
+    context.environment = Environment.createChildEnvironment(closure.getEnclosingEnvironment(), closure.newCallFrame());
     context.session = session;
     context.arguments = arguments;
     context.call= call;
@@ -273,11 +276,20 @@ public class Context {
     clearInvisibleFlag();
 
     SEXP fn = call.getFunction();
-    Function functionExpr = evaluateFunction(fn, rho);
+    Function functionExpr = evaluateFunction(call, rho);
 
-    boolean profiling = Profiler.ENABLED && fn instanceof Symbol && !((Symbol) fn).isReservedWord();
-    if(Profiler.ENABLED && profiling) {
-      Profiler.functionStart((Symbol)fn, functionExpr);
+    if(fn == SUBSET || fn == SUBSET2) {
+      SEXP element = InPlaceReplacement.tryGetElement(this, rho, call, functionExpr);
+      if(element != null) {
+        return element;
+      }
+    }
+
+    Profiler profiler = null;
+    if(Profiler.ENABLED && fn instanceof Symbol && !((Symbol) fn).isReservedWord() &&
+        session.getProfiler().isRunning()) {
+      profiler = session.getProfiler();
+      profiler.callStart(this, (Symbol) fn, functionExpr);
     }
     try {
       return functionExpr.apply(this, rho, call, call.getArguments());
@@ -292,16 +304,17 @@ public class Context {
       throw new EvalException(message, e);
       
     } finally {
-      if(Profiler.ENABLED && profiling) {
-        Profiler.functionEnd();
+      if(profiler != null) {
+        profiler.callEnd();
       }
     }
   }
 
-  private Function evaluateFunction(SEXP functionExp, Environment rho) {
+  private Function evaluateFunction(FunctionCall call, Environment rho) {
+    SEXP functionExp = call.getFunction();
     if(functionExp instanceof Symbol) {
       Symbol symbol = (Symbol) functionExp;
-      Function fn = rho.findFunction(this, symbol);
+      Function fn = rho.findFunction(this, symbol, call);
       if(fn == null) {
         throw new EvalException("could not find function '%s'", symbol.getPrintName());      
       }
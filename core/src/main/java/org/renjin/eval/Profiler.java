@@ -4,26 +4,66 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import org.renjin.sexp.*;
 import org.renjin.sexp.Vector;
 
 import java.io.PrintStream;
+import java.io.PrintWriter;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-
-import static java.lang.System.out;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Simple profiler intended to be used from the command line.
- * 
- * <p>The profiler can be enabled using the JVM flag -Drenjin.profile=true</p>
+ * Profiles the evaluation of R code within a single {@link Session}.
+ *
+ * <p>Each session has its own profiler, obtained through {@link Session#getProfiler()}, which
+ * can run in one of two modes:</p>
+ *
+ * <ul>
+ * <li>{@link Mode#INSTRUMENTING} times each function call and loop, and counts the memory
+ * allocated by each function. This gives exact call counts, but the overhead of timing each call
+ * distorts the timings of small functions.</li>
+ * <li>{@link Mode#SAMPLING} only records the innermost call being evaluated. A background
+ * thread periodically walks the {@link Context} chain from this call to record the current stack,
+ * which has a much lower overhead.</li>
+ * </ul>
+ *
+ * <p>Both modes can export the recorded stacks in the "collapsed" format used to draw flame
+ * graphs. From R, the profiler is controlled by {@code Rprof()}. The profiler can also be started
+ * for all sessions using the JVM flag -Drenjin.profile=true, which uses the instrumenting mode.</p>
  */
 public class Profiler {
 
-  public static boolean ENABLED = Boolean.getBoolean("renjin.profile");
+  public enum Mode {
+    INSTRUMENTING,
+    SAMPLING
+  }
+
+  /**
+   * True if any session's profiler is running. Callers should check this flag before
+   * looking up the session's profiler.
+   */
+  public static boolean ENABLED = false;
+
+  /**
+   * True if new sessions should start their profiler in instrumenting mode
+   */
+  public static final boolean PROFILE_ALL_SESSIONS = Boolean.getBoolean("renjin.profile");
+
+  public static final long DEFAULT_SAMPLING_INTERVAL_MICROS = 20000;
 
   private static final long MIN_LOOP_TIME_RECORD = TimeUnit.MILLISECONDS.toNanos(500);
 
+  private static final AtomicInteger RUNNING_COUNT = new AtomicInteger(0);
+
+  /**
+   * The instrumenting profiler to which memory allocations on this thread are attributed.
+   */
+  private static final ThreadLocal<Profiler> ALLOCATING = new ThreadLocal<>();
+
   private static class FunctionProfile {
     private Symbol symbol;
     private long count;
@@ -32,7 +72,7 @@ public class Profiler {
     private long bytesAllocated;
     private char type;
   }
-  
+
   private static class CallTiming {
     private Symbol symbol;
     private char type;
@@ -41,13 +81,7 @@ public class Profiler {
     private long childTime;
     private long bytesAllocated;
   }
-  
-  private static class LoopProfile {
-    private FunctionCall call;
-    private long time;
-    private long iterations;
-  }
-  
+
   private static class LoopTiming {
     private FunctionCall call;
     private long startTime;
@@ -57,46 +91,190 @@ public class Profiler {
     private long actualIterations;
     public CallTiming parentCall;
   }
-  
-  
-  
-  private static Map<Symbol, FunctionProfile> FUNCTION_PROFILES = new IdentityHashMap<>();
-  
-  private static Map<Symbol, FunctionProfile> TOP_LEVEL_PROFILES = new IdentityHashMap<>();
-  
-  private static List<LoopTiming> LOOP_TIMINGS = new ArrayList<>();
-  
-  private static CallTiming CURRENT = null;
-  private static LoopTiming CURRENT_LOOP;
-  
-  private static long LOOP_TIME = 0;
-  
-  private static long startTime = System.nanoTime();
 
   /**
-   * Clears any existing function profiles, and restarts the 
+   * The innermost call being evaluated, as seen by the sampling thread.
+   */
+  private static class Frame {
+    private final Context context;
+    private final Symbol functionName;
+    private final boolean builtin;
+    private final Frame parent;
+
+    private Frame(Context context, Symbol functionName, boolean builtin, Frame parent) {
+      this.context = context;
+      this.functionName = functionName;
+      this.builtin = builtin;
+      this.parent = parent;
+    }
+  }
+
+  private Mode mode;
+  private volatile boolean running;
+
+  private Map<Symbol, FunctionProfile> functionProfiles = new IdentityHashMap<>();
+
+  private Map<Symbol, FunctionProfile> topLevelProfiles = new IdentityHashMap<>();
+
+  private List<LoopTiming> loopTimings = new ArrayList<>();
+
+  private CallTiming current = null;
+  private LoopTiming currentLoop;
+
+  private long loopTime = 0;
+
+  private long startTime = System.nanoTime();
+
+  private volatile Frame currentFrame;
+
+  private ScheduledExecutorService sampler;
+
+  /**
+   * Maps each collapsed stack to its weight: the number of samples in sampling mode,
+   * or the own time, in microseconds, in instrumenting mode.
+   */
+  private final Map<String, Long> stacks = new HashMap<>();
+
+  private long sampleCount;
+
+
+  /**
+   * Starts profiling, in the given mode.
+   *
+   * @param intervalMicros the interval between samples in sampling mode, in microseconds.
+   */
+  public synchronized void start(Mode mode, long intervalMicros) {
+    if(running) {
+      stop();
+    }
+    this.mode = mode;
+    this.running = true;
+    this.current = null;
+    this.currentLoop = null;
+    this.currentFrame = null;
+
+    if(mode == Mode.SAMPLING) {
+      sampler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+          .setDaemon(true)
+          .setNameFormat("renjin-profiler-%d")
+          .build());
+      sampler.scheduleAtFixedRate(new Runnable() {
+        @Override
+        public void run() {
+          sample();
+        }
+      }, intervalMicros, intervalMicros, TimeUnit.MICROSECONDS);
+    }
+
+    RUNNING_COUNT.incrementAndGet();
+    ENABLED = true;
+  }
+
+  /**
+   * Stops profiling. The recorded profile is retained until the next call to {@link #reset()}.
+   */
+  public synchronized void stop() {
+    if(!running) {
+      return;
+    }
+    running = false;
+    if(sampler != null) {
+      sampler.shutdownNow();
+      sampler = null;
+    }
+    currentFrame = null;
+    if(ALLOCATING.get() == this) {
+      ALLOCATING.remove();
+    }
+    if(RUNNING_COUNT.decrementAndGet() == 0) {
+      ENABLED = false;
+    }
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  /**
+   * @return the profiler of the given {@code session} if it is running, or {@code null}. As {@link #ENABLED}
+   * is shared by all sessions, callers must not record anything to a session's profiler without checking
+   * that it is running.
+   */
+  public static Profiler runningProfiler(Session session) {
+    if(ENABLED) {
+      Profiler profiler = session.getProfiler();
+      if(profiler.running) {
+        return profiler;
+      }
+    }
+    return null;
+  }
+
+  public Mode getMode() {
+    return mode;
+  }
+
+  /**
+   * Clears any existing function profiles and stacks, and restarts the
    * program timer.
    */
-  public static void reset() {
-    FUNCTION_PROFILES.clear();
+  public synchronized void reset() {
+    functionProfiles.clear();
+    topLevelProfiles.clear();
+    loopTimings.clear();
+    stacks.clear();
+    sampleCount = 0;
+    loopTime = 0;
     startTime = System.nanoTime();
   }
 
+  /**
+   * Reports the start of a call to the function {@code functionName} from the
+   * given {@code context}. Every call to this method must be followed by a call to {@link #callEnd()}.
+   */
+  public void callStart(Context context, Symbol functionName, Function function) {
+    if(mode == Mode.SAMPLING) {
+      currentFrame = new Frame(context, functionName, !(function instanceof Closure), currentFrame);
+    } else {
+      functionStart(functionName, function);
+    }
+  }
+
+  /**
+   * Reports the end of the call most recently started with {@link #callStart(Context, Symbol, Function)}
+   */
+  public void callEnd() {
+    if(mode == Mode.SAMPLING) {
+      Frame frame = currentFrame;
+      if(frame != null) {
+        currentFrame = frame.parent;
+      }
+    } else {
+      functionEnd();
+    }
+  }
+
   /**
    * Reports the start of a function call
    * @param functionName the name of the function being called
    */
-  public static void functionStart(Symbol functionName, char type) {
+  public void functionStart(Symbol functionName, char type) {
+    if(mode != Mode.INSTRUMENTING) {
+      return;
+    }
     CallTiming timing = new CallTiming();
     timing.symbol = functionName;
-    timing.parent = CURRENT;
+    timing.parent = current;
     timing.startTime = System.nanoTime();
     timing.type = type;
 
-    CURRENT = timing;
+    if(current == null) {
+      ALLOCATING.set(this);
+    }
+    current = timing;
   }
-  
-  public static void functionStart(Symbol functionName, Function functionExpr) {
+
+  public void functionStart(Symbol functionName, Function functionExpr) {
 
     if(functionExpr instanceof Closure) {
       functionStart(functionName, 'R');
@@ -104,100 +282,218 @@ public class Profiler {
       functionStart(functionName, 'B');
     }
   }
-  
-  public static void loopStart(FunctionCall call, Vector elements) {
+
+  public void loopStart(FunctionCall call, Vector elements) {
+    if(mode != Mode.INSTRUMENTING) {
+      return;
+    }
     LoopTiming timing = new LoopTiming();
     timing.call = call;
-    timing.parentCall = CURRENT;
-    timing.parent = CURRENT_LOOP;
+    timing.parentCall = current;
+    timing.parent = currentLoop;
     timing.startTime = System.nanoTime();
     timing.expectedIterations = elements.length();
-    
-    CURRENT_LOOP = timing;
+
+    currentLoop = timing;
   }
-  
+
 
   /**
    * Reports the end of a function call
    */
-  public static void functionEnd() {
+  public void functionEnd() {
+    if(current == null) {
+      // Profiling was started within this call
+      return;
+    }
     long endTime = System.nanoTime();
-    long time = endTime - CURRENT.startTime;
-    
-    // Update the "flat" profile for the given
-    // function
-    updateMap(FUNCTION_PROFILES, time);
-    
-    // If this is a top level call, save
-    if(CURRENT.parent == null) {
-      updateMap(TOP_LEVEL_PROFILES, time);
-    }
-    
-    // If this function is a nested function call, then 
+    long time = endTime - current.startTime;
+
+    synchronized (this) {
+      // Update the "flat" profile for the given
+      // function
+      updateMap(functionProfiles, time);
+
+      // If this is a top level call, save
+      if(current.parent == null) {
+        updateMap(topLevelProfiles, time);
+      }
+
+      addStack(collapsedStack(current), TimeUnit.NANOSECONDS.toMicros(time - current.childTime));
+    }
+
+    // If this function is a nested function call, then
     // mark our parent as the current function, and add our run time
     // to our parent's child time count.
-    CURRENT = CURRENT.parent;
-    if(CURRENT != null) {
-      CURRENT.childTime += time;
+    current = current.parent;
+    if(current != null) {
+      current.childTime += time;
+    } else if(ALLOCATING.get() == this) {
+      ALLOCATING.remove();
     }
   }
 
-  private static void updateMap(Map<Symbol, FunctionProfile> map, long time) {
-    FunctionProfile profile = map.get(CURRENT.symbol);
+  private void updateMap(Map<Symbol, FunctionProfile> map, long time) {
+    FunctionProfile profile = map.get(current.symbol);
     if(profile == null) {
       profile = new FunctionProfile();
-      profile.symbol = CURRENT.symbol;
-      profile.type = CURRENT.type;
+      profile.symbol = current.symbol;
+      profile.type = current.type;
       map.put(profile.symbol, profile);
     }
     profile.time += time;
-    profile.ownTime += (time - CURRENT.childTime);
+    profile.ownTime += (time - current.childTime);
     profile.count++;
-    profile.bytesAllocated += CURRENT.bytesAllocated;
+    profile.bytesAllocated += current.bytesAllocated;
   }
 
-  public static void loopEnd(int iterations) {
+  public void loopEnd(int iterations) {
+    if(currentLoop == null) {
+      return;
+    }
     long endTime = System.nanoTime();
-    long time = endTime - CURRENT_LOOP.startTime;
-    
-    LOOP_TIME += time;
-    
+    long time = endTime - currentLoop.startTime;
+
+    loopTime += time;
+
     if(time > MIN_LOOP_TIME_RECORD) {
-      CURRENT_LOOP.time = time;
-      CURRENT_LOOP.actualIterations = iterations;
-      LOOP_TIMINGS.add(CURRENT_LOOP);
+      currentLoop.time = time;
+      currentLoop.actualIterations = iterations;
+      synchronized (this) {
+        loopTimings.add(currentLoop);
+      }
     }
-    
-    CURRENT_LOOP = CURRENT_LOOP.parent;
+
+    currentLoop = currentLoop.parent;
   }
 
 
   /**
-   * Records a memory allocation attempt
+   * Records a memory allocation attempt on the current thread
    * @param size the size, in bits of the array elements allocated
    * @param length the number of elements
    */
   public static void memoryAllocated(int size, int length) {
-    if(CURRENT != null) {
-      CURRENT.bytesAllocated += (length * (size/8));
+    Profiler profiler = ALLOCATING.get();
+    if(profiler != null && profiler.current != null) {
+      profiler.current.bytesAllocated += (length * (size/8));
+    }
+  }
+
+  /**
+   * Records the stack of the call currently being evaluated. Called periodically
+   * from the sampling thread.
+   */
+  private void sample() {
+    Frame frame = currentFrame;
+    String stack;
+    if(frame == null) {
+      stack = "<top level>";
+    } else {
+      stack = collapsedStack(frame);
+    }
+    synchronized (this) {
+      sampleCount++;
+      addStack(stack, 1);
+    }
+  }
+
+  private void addStack(String stack, long weight) {
+    Long total = stacks.get(stack);
+    stacks.put(stack, total == null ? weight : total + weight);
+  }
+
+  /**
+   * Builds a collapsed stack, such as {@code f;g;sum}, by walking the context chain from
+   * the frame's context, adding the name of the builtin being called, if any.
+   */
+  private static String collapsedStack(Frame frame) {
+    List<String> names = Lists.newArrayList();
+    if(frame.builtin) {
+      names.add(frame.functionName.getPrintName());
+    }
+    Context context = frame.context;
+    while(context != null && !context.isTopLevel()) {
+      if(context.getType() == Context.Type.FUNCTION) {
+        names.add(functionName(context.getFunctionName()));
+      }
+      context = context.getParent();
+    }
+    return joinReversed(names);
+  }
+
+  private static String collapsedStack(CallTiming timing) {
+    List<String> names = Lists.newArrayList();
+    while(timing != null) {
+      names.add(timing.symbol.getPrintName());
+      timing = timing.parent;
+    }
+    return joinReversed(names);
+  }
+
+  private static String functionName(SEXP function) {
+    if(function instanceof Symbol) {
+      return ((Symbol) function).getPrintName();
+    } else {
+      return "<anonymous>";
+    }
+  }
+
+  private static String joinReversed(List<String> names) {
+    StringBuilder s = new StringBuilder();
+    for(int i=names.size()-1;i>=0;--i) {
+      if(s.length() > 0) {
+        s.append(';');
+      }
+      // Spaces and semicolons separate stacks and frames in the collapsed format
+      s.append(names.get(i).replace(';', '_').replace(' ', '_'));
     }
+    return s.toString();
   }
 
-  public static void dumpTotalRunningTime() {
+  /**
+   * @return the number of samples taken so far in sampling mode
+   */
+  public synchronized long getSampleCount() {
+    return sampleCount;
+  }
+
+  /**
+   * Writes the recorded stacks in the collapsed format understood by flame graph tools,
+   * one stack per line, followed by its weight: the number of samples in sampling mode,
+   * or the own time in microseconds in instrumenting mode.
+   *
+   * <pre>
+   * main;f;g 14
+   * main;f;sum 3
+   * </pre>
+   */
+  public synchronized void writeCollapsedStacks(PrintWriter writer) {
+    List<String> sorted = Lists.newArrayList(stacks.keySet());
+    Collections.sort(sorted);
+    for (String stack : sorted) {
+      writer.print(stack);
+      writer.print(' ');
+      writer.println(stacks.get(stack));
+    }
+    writer.flush();
+  }
+
+  public void dumpTotalRunningTime(PrintStream out) {
     long totalRunningTime = (System.nanoTime() - startTime);
 
     double seconds = TimeUnit.NANOSECONDS.toSeconds(totalRunningTime);
     double minutes = seconds / 60d;
-    
+
     out.println("Completed in " + minutes + " minutes");
 
   }
-  
+
   /**
    * Dumps the results of the profile to the given PrintStream.
    */
-  public static void dump(PrintStream out) {
-    
+  public synchronized void dump(PrintStream out) {
+
     long totalRunningTime = (System.nanoTime() - startTime);
 
     printTopFunctions(out, totalRunningTime);
@@ -206,9 +502,9 @@ public class Profiler {
   }
 
 
-  private static void printTopFunctions(PrintStream out, final double totalRunningTime) {
+  private void printTopFunctions(PrintStream out, final double totalRunningTime) {
 
-    List<FunctionProfile> profiles = Lists.newArrayList(TOP_LEVEL_PROFILES.values());
+    List<FunctionProfile> profiles = Lists.newArrayList(topLevelProfiles.values());
     Collections.sort(profiles, Ordering.natural().onResultOf(new com.google.common.base.Function<FunctionProfile, Long>() {
       @Override
       public Long apply(FunctionProfile input) {
@@ -232,9 +528,9 @@ public class Profiler {
   }
 
 
-  private static void printFunctionTimings(PrintStream out, double totalRunningTime) {
+  private void printFunctionTimings(PrintStream out, double totalRunningTime) {
 
-    List<FunctionProfile> profiles = Lists.newArrayList(FUNCTION_PROFILES.values());
+    List<FunctionProfile> profiles = Lists.newArrayList(functionProfiles.values());
     Collections.sort(profiles, Ordering.natural().onResultOf(new com.google.common.base.Function<FunctionProfile, Long>() {
       @Override
       public Long apply(FunctionProfile input) {
@@ -265,12 +561,12 @@ public class Profiler {
     }
   }
 
-  private static void printLoopTimings(PrintStream out) {
+  private void printLoopTimings(PrintStream out) {
     out.println();
     out.println("LONG RUNNING LOOPS");
     out.println("==================");
-    
-    List<LoopTiming> loops = Lists.newArrayList(LOOP_TIMINGS);
+
+    List<LoopTiming> loops = Lists.newArrayList(loopTimings);
     Collections.sort(loops, Ordering.<Long>natural().onResultOf(new com.google.common.base.Function<LoopTiming, Long>() {
       @Override
       public Long apply(LoopTiming input) {
@@ -283,7 +579,7 @@ public class Profiler {
 
     for (LoopTiming loop : loops) {
       out.println(String.format("%-25s%10d%10d",
-          loop.parentCall.symbol.getPrintName(),
+          loop.parentCall == null ? "<top level>" : loop.parentCall.symbol.getPrintName(),
           loop.actualIterations,
           TimeUnit.NANOSECONDS.toMillis(loop.time)));
     }
@@ -293,11 +589,11 @@ public class Profiler {
   private static String formatAlloc(long bytes) {
     if(bytes < 1024) {
       return "";
-    } 
+    }
     double kb = bytes / 1024d;
     if(kb < 1024) {
       return String.format("%.1f kb", kb);
-    } 
+    }
     double mb = kb / 1024d;
     if(mb < 1024) {
       return String.format("%.1f mb", mb);
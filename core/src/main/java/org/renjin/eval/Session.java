@@ -8,6 +8,7 @@ import org.apache.commons.vfs2.FileSystemException;
 import org.apache.commons.vfs2.FileSystemManager;
 import org.renjin.compiler.pipeline.SimpleVectorPipeliner;
 import org.renjin.compiler.pipeline.VectorPipeliner;
+import org.renjin.gcc.runtime.GlobalVarContext;
 import org.renjin.primitives.io.connections.ConnectionTable;
 import org.renjin.primitives.packaging.NamespaceRegistry;
 import org.renjin.primitives.packaging.PackageLoader;
@@ -88,6 +89,13 @@ public class Session {
   
   private VectorPipeliner vectorPipeliner;
 
+  private final Profiler profiler = new Profiler();
+
+  /**
+   * Global variables of native code compiled with per-session globals
+   */
+  private final GlobalVarContext globalVarContext = new GlobalVarContext();
+
   /**
    * Whether the result of the evaluation should be "invisible" in a
    * REPL
@@ -118,6 +126,10 @@ public class Session {
     // several packages rely on the presence of .Random.seed in the global
     // even though it's an implementation detail.
     globalEnvironment.setVariable(".Random.seed", IntVector.valueOf(1)); 
+
+    if(Profiler.PROFILE_ALL_SESSIONS) {
+      profiler.start(Profiler.Mode.INSTRUMENTING, 0);
+    }
   }
 
   /** 
@@ -142,6 +154,20 @@ public class Session {
     this.connectionTable.getStderr().setOutputStream(writer);
   }
   
+  /**
+   * @return this session's profiler
+   */
+  public Profiler getProfiler() {
+    return profiler;
+  }
+
+  /**
+   * @return the global variables of native code used by this session
+   */
+  public GlobalVarContext getGlobalVarContext() {
+    return globalVarContext;
+  }
+
   public SessionController getSessionController() {
     return sessionController;
   }
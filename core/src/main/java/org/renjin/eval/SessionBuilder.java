@@ -46,6 +46,15 @@ public class SessionBuilder {
     return this;
   }
   
+  /**
+   * Loads and attaches the given package, in addition to any others requested
+   */
+  public SessionBuilder withPackage(String packageName) {
+    packagesToLoad = Lists.newArrayList(packagesToLoad);
+    packagesToLoad.add(packageName);
+    return this;
+  }
+
   /**
    * Binds a Renjin interface to its implementation
    * @param clazz
@@ -77,6 +86,18 @@ public class SessionBuilder {
     }
   }
   
+  /**
+   * Loads the base package and any other packages requested once, into a {@link SessionTemplate}
+   * from which any number of sessions can then be quickly created.
+   */
+  public SessionTemplate buildTemplate() {
+    try {
+      return new SessionTemplate(bindings, loadBasePackage, packagesToLoad);
+    } catch(Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
   public static Session buildDefault() {
     return new SessionBuilder().build();
   }
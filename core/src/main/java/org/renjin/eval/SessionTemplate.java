@@ -0,0 +1,311 @@
+package org.renjin.eval;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.vfs2.FileObject;
+import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.FileSystemManager;
+import org.renjin.base.BaseFrame;
+import org.renjin.primitives.packaging.*;
+import org.renjin.primitives.packaging.Package;
+import org.renjin.sexp.*;
+import org.renjin.util.FileSystemUtils;
+import org.renjin.util.NamedByteSource;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Creates {@link Session}s with the base package and a list of other packages already loaded.
+ *
+ * <p>Loading the base package and the default packages means deserializing thousands of functions,
+ * which dominates the cost of creating a session. A template does this once, in a private session of
+ * its own, and each new session then receives copies of the loaded values, which are only made when
+ * a value is first used. The {@code .onLoad} hooks and the setup of the packages' imports and exports
+ * still run for each new session, so sessions do not share any state.</p>
+ *
+ * <p>A template can create sessions from any number of threads at once.</p>
+ *
+ * <pre>
+ * SessionTemplate template = new SessionBuilder()
+ *     .withDefaultPackages()
+ *     .buildTemplate();
+ *
+ * Session session = template.newSession();
+ * </pre>
+ */
+public class SessionTemplate {
+
+  private final Map<Class, Object> bindings;
+  private final boolean loadBasePackage;
+  private final List<String> packagesToLoad;
+
+  /**
+   * The session in which the packages were loaded, which is never used for anything else.
+   */
+  private final Session template;
+
+  private final List<NamedValue> baseValues;
+  private final Map<FqPackageName, LoadedPackage> packages = Maps.newHashMap();
+
+  SessionTemplate(Map<Class, Object> bindings, boolean loadBasePackage, List<String> packagesToLoad)
+      throws IOException {
+    this.bindings = Maps.newHashMap(bindings);
+    this.loadBasePackage = loadBasePackage;
+    this.packagesToLoad = Lists.newArrayList(packagesToLoad);
+
+    Map<Class, Object> templateBindings = Maps.newHashMap(bindings);
+    templateBindings.put(PackageLoader.class, new RecordingPackageLoader(getPackageLoader()));
+    if(!templateBindings.containsKey(FileSystemManager.class)) {
+      templateBindings.put(FileSystemManager.class, FileSystemUtils.getMinimalFileSystemManager());
+    }
+    template = new Session(templateBindings);
+
+    Context context = template.getTopLevelContext();
+    if(loadBasePackage) {
+      context.init();
+
+      // Primitives and their aliases are bound by every BaseFrame
+      Frame baseFrame = template.getBaseEnvironment().getFrame();
+      ListVector.NamedBuilder values = new ListVector.NamedBuilder();
+      for (Symbol symbol : baseFrame.getSymbols()) {
+        SEXP value = baseFrame.getVariable(symbol);
+        if(!(value instanceof PrimitiveFunction)) {
+          values.add(symbol.getPrintName(), value.force(context));
+        }
+      }
+      baseValues = Lists.newArrayList(values.build().namedValues());
+    } else {
+      baseValues = Collections.emptyList();
+    }
+    for(String packageToLoad : packagesToLoad) {
+      context.evaluate(FunctionCall.newCall(Symbol.get("library"), Symbol.get(packageToLoad)));
+    }
+
+    // Deserialize all of the packages' values now, so that the new sessions never
+    // need to modify the template. This may in turn load further packages.
+    boolean forced;
+    do {
+      forced = false;
+      for (LoadedPackage pkg : Lists.newArrayList(packages.values())) {
+        forced |= pkg.forceValues(context);
+      }
+    } while(forced);
+  }
+
+  private PackageLoader getPackageLoader() {
+    return (PackageLoader) bindings.get(PackageLoader.class);
+  }
+
+  /**
+   * @return a new {@code Session}, with the template's packages loaded.
+   */
+  public Session newSession() {
+    try {
+      Map<Class, Object> sessionBindings = Maps.newHashMap(bindings);
+      if(!sessionBindings.containsKey(FileSystemManager.class)) {
+        sessionBindings.put(FileSystemManager.class, FileSystemUtils.getMinimalFileSystemManager());
+      }
+      CopyingPackageLoader loader = new CopyingPackageLoader(getPackageLoader());
+      sessionBindings.put(PackageLoader.class, loader);
+
+      Session session = new Session(sessionBindings);
+      loader.copier = new TemplateCopier(template, session);
+
+      Context context = session.getTopLevelContext();
+      if(loadBasePackage) {
+        BaseFrame baseFrame = (BaseFrame) session.getBaseEnvironment().getFrame();
+        baseFrame.load(copying(loader.copier, baseValues));
+        context.evaluate(FunctionCall.newCall(Symbol.get(".onLoad")), session.getBaseNamespaceEnv());
+      }
+      for(String packageToLoad : packagesToLoad) {
+        context.evaluate(FunctionCall.newCall(Symbol.get("library"), Symbol.get(packageToLoad)));
+      }
+      return session;
+
+    } catch(Exception e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static Iterable<NamedValue> copying(TemplateCopier copier, List<NamedValue> values) {
+    ListVector.NamedBuilder copies = new ListVector.NamedBuilder(0, values.size());
+    for (NamedValue value : values) {
+      copies.add(value.getName(), new CopyingPromise(copier, value.getValue()));
+    }
+    return copies.build().namedValues();
+  }
+
+  /**
+   * Copies a template value into the session on first use.
+   */
+  private static class CopyingPromise extends Promise {
+    private TemplateCopier copier;
+    private SEXP value;
+
+    CopyingPromise(TemplateCopier copier, SEXP value) {
+      super(Environment.EMPTY, Null.INSTANCE);
+      this.copier = copier;
+      this.value = value;
+    }
+
+    @Override
+    protected SEXP doEval(Context context) {
+      SEXP copy = copier.copy(value);
+      copier = null;
+      value = null;
+      return copy;
+    }
+  }
+
+  /**
+   * Records the packages loaded into the template session, along with their values.
+   */
+  private class RecordingPackageLoader implements PackageLoader {
+    private final PackageLoader loader;
+
+    RecordingPackageLoader(PackageLoader loader) {
+      this.loader = loader;
+    }
+
+    @Override
+    public Optional<Package> load(FqPackageName packageName) {
+      Optional<Package> pkg = loader.load(packageName);
+      if(!pkg.isPresent()) {
+        return pkg;
+      }
+      LoadedPackage loaded = new LoadedPackage(pkg.get());
+      packages.put(packageName, loaded);
+      return Optional.<Package>of(loaded);
+    }
+  }
+
+  /**
+   * Loads packages into a new session by copying the values loaded into the
+   * template session, falling back to the session's own {@code PackageLoader}
+   * for packages which are not part of the template.
+   */
+  private class CopyingPackageLoader implements PackageLoader {
+    private final PackageLoader loader;
+    private TemplateCopier copier;
+
+    CopyingPackageLoader(PackageLoader loader) {
+      this.loader = loader;
+    }
+
+    @Override
+    public Optional<Package> load(FqPackageName packageName) {
+      LoadedPackage loaded = packages.get(packageName);
+      if(loaded == null || loaded.values == null) {
+        return loader.load(packageName);
+      }
+      return Optional.<Package>of(new CopiedPackage(loaded, copier));
+    }
+  }
+
+  /**
+   * A package loaded into the template session
+   */
+  private static class LoadedPackage extends ForwardingPackage {
+
+    /**
+     * The values loaded into the package's namespace, or {@code null} if
+     * the namespace was never populated.
+     */
+    private List<NamedValue> values;
+    private boolean forced;
+
+    LoadedPackage(Package pkg) {
+      super(pkg);
+    }
+
+    @Override
+    public Iterable<NamedValue> loadSymbols(Context context) throws IOException {
+      values = Lists.newArrayList(super.loadSymbols(context));
+      return values;
+    }
+
+    /**
+     * @return true if any values were forced
+     */
+    boolean forceValues(Context context) {
+      if(forced || values == null) {
+        return false;
+      }
+      ListVector.NamedBuilder forcedValues = new ListVector.NamedBuilder(0, values.size());
+      for (NamedValue value : values) {
+        forcedValues.add(value.getName(), value.getValue().force(context));
+      }
+      values = Lists.newArrayList(forcedValues.build().namedValues());
+      forced = true;
+      return true;
+    }
+  }
+
+  /**
+   * A package loaded into a new session from the values loaded into the template session
+   */
+  private static class CopiedPackage extends ForwardingPackage {
+    private final LoadedPackage loaded;
+    private final TemplateCopier copier;
+
+    CopiedPackage(LoadedPackage loaded, TemplateCopier copier) {
+      super(loaded);
+      this.loaded = loaded;
+      this.copier = copier;
+    }
+
+    @Override
+    public Iterable<NamedValue> loadSymbols(Context context) throws IOException {
+      return copying(copier, loaded.values);
+    }
+  }
+
+  private static class ForwardingPackage extends Package {
+    private final Package pkg;
+
+    ForwardingPackage(Package pkg) {
+      super(pkg.getName());
+      this.pkg = pkg;
+    }
+
+    @Override
+    public Iterable<NamedValue> loadSymbols(Context context) throws IOException {
+      return pkg.loadSymbols(context);
+    }
+
+    @Override
+    public NamedByteSource getResource(String name) throws IOException {
+      return pkg.getResource(name);
+    }
+
+    @Override
+    public List<Dataset> getDatasets() throws IOException {
+      return pkg.getDatasets();
+    }
+
+    @Override
+    public SEXP getDataset(String datasetName) throws IOException {
+      return pkg.getDataset(datasetName);
+    }
+
+    @Override
+    public Class loadClass(String name) throws ClassNotFoundException {
+      return pkg.loadClass(name);
+    }
+
+    @Override
+    public Collection<String> getPackageDependencies() throws IOException {
+      return pkg.getPackageDependencies();
+    }
+
+    @Override
+    public FileObject resolvePackageRoot(FileSystemManager fileSystemManager) throws FileSystemException {
+      return pkg.resolvePackageRoot(fileSystemManager);
+    }
+  }
+}
@@ -0,0 +1,251 @@
+package org.renjin.eval;
+
+import org.renjin.primitives.packaging.Namespace;
+import org.renjin.primitives.packaging.NamespaceRegistry;
+import org.renjin.sexp.*;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copies values loaded by a {@link SessionTemplate} into a new {@link Session}.
+ *
+ * <p>Values which cannot be modified, such as vectors, symbols and the constants within function
+ * bodies, are shared with the template. Everything through which one session could affect another
+ * is copied: environments, closures, promises and function calls, which cache the function
+ * to which they were last resolved, together with any list or pairlist containing them.</p>
+ *
+ * <p>References to the template's global, base and namespace environments are resolved to the
+ * corresponding environments of the new session, just as they are when a value is deserialized,
+ * so that a copy behaves exactly like a freshly loaded value.</p>
+ *
+ * <p>The template is only ever read, so any number of copiers may copy from the same template
+ * concurrently.</p>
+ */
+class TemplateCopier {
+
+  private final Session template;
+  private final Session session;
+
+  private final Map<SEXP, SEXP> copies = new IdentityHashMap<>();
+
+  TemplateCopier(Session template, Session session) {
+    this.template = template;
+    this.session = session;
+
+    copies.put(Environment.EMPTY, Environment.EMPTY);
+    copies.put(template.getBaseEnvironment(), session.getBaseEnvironment());
+    copies.put(template.getBaseNamespaceEnv(), session.getBaseNamespaceEnv());
+    copies.put(template.getGlobalEnvironment(), session.getGlobalEnvironment());
+  }
+
+  public SEXP copy(SEXP value) {
+    SEXP copy = copies.get(value);
+    if(copy != null) {
+      return copy;
+    }
+    if(value instanceof Environment) {
+      return copyEnvironment((Environment) value);
+
+    } else if(value instanceof Closure) {
+      return copyClosure((Closure) value);
+
+    } else if(value instanceof Promise) {
+      return copyPromise((Promise) value);
+
+    } else if(value instanceof PairList.Node) {
+      return copyPairList((PairList.Node) value);
+
+    } else if(value.getClass() == ListVector.class || value.getClass() == ExpressionVector.class) {
+      return copyList((ListVector) value);
+
+    } else if(value instanceof AtomicVector || value instanceof S4Object) {
+      AttributeMap attributes = copyAttributes(value.getAttributes());
+      if(attributes != value.getAttributes()) {
+        return value.setAttributes(attributes);
+      }
+    }
+
+    // The remaining values are either immutable or, in the case of external pointers,
+    // opaque, and are shared between sessions
+    value.markShared();
+    return value;
+  }
+
+  private Environment copyEnvironment(Environment env) {
+    Environment existing = (Environment) copies.get(env);
+    if(existing != null) {
+      return existing;
+    }
+    NamespaceRegistry templateRegistry = template.getNamespaceRegistry();
+    if(templateRegistry.isNamespaceEnv(env)) {
+      // Load the session's own namespace, as would deserializing a reference to the namespace
+      Namespace namespace = templateRegistry.getNamespace(env);
+      Environment copy = session.getNamespaceRegistry()
+          .getNamespace(session.getTopLevelContext(), namespace.getFullyQualifiedName())
+          .getNamespaceEnvironment();
+      copies.put(env, copy);
+      return copy;
+    }
+
+    Environment copy = Environment.createChildEnvironment(Environment.EMPTY);
+    copies.put(env, copy);
+
+    copy.setParent(copyEnvironment(env.getParent()));
+
+    Frame frame = env.getFrame();
+    for (Symbol symbol : frame.getSymbols()) {
+      copy.setVariable(symbol, copy(frame.getVariable(symbol)));
+    }
+    AttributeMap attributes = env.getAttributes();
+    if(!attributes.empty()) {
+      copy.setAttributes(copyAttributes(attributes));
+    }
+    if(env.isLocked()) {
+      copy.lock(false);
+    }
+    for (Symbol symbol : frame.getSymbols()) {
+      if(env.bindingIsLocked(symbol)) {
+        copy.lockBinding(symbol);
+      }
+    }
+    return copy;
+  }
+
+  private SEXP copyClosure(Closure closure) {
+    SEXP existing = copies.get(closure);
+    if(existing != null) {
+      return existing;
+    }
+    Environment enclosingEnvironment = copyEnvironment(closure.getEnclosingEnvironment());
+    PairList formals = (PairList) copy(closure.getFormals());
+    SEXP body = copy(closure.getBody());
+    AttributeMap attributes = copyAttributes(closure.getAttributes());
+
+    // The closure may have been reached again through its own environment
+    SEXP copy = copies.get(closure);
+    if(copy == null) {
+      copy = new Closure(enclosingEnvironment, formals, body, attributes);
+      if(closure.hasCompiledBody()) {
+        closure.getCompiler().copyPrecompiledBodiesTo((Closure) copy);
+      }
+      copies.put(closure, copy);
+    }
+    return copy;
+  }
+
+  private SEXP copyPromise(Promise promise) {
+    SEXP copy = copies.get(promise);
+    if(copy != null) {
+      return copy;
+    }
+    if(promise.isEvaluated()) {
+      SEXP expression = copy(promise.getExpression());
+      SEXP value = copy(promise.getValue());
+      copy = copies.get(promise);
+      if(copy == null) {
+        copy = new Promise(expression, value);
+      }
+    } else {
+      Environment environment = copyEnvironment(promise.getEnvironment());
+      SEXP expression = copy(promise.getExpression());
+      copy = copies.get(promise);
+      if(copy == null) {
+        copy = Promise.repromise(environment, expression);
+      }
+    }
+    copies.put(promise, copy);
+    return copy;
+  }
+
+  private SEXP copyPairList(PairList.Node list) {
+    List<PairList.Node> nodes = new ArrayList<>();
+    List<SEXP> values = new ArrayList<>();
+    List<AttributeMap> attributes = new ArrayList<>();
+    // Function calls must always be copied, as they cache the function
+    // to which they resolve
+    boolean changed = list instanceof FunctionCall;
+
+    for (PairList.Node node : list.nodes()) {
+      SEXP value = copy(node.getValue());
+      AttributeMap nodeAttributes = copyAttributes(node.getAttributes());
+      nodes.add(node);
+      values.add(value);
+      attributes.add(nodeAttributes);
+      changed |= value != node.getValue() || nodeAttributes != node.getAttributes();
+    }
+
+    if(!changed) {
+      list.markShared();
+      return list;
+    }
+
+    if(list instanceof PromisePairList) {
+      PromisePairList.Builder copy = new PromisePairList.Builder();
+      for (int i = 0; i < nodes.size(); i++) {
+        copy.add(nodes.get(i).getRawTag(), values.get(i));
+      }
+      return copy.build();
+    }
+
+    PairList copy = Null.INSTANCE;
+    for (int i = nodes.size() - 1; i > 0; i--) {
+      copy = new PairList.Node(nodes.get(i).getRawTag(), values.get(i), attributes.get(i), copy);
+    }
+    if(list instanceof FunctionCall) {
+      return new FunctionCall(values.get(0), copy, attributes.get(0));
+    } else {
+      return new PairList.Node(nodes.get(0).getRawTag(), values.get(0), attributes.get(0), copy);
+    }
+  }
+
+  private SEXP copyList(ListVector list) {
+    SEXP[] elements = null;
+    for (int i = 0; i < list.length(); i++) {
+      SEXP element = list.getElementAsSEXP(i);
+      SEXP copy = copy(element);
+      if(copy != element && elements == null) {
+        elements = list.toArrayUnsafe().clone();
+      }
+      if(elements != null) {
+        elements[i] = copy;
+      }
+    }
+    AttributeMap attributes = copyAttributes(list.getAttributes());
+    if(elements == null && attributes == list.getAttributes()) {
+      list.markShared();
+      return list;
+    }
+    if(elements == null) {
+      elements = list.toArrayUnsafe().clone();
+    }
+    if(list instanceof ExpressionVector) {
+      return new ExpressionVector(elements, attributes);
+    } else {
+      return new ListVector(elements, attributes);
+    }
+  }
+
+  /**
+   * @return {@code attributes} if none of the attribute values needed to be copied,
+   * or a new map with the copied values.
+   */
+  private AttributeMap copyAttributes(AttributeMap attributes) {
+    if(attributes.empty()) {
+      return attributes;
+    }
+    AttributeMap.Builder builder = null;
+    for (PairList.Node node : attributes.nodes()) {
+      SEXP copy = copy(node.getValue());
+      if(copy != node.getValue()) {
+        if(builder == null) {
+          builder = attributes.copy();
+        }
+        builder.set(node.getTag(), copy);
+      }
+    }
+    return builder == null ? attributes : builder.build();
+  }
+}
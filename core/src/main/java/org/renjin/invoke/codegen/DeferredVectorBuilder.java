@@ -6,6 +6,7 @@ import org.apache.commons.math.complex.Complex;
 import org.renjin.invoke.annotations.PreserveAttributeStyle;
 import org.renjin.invoke.model.JvmMethod;
 import org.renjin.invoke.model.PrimitiveModel;
+import org.renjin.primitives.vector.AdaptiveDoubleVector;
 import org.renjin.primitives.vector.DeferredComputation;
 import org.renjin.sexp.*;
 
@@ -410,7 +411,7 @@ public class DeferredVectorBuilder {
 
   private enum VectorType {
 
-    DOUBLE(DoubleVector.class, "getElementAsDouble", double.class),
+    DOUBLE(AdaptiveDoubleVector.class, "computeElementAsDouble", double.class),
     LOGICAL(LogicalVector.class, "getElementAsRawLogical", int.class),
     INTEGER(IntVector.class, "getElementAsInt", int.class),
     COMPLEX(ComplexVector.class, "getElementAsComplex", Complex.class),
@@ -4,10 +4,18 @@ import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import com.google.common.base.Function;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.renjin.RenjinVersion;
+import org.renjin.compiler.PrecompiledBody;
 import org.renjin.eval.Context;
 import org.renjin.primitives.io.serialization.RDataReader;
+import org.renjin.sexp.Closure;
 import org.renjin.sexp.ListVector;
 import org.renjin.sexp.NamedValue;
 import org.renjin.sexp.SEXP;
@@ -17,6 +25,12 @@ public class LazyLoadFrame {
   private static final int OLD_VERSION = 1;
   private static final int VERSION = 2;
 
+  /**
+   * Version 2, preceded by the bodies of closures compiled when the package was built, and
+   * the {@link RenjinVersion#getBuildFingerprint() fingerprint} of the build which compiled them
+   */
+  private static final int COMPILED_VERSION = 3;
+
   
   public static Iterable<NamedValue> load(Context context,
                                           Function<String, InputStream> resourceProvider) throws IOException {
@@ -26,29 +40,73 @@ public class LazyLoadFrame {
     if(version == OLD_VERSION) {
       return readOldVersion(din);
     }
-    if(version != VERSION) {
+    if(version != VERSION && version != COMPILED_VERSION) {
       throw new IOException("Unsupported version: " + version);
     }
 
+    Map<String, List<PrecompiledBody>> compiledBodies = Collections.emptyMap();
+    if(version == COMPILED_VERSION) {
+      compiledBodies = readCompiledBodies(din);
+    }
+
     int count = din.readInt();
     ListVector.NamedBuilder vector = new ListVector.NamedBuilder(0, count);
 
     for(int i=0;i!=count;++i) {
       String name = din.readUTF();
       int length = din.readInt();
+      List<PrecompiledBody> bodies = compiledBodies.get(name);
       if(length < 0) {
-        vector.add(name, new SerializedPromise(resourceProvider, name));
+        vector.add(name, new SerializedPromise(resourceProvider, name, bodies));
       } else {
         byte[] serialized = new byte[length];
         din.readFully(serialized);
         RDataReader reader = new RDataReader(context, new ByteArrayInputStream(serialized));
-        vector.add(name, reader.readFile());
+        SEXP value = reader.readFile();
+        if(bodies != null && value instanceof Closure) {
+          for (PrecompiledBody body : bodies) {
+            body.attachTo((Closure) value);
+          }
+        }
+        vector.add(name, value);
       }
     }
     din.close();
     return vector.build().namedValues();
   }
 
+  /**
+   * Reads the bodies compiled when the package was built. Bodies compiled by a different build of
+   * Renjin, or which cannot be read, are skipped, and their closures are interpreted.
+   */
+  private static Map<String, List<PrecompiledBody>> readCompiledBodies(DataInputStream din) throws IOException {
+    String fingerprint = din.readUTF();
+    boolean compatible = fingerprint.equals(RenjinVersion.getBuildFingerprint());
+
+    int count = din.readInt();
+    Map<String, List<PrecompiledBody>> map = Maps.newHashMap();
+    for(int i=0;i!=count;++i) {
+      String name = din.readUTF();
+      int bodyCount = din.readInt();
+      List<PrecompiledBody> bodies = Lists.newArrayList();
+      for(int j=0;j!=bodyCount;++j) {
+        byte[] body = new byte[din.readInt()];
+        din.readFully(body);
+        if(compatible) {
+          try {
+            bodies.add(PrecompiledBody.read(new DataInputStream(new ByteArrayInputStream(body))));
+          } catch (IOException | RuntimeException e) {
+            // Leave this closure to the interpreter
+          }
+        }
+      }
+      if(!bodies.isEmpty()) {
+        map.put(name, bodies);
+      }
+    }
+    return map;
+  }
+
   private static Iterable<NamedValue> readOldVersion(DataInputStream din) throws IOException {
     int count = din.readInt();
     ListVector.NamedBuilder vector = new ListVector.NamedBuilder(0, count);
@@ -3,18 +3,25 @@ package org.renjin.packaging;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
 import com.google.common.io.Files;
+import org.renjin.RenjinVersion;
+import org.renjin.compiler.PrecompiledBody;
 import org.renjin.eval.Context;
 import org.renjin.primitives.io.serialization.RDataWriter;
+import org.renjin.sexp.Closure;
 import org.renjin.sexp.Environment;
 import org.renjin.sexp.NamedValue;
 
 import java.io.*;
+import java.util.List;
+import java.util.Map;
 
 public class LazyLoadFrameBuilder {
 
   private static final int VERSION_1 = 1;
   private static final int VERSION_2 = 2;
+  private static final int VERSION_3 = 3;
 
   private File outputDir;
 
@@ -22,6 +29,8 @@ public class LazyLoadFrameBuilder {
 
   private Predicate<NamedValue> filter = Predicates.alwaysTrue();
 
+  private boolean compileClosures = false;
+
 
   public LazyLoadFrameBuilder(Context context) {
     this.context = context;
@@ -37,17 +46,59 @@ public class LazyLoadFrameBuilder {
     return this;
   }
   
+  /**
+   * Compiles the bodies of closures which can be compiled ahead of time to JVM byte code,
+   * and writes them to the index along with the closures.
+   */
+  public LazyLoadFrameBuilder compileClosures(boolean compileClosures) {
+    this.compileClosures = compileClosures;
+    return this;
+  }
+  
   public void build(Environment env) throws IOException {
 
     Iterable<NamedValue> toWrite = Iterables.filter(env.namedValues(), filter);
 
+    // Compiled bodies can only be loaded by the same build of Renjin
+    String fingerprint = RenjinVersion.getBuildFingerprint();
+
+    Map<String, List<PrecompiledBody>> compiledBodies = Maps.newLinkedHashMap();
+    if(compileClosures && fingerprint != null) {
+      for (NamedValue namedValue : toWrite) {
+        if(namedValue.getValue() instanceof Closure) {
+          List<PrecompiledBody> bodies = PrecompiledBody.tryCompile(context, (Closure) namedValue.getValue());
+          if(!bodies.isEmpty()) {
+            compiledBodies.put(namedValue.getName(), bodies);
+          }
+        }
+      }
+    }
 
     // Now write an index of symbols
     File indexFile = new File(outputDir, "environment");
     DataOutputStream indexOut = new DataOutputStream(new FileOutputStream(indexFile));
 
-    // mark this format as version 2
-    indexOut.writeInt(VERSION_2);
+    if(compiledBodies.isEmpty()) {
+      // mark this format as version 2
+      indexOut.writeInt(VERSION_2);
+    } else {
+      // version 3 starts with the build fingerprint and the compiled bodies,
+      // followed by the version 2 index
+      indexOut.writeInt(VERSION_3);
+      indexOut.writeUTF(fingerprint);
+      indexOut.writeInt(compiledBodies.size());
+      for (Map.Entry<String, List<PrecompiledBody>> entry : compiledBodies.entrySet()) {
+        indexOut.writeUTF(entry.getKey());
+        indexOut.writeInt(entry.getValue().size());
+        for (PrecompiledBody body : entry.getValue()) {
+          // Each body is prefixed by its length, so that it can be skipped if it cannot be read
+          ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+          body.write(new DataOutputStream(bodyBytes));
+          indexOut.writeInt(bodyBytes.size());
+          bodyBytes.writeTo(indexOut);
+        }
+      }
+    }
 
     // write out each (large) symbols to a separate resource file.
     // Small values will be serialized directly in the index file
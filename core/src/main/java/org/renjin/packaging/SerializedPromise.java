@@ -2,9 +2,11 @@ package org.renjin.packaging;
 
 
 import com.google.common.base.Function;
+import org.renjin.compiler.PrecompiledBody;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.primitives.io.serialization.RDataReader;
+import org.renjin.sexp.Closure;
 import org.renjin.sexp.Environment;
 import org.renjin.sexp.Null;
 import org.renjin.sexp.Promise;
@@ -12,22 +14,39 @@ import org.renjin.sexp.SEXP;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 
 public class SerializedPromise extends Promise {
 
   private Function<String, InputStream> resourceProvider;
   private String name;
+  private List<PrecompiledBody> compiledBodies;
 
   public SerializedPromise(Function<String, InputStream> resourceProvider, String name) {
+    this(resourceProvider, name, null);
+  }
+
+  /**
+   * @param compiledBodies the bodies compiled for the closure when the package was built, or {@code null}
+   */
+  public SerializedPromise(Function<String, InputStream> resourceProvider, String name,
+                           List<PrecompiledBody> compiledBodies) {
     super(Environment.EMPTY, Null.INSTANCE);
     this.resourceProvider = resourceProvider;
     this.name = name;
+    this.compiledBodies = compiledBodies;
   }
 
   @Override
   protected SEXP doEval(Context context) {
     try(RDataReader reader = new RDataReader(context, resourceProvider.apply(resourceName(name)))) {
-      return reader.readFile();
+      SEXP value = reader.readFile();
+      if(compiledBodies != null && value instanceof Closure) {
+        for (PrecompiledBody body : compiledBodies) {
+          body.attachTo((Closure) value);
+        }
+      }
+      return value;
     } catch (IOException e) {
       throw new EvalException(e);
     }
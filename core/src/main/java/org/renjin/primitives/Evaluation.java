@@ -23,8 +23,10 @@ package org.renjin.primitives;
 
 import com.google.common.collect.Lists;
 import com.google.common.io.CharSource;
+import org.renjin.eval.ArgumentMatchPlan;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
+import org.renjin.eval.Profiler;
 import org.renjin.invoke.annotations.Builtin;
 import org.renjin.invoke.annotations.Current;
 import org.renjin.invoke.annotations.Internal;
@@ -108,14 +110,15 @@ public class Evaluation {
   public static ListVector lapply(@Current Context context, @Current Environment rho, Vector vector,
       Function function) {
 
-    ListVector.Builder builder = ListVector.newBuilder();
+    ElementApplier applier = new ElementApplier(context, rho, vector, function);
+    ListVector.Builder builder = new ListVector.Builder(0, vector.length());
     for(int i=0;i!=vector.length();++i) {
       // For historical reasons, the calls created by lapply are unevaluated, and code has
       // been written (e.g. bquote) that relies on this.
       FunctionCall getElementCall = FunctionCall.newCall(Symbol.get("[["), vector, new IntArrayVector(i+1));
       FunctionCall applyFunctionCall = new FunctionCall((SEXP)function, new PairList.Node(getElementCall,
           new PairList.Node(Symbols.ELLIPSES, Null.INSTANCE)));
-      builder.add( context.evaluate(applyFunctionCall, rho) );
+      builder.add( applier.apply(applyFunctionCall, i) );
     }
     builder.setAttribute(Symbols.NAMES, vector.getNames());
     return builder.build();
@@ -128,8 +131,21 @@ public class Evaluation {
     // Retrieve the additional arguments from the `...` value 
     // in the closure that called us
     PairList extraArgs = (PairList)rho.getVariable(Symbols.ELLIPSES);
-    
-    Vector.Builder result = funValue.getVectorType().newBuilderWithInitialCapacity(vector.length());
+
+    ElementApplier applier = new ElementApplier(context, rho, vector, function);
+
+    // Scalar results of the common types are written directly to an array
+    double[] doubleResult = null;
+    int[] intResult = null;
+    Vector.Builder result = null;
+    if(funValue.length() == 1 && funValue instanceof DoubleVector) {
+      doubleResult = new double[vector.length()];
+    } else if(funValue.length() == 1 && (funValue instanceof IntVector || funValue instanceof LogicalVector)) {
+      intResult = new int[vector.length()];
+    } else {
+      result = funValue.getVectorType().newBuilderWithInitialCapacity(vector.length());
+    }
+
     for(int i=0;i!=vector.length();++i) {
 
       // build function call 
@@ -143,7 +159,7 @@ public class Evaluation {
       FunctionCall call = new FunctionCall(function, args.build());
       
       // evaluate
-      SEXP x = context.evaluate(call);
+      SEXP x = applier.apply(call, i);
       
       // check the result
       if(!(x instanceof Vector) || 
@@ -155,11 +171,31 @@ public class Evaluation {
             x.getTypeName());
             
       }
-      for(int j=0;j!=funValue.length();++j) {
-        result.addFrom(x, j);
+      if(doubleResult != null) {
+        doubleResult[i] = ((Vector) x).getElementAsDouble(0);
+      } else if(intResult != null) {
+        intResult[i] = ((Vector) x).getElementAsInt(0);
+      } else {
+        for(int j=0;j!=funValue.length();++j) {
+          result.addFrom(x, j);
+        }
+      }
+    }
+
+    if(result == null) {
+      AttributeMap.Builder attributes = AttributeMap.builder();
+      if(useNames) {
+        attributes.setNames(vector.getAttribute(Symbols.NAMES));
+      }
+      if(doubleResult != null) {
+        return DoubleArrayVector.unsafe(doubleResult, attributes.build());
+      } else if(funValue instanceof IntVector) {
+        return IntArrayVector.unsafe(intResult, attributes.build());
+      } else {
+        return new LogicalArrayVector(intResult, attributes.build());
       }
     }
-    
+
     if(useNames) {
       result.setAttribute(Symbols.NAMES, vector.getAttribute(Symbols.NAMES));
     }
@@ -170,6 +206,76 @@ public class Evaluation {
     return result.build();
   }
 
+  /**
+   * Applies a function to each element of a vector on behalf of {@code lapply} and {@code vapply}.
+   *
+   * <p>The calls are always constructed as {@code FUN(X[[i]], ...)}, so that {@code substitute()}
+   * and {@code sys.call()} see the same expressions as before. When the function is a closure and
+   * the vector is a plain list or atomic vector, for which {@code [[} cannot be overridden,
+   * the element is extracted directly and passed as an already-evaluated promise instead of
+   * evaluating {@code X[[i]]} for each element, and the argument matching plan of the first call
+   * is reused for the following calls.</p>
+   *
+   * <p>As the calls refer to the function itself rather than to its name, {@link Context#evaluate} does not
+   * report them to the profiler, so each call is reported here as a call to {@code FUN}.</p>
+   */
+  private static class ElementApplier {
+    private static final Symbol FUN = Symbol.get("FUN");
+
+    private final Context context;
+    private final Environment rho;
+    private final Vector vector;
+    private final Function function;
+    private final Closure closure;
+    private ArgumentMatchPlan plan;
+
+    ElementApplier(Context context, Environment rho, Vector vector, Function function) {
+      this.context = context;
+      this.rho = rho;
+      this.vector = vector;
+      this.function = function;
+      if(function instanceof Closure && !vector.isObject() &&
+          (vector instanceof AtomicVector || vector instanceof ListVector)) {
+        this.closure = (Closure) function;
+      } else {
+        this.closure = null;
+      }
+    }
+
+    /**
+     * Evaluates {@code call}, whose first argument is the call {@code X[[i+1]]}
+     */
+    SEXP apply(FunctionCall call, int i) {
+      Profiler profiler = Profiler.runningProfiler(context.getSession());
+      if(profiler != null) {
+        profiler.callStart(context, FUN, function);
+      }
+      try {
+        return applyElement(call, i);
+      } finally {
+        if(profiler != null) {
+          profiler.callEnd();
+        }
+      }
+    }
+
+    private SEXP applyElement(FunctionCall call, int i) {
+      if(closure == null) {
+        return context.evaluate(call, rho);
+      }
+      PairList.Node arguments = (PairList.Node) call.getArguments();
+      PairList promisedArguments = new PairList.Node(
+          new Promise(arguments.getValue(), vector.getElementAsSEXP(i)),
+          arguments.getNext());
+
+      call.setArgumentMatchPlan(plan);
+      context.clearInvisibleFlag();
+      SEXP result = closure.apply(context, rho, call, promisedArguments);
+      plan = call.getArgumentMatchPlan();
+      return result;
+    }
+  }
+
   public static ListVector mapply(Context context, SEXP f, SEXP varyingArgs, Vector constantArgs, Environment rho) {
 
     int longest = 0;
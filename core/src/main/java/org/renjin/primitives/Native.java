@@ -35,6 +35,21 @@ public class Native {
 
   public static final ThreadLocal<Context> CURRENT_CONTEXT = new ThreadLocal<>();
 
+  static {
+    // Native code compiled with per-session globals finds its variables through
+    // the session which is calling it
+    GlobalVarContext.setProvider(new GlobalVarContext.Provider() {
+      @Override
+      public GlobalVarContext current() {
+        Context context = CURRENT_CONTEXT.get();
+        if(context == null) {
+          return null;
+        }
+        return context.getSession().getGlobalVarContext();
+      }
+    });
+  }
+
 
   @Builtin(".C")
   public static SEXP dotC(@Current Context context,
@@ -96,19 +111,23 @@ public class Native {
       }
     }
     
-    if(Profiler.ENABLED) {
-      Profiler.functionStart(Symbol.get(methodName), 'C');
+    Profiler profiler = Profiler.runningProfiler(context.getSession());
+    if(profiler != null) {
+      profiler.functionStart(Symbol.get(methodName), 'C');
     }
 
+    Context previousContext = CURRENT_CONTEXT.get();
     try {
+      CURRENT_CONTEXT.set(context);
       method.invokeWithArguments(nativeArguments);
     } catch (EvalException | Error e) {
       throw e;
     } catch (Throwable e) {
       throw new EvalException(e.getMessage(), e);
     } finally {
-      if(Profiler.ENABLED) {
-        Profiler.functionEnd();
+      CURRENT_CONTEXT.set(previousContext);
+      if(profiler != null) {
+        profiler.functionEnd();
       }
     }
 
@@ -238,8 +257,9 @@ public class Native {
     Object[] fortranArgs = new Object[fortranTypes.length];
     ListVector.NamedBuilder returnValues = ListVector.newNamedBuilder();
 
-    if(Profiler.ENABLED) {
-      Profiler.functionStart(Symbol.get(methodName), 'F');
+    Profiler profiler = Profiler.runningProfiler(context.getSession());
+    if(profiler != null) {
+      profiler.functionStart(Symbol.get(methodName), 'F');
     }
 
     // For .Fortran() calls, we make a copy of the arguments, pass them by
@@ -268,15 +288,18 @@ public class Native {
       }
     }
 
+    Context previousContext = CURRENT_CONTEXT.get();
     try {
+      CURRENT_CONTEXT.set(context);
       method.invokeWithArguments(fortranArgs);
     } catch (Error e) {
       throw e;
     } catch (Throwable e) {
       throw new EvalException("Exception thrown while executing " + methodName, e);
     } finally {
-      if(Profiler.ENABLED) {
-        Profiler.functionEnd();
+      CURRENT_CONTEXT.set(previousContext);
+      if(profiler != null) {
+        profiler.functionEnd();
       }
     }
 
@@ -345,9 +368,10 @@ public class Native {
       }
       MethodHandle transformedHandle = methodHandle.asSpreader(SEXP[].class, methodHandle.type().parameterCount());
       SEXP[] arguments = toSexpArray(callArguments);
-      if(Profiler.ENABLED) {
+      Profiler profiler = Profiler.runningProfiler(context.getSession());
+      if(profiler != null) {
         StringVector nameExp = (StringVector)((ListVector) methodExp).get("name");
-        Profiler.functionStart(Symbol.get(nameExp.getElementAsString(0)), 'C');
+        profiler.functionStart(Symbol.get(nameExp.getElementAsString(0)), 'C');
       }
       Context previousContext = CURRENT_CONTEXT.get();
       try {
@@ -364,8 +388,8 @@ public class Native {
         throw new EvalException("Exception calling " + methodExp + " : " + e.getMessage(), e);
       } finally {
         CURRENT_CONTEXT.set(previousContext);
-        if(Profiler.ENABLED) {
-          Profiler.functionEnd();
+        if(profiler != null) {
+          profiler.functionEnd();
         }
       }
 
@@ -385,14 +409,15 @@ public class Native {
         }
         clazz = namespaceClass.get();
       }
-      if(Profiler.ENABLED) {
-        Profiler.functionStart(Symbol.get(methodName), 'C');
+      Profiler profiler = Profiler.runningProfiler(context.getSession());
+      if(profiler != null) {
+        profiler.functionStart(Symbol.get(methodName), 'C');
       }
       try {
         return delegateToJavaMethod(context, clazz, methodName, callArguments);
       } finally {
-        if(Profiler.ENABLED) {
-          Profiler.functionEnd();
+        if(profiler != null) {
+          profiler.functionEnd();
         }
       }
     } else {
@@ -425,9 +450,10 @@ public class Native {
     StringVector functionName = (StringVector) ((ListVector) methodExp).get("name");
     SEXP argumentList = new PairList.Node(functionName, PairList.Node.fromVector(callArguments));
 
-    if(Profiler.ENABLED) {
+    Profiler profiler = Profiler.runningProfiler(context.getSession());
+    if(profiler != null) {
       StringVector nameExp = (StringVector)((ListVector) methodExp).get("name");
-      Profiler.functionStart(Symbol.get(nameExp.getElementAsString(0)), 'C');
+      profiler.functionStart(Symbol.get(nameExp.getElementAsString(0)), 'C');
     }
     Context previousContext = CURRENT_CONTEXT.get();
     try {
@@ -444,8 +470,8 @@ public class Native {
       throw new EvalException("Exception calling " + methodExp + " : " + e.getMessage(), e);
     } finally {
       CURRENT_CONTEXT.set(previousContext);
-      if(Profiler.ENABLED) {
-        Profiler.functionEnd();
+      if(profiler != null) {
+        profiler.functionEnd();
       }
     }
   }
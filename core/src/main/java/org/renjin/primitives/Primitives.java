@@ -684,6 +684,7 @@ public class Primitives {
     f("seq_along", Sequences.class, "seqAlong", 1);
     f("list", Vectors.class, "list", 1);
     f("split",  Split.class, 11);
+    f("grouped.reduce", Split.class, 11);
     f("is.loaded", /*isloaded*/ null, -1);
     f(".C", Native.class, -1);
     f(".Fortran", Native.class, -1);
@@ -718,7 +719,7 @@ public class Primitives {
     f("is.unsorted", Sort.class, 11);
     f("psort", Sort.class, null, 11);
     f("qsort", Sort.class, 11);
-    f("radixsort", /*radixsort*/ null, 11);
+    f("radixsort", Sort.class, 11);
     f("order", Sort.class, 11);
     f("rank", Sort.class, 11);
     f("missing", Evaluation.class, "missing", 0);
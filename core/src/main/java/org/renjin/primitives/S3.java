@@ -471,7 +471,66 @@ public class S3 {
     }
 
     private GenericMethod findNextOrDefault() {
-      GenericMethod next = findNext();
+      return findCached(true);
+    }
+
+    public GenericMethod findNext() {
+      return findCached(false);
+    }
+
+    /**
+     * Finds the next method using the session's {@link S3DispatchCache}, resolving and caching the
+     * method if it has not already been cached.
+     */
+    private GenericMethod findCached(boolean includeDefault) {
+      S3DispatchCache cache = context.getSession().getSingleton(S3DispatchCache.class);
+      S3DispatchCache.Key key = new S3DispatchCache.Key(genericMethodName, group,
+          classes.toArray(new String[classes.size()]), includeDefault,
+          callingEnvironment.getParent(), definitionEnvironment);
+
+      S3DispatchCache.Target target = cache.get(key, callingEnvironment);
+      if(target != null) {
+        if(target.method == null) {
+          return null;
+        }
+        return new GenericMethod(this, target.method, target.className, target.function);
+      }
+
+      Symbol[] candidates = candidateMethods(includeDefault);
+      int[] bindingVersions = S3DispatchCache.bindingVersions(candidates);
+      int tableVersion = METHODS_TABLE.getBindingVersion();
+      int chainVersion = Environment.getChainVersion();
+
+      GenericMethod method = includeDefault ? resolveNextOrDefault() : resolveNext();
+
+      if(method == null) {
+        cache.put(key, callingEnvironment, candidates, bindingVersions, tableVersion, chainVersion, null, null, null);
+      } else {
+        cache.put(key, callingEnvironment, candidates, bindingVersions, tableVersion, chainVersion,
+            method.method, method.className, method.function);
+      }
+      return method;
+    }
+
+    /**
+     * @return the names of all the methods which are searched for, in order
+     */
+    private Symbol[] candidateMethods(boolean includeDefault) {
+      List<Symbol> candidates = Lists.newArrayList();
+      for (String className : classes) {
+        candidates.add(Symbol.get(genericMethodName + "." + className));
+        if(group != null) {
+          candidates.add(Symbol.get(group + "." + className));
+        }
+      }
+      if(includeDefault) {
+        candidates.add(Symbol.get(genericMethodName + ".default"));
+      }
+      return candidates.toArray(new Symbol[candidates.size()]);
+    }
+
+    private GenericMethod resolveNextOrDefault() {
+      GenericMethod next = resolveNext();
 
       if(next != null) {
         return next;
@@ -493,7 +552,7 @@ public class S3 {
       }
     }
 
-    public GenericMethod findNext() {
+    private GenericMethod resolveNext() {
       Environment methodTable = getMethodTable();
       GenericMethod method;
       
@@ -589,8 +648,9 @@ public class S3 {
 
       callContext.setState(GenericMethod.class, this);
 
-      if(Profiler.ENABLED) {
-        Profiler.functionStart(this.method, function);
+      Profiler profiler = Profiler.runningProfiler(callContext.getSession());
+      if(profiler != null) {
+        profiler.functionStart(this.method, function);
       }
       try {
         if (function instanceof Closure) {
@@ -601,8 +661,8 @@ public class S3 {
           return function.apply(callContext, callEnvironment, newCall, args);
         }
       } finally {
-        if(Profiler.ENABLED) {
-          Profiler.functionEnd();
+        if(profiler != null) {
+          profiler.functionEnd();
         }
       }
     }
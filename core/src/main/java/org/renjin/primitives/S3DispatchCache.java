@@ -0,0 +1,206 @@
+package org.renjin.primitives;
+
+import org.renjin.sexp.*;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches the methods selected by {@code UseMethod()}, {@code NextMethod()} and internal
+ * dispatch for each combination of generic, class vector and environments, so that
+ * the method names need not be built and searched for on each call.
+ *
+ * <p>The method found depends on the bindings of each candidate method name, such as
+ * {@code print.data.frame}, {@code print.default}, in the environments enclosing the call
+ * to the generic and in the S3 methods table of the environment where the generic is defined. A
+ * cached method is therefore only used while none of these names has been bound or removed
+ * in any environment and no environment's parent has changed since the method was found, as
+ * tracked by {@link Symbol#getBindingVersion()} and {@link Environment#getChainVersion()}.</p>
+ *
+ * <p>One instance is kept per session.</p>
+ */
+public class S3DispatchCache {
+
+  private static final int MAX_ENTRIES = 2048;
+
+  private final Map<Key, Target> targets = new LinkedHashMap<Key, Target>(64, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Key, Target> eldest) {
+      return size() > MAX_ENTRIES;
+    }
+  };
+
+  private long hitCount;
+  private long missCount;
+
+  public S3DispatchCache() {
+  }
+
+  /**
+   * Identifies a method resolution
+   */
+  static final class Key {
+    private final String generic;
+    private final String group;
+    private final String[] classes;
+    private final boolean includeDefault;
+    private final Environment enclosingEnvironment;
+    private final Environment definitionEnvironment;
+    private final int hash;
+
+    Key(String generic, String group, String[] classes, boolean includeDefault,
+        Environment enclosingEnvironment, Environment definitionEnvironment) {
+      this.generic = generic;
+      this.group = group;
+      this.classes = classes;
+      this.includeDefault = includeDefault;
+      this.enclosingEnvironment = enclosingEnvironment;
+      this.definitionEnvironment = definitionEnvironment;
+
+      int h = generic.hashCode();
+      h = 31 * h + (group == null ? 0 : group.hashCode());
+      h = 31 * h + Arrays.hashCode(classes);
+      h = 31 * h + (includeDefault ? 1 : 0);
+      h = 31 * h + java.lang.System.identityHashCode(enclosingEnvironment);
+      h = 31 * h + java.lang.System.identityHashCode(definitionEnvironment);
+      this.hash = h;
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if(!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return hash == other.hash &&
+          includeDefault == other.includeDefault &&
+          enclosingEnvironment == other.enclosingEnvironment &&
+          definitionEnvironment == other.definitionEnvironment &&
+          generic.equals(other.generic) &&
+          (group == null ? other.group == null : group.equals(other.group)) &&
+          Arrays.equals(classes, other.classes);
+    }
+  }
+
+  /**
+   * The method selected for a {@link Key}, together with the versions of the bindings on which
+   * the selection depended.
+   */
+  static final class Target {
+    private final Symbol[] candidates;
+    private final int[] bindingVersions;
+    private final int tableVersion;
+    private final int chainVersion;
+
+    /**
+     * The selected method, or {@code null} if no method was found.
+     */
+    final Symbol method;
+    final String className;
+    final Function function;
+
+    Target(Symbol[] candidates, int[] bindingVersions, int tableVersion, int chainVersion,
+           Symbol method, String className, Function function) {
+      this.candidates = candidates;
+      this.bindingVersions = bindingVersions;
+      this.tableVersion = tableVersion;
+      this.chainVersion = chainVersion;
+      this.method = method;
+      this.className = className;
+      this.function = function;
+    }
+
+    private boolean isValid(Frame callingFrame) {
+      if(chainVersion != Environment.getChainVersion() ||
+          tableVersion != S3.METHODS_TABLE.getBindingVersion()) {
+        return false;
+      }
+      for (int i = 0; i < candidates.length; i++) {
+        if(bindingVersions[i] != candidates[i].getBindingVersion()) {
+          return false;
+        }
+      }
+      return !bindsAny(callingFrame, candidates);
+    }
+  }
+
+  /**
+   * @return the cached method for {@code key}, or {@code null} if there is no valid cached
+   * method. The method of the returned {@code Target} is itself {@code null} if it was
+   * found that there is no applicable method.
+   */
+  Target get(Key key, Environment callingEnvironment) {
+    Target target = targets.get(key);
+    if(target != null && target.isValid(callingEnvironment.getFrame())) {
+      hitCount++;
+      return target;
+    }
+    missCount++;
+    return null;
+  }
+
+  /**
+   * Records the versions of the candidate method names before a method is resolved.
+   */
+  static int[] bindingVersions(Symbol[] candidates) {
+    int[] versions = new int[candidates.length];
+    for (int i = 0; i < candidates.length; i++) {
+      versions[i] = candidates[i].getBindingVersion();
+    }
+    return versions;
+  }
+
+  /**
+   * Caches the result of a resolution, if none of the bindings on which it depended changed
+   * during the resolution itself.
+   */
+  void put(Key key, Environment callingEnvironment, Symbol[] candidates, int[] bindingVersions,
+           int tableVersion, int chainVersion, Symbol method, String className, Function function) {
+    Target target = new Target(candidates, bindingVersions, tableVersion, chainVersion, method, className, function);
+    if(target.isValid(callingEnvironment.getFrame())) {
+      targets.put(key, target);
+    }
+  }
+
+  private static boolean bindsAny(Frame frame, Symbol[] symbols) {
+    for (Symbol symbol : symbols) {
+      if(frame.getVariable(symbol) != Symbol.UNBOUND_VALUE) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the number of dispatches which used a cached method
+   */
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  /**
+   * @return the number of dispatches which had to search for a method
+   */
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * @return the number of cached methods
+   */
+  public int size() {
+    return targets.size();
+  }
+
+  public void clear() {
+    targets.clear();
+    hitCount = 0;
+    missCount = 0;
+  }
+}
@@ -24,6 +24,7 @@ import com.google.common.collect.Lists;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.*;
+import org.renjin.primitives.sort.RadixSort;
 import org.renjin.sexp.*;
 
 import java.util.Arrays;
@@ -230,6 +231,17 @@ public class Sort {
       }
     }
 
+    List<AtomicVector> keys = Lists.newArrayList();
+    for (int i = 0; i != columns.length(); ++i) {
+      SEXP column = columns.getElementAsSEXP(i);
+      if(RadixSort.isSupported(column)) {
+        keys.add((AtomicVector) column);
+      }
+    }
+    if(keys.size() == columns.length()) {
+      return toOneBasedIndexes(RadixSort.order(keys, naLast, decreasing));
+    }
+
     List<Integer> ordering = Lists.newArrayListWithCapacity(numRows);
     for (int i = 0; i != numRows; ++i) {
       ordering.add(i);
@@ -279,7 +291,25 @@ public class Sort {
     }
 
     return result.build();
-  }   
+  }
+
+  /**
+   * Returns the permutation which sorts {@code x}, using a radix sort.
+   */
+  @Internal
+  public static IntVector radixsort(AtomicVector x, boolean naLast, boolean decreasing) {
+    if(!RadixSort.isSupported(x)) {
+      throw new EvalException("radix sort is not supported for type '%s'", x.getTypeName());
+    }
+    return toOneBasedIndexes(RadixSort.order(x, naLast, decreasing));
+  }
+
+  private static IntVector toOneBasedIndexes(int[] order) {
+    for (int i = 0; i < order.length; i++) {
+      order[i]++;
+    }
+    return IntArrayVector.unsafe(order);
+  }
 
   @Internal("which.min")
   public static IntVector whichMin(Vector input) {
@@ -340,91 +370,61 @@ public class Sort {
   @Internal
   public static Vector rank(final AtomicVector input, String tiesMethod) {
 
-    boolean decreasing = false;
-
-    AtomicVector sortedInput;
-
-    String typeVector = input.getTypeName();
-    switch (typeVector){
-      case "character":
-        StringVector inputStringVector = ((StringVector) input.setAttributes(AttributeMap.EMPTY));
-        sortedInput = ((AtomicVector) sort(inputStringVector, decreasing));
-        break;
-      case "double":
-        DoubleVector inputDoubleVector = ((DoubleVector) input.setAttributes(AttributeMap.EMPTY));
-        sortedInput = ((AtomicVector) sort(inputDoubleVector, decreasing));
-        break;
-      default:
-        IntVector inputIntVector = ((IntVector) input.setAttributes(AttributeMap.EMPTY));
-        sortedInput = ((AtomicVector) sort(inputIntVector, decreasing));
-        break;
-    }
-
-
-
-
     switch(tiesMethod.toUpperCase()){
       case "MIN":
-        return rankMin(input, sortedInput);
-
       case "MAX":
-        return rankMax(input, sortedInput);
-
       case "AVERAGE":
-        return rankAverage(input, sortedInput);
+        break;
 
       case "FIRST":
         throw new EvalException("ties.method=first not implemented");
 
-
       case "RANDOM":
         throw new EvalException("ties.method=random not implemented");
 
-
       default:
         throw new EvalException("Invalid ties.method.");
-
     }
 
-  }
-
-  private static Vector rankAverage(AtomicVector input, AtomicVector sortedInput) {
-    DoubleArrayVector.Builder ranks = new DoubleArrayVector.Builder();
-    for ( int i=0; i < sortedInput.length(); i++ ) {
-      int minRank = sortedInput.indexOf(input, i, 0);
-      int maxRank = minRank;
-      while ( maxRank+1 < sortedInput.length() &&
-              sortedInput.compare(minRank, maxRank+1) == 0) {
-        maxRank++;
+    // Rank the elements in sorted order: each run of equal
+    // elements shares the same rank
+    int[] order = RadixSort.order(input, true, false);
+    int n = order.length;
+    double[] ranks = new double[n];
+
+    int runStart = 0;
+    while(runStart < n) {
+      int runEnd = runStart + 1;
+      while(runEnd < n && input.compare(order[runStart], order[runEnd]) == 0) {
+        runEnd++;
       }
-
-      double average = (((double) minRank) + ((double) maxRank)) / 2d;
-      ranks.add(average + 1);
-    }
-    return ranks.build();
-  }
-
-  private static Vector rankMax(AtomicVector input, AtomicVector sortedInput) {
-    IntArrayVector.Builder ranks = new IntArrayVector.Builder();
-    for ( int i=0; i < sortedInput.length(); i++ ) {
-      int minRank = sortedInput.indexOf(input, i, 0);
-      int maxRank = minRank;
-      while ( maxRank+1 < sortedInput.length() &&
-              sortedInput.compare(minRank, maxRank+1) == 0) {
-        maxRank++;
+      double rank;
+      switch (tiesMethod.toUpperCase()) {
+        case "MIN":
+          rank = runStart + 1;
+          break;
+        case "MAX":
+          rank = runEnd;
+          break;
+        default:
+          rank = (runStart + 1 + runEnd) / 2d;
+          break;
       }
-      ranks.add(maxRank + 1);
+      for (int i = runStart; i < runEnd; i++) {
+        ranks[order[i]] = rank;
+      }
+      runStart = runEnd;
     }
-    return ranks.build();
-  }
-
-  private static Vector rankMin(AtomicVector input, AtomicVector sortedInput) {
-    IntArrayVector.Builder ranks = new IntArrayVector.Builder();
 
-    for (int i=0; i < sortedInput.length(); i++) {
-      ranks.add( sortedInput.indexOf( input, i, 0 ) + 1 );
+    if(tiesMethod.equalsIgnoreCase("AVERAGE")) {
+      return DoubleArrayVector.unsafe(ranks);
+    } else {
+      int[] intRanks = new int[n];
+      for (int i = 0; i < n; i++) {
+        intRanks[i] = (int)ranks[i];
+      }
+      return IntArrayVector.unsafe(intRanks);
     }
-    return ranks.build();
   }
 
   @Builtin
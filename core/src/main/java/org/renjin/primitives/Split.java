@@ -1,74 +1,288 @@
 package org.renjin.primitives;
 
-import com.google.common.collect.Maps;
+import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.Internal;
 import org.renjin.sexp.*;
 
-import java.util.Map;
-
+/**
+ * Splits vectors into groups defined by a factor.
+ *
+ * <p>Rather than hashing each factor code, the groups are built in two passes over the factor
+ * codes: the first counts the number of elements in each group, so that exactly-sized arrays can be
+ * allocated for each level, and the second copies the elements into place.</p>
+ */
 public class Split {
   private Split() {}
 
 
   @Internal
   public static ListVector split(Vector toSplit, IntVector factors) {
-    Map<Integer, SplitBuilder> map = Maps.newHashMap();
-
-    int length = Math.max(toSplit.length(), factors.length());
-
-    for(int i=0;i!=length;++i) {
-      int factorIndex = i % factors.length();
-      int splitIndex = factors.getElementAsInt(factorIndex);
-      if(!IntVector.isNA(splitIndex)) {
-        SplitBuilder splitBuilder = map.get(splitIndex);
-        if (splitBuilder == null) {
-          splitBuilder = new SplitBuilder(toSplit);
-          map.put(splitIndex, splitBuilder);
-        }
-        splitBuilder.add(toSplit, i);
+
+    StringVector levels = (StringVector) factors.getAttributes().get(Symbols.LEVELS);
+    int numLevels = levels.length();
+
+    Grouping grouping = new Grouping(factors, toSplit.length(), numLevels);
+
+    AtomicVector sourceNames = toSplit.getNames();
+    String[][] names = null;
+    if(sourceNames != Null.INSTANCE) {
+      names = new String[numLevels][];
+      for (int level = 0; level < numLevels; level++) {
+        names[level] = new String[grouping.counts[level]];
       }
     }
 
-    StringVector levels = (StringVector) factors.getAttributes().get(Symbols.LEVELS);
+    Vector[] groups;
+    if(toSplit instanceof DoubleVector) {
+      groups = splitDoubles((DoubleVector) toSplit, grouping);
+    } else if(toSplit instanceof IntVector || toSplit instanceof LogicalVector) {
+      groups = splitInts((AtomicVector) toSplit, grouping);
+    } else if(toSplit instanceof StringVector) {
+      groups = splitStrings((StringVector) toSplit, grouping);
+    } else {
+      groups = splitGeneric(toSplit, grouping);
+    }
 
-    ListVector.NamedBuilder resultList = new ListVector.NamedBuilder();
-    for(Integer split : map.keySet()) {
-      resultList.add(levels.getElementAsString(split-1), map.get(split).build());
+    if(names != null) {
+      int[] next = new int[numLevels];
+      for (int i = 0; i < grouping.length; i++) {
+        int level = grouping.levelAt(i);
+        if(level >= 0) {
+          names[level][next[level]++] = sourceNames.getElementAsString(i);
+        }
+      }
+    }
+
+    ListVector.NamedBuilder resultList = new ListVector.NamedBuilder(0, numLevels);
+    for (int level = 0; level < numLevels; level++) {
+      Vector group = groups[level];
+      if(names != null) {
+        group = (Vector) group.setAttribute(Symbols.NAMES, new StringArrayVector(names[level]));
+      }
+      resultList.add(levels.getElementAsString(level), group);
     }
 
     return resultList.build();
   }
 
+  private static Vector[] splitDoubles(DoubleVector source, Grouping grouping) {
+    double[][] values = new double[grouping.numLevels][];
+    for (int level = 0; level < grouping.numLevels; level++) {
+      values[level] = new double[grouping.counts[level]];
+    }
+    int[] next = new int[grouping.numLevels];
+    for (int i = 0; i < grouping.length; i++) {
+      int level = grouping.levelAt(i);
+      if(level >= 0) {
+        values[level][next[level]++] = source.getElementAsDouble(i);
+      }
+    }
+    Vector[] groups = new Vector[grouping.numLevels];
+    for (int level = 0; level < grouping.numLevels; level++) {
+      groups[level] = DoubleArrayVector.unsafe(values[level]);
+    }
+    return groups;
+  }
 
-  private static class SplitBuilder {
-    private Vector.Builder source;
-    private AtomicVector sourceNames;
-    private StringVector.Builder names;
+  private static Vector[] splitInts(AtomicVector source, Grouping grouping) {
+    boolean logical = source instanceof LogicalVector;
+    int[][] values = new int[grouping.numLevels][];
+    for (int level = 0; level < grouping.numLevels; level++) {
+      values[level] = new int[grouping.counts[level]];
+    }
+    int[] next = new int[grouping.numLevels];
+    for (int i = 0; i < grouping.length; i++) {
+      int level = grouping.levelAt(i);
+      if(level >= 0) {
+        values[level][next[level]++] = logical ?
+            source.getElementAsRawLogical(i) :
+            source.getElementAsInt(i);
+      }
+    }
+    Vector[] groups = new Vector[grouping.numLevels];
+    for (int level = 0; level < grouping.numLevels; level++) {
+      if(logical) {
+        groups[level] = new LogicalArrayVector(values[level]);
+      } else {
+        groups[level] = IntArrayVector.unsafe(values[level]);
+      }
+    }
+    return groups;
+  }
 
-    public SplitBuilder(Vector toSplit) {
-      this.source = toSplit.newBuilderWithInitialCapacity(0);
-      this.sourceNames = toSplit.getNames();
-      if(sourceNames != Null.INSTANCE) {
-        names = new StringArrayVector.Builder();
+  private static Vector[] splitStrings(StringVector source, Grouping grouping) {
+    String[][] values = new String[grouping.numLevels][];
+    for (int level = 0; level < grouping.numLevels; level++) {
+      values[level] = new String[grouping.counts[level]];
+    }
+    int[] next = new int[grouping.numLevels];
+    for (int i = 0; i < grouping.length; i++) {
+      int level = grouping.levelAt(i);
+      if(level >= 0) {
+        values[level][next[level]++] = source.getElementAsString(i);
       }
     }
+    Vector[] groups = new Vector[grouping.numLevels];
+    for (int level = 0; level < grouping.numLevels; level++) {
+      groups[level] = new StringArrayVector(values[level]);
+    }
+    return groups;
+  }
 
-    public void add(Vector source, int sourceIndex) {
-      if(sourceIndex < source.length()) {
-        this.source.addFrom(source, sourceIndex);
-        if (names != null) {
-          names.add(sourceNames.getElementAsString(sourceIndex));
-        }
+  private static Vector[] splitGeneric(Vector source, Grouping grouping) {
+    Vector.Builder[] builders = new Vector.Builder[grouping.numLevels];
+    for (int level = 0; level < grouping.numLevels; level++) {
+      builders[level] = source.newBuilderWithInitialCapacity(grouping.counts[level]);
+    }
+    for (int i = 0; i < grouping.length; i++) {
+      int level = grouping.levelAt(i);
+      if(level >= 0) {
+        builders[level].addFrom(source, i);
       }
     }
+    Vector[] groups = new Vector[grouping.numLevels];
+    for (int level = 0; level < grouping.numLevels; level++) {
+      groups[level] = builders[level].build();
+    }
+    return groups;
+  }
 
-    public Vector build() {
-      if(names != null) {
-        source.setAttribute(Symbols.NAMES, names.build());
+  /**
+   * Computes {@code sum}, {@code mean} or {@code length} of each group of {@code x}, without
+   * splitting {@code x} into separate vectors. Used by {@code tapply()}.
+   *
+   * @param group the one-based group of each element of {@code x}
+   * @param numGroups the number of groups
+   * @return a vector with the result for each group, or {@code NA} for groups without any elements.
+   */
+  @Internal("grouped.reduce")
+  public static Vector groupedReduce(AtomicVector x, IntVector group, int numGroups, String function) {
+    if(group.length() != x.length()) {
+      throw new EvalException("arguments must have same length");
+    }
+
+    int[] counts = new int[numGroups];
+    for (int i = 0; i < group.length(); i++) {
+      int g = group.getElementAsInt(i);
+      if(!IntVector.isNA(g) && g >= 1 && g <= numGroups) {
+        counts[g - 1]++;
       }
-      return source.build();
     }
 
+    switch (function) {
+      case "length":
+        return groupedLength(counts);
+      case "sum":
+        if(x instanceof DoubleVector) {
+          return groupedDoubleSum(x, group, counts, false);
+        } else {
+          return groupedIntSum(x, group, counts);
+        }
+      case "mean":
+        return groupedDoubleSum(x, group, counts, true);
+      default:
+        throw new EvalException("unsupported grouped function '%s'", function);
+    }
+  }
+
+  private static Vector groupedLength(int[] counts) {
+    int[] result = new int[counts.length];
+    for (int g = 0; g < counts.length; g++) {
+      result[g] = counts[g] == 0 ? IntVector.NA : counts[g];
+    }
+    return IntArrayVector.unsafe(result);
+  }
+
+  private static Vector groupedIntSum(AtomicVector x, IntVector group, int[] counts) {
+    long[] sums = new long[counts.length];
+    boolean[] missing = new boolean[counts.length];
+    for (int i = 0; i < x.length(); i++) {
+      int g = group.getElementAsInt(i);
+      if(!IntVector.isNA(g) && g >= 1 && g <= counts.length) {
+        if(x.isElementNA(i)) {
+          missing[g - 1] = true;
+        } else {
+          sums[g - 1] += x.getElementAsInt(i);
+        }
+      }
+    }
+    int[] result = new int[counts.length];
+    for (int g = 0; g < counts.length; g++) {
+      if(counts[g] == 0 || missing[g] || sums[g] > Integer.MAX_VALUE || sums[g] < -Integer.MAX_VALUE) {
+        result[g] = IntVector.NA;
+      } else {
+        result[g] = (int) sums[g];
+      }
+    }
+    return IntArrayVector.unsafe(result);
   }
 
+  private static Vector groupedDoubleSum(AtomicVector x, IntVector group, int[] counts, boolean mean) {
+    double[] sums = new double[counts.length];
+    boolean[] missing = new boolean[counts.length];
+    for (int i = 0; i < x.length(); i++) {
+      int g = group.getElementAsInt(i);
+      if(!IntVector.isNA(g) && g >= 1 && g <= counts.length) {
+        double value = x.getElementAsDouble(i);
+        if(!mean && DoubleVector.isNA(value)) {
+          missing[g - 1] = true;
+        } else {
+          sums[g - 1] += value;
+        }
+      }
+    }
+    double[] result = new double[counts.length];
+    for (int g = 0; g < counts.length; g++) {
+      if(counts[g] == 0 || missing[g]) {
+        result[g] = DoubleVector.NA;
+      } else if(mean) {
+        result[g] = sums[g] / counts[g];
+      } else {
+        result[g] = sums[g];
+      }
+    }
+    return DoubleArrayVector.unsafe(result);
+  }
+
+  /**
+   * The zero-based level of each element of the vector being split, and the number of
+   * elements in each level.
+   */
+  private static class Grouping {
+    private final IntVector factors;
+    private final int[] codes;
+    private final int numLevels;
+    private final int length;
+    private final int[] counts;
+
+    Grouping(IntVector factors, int sourceLength, int numLevels) {
+      this.factors = factors;
+      this.codes = factors instanceof IntArrayVector ? ((IntArrayVector) factors).toIntArrayUnsafe() : null;
+      this.numLevels = numLevels;
+
+      // The factor is recycled if shorter than the vector being split, but
+      // elements beyond the end of the vector are not included in any group
+      this.length = factors.length() == 0 ? 0 : sourceLength;
+      this.counts = new int[numLevels];
+      for (int i = 0; i < length; i++) {
+        int level = levelAt(i);
+        if(level >= 0) {
+          counts[level]++;
+        }
+      }
+    }
+
+    /**
+     * @return the zero-based level of the element at {@code index}, or -1 if the
+     * factor is {@code NA}
+     */
+    int levelAt(int index) {
+      int factorIndex = index % factors.length();
+      int code = codes == null ? factors.getElementAsInt(factorIndex) : codes[factorIndex];
+      if(IntVector.isNA(code) || code < 1 || code > numLevels) {
+        return -1;
+      }
+      return code - 1;
+    }
+  }
 }
@@ -26,8 +26,7 @@ import org.apache.commons.math.complex.Complex;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.*;
-import org.renjin.primitives.summary.DeferredMean;
-import org.renjin.primitives.summary.DeferredSum;
+import org.renjin.primitives.summary.*;
 import org.renjin.primitives.vector.DeferredComputation;
 import org.renjin.sexp.*;
 
@@ -46,6 +45,10 @@ public class Summary {
   public static SEXP min(@ArgumentList ListVector arguments,
                          @NamedFlag("na.rm") boolean removeNA) {
 
+    if(arguments.length() == 1 && !removeNA && isDeferrable(arguments.get(0))) {
+      return new DeferredMin((Vector) arguments.get(0), AttributeMap.EMPTY);
+    }
+
     try {
       return new RangeCalculator()
               .setRemoveNA(removeNA)
@@ -61,6 +64,10 @@ public class Summary {
   public static SEXP max(@ArgumentList ListVector arguments,
                          @NamedFlag("na.rm") boolean removeNA) {
 
+    if(arguments.length() == 1 && !removeNA && isDeferrable(arguments.get(0))) {
+      return new DeferredMax((Vector) arguments.get(0), AttributeMap.EMPTY);
+    }
+
     try {
       return new RangeCalculator()
               .setRemoveNA(removeNA)
@@ -93,6 +100,10 @@ public class Summary {
     // another oddity: the min() and max() functions do not accept lists or 
     // other recursive structures. The range() implementation does.
 
+    if(arguments.length() == 1 && !removeNA && isDeferrable(arguments.get(0))) {
+      return new DeferredRange((Vector) arguments.get(0), AttributeMap.EMPTY);
+    }
+
     try {
       return new RangeCalculator()
               .setRemoveNA(removeNA)
@@ -104,6 +115,16 @@ public class Summary {
     }
   }
 
+  /**
+   * @return true if the summary of a single {@code argument} should be deferred, so that it can be
+   * computed in the same loop as any deferred operations on which it depends.
+   */
+  private static boolean isDeferrable(SEXP argument) {
+    return argument instanceof DoubleVector &&
+        argument.length() > 0 &&
+        (argument instanceof DeferredComputation || argument.length() > 300);
+  }
+
   private static class RangeContainsNA extends Exception {  }
 
   private static class RangeCalculator {
@@ -190,19 +211,21 @@ public class Summary {
     }
 
     public Vector getRange() {
-      if(maxValue == null) {
-        return new DoubleArrayVector(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY);
-      } else if(nanEncountered) {
+      // NAs and NaNs are checked first, so that the range of a vector
+      // of only NAs is NA, as in GNU R and DeferredRange, rather than (Inf, -Inf)
+      if(nanEncountered) {
         return new DoubleArrayVector(Double.NaN, Double.NaN);
+      } else if(naEncountered) {
+        Vector.Builder result = resultType.newBuilder();
+        result.addNA();
+        result.addNA();
+        return result.build();
+      } else if(maxValue == null) {
+        return new DoubleArrayVector(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY);
       } else {
         Vector.Builder result = resultType.newBuilder();
-        if(naEncountered) {
-          result.addNA();
-          result.addNA();
-        } else {
-          result.addFrom(minValue, 0);
-          result.addFrom(maxValue, 0);
-        }
+        result.addFrom(minValue, 0);
+        result.addFrom(maxValue, 0);
         return result.build();
       }
     }
@@ -229,21 +252,26 @@ public class Summary {
    */
   @Builtin
   @GroupGeneric
-  public static double prod(@ArgumentList ListVector arguments, @NamedFlag("na.rm") boolean removeNA) {
+  public static DoubleVector prod(@ArgumentList ListVector arguments, @NamedFlag("na.rm") boolean removeNA) {
+
+    if(arguments.length() == 1 && !removeNA && isDeferrable(arguments.get(0))) {
+      return new DeferredProd((Vector) arguments.get(0), AttributeMap.EMPTY);
+    }
+
     double product = 1;
     for(SEXP argument : arguments) {
       AtomicVector vector = EvalException.checkedCast(argument);
       for(int i=0;i!=vector.length();++i) {
         if(vector.isElementNA(i)) {
           if(!removeNA) {
-            return DoubleVector.NA;
+            return new DoubleArrayVector(DoubleVector.NA);
           }
         } else {
           product = product * vector.getElementAsDouble(i);
         }
       }
     }
-    return product;
+    return new DoubleArrayVector(product);
   }
 
   @Builtin
@@ -338,22 +366,26 @@ public class Summary {
    */
   @Builtin
   @GroupGeneric
-  public static Logical any(@ArgumentList ListVector arguments,
-                            @NamedFlag("na.rm") boolean removeNA) {
+  public static SEXP any(@ArgumentList ListVector arguments,
+                         @NamedFlag("na.rm") boolean removeNA) {
+
+    if(arguments.length() == 1 && !removeNA && arguments.get(0) instanceof DeferredComputation) {
+      return new DeferredAny((Vector) arguments.get(0), AttributeMap.EMPTY);
+    }
 
     for(SEXP argument : arguments) {
       Vector vector = (Vector) argument;
       for(int i=0;i!=vector.length();++i) {
         if(vector.isElementNA(i)) {
           if(!removeNA) {
-            return Logical.NA;
+            return LogicalVector.NA_VECTOR;
           }
         } else if(vector.getElementAsDouble(i) != 0) {
-          return Logical.TRUE;
+          return LogicalVector.TRUE;
         }
       }
     }
-    return Logical.FALSE;
+    return LogicalVector.FALSE;
   }
 
   /**
@@ -370,22 +402,26 @@ public class Summary {
    */
   @Builtin
   @GroupGeneric
-  public static Logical all(@ArgumentList ListVector arguments,
-                            @NamedFlag("na.rm") boolean removeNA) {
+  public static SEXP all(@ArgumentList ListVector arguments,
+                         @NamedFlag("na.rm") boolean removeNA) {
+
+    if(arguments.length() == 1 && !removeNA && arguments.get(0) instanceof DeferredComputation) {
+      return new DeferredAll((Vector) arguments.get(0), AttributeMap.EMPTY);
+    }
 
     for(SEXP argument : arguments) {
       Vector vector = (Vector) argument;
       for(int i=0;i!=vector.length();++i) {
         if(vector.isElementNA(i)) {
           if(!removeNA) {
-            return Logical.NA;
+            return LogicalVector.NA_VECTOR;
           }
         } else if(vector.getElementAsDouble(i) == 0) {
-          return Logical.FALSE;
+          return LogicalVector.FALSE;
         }
       }
     }
-    return Logical.TRUE;
+    return LogicalVector.TRUE;
   }
 
 
@@ -415,6 +451,10 @@ public class Summary {
 
   @Builtin
   public static DoubleVector cumsum(DoubleVector source) {
+    if(source instanceof DeferredComputation) {
+      return new DeferredCumsum(source, AttributeMap.builder().setNames((SEXP)source.getNames()).build());
+    }
+
     DoubleArrayVector.Builder result = new DoubleArrayVector.Builder(source.length());
     result.setAttribute(Symbols.NAMES, source.getNames());
     double sum = 0;
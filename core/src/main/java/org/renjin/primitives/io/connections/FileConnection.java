@@ -1,11 +1,14 @@
 
 package org.renjin.primitives.io.connections;
 
+import com.google.common.io.CountingInputStream;
 import org.apache.commons.vfs2.FileNotFoundException;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.provider.local.LocalFile;
 import org.renjin.eval.EvalException;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -15,8 +18,20 @@ import java.util.zip.GZIPInputStream;
 
 public class FileConnection extends AbstractConnection {
 
+  /**
+   * Compressed files at least this large are decompressed on a background thread
+   */
+  private static final long READ_AHEAD_THRESHOLD = 1024 * 1024;
+
+  private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
   private InputStream in;  
   private OutputStream out;
+
+  /**
+   * The input stream, if the file is not compressed, counting the bytes read
+   */
+  private CountingInputStream uncompressedIn;
   
   private FileObject file;
   private OpenSpec openSpec = null;
@@ -70,10 +85,32 @@ public class FileConnection extends AbstractConnection {
     in.unread(b2);
     in.unread(b1);
     if(b1 == GzFileConnection.GZIP_MAGIC_BYTE1 && b2 == GzFileConnection.GZIP_MAGIC_BYTE2) {
+      if(file.getContent().getSize() >= READ_AHEAD_THRESHOLD) {
+        // Decompress large files on a separate thread while the caller decodes them
+        return new PipelinedInputStream(new GZIPInputStream(in, GZIP_BUFFER_SIZE));
+      }
       return new GZIPInputStream(in);
     } else {
-      return in;
+      uncompressedIn = new CountingInputStream(in);
+      return uncompressedIn;
+    }
+  }
+
+  /**
+   * @return the local file from which this connection reads, if the connection is open
+   * for input, the file is not compressed, and nothing has yet been read from the connection.
+   * Otherwise {@code null}.
+   */
+  public File getUnreadLocalFile() throws IOException {
+    if(in == null || in != uncompressedIn || uncompressedIn.getCount() != 0 ||
+        !(file instanceof LocalFile)) {
+      return null;
+    }
+    File localFile = new File(file.getURL().getFile());
+    if(!localFile.isFile()) {
+      return null;
     }
+    return localFile;
   }
   
   private OutputStream assureOpenForOutput() throws IOException {
@@ -27,7 +27,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * A connection to a gzipped file.
@@ -50,6 +49,6 @@ public class GzFileConnection extends FileConnection {
 
   @Override
   protected OutputStream doOpenForOutput() throws IOException {
-    return new GZIPOutputStream(super.doOpenForOutput());
+    return new ParallelGzipOutputStream(super.doOpenForOutput());
   }
 }
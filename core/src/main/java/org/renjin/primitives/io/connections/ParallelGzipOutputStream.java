@@ -0,0 +1,144 @@
+package org.renjin.primitives.io.connections;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An {@code OutputStream} which compresses blocks of its input in parallel, in the
+ * manner of {@code pigz}.
+ *
+ * <p>Each block is written as a separate gzip member. Concatenated members form a valid gzip
+ * file, which is read as a single stream by R's {@code gzfile()}, {@code gzip -d}, and
+ * {@link java.util.zip.GZIPInputStream}.</p>
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+  private static final int BLOCK_SIZE = 1024 * 1024;
+
+  private static final int THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+
+  private static final ExecutorService COMPRESSORS = Executors.newFixedThreadPool(THREAD_COUNT,
+      new ThreadFactoryBuilder()
+          .setDaemon(true)
+          .setNameFormat("renjin-gzip-%d")
+          .build());
+
+  private final OutputStream out;
+
+  /**
+   * Blocks being compressed, in the order in which they must be written
+   */
+  private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+
+  private byte[] block = new byte[BLOCK_SIZE];
+  private int blockLength;
+  private boolean empty = true;
+  private boolean closed;
+
+  public ParallelGzipOutputStream(OutputStream out) {
+    this.out = out;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    block[blockLength++] = (byte) b;
+    if(blockLength == block.length) {
+      submitBlock();
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    while(len > 0) {
+      int count = Math.min(len, block.length - blockLength);
+      System.arraycopy(b, off, block, blockLength, count);
+      blockLength += count;
+      off += count;
+      len -= count;
+      if(blockLength == block.length) {
+        submitBlock();
+      }
+    }
+  }
+
+  private void submitBlock() throws IOException {
+    final byte[] data = block;
+    final int length = blockLength;
+    pending.add(COMPRESSORS.submit(new Callable<byte[]>() {
+      @Override
+      public byte[] call() throws IOException {
+        return compress(data, length);
+      }
+    }));
+    block = new byte[BLOCK_SIZE];
+    blockLength = 0;
+    empty = false;
+
+    // Limit the number of blocks held in memory
+    while(pending.size() > THREAD_COUNT * 2) {
+      writeNextMember();
+    }
+  }
+
+  private void writeNextMember() throws IOException {
+    Future<byte[]> member = pending.poll();
+    try {
+      out.write(member.get());
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      if(e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException(e.getCause());
+    }
+  }
+
+  private static byte[] compress(byte[] data, int length) throws IOException {
+    ByteArrayOutputStream member = new ByteArrayOutputStream(length / 2 + 64);
+    try(GZIPOutputStream gzip = new GZIPOutputStream(member)) {
+      gzip.write(data, 0, length);
+    }
+    return member.toByteArray();
+  }
+
+  /**
+   * Writes all blocks which have been compressed so far. Like {@link GZIPOutputStream},
+   * input which has not yet filled a block is only written when the stream is closed.
+   */
+  @Override
+  public void flush() throws IOException {
+    while(!pending.isEmpty()) {
+      writeNextMember();
+    }
+    out.flush();
+  }
+
+  @Override
+  public void close() throws IOException {
+    if(closed) {
+      return;
+    }
+    closed = true;
+    try {
+      flush();
+      if(blockLength > 0 || empty) {
+        // Compress the final block on this thread, as there is nothing left to overlap with
+        out.write(compress(block, blockLength));
+      }
+    } finally {
+      out.close();
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package org.renjin.primitives.io.connections;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * An {@code InputStream} which reads ahead from another stream on a background thread,
+ * into a small ring of buffers.
+ *
+ * <p>This allows an expensive source, such as a {@link java.util.zip.GZIPInputStream},
+ * to be decompressed on one core while the data is decoded on another.</p>
+ */
+public class PipelinedInputStream extends InputStream {
+
+  private static final int BUFFER_SIZE = 256 * 1024;
+  private static final int RING_SIZE = 4;
+
+  private static final ThreadFactory THREAD_FACTORY = new ThreadFactoryBuilder()
+      .setDaemon(true)
+      .setNameFormat("renjin-read-ahead-%d")
+      .build();
+
+  private static class Chunk {
+    private final byte[] bytes;
+    private final int length;
+    private final IOException exception;
+
+    private Chunk(byte[] bytes, int length, IOException exception) {
+      this.bytes = bytes;
+      this.length = length;
+      this.exception = exception;
+    }
+  }
+
+  private static final Chunk END = new Chunk(new byte[0], 0, null);
+
+  private final InputStream source;
+
+  private final BlockingQueue<byte[]> emptyBuffers = new ArrayBlockingQueue<>(RING_SIZE);
+  private final BlockingQueue<Chunk> filledBuffers = new ArrayBlockingQueue<>(RING_SIZE + 1);
+
+  private final Thread reader;
+  private volatile boolean closed;
+
+  private Chunk current;
+  private int position;
+
+  public PipelinedInputStream(InputStream source) {
+    this.source = source;
+    for (int i = 0; i < RING_SIZE; i++) {
+      emptyBuffers.add(new byte[BUFFER_SIZE]);
+    }
+    this.reader = THREAD_FACTORY.newThread(new Runnable() {
+      @Override
+      public void run() {
+        readAhead();
+      }
+    });
+    this.reader.start();
+  }
+
+  private void readAhead() {
+    try {
+      while(!closed) {
+        byte[] buffer = emptyBuffers.take();
+        int length;
+        try {
+          length = fill(buffer);
+        } catch (IOException e) {
+          filledBuffers.put(new Chunk(buffer, 0, e));
+          return;
+        }
+        if(length > 0) {
+          filledBuffers.put(new Chunk(buffer, length, null));
+        }
+        if(length < buffer.length) {
+          filledBuffers.put(END);
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      // Closed by the consumer
+    } finally {
+      try {
+        source.close();
+      } catch (IOException ignored) {
+      }
+    }
+  }
+
+  private int fill(byte[] buffer) throws IOException {
+    int length = 0;
+    while(length < buffer.length) {
+      int read = source.read(buffer, length, buffer.length - length);
+      if(read == -1) {
+        break;
+      }
+      length += read;
+    }
+    return length;
+  }
+
+  /**
+   * @return true if there are bytes available in the current chunk, or false at the end of the stream.
+   */
+  private boolean nextChunk() throws IOException {
+    if(current == END) {
+      return false;
+    }
+    if(current != null && position < current.length) {
+      return true;
+    }
+    if(current != null) {
+      emptyBuffers.add(current.bytes);
+    }
+    try {
+      current = filledBuffers.take();
+    } catch (InterruptedException e) {
+      throw new InterruptedIOException();
+    }
+    position = 0;
+    if(current.exception != null) {
+      IOException exception = current.exception;
+      current = END;
+      throw exception;
+    }
+    return current != END;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if(!nextChunk()) {
+      return -1;
+    }
+    return current.bytes[position++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if(len == 0) {
+      return 0;
+    }
+    if(!nextChunk()) {
+      return -1;
+    }
+    int count = Math.min(len, current.length - position);
+    System.arraycopy(current.bytes, position, b, off, count);
+    position += count;
+    return count;
+  }
+
+  @Override
+  public int available() throws IOException {
+    if(current == null || current == END) {
+      return 0;
+    }
+    return current.length - position;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if(!closed) {
+      closed = true;
+      reader.interrupt();
+    }
+  }
+}
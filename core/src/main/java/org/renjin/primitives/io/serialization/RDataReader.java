@@ -35,8 +35,10 @@ import org.renjin.sexp.*;
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
 import java.nio.IntBuffer;
 import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 import java.util.List;
 
@@ -47,7 +49,13 @@ import static org.renjin.sexp.SexpType.LISTSXP;
 
 public class RDataReader implements AutoCloseable {
 
+  /**
+   * The number of elements decoded at a time when reading vectors
+   */
+  private static final int CHUNK_SIZE = 8192;
+
   private InputStream conn;
+  private FileChannel channel;
   private StreamReader in;
 
   private int version;
@@ -74,13 +82,42 @@ public class RDataReader implements AutoCloseable {
     this.conn = conn;
   }
 
+  /**
+   * Creates a reader for an uncompressed file, starting from the channel's current position.
+   *
+   * <p>If the file is in XDR format, it is mapped into memory rather than read, and large double
+   * and integer vectors are returned as views of the mapped file, whose elements are only decoded
+   * when accessed. The views remain valid after the channel is closed, but the file must
+   * not be modified or truncated while they are in use.</p>
+   */
+  public RDataReader(Context context, FileChannel channel) {
+    this.readContext = new SessionReadContext(context.getSession());
+    this.channel = channel;
+    this.conn = Channels.newInputStream(channel);
+  }
+
   public SEXP readFile() throws IOException {
     byte streamType = readStreamType(conn);
-    in = createStreamReader(streamType, conn);
+    if(channel != null && streamType == XDR_FORMAT) {
+      in = new MappedXdrReader(channel, channel.position());
+    } else {
+      in = createStreamReader(streamType, conn);
+    }
     readAndVerifyVersion();
     return readExp();
   }
 
+  /**
+   * @return the number of bytes read from the start of a mapped file, or -1 if
+   * the file was not mapped
+   */
+  public long getMappedPosition() {
+    if(in instanceof MappedXdrReader) {
+      return ((MappedXdrReader) in).position();
+    }
+    return -1;
+  }
+
   protected void readAndVerifyVersion() throws IOException {
     version = in.readInt();
     writerVersion = new Version(in.readInt());
@@ -561,20 +598,22 @@ public class RDataReader implements AutoCloseable {
 
   private SEXP readComplexExp(int flags) throws IOException {
     int length = in.readInt();
+    DoubleBuffer parts = in.readDoubleBuffer(length * 2);
     Complex[] values = new Complex[length];
     for(int i=0;i!=length;++i) {
-      values[i] = new Complex(in.readDouble(), in.readDouble());
+      values[i] = new Complex(parts.get(), parts.get());
     }
     return new ComplexArrayVector(values, readAttributes(flags));
   }
 
   private SEXP readDoubleExp(int flags) throws IOException {
     int length = in.readInt();
-    double[] values = new double[length];
-    for(int i=0;i!=length;++i) {
-      values[i] = in.readDouble();
+    DoubleBuffer buffer = in.readDoubleBuffer(length);
+    if(buffer.hasArray()) {
+      return new DoubleArrayVector(buffer.array(), readAttributes(flags));
+    } else {
+      return new DoubleBufferVector(buffer, length, readAttributes(flags));
     }
-    return new DoubleArrayVector(values, readAttributes(flags));
   }
 
   private SEXP readIntVector(int flags) throws IOException {
@@ -587,9 +626,7 @@ public class RDataReader implements AutoCloseable {
   private SEXP readLogical(int flags) throws IOException {
     int length = in.readInt();
     int values[] = new int[length];
-    for(int i=0;i!=length;++i) {
-      values[i] = in.readInt();
-    }
+    in.readIntBuffer(length).get(values);
     return new LogicalArrayVector(values, readAttributes(flags));
   }
 
@@ -659,6 +696,12 @@ public class RDataReader implements AutoCloseable {
     IntBuffer readIntBuffer(int size) throws IOException;
     byte[] readString(int length) throws IOException;
     double readDouble() throws IOException;
+
+    /**
+     * Reads {@code size} doubles. Readers which decode the values eagerly return a
+     * buffer wrapping a {@code double[]} array of exactly {@code size} elements.
+     */
+    DoubleBuffer readDoubleBuffer(int size) throws IOException;
   }
 
   private static class AsciiReader implements StreamReader {
@@ -709,6 +752,15 @@ public class RDataReader implements AutoCloseable {
       return IntBuffer.wrap(array);
     }
 
+    @Override
+    public DoubleBuffer readDoubleBuffer(int size) throws IOException {
+      double[] array = new double[size];
+      for(int i=0;i!=size;++i) {
+        array[i] = readDouble();
+      }
+      return DoubleBuffer.wrap(array);
+    }
+
     @Override
     public double readDouble() throws IOException {
       String word = readWord();
@@ -819,6 +871,125 @@ public class RDataReader implements AutoCloseable {
       long bits = in.readLong();
       return Double.longBitsToDouble(bits);
     }
+
+    @Override
+    public DoubleBuffer readDoubleBuffer(int size) throws IOException {
+      double[] array = new double[size];
+      byte[] chunk = new byte[Math.min(size, CHUNK_SIZE) * 8];
+      for(int i=0;i<size;i+=CHUNK_SIZE) {
+        int count = Math.min(CHUNK_SIZE, size - i);
+        in.readFully(chunk, 0, count * 8);
+        ByteBuffer.wrap(chunk, 0, count * 8).asDoubleBuffer().get(array, i, count);
+      }
+      return DoubleBuffer.wrap(array);
+    }
+  }
+
+  /**
+   * Reads an XDR file mapped into memory through a sliding window, returning large
+   * vectors as views of the mapped file.
+   */
+  private static class MappedXdrReader implements StreamReader {
+
+    /**
+     * The size of the region of the file mapped at a time
+     */
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Vectors shorter than this are copied from the mapped file rather
+     * than viewed, as they gain little from being decoded lazily
+     */
+    private static final int MIN_VIEW_LENGTH = 1024;
+
+    private final FileChannel channel;
+    private final long size;
+
+    private long windowStart;
+    private ByteBuffer window;
+
+    private MappedXdrReader(FileChannel channel, long position) throws IOException {
+      this.channel = channel;
+      this.size = channel.size();
+      this.windowStart = position;
+      this.window = ByteBuffer.allocate(0);
+    }
+
+    public long position() {
+      return windowStart + window.position();
+    }
+
+    /**
+     * @return the mapped window, positioned at the next byte to be read
+     * and with at least {@code bytes} remaining
+     */
+    private ByteBuffer require(int bytes) throws IOException {
+      if(window.remaining() < bytes) {
+        windowStart = position();
+        long length = Math.min(Math.max(WINDOW_SIZE, bytes), size - windowStart);
+        if(length < bytes) {
+          throw new EOFException();
+        }
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, length);
+        window.order(ByteOrder.BIG_ENDIAN);
+      }
+      return window;
+    }
+
+    /**
+     * @return a view of the next {@code bytes} bytes of the file
+     */
+    private ByteBuffer region(int bytes) throws IOException {
+      ByteBuffer window = require(bytes);
+      ByteBuffer region = window.slice();
+      region.limit(bytes);
+      window.position(window.position() + bytes);
+      return region.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    @Override
+    public int readInt() throws IOException {
+      return require(4).getInt();
+    }
+
+    @Override
+    public double readDouble() throws IOException {
+      return require(8).getDouble();
+    }
+
+    @Override
+    public byte[] readString(int length) throws IOException {
+      byte buf[] = new byte[length];
+      require(length).get(buf);
+      return buf;
+    }
+
+    @Override
+    public IntBuffer readIntBuffer(int size) throws IOException {
+      if(size < MIN_VIEW_LENGTH || (long)size * 4 > Integer.MAX_VALUE) {
+        int[] array = new int[size];
+        for(int i=0;i<size;i+=CHUNK_SIZE) {
+          int count = Math.min(CHUNK_SIZE, size - i);
+          region(count * 4).asIntBuffer().get(array, i, count);
+        }
+        return IntBuffer.wrap(array);
+      }
+      return region(size * 4).asIntBuffer();
+    }
+
+    @Override
+    public DoubleBuffer readDoubleBuffer(int size) throws IOException {
+      if(size < MIN_VIEW_LENGTH || (long)size * 8 > Integer.MAX_VALUE) {
+        // Too small to be worth viewing, or too large for a single mapping
+        double[] array = new double[size];
+        for(int i=0;i<size;i+=CHUNK_SIZE) {
+          int count = Math.min(CHUNK_SIZE, size - i);
+          region(count * 8).asDoubleBuffer().get(array, i, count);
+        }
+        return DoubleBuffer.wrap(array);
+      }
+      return region(size * 8).asDoubleBuffer();
+    }
   }
 
   /**
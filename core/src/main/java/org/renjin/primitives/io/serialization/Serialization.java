@@ -1,5 +1,6 @@
 package org.renjin.primitives.io.serialization;
 
+import com.google.common.io.ByteStreams;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.Current;
@@ -7,14 +8,18 @@ import org.renjin.invoke.annotations.DotCall;
 import org.renjin.invoke.annotations.Internal;
 import org.renjin.primitives.io.connections.Connection;
 import org.renjin.primitives.io.connections.Connections;
+import org.renjin.primitives.io.connections.FileConnection;
 import org.renjin.primitives.io.connections.OpenSpec;
 import org.renjin.primitives.io.serialization.RDataWriter.PersistenceHook;
 import org.renjin.sexp.*;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 
 
 public class Serialization {
@@ -24,20 +29,43 @@ public class Serialization {
 
   public enum SerializationType { ASCII, XDR, BINARY};
 
+  /**
+   * If true, uncompressed files read through {@code readRDS()} or {@code unserialize()} are
+   * mapped into memory, and their large vectors are decoded lazily from the mapped file.
+   */
+  public static boolean MAP_FILES = Boolean.getBoolean("renjin.serialization.map");
+
   @Internal
   public static SEXP unserializeFromConn(@Current Context context,
       SEXP conn, Environment rho) throws IOException {
     
-    RDataReader reader = new RDataReader(context, Connections.getConnection(context, conn).getInputStream());
-    return reader.readFile();
+    return unserialize(context, Connections.getConnection(context, conn));
   }
 
   @Internal
   public static SEXP unserializeFromConn(@Current Context context,
       SEXP conn, Null nz) throws IOException {
     
-    RDataReader reader = new RDataReader(context, 
-        Connections.getConnection(context, conn).getInputStream());
+    return unserialize(context, Connections.getConnection(context, conn));
+  }
+
+  private static SEXP unserialize(Context context, Connection connection) throws IOException {
+    if(MAP_FILES && connection instanceof FileConnection) {
+      File file = ((FileConnection) connection).getUnreadLocalFile();
+      if(file != null) {
+        try(FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+          RDataReader reader = new RDataReader(context, channel);
+          SEXP value = reader.readFile();
+
+          // Leave the connection positioned after the object, as if it had been read
+          long position = reader.getMappedPosition();
+          ByteStreams.skipFully(connection.getInputStream(),
+              position == -1 ? channel.position() : position);
+          return value;
+        }
+      }
+    }
+    RDataReader reader = new RDataReader(context, connection.getInputStream());
     return reader.readFile();
   }
 
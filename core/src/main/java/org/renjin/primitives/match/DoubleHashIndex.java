@@ -0,0 +1,85 @@
+package org.renjin.primitives.match;
+
+import org.renjin.sexp.DoubleVector;
+
+/**
+ * {@link HashIndex} over double keys, following R's rules for
+ * identical doubles:
+ * <ul>
+ *   <li>{@code NA_real_} matches only {@code NA_real_}, whatever its payload</li>
+ *   <li>{@code NaN} matches {@code NaN}, but not {@code NA_real_}</li>
+ *   <li>{@code -0} matches {@code 0}</li>
+ * </ul>
+ *
+ * <p>Keys are stored as their canonical bit patterns so that comparisons and hashing
+ * are done on {@code long}s.</p>
+ */
+class DoubleHashIndex extends HashIndex {
+
+  private static final long NAN_BITS = Double.doubleToLongBits(Double.NaN);
+
+  private final long[] keys;
+
+  public DoubleHashIndex(double[] values) {
+    super(values.length);
+    this.keys = new long[values.length];
+    for (int i = 0; i < values.length; i++) {
+      keys[i] = canonicalBits(values[i]);
+    }
+  }
+
+  @Override
+  public int putIfAbsent(int index) {
+    long key = keys[index];
+    int slot = hash(key) & mask;
+    while(true) {
+      int existing = slots[slot];
+      if(existing == EMPTY) {
+        insert(slot, index);
+        return -1;
+      }
+      if(keys[existing] == key) {
+        return existing;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  /**
+   * @return the index of the first added element identical to {@code value}, or {@code -1}
+   */
+  public int indexOf(double value) {
+    long key = canonicalBits(value);
+    int slot = hash(key) & mask;
+    while(true) {
+      int existing = slots[slot];
+      if(existing == EMPTY) {
+        return -1;
+      }
+      if(keys[existing] == key) {
+        return existing;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  @Override
+  protected int hashAt(int index) {
+    return hash(keys[index]);
+  }
+
+  private static int hash(long bits) {
+    return mix((int)(bits ^ (bits >>> 32)));
+  }
+
+  private static long canonicalBits(double value) {
+    if(Double.isNaN(value)) {
+      return DoubleVector.isNA(value) ? DoubleVector.NA_BITS : NAN_BITS;
+    }
+    if(value == 0) {
+      // collapse -0 and +0
+      return 0L;
+    }
+    return Double.doubleToRawLongBits(value);
+  }
+}
@@ -3,8 +3,7 @@ package org.renjin.primitives.match;
 import com.google.common.collect.Maps;
 import org.renjin.invoke.annotations.Internal;
 import org.renjin.primitives.match.DuplicateSearchAlgorithm.Action;
-import org.renjin.sexp.AtomicVector;
-import org.renjin.sexp.Vector;
+import org.renjin.sexp.*;
 
 import java.util.HashMap;
 
@@ -63,7 +62,67 @@ public class Duplicates {
       Vector incomparables,
       boolean fromLast,
       DuplicateSearchAlgorithm<ResultType> algorithm) {
-   
+
+    HashIndex index = hashIndex(x);
+    if(index != null) {
+      return hashSearch(x, index, fromLast, algorithm);
+    } else {
+      return boxedSearch(x, fromLast, algorithm);
+    }
+  }
+
+  /**
+   * Creates a {@link HashIndex} specialized for the type of {@code x}, or {@code null} if there is
+   * no specialization for its type.
+   */
+  static HashIndex hashIndex(Vector x) {
+    if(x instanceof DoubleVector) {
+      return new DoubleHashIndex(((DoubleVector) x).toDoubleArray());
+    } else if(x instanceof IntVector || x instanceof LogicalVector) {
+      return new IntHashIndex(((AtomicVector) x).toIntArray());
+    } else if(x instanceof StringVector) {
+      return new StringHashIndex(((StringVector) x).toArray());
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Searches for duplicates using a primitive {@link HashIndex} over the elements of {@code x},
+   * without boxing any elements or indices.
+   */
+  static <ResultType> ResultType hashSearch(
+      Vector x,
+      HashIndex seen,
+      boolean fromLast,
+      DuplicateSearchAlgorithm<ResultType> algorithm) {
+
+    algorithm.init(x);
+
+    int length = x.length();
+    for(int i=0;i!=length;++i) {
+      int index = fromLast ? (length - 1 - i) : i;
+      int originalIndex = seen.putIfAbsent(index);
+      if(originalIndex == -1) {
+        algorithm.onUnique(index);
+      } else {
+        if(algorithm.onDuplicate(index, originalIndex) == Action.STOP) {
+          return algorithm.getResult();
+        }
+      }
+    }
+    return algorithm.getResult();
+  }
+
+  /**
+   * Searches for duplicates by comparing the boxed elements of {@code x}, which
+   * is required for lists and other vectors without a specialized {@link HashIndex}.
+   */
+  static <ResultType> ResultType boxedSearch(
+      Vector x,
+      boolean fromLast,
+      DuplicateSearchAlgorithm<ResultType> algorithm) {
+
     algorithm.init(x);
     
     /** Maps elements -> first encountered index */
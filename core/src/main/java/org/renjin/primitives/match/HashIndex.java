@@ -0,0 +1,97 @@
+package org.renjin.primitives.match;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table which maps the distinct elements of a vector to the
+ * index of the first element added with that value.
+ *
+ * <p>Only the integer indices are stored in the table: the keys themselves are held
+ * by subclasses in a primitive array, so that neither keys nor indices need to be boxed.
+ * Collisions are resolved by linear probing.</p>
+ */
+abstract class HashIndex {
+
+  protected static final int EMPTY = -1;
+
+  private static final int MIN_CAPACITY = 16;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  protected int[] slots;
+  protected int mask;
+  private int size;
+  private int resizeThreshold;
+
+  protected HashIndex(int expectedSize) {
+    allocate(capacityFor(expectedSize));
+  }
+
+  /**
+   * Adds the element at {@code index} to the table if no equal element has yet been added.
+   *
+   * @return the index of the previously added equal element, or {@code -1} if the element
+   * was not yet present in the table.
+   */
+  public abstract int putIfAbsent(int index);
+
+  /**
+   * @return the number of distinct elements in the table
+   */
+  public final int size() {
+    return size;
+  }
+
+  protected abstract int hashAt(int index);
+
+  /**
+   * Stores {@code index} in the empty slot found by the caller's probe sequence.
+   */
+  protected final void insert(int slot, int index) {
+    slots[slot] = index;
+    if(++size > resizeThreshold) {
+      rehash();
+    }
+  }
+
+  private void rehash() {
+    int[] oldSlots = slots;
+    allocate(oldSlots.length * 2);
+    for (int index : oldSlots) {
+      if (index != EMPTY) {
+        int slot = hashAt(index) & mask;
+        while (slots[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        slots[slot] = index;
+      }
+    }
+  }
+
+  private void allocate(int capacity) {
+    slots = new int[capacity];
+    Arrays.fill(slots, EMPTY);
+    mask = capacity - 1;
+    resizeThreshold = capacity == MAX_CAPACITY ? Integer.MAX_VALUE : capacity / 2;
+  }
+
+  private static int capacityFor(int expectedSize) {
+    int capacity = MIN_CAPACITY;
+    while(capacity < MAX_CAPACITY && capacity / 2 < expectedSize) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  /**
+   * Spreads the bits of a hash code so that keys which differ only in their
+   * high bits do not collide in a small, power-of-two sized table.
+   */
+  protected static int mix(int hash) {
+    hash ^= hash >>> 16;
+    hash *= 0x85ebca6b;
+    hash ^= hash >>> 13;
+    hash *= 0xc2b2ae35;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+}
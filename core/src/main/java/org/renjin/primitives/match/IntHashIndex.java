@@ -0,0 +1,54 @@
+package org.renjin.primitives.match;
+
+/**
+ * {@link HashIndex} over integer keys. {@code NA_integer_} is just another
+ * key value, so no special handling of missing values is required.
+ */
+class IntHashIndex extends HashIndex {
+
+  private final int[] keys;
+
+  public IntHashIndex(int[] keys) {
+    super(keys.length);
+    this.keys = keys;
+  }
+
+  @Override
+  public int putIfAbsent(int index) {
+    int key = keys[index];
+    int slot = mix(key) & mask;
+    while(true) {
+      int existing = slots[slot];
+      if(existing == EMPTY) {
+        insert(slot, index);
+        return -1;
+      }
+      if(keys[existing] == key) {
+        return existing;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  /**
+   * @return the index of the first added element equal to {@code key}, or {@code -1}
+   */
+  public int indexOf(int key) {
+    int slot = mix(key) & mask;
+    while(true) {
+      int existing = slots[slot];
+      if(existing == EMPTY) {
+        return -1;
+      }
+      if(keys[existing] == key) {
+        return existing;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  @Override
+  protected int hashAt(int index) {
+    return mix(keys[index]);
+  }
+}
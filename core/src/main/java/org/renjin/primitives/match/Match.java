@@ -40,6 +40,11 @@ public class Match {
   private static final int UNMATCHED = -1;
   private static final int MULTIPLE_MATCH = -2;
 
+  /**
+   * Tables up to this length are searched linearly rather than hashed.
+   */
+  private static final int LINEAR_SCAN_MAX_TABLE_LENGTH = 16;
+
   private Match() { }
 
   /**
@@ -70,6 +75,10 @@ public class Match {
       }
     }
 
+    if(isHashable(search, table)) {
+      return hashMatch((AtomicVector) search, (AtomicVector) table, noMatch, incomparables);
+    }
+
     int[] matches = new int[search.length()];
     for(int i=0;i!=search.length();++i) {
       if( incomparables.contains(search, i)) {
@@ -88,6 +97,92 @@ public class Match {
   }
   
 
+  /**
+   * Linear scanning is cheaper than building a hash table for very small tables,
+   * or if there is only a single element to look up.
+   */
+  private static boolean isHashable(Vector search, Vector table) {
+    return table.length() > LINEAR_SCAN_MAX_TABLE_LENGTH &&
+           search.length() > 1 &&
+           isHashableType(search) &&
+           isHashableType(table);
+  }
+
+  private static boolean isHashableType(Vector vector) {
+    return vector instanceof LogicalVector ||
+           vector instanceof IntVector ||
+           vector instanceof DoubleVector ||
+           vector instanceof StringVector;
+  }
+
+  /**
+   * Matches {@code search} against {@code table} by building a hash index of the table
+   * once, and then probing it for each element of {@code search}.
+   *
+   * <p>As with the linear scan, elements of {@code search} are coerced to the type of {@code table},
+   * and {@code NA}s only match {@code NA}s.</p>
+   */
+  private static int[] hashMatch(AtomicVector search, AtomicVector table, int noMatch, AtomicVector incomparables) {
+    int[] matches = new int[search.length()];
+    int naPos = table.indexOfNA();
+
+    if(table instanceof StringVector) {
+      StringHashIndex index = new StringHashIndex(((StringVector) table).toArray());
+      addAll(index, table.length());
+      for(int i=0;i!=search.length();++i) {
+        int pos;
+        if(incomparables.contains(search, i)) {
+          pos = -1;
+        } else if(search.isElementNA(i)) {
+          pos = naPos;
+        } else {
+          String key = search.getElementAsString(i);
+          pos = key == null ? -1 : index.indexOf(key);
+        }
+        matches[i] = pos >= 0 ? pos+1 : noMatch;
+      }
+
+    } else if(table instanceof DoubleVector) {
+      DoubleHashIndex index = new DoubleHashIndex(table.toDoubleArray());
+      addAll(index, table.length());
+      for(int i=0;i!=search.length();++i) {
+        int pos;
+        if(incomparables.contains(search, i)) {
+          pos = -1;
+        } else if(search.isElementNA(i)) {
+          pos = naPos;
+        } else {
+          double key = search.getElementAsDouble(i);
+          pos = DoubleVector.isNA(key) ? -1 : index.indexOf(key);
+        }
+        matches[i] = pos >= 0 ? pos+1 : noMatch;
+      }
+
+    } else {
+      IntHashIndex index = new IntHashIndex(table.toIntArray());
+      addAll(index, table.length());
+      for(int i=0;i!=search.length();++i) {
+        int pos;
+        if(incomparables.contains(search, i)) {
+          pos = -1;
+        } else if(search.isElementNA(i)) {
+          pos = naPos;
+        } else {
+          int key = search.getElementAsInt(i);
+          pos = IntVector.isNA(key) ? -1 : index.indexOf(key);
+        }
+        matches[i] = pos >= 0 ? pos+1 : noMatch;
+      }
+    }
+    return matches;
+  }
+
+  private static void addAll(HashIndex index, int length) {
+    for(int i=0;i!=length;++i) {
+      index.putIfAbsent(i);
+    }
+  }
+
   private static int indexOfNA(Vector table) {
     for(int i=0;i!=table.length();++i) {
       if(table.isElementNA(i)) {
@@ -0,0 +1,67 @@
+package org.renjin.primitives.match;
+
+/**
+ * {@link HashIndex} over string keys. {@code NA_character_} is represented by
+ * {@code null} and matches only other {@code NA}s.
+ */
+class StringHashIndex extends HashIndex {
+
+  private static final int NA_HASH = 0x5f3759df;
+
+  private final String[] keys;
+
+  public StringHashIndex(String[] keys) {
+    super(keys.length);
+    this.keys = keys;
+  }
+
+  @Override
+  public int putIfAbsent(int index) {
+    String key = keys[index];
+    int slot = hash(key) & mask;
+    while(true) {
+      int existing = slots[slot];
+      if(existing == EMPTY) {
+        insert(slot, index);
+        return -1;
+      }
+      if(equal(keys[existing], key)) {
+        return existing;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  /**
+   * @return the index of the first added element equal to {@code key}, or {@code -1}
+   */
+  public int indexOf(String key) {
+    int slot = hash(key) & mask;
+    while(true) {
+      int existing = slots[slot];
+      if(existing == EMPTY) {
+        return -1;
+      }
+      if(equal(keys[existing], key)) {
+        return existing;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  @Override
+  protected int hashAt(int index) {
+    return hash(keys[index]);
+  }
+
+  private static int hash(String key) {
+    return mix(key == null ? NA_HASH : key.hashCode());
+  }
+
+  private static boolean equal(String x, String y) {
+    if(x == y) {
+      return true;
+    }
+    return x != null && x.equals(y);
+  }
+}
@@ -0,0 +1,15 @@
+package org.renjin.primitives.matrix;
+
+import org.renjin.sexp.AtomicVector;
+
+public class DeferredColMeans extends DeferredMarginSum {
+
+  public DeferredColMeans(AtomicVector vector, int numRows) {
+    super(vector, numRows, false, true);
+  }
+
+  @Override
+  public String getComputationName() {
+    return "colMeans";
+  }
+}
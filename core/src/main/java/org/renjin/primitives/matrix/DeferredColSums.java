@@ -0,0 +1,15 @@
+package org.renjin.primitives.matrix;
+
+import org.renjin.sexp.AtomicVector;
+
+public class DeferredColSums extends DeferredMarginSum {
+
+  public DeferredColSums(AtomicVector vector, int numRows) {
+    super(vector, numRows, false, false);
+  }
+
+  @Override
+  public String getComputationName() {
+    return "colSums";
+  }
+}
@@ -0,0 +1,51 @@
+package org.renjin.primitives.matrix;
+
+import org.renjin.primitives.vector.MemoizedDoubleVector;
+import org.renjin.sexp.*;
+
+/**
+ * The sums or means of the rows or columns of a matrix. The operands
+ * are the matrix and its number of rows.
+ */
+public abstract class DeferredMarginSum extends MemoizedDoubleVector {
+
+  private final boolean rows;
+  private final boolean mean;
+
+  protected DeferredMarginSum(AtomicVector vector, int numRows, boolean rows, boolean mean) {
+    super(new Vector[] { vector, new IntArrayVector(numRows) },
+        rows ? numRows : vector.length() / numRows,
+        AttributeMap.EMPTY);
+    this.rows = rows;
+    this.mean = mean;
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return false;
+  }
+
+  @Override
+  protected Vector calculate() {
+    Vector vector = getOperands()[0];
+    int numRows = getOperands()[1].getElementAsInt(0);
+    double sums[] = new double[length()];
+    int row = 0;
+    int col = 0;
+    for(int i=0;i!=vector.length();++i) {
+      sums[rows ? row : col] += vector.getElementAsDouble(i);
+      row++;
+      if(row == numRows) {
+        row = 0;
+        col++;
+      }
+    }
+    if(mean) {
+      double count = rows ? (vector.length() / numRows) : numRows;
+      for(int i=0;i!=sums.length;++i) {
+        sums[i] /= count;
+      }
+    }
+    return DoubleArrayVector.unsafe(sums);
+  }
+}
@@ -0,0 +1,15 @@
+package org.renjin.primitives.matrix;
+
+import org.renjin.sexp.AtomicVector;
+
+public class DeferredRowSums extends DeferredMarginSum {
+
+  public DeferredRowSums(AtomicVector vector, int numRows) {
+    super(vector, numRows, true, false);
+  }
+
+  @Override
+  public String getComputationName() {
+    return "rowSums";
+  }
+}
@@ -88,6 +88,10 @@ public class Matrices {
 
   @Internal
   public static DoubleVector rowSums(AtomicVector x, int numRows, int rowLength, boolean naRm) {
+    if(!naRm && x instanceof DeferredComputation) {
+      return new DeferredRowSums(x, numRows);
+    }
+
     double sums[] = new double[numRows];
     int sourceIndex = 0;
     for(int col=0;col < rowLength; col++) {
@@ -136,6 +140,9 @@ public class Matrices {
 
   @Internal
   public static DoubleVector colSums(AtomicVector x, int columnLength, int numColumns, boolean naRm) {
+    if(!naRm && columnLength > 0 && x instanceof DeferredComputation) {
+      return new DeferredColSums(x, columnLength);
+    }
 
     double sums[] = new double[numColumns];
     for(int column=0;column < numColumns; column++) {
@@ -161,6 +168,10 @@ public class Matrices {
 
   @Internal
   public static DoubleVector colMeans(AtomicVector x, int columnLength, int numColumns, boolean naRm) {
+    if(!naRm && columnLength > 0 && x instanceof DeferredComputation) {
+      return new DeferredColMeans(x, columnLength);
+    }
+
     double sums[] = new double[numColumns];
     int counts[] = new int[numColumns];
 
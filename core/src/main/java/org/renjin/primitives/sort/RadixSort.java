@@ -0,0 +1,291 @@
+package org.renjin.primitives.sort;
+
+import org.renjin.sexp.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes orderings of atomic vectors with a stable, least-significant-digit radix sort
+ * over primitive {@code int[]} permutations, rather than by comparing boxed indices.
+ *
+ * <p>Each column is first converted to an array of unsigned {@code long} keys which sort in the
+ * same order as the column's values:</p>
+ *
+ * <ul>
+ * <li>Integers, logicals and factors use their integer value, less the column's minimum.</li>
+ * <li>Doubles use their IEEE 754 bits, with the sign bit flipped for positive numbers and all
+ * bits flipped for negative numbers, less the column's minimum. -0 is treated as 0.</li>
+ * <li>Strings are replaced by the rank of their collation key among the distinct strings in the
+ * column, so each distinct string is only compared a few times.</li>
+ * </ul>
+ *
+ * <p>Missing values, including {@code NaN}, are split off before sorting, and placed before or after the
+ * other values. Columns whose keys span fewer than 2^16 values are sorted in a single counting pass.
+ * Ordering by several columns sorts by each column in turn, starting with the last, relying on each
+ * pass being stable.</p>
+ */
+public class RadixSort {
+
+  private static final int DIGIT_BITS = 11;
+
+  private static final int MAX_COUNTING_BITS = 16;
+
+  private RadixSort() { }
+
+  /**
+   * @return true if {@code x} can be ordered by this class
+   */
+  public static boolean isSupported(SEXP x) {
+    return x instanceof IntVector ||
+           x instanceof LogicalVector ||
+           x instanceof DoubleVector ||
+           x instanceof StringVector;
+  }
+
+  /**
+   * Computes the permutation which sorts the given vector.
+   *
+   * @return the zero-based indices of the elements of {@code x}, in sorted order
+   */
+  public static int[] order(AtomicVector x, boolean naLast, boolean decreasing) {
+    int[] order = identity(x.length());
+    sortBy(x, order, new int[order.length], naLast, decreasing);
+    return order;
+  }
+
+  /**
+   * Computes the permutation which sorts the rows of the given columns, which must all have the same length,
+   * by the first column, breaking ties by the following columns, and then by the original position.
+   *
+   * @return the zero-based indices of the rows, in sorted order
+   */
+  public static int[] order(List<? extends AtomicVector> columns, boolean naLast, boolean decreasing) {
+    int numRows = columns.isEmpty() ? 0 : columns.get(0).length();
+    int[] order = identity(numRows);
+    int[] buffer = new int[numRows];
+    for (int i = columns.size() - 1; i >= 0; i--) {
+      sortBy(columns.get(i), order, buffer, naLast, decreasing);
+    }
+    return order;
+  }
+
+  private static int[] identity(int length) {
+    int[] order = new int[length];
+    for (int i = 0; i < length; i++) {
+      order[i] = i;
+    }
+    return order;
+  }
+
+  /**
+   * Stably sorts the permutation {@code order} by the values of {@code x}
+   */
+  private static void sortBy(AtomicVector x, int[] order, int[] buffer, boolean naLast, boolean decreasing) {
+    int n = order.length;
+    if(n < 2) {
+      return;
+    }
+
+    long[] keys = new long[n];
+    boolean[] missing = new boolean[n];
+    int missingCount;
+
+    if(x instanceof DoubleVector) {
+      missingCount = doubleKeys((DoubleVector) x, keys, missing);
+    } else if(x instanceof StringVector) {
+      missingCount = stringKeys((StringVector) x, keys, missing);
+    } else {
+      missingCount = intKeys(x, keys, missing);
+    }
+
+    // Split off the missing values, keeping their relative order
+    int present = n - missingCount;
+    int[] missingRows = new int[missingCount];
+    if(missingCount > 0) {
+      int p = 0;
+      int m = 0;
+      for (int i = 0; i < n; i++) {
+        int row = order[i];
+        if(missing[row]) {
+          missingRows[m++] = row;
+        } else {
+          order[p++] = row;
+        }
+      }
+    }
+
+    // Reduce the keys of the present values to the range [0, max - min]
+    long min = -1L;
+    long max = 0L;
+    for (int i = 0; i < present; i++) {
+      long key = keys[order[i]];
+      if(lessThanUnsigned(key, min)) {
+        min = key;
+      }
+      if(lessThanUnsigned(max, key)) {
+        max = key;
+      }
+    }
+    if(present > 0) {
+      long range = max - min;
+      for (int i = 0; i < present; i++) {
+        int row = order[i];
+        keys[row] = decreasing ? (max - keys[row]) : (keys[row] - min);
+      }
+      int bits = 64 - Long.numberOfLeadingZeros(range);
+      radixSort(keys, order, present, buffer, bits);
+    }
+
+    if(missingCount > 0) {
+      if(naLast) {
+        System.arraycopy(missingRows, 0, order, present, missingCount);
+      } else {
+        System.arraycopy(order, 0, order, missingCount, present);
+        System.arraycopy(missingRows, 0, order, 0, missingCount);
+      }
+    }
+  }
+
+  /**
+   * Sorts the first {@code length} elements of {@code order} by their keys, which must be less than 2^bits
+   */
+  private static void radixSort(long[] keys, int[] order, int length, int[] buffer, int bits) {
+    if(bits == 0) {
+      // All keys are equal
+      return;
+    }
+    int digitBits = bits <= MAX_COUNTING_BITS ? bits : DIGIT_BITS;
+    int radix = 1 << digitBits;
+    long mask = radix - 1;
+    int[] counts = new int[radix + 1];
+
+    int[] source = order;
+    int[] target = buffer;
+
+    for (int shift = 0; shift < bits; shift += digitBits) {
+      Arrays.fill(counts, 0);
+      for (int i = 0; i < length; i++) {
+        counts[(int) ((keys[source[i]] >>> shift) & mask) + 1]++;
+      }
+      if(isSingleBucket(counts, length)) {
+        // All keys share this digit, no need to move anything
+        continue;
+      }
+      for (int d = 1; d <= radix; d++) {
+        counts[d] += counts[d - 1];
+      }
+      for (int i = 0; i < length; i++) {
+        int row = source[i];
+        target[counts[(int) ((keys[row] >>> shift) & mask)]++] = row;
+      }
+      int[] swap = source;
+      source = target;
+      target = swap;
+    }
+    if(source != order) {
+      System.arraycopy(source, 0, order, 0, length);
+    }
+  }
+
+  private static boolean lessThanUnsigned(long a, long b) {
+    return (a ^ Long.MIN_VALUE) < (b ^ Long.MIN_VALUE);
+  }
+
+  private static boolean isSingleBucket(int[] counts, int length) {
+    for (int count : counts) {
+      if(count == length) {
+        return true;
+      } else if(count != 0) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  private static int intKeys(AtomicVector x, long[] keys, boolean[] missing) {
+    int missingCount = 0;
+    if(x instanceof IntArrayVector) {
+      int[] values = ((IntArrayVector) x).toIntArrayUnsafe();
+      for (int i = 0; i < values.length; i++) {
+        if(IntVector.isNA(values[i])) {
+          missing[i] = true;
+          missingCount++;
+        } else {
+          keys[i] = intKey(values[i]);
+        }
+      }
+    } else {
+      for (int i = 0; i < keys.length; i++) {
+        if(x.isElementNA(i)) {
+          missing[i] = true;
+          missingCount++;
+        } else {
+          keys[i] = intKey(x.getElementAsInt(i));
+        }
+      }
+    }
+    return missingCount;
+  }
+
+  private static long intKey(int value) {
+    return (long)value - Integer.MIN_VALUE;
+  }
+
+  private static int doubleKeys(DoubleVector x, long[] keys, boolean[] missing) {
+    int missingCount = 0;
+    for (int i = 0; i < keys.length; i++) {
+      double value = x.getElementAsDouble(i);
+      if(Double.isNaN(value)) {
+        missing[i] = true;
+        missingCount++;
+      } else {
+        keys[i] = doubleKey(value);
+      }
+    }
+    return missingCount;
+  }
+
+  /**
+   * Maps a double to a long whose unsigned order is the same as the numeric
+   * order of the doubles.
+   */
+  static long doubleKey(double value) {
+    // Adding zero turns -0 into +0
+    long bits = Double.doubleToLongBits(value + 0d);
+    if(bits < 0) {
+      return ~bits;
+    } else {
+      return bits ^ Long.MIN_VALUE;
+    }
+  }
+
+  private static int stringKeys(StringVector x, long[] keys, boolean[] missing) {
+    int missingCount = 0;
+    Map<String, Integer> ranks = new HashMap<>();
+    for (int i = 0; i < keys.length; i++) {
+      String value = x.getElementAsString(i);
+      if(value == null) {
+        missing[i] = true;
+        missingCount++;
+      } else if(!ranks.containsKey(value)) {
+        ranks.put(value, 0);
+      }
+    }
+
+    String[] distinct = ranks.keySet().toArray(new String[ranks.size()]);
+    Arrays.sort(distinct);
+    for (int rank = 0; rank < distinct.length; rank++) {
+      ranks.put(distinct[rank], rank);
+    }
+
+    for (int i = 0; i < keys.length; i++) {
+      if(!missing[i]) {
+        keys[i] = ranks.get(x.getElementAsString(i));
+      }
+    }
+    return missingCount;
+  }
+}
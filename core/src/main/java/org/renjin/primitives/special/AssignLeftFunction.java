@@ -58,6 +58,13 @@ public class AssignLeftFunction extends SpecialFunction {
     // class(x$a[3]) <- "foo"
 
     SEXP evaluatedValue = context.evaluate( value, rho);
+
+    if(lhs instanceof FunctionCall && isLocalAssignment() &&
+        InPlaceReplacement.tryAssign(context, rho, (FunctionCall) lhs, evaluatedValue)) {
+      context.setInvisibleFlag();
+      return evaluatedValue;
+    }
+
     SEXP rhs = new Promise(value, evaluatedValue);
 
     while(lhs instanceof FunctionCall) {
@@ -97,6 +104,14 @@ public class AssignLeftFunction extends SpecialFunction {
     return evaluatedValue;
   }
 
+  /**
+   * @return true if this function assigns to the variable in the current environment, allowing
+   * simple replacements such as {@code x[i] <- value} to be made in place
+   */
+  protected boolean isLocalAssignment() {
+    return true;
+  }
+
   protected void assignResult(Context context, Environment rho, Symbol target, SEXP rhs) {
     rho.setVariable(target, rhs);
   }
@@ -21,22 +21,9 @@
 
 package org.renjin.primitives.special;
 
-import org.renjin.compiler.CompiledLoopBody;
-import org.renjin.compiler.NotCompilableException;
-import org.renjin.compiler.TypeSolver;
-import org.renjin.compiler.cfg.ControlFlowGraph;
-import org.renjin.compiler.cfg.DominanceTree;
-import org.renjin.compiler.cfg.UseDefMap;
-import org.renjin.compiler.codegen.ByteCodeEmitter;
-import org.renjin.compiler.ir.exception.InvalidSyntaxException;
-import org.renjin.compiler.ir.ssa.SsaTransformer;
-import org.renjin.compiler.ir.tac.IRBody;
-import org.renjin.compiler.ir.tac.IRBodyBuilder;
-import org.renjin.compiler.ir.tac.RuntimeState;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.eval.Profiler;
-import org.renjin.primitives.Deparse;
 import org.renjin.sexp.*;
 
 
@@ -64,9 +51,12 @@ public class ForFunction extends SpecialFunction {
     Vector elements = (Vector) elementsExp;
     SEXP statement = args.getElementAsSEXP(2);
 
-    boolean profiling = Profiler.ENABLED && elements.length() > COMPILE_THRESHOLD;
-    if(profiling) {
-      Profiler.loopStart(call, elements);
+    Profiler profiler = null;
+    if(elements.length() > COMPILE_THRESHOLD) {
+      profiler = Profiler.runningProfiler(context.getSession());
+      if(profiler != null) {
+        profiler.loopStart(call, elements);
+      }
     }
 
     int i = 0;
@@ -80,7 +70,7 @@ public class ForFunction extends SpecialFunction {
           if (COMPILE_LOOPS && i >= WARMUP_ITERATIONS && elements.length() > COMPILE_THRESHOLD &&
               !compilationFailed) {
 
-            if (tryCompileAndRun(context, rho, call, elements, i)) {
+            if (LoopCompiler.tryCompileAndRun(context, rho, call, elements, i)) {
               break;
             } else {
               compilationFailed = true;
@@ -96,72 +86,12 @@ public class ForFunction extends SpecialFunction {
         }
       }
     } finally {
-      if(profiling) {
-        Profiler.loopEnd(i);
+      if(profiler != null) {
+        profiler.loopEnd(i);
       }
     }
 
     context.setInvisibleFlag();
     return Null.INSTANCE;
   }
-
-  private boolean tryCompileAndRun(Context context, Environment rho, FunctionCall call, Vector elements, int i) {
-
-    CompiledLoopBody compiledBody = null;
-
-    try {
-
-      RuntimeState runtimeState = new RuntimeState(context, rho);
-      IRBodyBuilder builder = new IRBodyBuilder(runtimeState);
-      IRBody body = builder.buildLoopBody(call, elements);
-
-      ControlFlowGraph cfg = new ControlFlowGraph(body);
-
-      DominanceTree dTree = new DominanceTree(cfg);
-      SsaTransformer ssaTransformer = new SsaTransformer(cfg, dTree);
-      ssaTransformer.transform();
-
-      UseDefMap useDefMap = new UseDefMap(cfg);
-      TypeSolver types = new TypeSolver(cfg, useDefMap);
-      types.execute();
-      
-      types.verifyFunctionAssumptions(runtimeState);
-
-      ssaTransformer.removePhiFunctions(types);
-      
-      ByteCodeEmitter emitter = new ByteCodeEmitter(cfg, types);
-      compiledBody = emitter.compileLoopBody().newInstance();
-
-    } catch (NotCompilableException e) {
-      context.warn("Could not compile loop with %d iterations because: " + format(context, e));
-      return false;
-
-    } catch (InvalidSyntaxException e) {
-      throw new EvalException(e.getMessage());
-      
-    } catch (Exception e) {
-      throw new EvalException("Exception compiling loop: " + e.getMessage(), e);
-    }
-
-    compiledBody.run(context, rho, elements, i);
-
-    return true;
-  }
-
-  private String format(Context context, NotCompilableException e) {
-    StringBuilder s = new StringBuilder();
-    while(e != null) {
-      if(s.length() > 0) {
-        s.append(" > ");
-      }
-      if(e.getSexp() != null) {
-        s.append(Deparse.deparseExp(context, e.getSexp()));
-      }
-      if(e.getMessage() != null) {
-        s.append(": ").append(e.getMessage());
-      }
-      e = e.getCause();
-    }
-    return s.toString();
-  }
 }
@@ -0,0 +1,180 @@
+package org.renjin.primitives.special;
+
+import org.renjin.eval.Context;
+import org.renjin.sexp.*;
+
+/**
+ * Fast path for the common case of replacing a single element of a plain double or integer
+ * vector bound in the local frame, such as {@code x[i] <- value} within a loop.
+ *
+ * <p>The first such replacement copies the vector, as usual, but binds the copy as
+ * unshared. As long as nothing else obtains a reference to the vector (which would mark it as
+ * {@link SEXP#isShared() shared}), subsequent replacements can modify the copy in place rather than
+ * copying the entire vector for each element.</p>
+ *
+ * <p>Anything not matching this narrow case falls back to the normal evaluation of the
+ * {@code [<-} or {@code [[<-} call.</p>
+ *
+ * <p>Similarly, reading a single element of an unshared vector, as in {@code x[i] <- x[i-1] + 1},
+ * does not need to mark the vector as shared because the element is copied into a new value.</p>
+ */
+public class InPlaceReplacement {
+
+  private static final Symbol SUBSET = Symbol.get("[");
+  private static final Symbol SUBSET2 = Symbol.get("[[");
+  private static final Symbol SUBSET_ASSIGN = Symbol.get("[<-");
+  private static final Symbol SUBSET2_ASSIGN = Symbol.get("[[<-");
+
+  private InPlaceReplacement() { }
+
+  /**
+   * Attempts to carry out the assignment {@code lhs <- value} in place.
+   *
+   * @return {@code true} if the assignment was made, or {@code false} if the caller must
+   * evaluate the assignment normally. In the latter case, no side effects will have taken place.
+   */
+  public static boolean tryAssign(Context context, Environment rho, FunctionCall lhs, SEXP value) {
+
+    if(lhs.getFunction() != SUBSET && lhs.getFunction() != SUBSET2) {
+      return false;
+    }
+    if(!isSimpleElementCall(lhs)) {
+      return false;
+    }
+    if(!(value instanceof AtomicVector) || value.length() != 1 || value.isObject()) {
+      return false;
+    }
+
+    Symbol target = (Symbol) lhs.getArgument(0);
+    SEXP current = rho.getFrame().getVariable(target);
+    if(!isReplaceable(current) || rho.bindingIsLocked(target)) {
+      return false;
+    }
+    if(!isBuiltinReplacement(context, rho, (Symbol) lhs.getFunction())) {
+      return false;
+    }
+
+    int index = evaluateIndex(context, rho, lhs.getArgument(1), current.length());
+    if(index < 0) {
+      return false;
+    }
+
+    if(current instanceof DoubleArrayVector) {
+      if(!(value instanceof DoubleVector || value instanceof IntVector || value instanceof LogicalVector)) {
+        return false;
+      }
+      DoubleArrayVector vector = (DoubleArrayVector) current;
+      if(vector.isShared()) {
+        vector = DoubleArrayVector.unsafe(vector.toDoubleArray(), vector.getAttributes());
+        rho.setUnsharedVariable(target, vector);
+      }
+      vector.setElementUnsafe(index, ((AtomicVector) value).getElementAsDouble(0));
+
+    } else {
+      if(!(value instanceof IntVector || value instanceof LogicalVector)) {
+        return false;
+      }
+      IntArrayVector vector = (IntArrayVector) current;
+      if(vector.isShared()) {
+        vector = IntArrayVector.unsafe(vector.toIntArray(), vector.getAttributes());
+        rho.setUnsharedVariable(target, vector);
+      }
+      vector.setElementUnsafe(index, ((AtomicVector) value).getElementAsInt(0));
+    }
+    return true;
+  }
+
+  /**
+   * Attempts to evaluate {@code x[i]} or {@code x[[i]]}, where {@code x} is an unshared vector bound
+   * in the local frame, without marking {@code x} as shared.
+   *
+   * @param function the function to which {@code call} resolved
+   * @return the selected element, or {@code null} if the caller must evaluate the call normally
+   */
+  public static SEXP tryGetElement(Context context, Environment rho, FunctionCall call, Function function) {
+    if(!(function instanceof PrimitiveFunction) || !isSimpleElementCall(call)) {
+      return null;
+    }
+    SEXP source = rho.getFrame().getVariable((Symbol) call.getArgument(0));
+    if(source.isShared() || !isReplaceable(source)) {
+      return null;
+    }
+    // x[i] preserves names, so leave anything with attributes to the full implementation
+    if(call.getFunction() == SUBSET && source.hasAttributes()) {
+      return null;
+    }
+    int index = evaluateIndex(context, rho, call.getArgument(1), source.length());
+    if(index < 0) {
+      return null;
+    }
+    if(source instanceof DoubleArrayVector) {
+      return new DoubleArrayVector(((DoubleArrayVector) source).getElementAsDouble(index));
+    } else {
+      return new IntArrayVector(((IntArrayVector) source).getElementAsInt(index));
+    }
+  }
+
+  /**
+   * @return true if {@code call} is of the form {@code x[i]} or {@code x[[i]]}, where {@code x} is a symbol,
+   * and {@code i} is a constant or a symbol, which can be evaluated again without side effects
+   * if we have to fall back.
+   */
+  private static boolean isSimpleElementCall(FunctionCall call) {
+    if(call.getFunction() != SUBSET && call.getFunction() != SUBSET2) {
+      return false;
+    }
+    PairList arguments = call.getArguments();
+    if(arguments.length() != 2 || !(arguments instanceof PairList.Node)) {
+      return false;
+    }
+    PairList.Node targetNode = (PairList.Node) arguments;
+    PairList.Node subscriptNode = targetNode.getNextNode();
+    if(targetNode.hasTag() || subscriptNode.hasTag()) {
+      return false;
+    }
+    if(!(targetNode.getValue() instanceof Symbol)) {
+      return false;
+    }
+    SEXP subscriptExp = subscriptNode.getValue();
+    if(subscriptExp instanceof Symbol) {
+      return subscriptExp != Symbol.MISSING_ARG && !((Symbol) subscriptExp).isVarArgReference();
+    }
+    return subscriptExp instanceof AtomicVector;
+  }
+
+  /**
+   * Only plain vectors without a class attribute can be updated in place: replacing elements
+   * of objects requires dispatching to the class' replacement method.
+   */
+  private static boolean isReplaceable(SEXP value) {
+    return (value.getClass() == DoubleArrayVector.class || value.getClass() == IntArrayVector.class) &&
+        !value.isObject();
+  }
+
+  private static boolean isBuiltinReplacement(Context context, Environment rho, Symbol getter) {
+    Symbol setter = getter == SUBSET ? SUBSET_ASSIGN : SUBSET2_ASSIGN;
+    Function function = rho.findFunction(context, setter);
+    return function instanceof PrimitiveFunction;
+  }
+
+  /**
+   * @return the zero-based index of the single existing element selected by {@code subscriptExp}, or
+   * -1 if it selects anything else.
+   */
+  private static int evaluateIndex(Context context, Environment rho, SEXP subscriptExp, int length) {
+    SEXP subscript = context.evaluate(subscriptExp, rho);
+    if(!(subscript instanceof IntVector || subscript instanceof DoubleVector) ||
+        subscript.length() != 1 || subscript.isObject()) {
+      return -1;
+    }
+    AtomicVector vector = (AtomicVector) subscript;
+    if(vector.isElementNA(0)) {
+      return -1;
+    }
+    double position = vector.getElementAsDouble(0);
+    if(position < 1 || position >= length + 1) {
+      return -1;
+    }
+    return (int) position - 1;
+  }
+}
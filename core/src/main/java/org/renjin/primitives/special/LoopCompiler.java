@@ -0,0 +1,135 @@
+package org.renjin.primitives.special;
+
+import org.renjin.compiler.CompiledLoopBody;
+import org.renjin.compiler.CompiledLoopCache;
+import org.renjin.compiler.NotCompilableException;
+import org.renjin.compiler.RuntimeGuard;
+import org.renjin.compiler.TypeSolver;
+import org.renjin.compiler.cfg.ControlFlowGraph;
+import org.renjin.compiler.cfg.DominanceTree;
+import org.renjin.compiler.cfg.UseDefMap;
+import org.renjin.compiler.codegen.ByteCodeEmitter;
+import org.renjin.compiler.ir.ValueBounds;
+import org.renjin.compiler.ir.exception.InvalidSyntaxException;
+import org.renjin.compiler.ir.ssa.SsaTransformer;
+import org.renjin.compiler.ir.tac.IRBody;
+import org.renjin.compiler.ir.tac.IRBodyBuilder;
+import org.renjin.compiler.ir.tac.RuntimeState;
+import org.renjin.eval.Context;
+import org.renjin.eval.EvalException;
+import org.renjin.primitives.Deparse;
+import org.renjin.sexp.*;
+
+/**
+ * Compiles the remaining iterations of a {@code for}, {@code while} or {@code repeat} loop
+ * which is already being interpreted, and runs the compiled code in its place.
+ *
+ * <p>All of the loop's state lives in its environment, so the interpreter can hand over to
+ * the compiled code between any two iterations: {@code for} loops are resumed at the
+ * given iteration, while {@code while} and {@code repeat} loops are simply compiled
+ * as a whole, starting with the next check of their condition.</p>
+ */
+class LoopCompiler {
+
+  private LoopCompiler() { }
+
+  /**
+   * Compiles and runs the remaining iterations of the {@code for} loop {@code call}, starting
+   * with iteration {@code i}
+   *
+   * @return true if the loop was compiled and run to completion, or false if the
+   * loop could not be compiled and the interpreter must continue.
+   */
+  public static boolean tryCompileAndRun(Context context, Environment rho, FunctionCall call, Vector elements, int i) {
+    return tryCompileAndRun(context, rho, call, elements, ValueBounds.typeOf(elements), i);
+  }
+
+  /**
+   * Compiles and runs the {@code while} or {@code repeat} loop {@code call}, starting with the
+   * next check of the loop's condition.
+   *
+   * @return true if the loop was compiled and run to completion, or false if the
+   * loop could not be compiled and the interpreter must continue.
+   */
+  public static boolean tryCompileAndRun(Context context, Environment rho, FunctionCall call) {
+    return tryCompileAndRun(context, rho, call, Null.INSTANCE, null, 0);
+  }
+
+  private static boolean tryCompileAndRun(Context context, Environment rho, FunctionCall call,
+                                          SEXP sequence, ValueBounds sequenceBounds, int i) {
+
+    CompiledLoopCache cache = context.getSession().getSingleton(CompiledLoopCache.class);
+    CompiledLoopBody compiledBody = cache.get(call, rho, sequence);
+
+    if(compiledBody == null) {
+      if(!cache.isCompilable(call)) {
+        return false;
+      }
+
+      try {
+
+        RuntimeGuard guard = new RuntimeGuard(rho);
+        RuntimeState runtimeState = new RuntimeState(context, rho, guard);
+        IRBodyBuilder builder = new IRBodyBuilder(runtimeState);
+        IRBody body;
+        if(sequenceBounds != null) {
+          body = builder.buildLoopBody(call, sequenceBounds);
+        } else {
+          body = builder.buildLoop(call);
+          sequenceBounds = ValueBounds.of(sequence);
+        }
+
+        ControlFlowGraph cfg = new ControlFlowGraph(body);
+
+        DominanceTree dTree = new DominanceTree(cfg);
+        SsaTransformer ssaTransformer = new SsaTransformer(cfg, dTree);
+        ssaTransformer.transform();
+
+        UseDefMap useDefMap = new UseDefMap(cfg);
+        TypeSolver types = new TypeSolver(cfg, useDefMap);
+        types.execute();
+
+        types.verifyFunctionAssumptions(runtimeState);
+
+        ssaTransformer.removePhiFunctions(types);
+
+        ByteCodeEmitter emitter = new ByteCodeEmitter(cfg, types);
+        compiledBody = emitter.compileLoopBody().newInstance();
+
+        cache.put(call, guard, sequenceBounds, compiledBody);
+
+      } catch (NotCompilableException e) {
+        cache.markNotCompilable(call);
+        context.warn("Could not compile loop because: " + format(context, e));
+        return false;
+
+      } catch (InvalidSyntaxException e) {
+        throw new EvalException(e.getMessage());
+
+      } catch (Exception e) {
+        throw new EvalException("Exception compiling loop: " + e.getMessage(), e);
+      }
+    }
+
+    compiledBody.run(context, rho, sequence, i);
+
+    return true;
+  }
+
+  private static String format(Context context, NotCompilableException e) {
+    StringBuilder s = new StringBuilder();
+    while(e != null) {
+      if(s.length() > 0) {
+        s.append(" > ");
+      }
+      if(e.getSexp() != null) {
+        s.append(Deparse.deparseExp(context, e.getSexp()));
+      }
+      if(e.getMessage() != null) {
+        s.append(": ").append(e.getMessage());
+      }
+      e = e.getCause();
+    }
+    return s.toString();
+  }
+}
@@ -32,6 +32,11 @@ public class ReassignLeftFunction extends AssignLeftFunction {
     super("<<-");
   }
   
+  @Override
+  protected boolean isLocalAssignment() {
+    return false;
+  }
+
   @Override
   protected void assignResult(Context context, Environment rho, Symbol lhs, SEXP rhs) {
 
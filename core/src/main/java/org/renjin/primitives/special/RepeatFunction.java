@@ -31,6 +31,12 @@ import org.renjin.sexp.SpecialFunction;
 
 public class RepeatFunction extends SpecialFunction {
 
+  /**
+   * The number of iterations after which the loop is compiled, if
+   * {@link ForFunction#COMPILE_LOOPS} is enabled.
+   */
+  private static final int COMPILE_THRESHOLD = 200;
+
   public RepeatFunction() {
     super("repeat");
   }
@@ -39,7 +45,15 @@ public class RepeatFunction extends SpecialFunction {
   public SEXP apply(Context context, Environment rho, FunctionCall call, PairList args) {
     SEXP statement = args.getElementAsSEXP(0);
 
+    int iterations = 0;
+
     while(true) {
+      if(ForFunction.COMPILE_LOOPS && ++iterations == COMPILE_THRESHOLD) {
+        // Once the loop has proven to be hot, compile the rest of it
+        if(LoopCompiler.tryCompileAndRun(context, rho, call)) {
+          break;
+        }
+      }
       try {
         context.evaluate( statement, rho);
       } catch(BreakException e) {
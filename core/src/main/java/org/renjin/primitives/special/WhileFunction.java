@@ -31,6 +31,12 @@ import org.renjin.sexp.SpecialFunction;
 
 public class WhileFunction extends SpecialFunction {
 
+  /**
+   * The number of iterations after which the loop is compiled, if
+   * {@link ForFunction#COMPILE_LOOPS} is enabled.
+   */
+  private static final int COMPILE_THRESHOLD = 200;
+
   public WhileFunction() {
     super("while");
   }
@@ -40,7 +46,21 @@ public class WhileFunction extends SpecialFunction {
     SEXP condition = args.getElementAsSEXP(0);
     SEXP statement = args.getElementAsSEXP(1);
 
-    while(asLogicalNoNA(context, call, context.evaluate( condition, rho))) {
+    int iterations = 0;
+
+    while(true) {
+
+      if(ForFunction.COMPILE_LOOPS && ++iterations == COMPILE_THRESHOLD) {
+        // Once the loop has proven to be hot, compile the rest of it,
+        // starting with the next check of the condition
+        if(LoopCompiler.tryCompileAndRun(context, rho, call)) {
+          break;
+        }
+      }
+
+      if(!asLogicalNoNA(context, call, context.evaluate( condition, rho))) {
+        break;
+      }
 
       try {
 
@@ -0,0 +1,38 @@
+package org.renjin.primitives.summary;
+
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.Logical;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Vector;
+
+public class DeferredAll extends DeferredLogicalSummary {
+
+  public DeferredAll(Vector vector, AttributeMap attributes) {
+    super(vector, attributes);
+  }
+
+  @Override
+  protected Logical calculate() {
+    boolean naEncountered = false;
+    for(int i=0;i!=vector.length();++i) {
+      // both NA and NaN are NA when coerced to logical
+      double x = vector.getElementAsDouble(i);
+      if(Double.isNaN(x)) {
+        naEncountered = true;
+      } else if(x == 0) {
+        return Logical.FALSE;
+      }
+    }
+    return naEncountered ? Logical.NA : Logical.TRUE;
+  }
+
+  @Override
+  public String getComputationName() {
+    return "all";
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DeferredAll(vector, attributes);
+  }
+}
@@ -0,0 +1,38 @@
+package org.renjin.primitives.summary;
+
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.Logical;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Vector;
+
+public class DeferredAny extends DeferredLogicalSummary {
+
+  public DeferredAny(Vector vector, AttributeMap attributes) {
+    super(vector, attributes);
+  }
+
+  @Override
+  protected Logical calculate() {
+    boolean naEncountered = false;
+    for(int i=0;i!=vector.length();++i) {
+      // both NA and NaN are NA when coerced to logical
+      double x = vector.getElementAsDouble(i);
+      if(Double.isNaN(x)) {
+        naEncountered = true;
+      } else if(x != 0) {
+        return Logical.TRUE;
+      }
+    }
+    return naEncountered ? Logical.NA : Logical.FALSE;
+  }
+
+  @Override
+  public String getComputationName() {
+    return "any";
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DeferredAny(vector, attributes);
+  }
+}
@@ -0,0 +1,42 @@
+package org.renjin.primitives.summary;
+
+import org.renjin.primitives.vector.MemoizedDoubleVector;
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.DoubleArrayVector;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.Vector;
+
+import java.util.Arrays;
+
+public class DeferredCumsum extends MemoizedDoubleVector {
+
+  public DeferredCumsum(Vector vector, AttributeMap attributes) {
+    super(new Vector[] { vector }, vector.length(), attributes);
+  }
+
+  @Override
+  public String getComputationName() {
+    return "cumsum";
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return false;
+  }
+
+  @Override
+  protected Vector calculate() {
+    Vector vector = getOperands()[0];
+    double[] result = new double[vector.length()];
+    Arrays.fill(result, DoubleVector.NA);
+    double sum = 0;
+    for(int i=0;i!=result.length;++i) {
+      sum += vector.getElementAsDouble(i);
+      if(Double.isNaN(sum)) {
+        break;
+      }
+      result[i] = sum;
+    }
+    return DoubleArrayVector.unsafe(result);
+  }
+}
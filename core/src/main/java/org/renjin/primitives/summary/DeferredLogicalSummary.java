@@ -0,0 +1,75 @@
+package org.renjin.primitives.summary;
+
+import org.renjin.primitives.vector.MemoizedComputation;
+import org.renjin.sexp.*;
+
+/**
+ * A logical summary of a vector, such as {@code any} or {@code all}, whose
+ * result is computed as a {@code double} that is 1 for {@code TRUE}, 0 for {@code FALSE},
+ * or {@code NA}.
+ */
+public abstract class DeferredLogicalSummary extends LogicalVector implements MemoizedComputation {
+  protected final Vector vector;
+  private int result;
+  private boolean calculated = false;
+
+  public DeferredLogicalSummary(Vector vector, AttributeMap attributes) {
+    super(attributes);
+    this.vector = vector;
+  }
+
+  @Override
+  public final Vector[] getOperands() {
+    return new Vector[] { vector };
+  }
+
+  @Override
+  public final int getElementAsRawLogical(int index) {
+    if(index != 0) {
+      throw new IllegalArgumentException("index: " + index);
+    }
+    if(!calculated) {
+      result = calculate().getInternalValue();
+      calculated = true;
+    }
+    return result;
+  }
+
+  protected abstract Logical calculate();
+
+  @Override
+  public final int length() {
+    return 1;
+  }
+
+  @Override
+  public final boolean isConstantAccessTime() {
+    return false;
+  }
+
+  @Override
+  public final boolean isCalculated() {
+    return calculated;
+  }
+
+  @Override
+  public final Vector forceResult() {
+    return new LogicalArrayVector(getElementAsRawLogical(0));
+  }
+
+  @Override
+  public final void setResult(Vector result) {
+    double value = result.getElementAsDouble(0);
+    this.result = Double.isNaN(value) ? IntVector.NA : (int) value;
+    this.calculated = true;
+  }
+
+  @Override
+  public String toString() {
+    if(calculated) {
+      return Logical.valueOf(result).toString();
+    } else {
+      return "<deferred " + getComputationName() + ">";
+    }
+  }
+}
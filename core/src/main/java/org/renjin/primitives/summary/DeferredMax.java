@@ -0,0 +1,27 @@
+package org.renjin.primitives.summary;
+
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Vector;
+
+public class DeferredMax extends DeferredSummary {
+
+  public DeferredMax(Vector vector, AttributeMap attributes) {
+    super(vector, attributes);
+  }
+
+  @Override
+  protected double calculate() {
+    return DeferredRange.calculate(vector)[1];
+  }
+
+  @Override
+  public String getComputationName() {
+    return "max";
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DeferredMax(vector, attributes);
+  }
+}
@@ -0,0 +1,27 @@
+package org.renjin.primitives.summary;
+
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Vector;
+
+public class DeferredMin extends DeferredSummary {
+
+  public DeferredMin(Vector vector, AttributeMap attributes) {
+    super(vector, attributes);
+  }
+
+  @Override
+  protected double calculate() {
+    return DeferredRange.calculate(vector)[0];
+  }
+
+  @Override
+  public String getComputationName() {
+    return "min";
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DeferredMin(vector, attributes);
+  }
+}
@@ -0,0 +1,35 @@
+package org.renjin.primitives.summary;
+
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Vector;
+
+public class DeferredProd extends DeferredSummary {
+
+  public DeferredProd(Vector vector, AttributeMap attributes) {
+    super(vector, attributes);
+  }
+
+  @Override
+  protected double calculate() {
+    double product = 1;
+    for(int i=0;i!=vector.length();++i) {
+      if(vector.isElementNA(i)) {
+        return DoubleVector.NA;
+      }
+      product *= vector.getElementAsDouble(i);
+    }
+    return product;
+  }
+
+  @Override
+  public String getComputationName() {
+    return "prod";
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DeferredProd(vector, attributes);
+  }
+}
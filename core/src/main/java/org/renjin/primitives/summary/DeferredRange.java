@@ -0,0 +1,57 @@
+package org.renjin.primitives.summary;
+
+import org.renjin.primitives.vector.MemoizedDoubleVector;
+import org.renjin.sexp.*;
+
+public class DeferredRange extends MemoizedDoubleVector {
+
+  public DeferredRange(Vector vector, AttributeMap attributes) {
+    super(new Vector[] { vector }, 2, attributes);
+  }
+
+  @Override
+  public String getComputationName() {
+    return "range";
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return false;
+  }
+
+  @Override
+  protected Vector calculate() {
+    return DoubleArrayVector.unsafe(calculate(getOperands()[0]));
+  }
+
+  /**
+   * Computes the minimum and maximum of the vector. The result is {@code NaN} if the vector contains
+   * any {@code NaN}s, and otherwise {@code NA} if the vector contains any {@code NA}s.
+   */
+  static double[] calculate(Vector vector) {
+    double min = Double.POSITIVE_INFINITY;
+    double max = Double.NEGATIVE_INFINITY;
+    boolean naEncountered = false;
+    boolean nanEncountered = false;
+    for(int i=0;i!=vector.length();++i) {
+      double x = vector.getElementAsDouble(i);
+      if(Double.isNaN(x)) {
+        if(DoubleVector.isNA(x)) {
+          naEncountered = true;
+        } else {
+          nanEncountered = true;
+        }
+      } else {
+        min = Math.min(min, x);
+        max = Math.max(max, x);
+      }
+    }
+    if(nanEncountered) {
+      return new double[] { Double.NaN, Double.NaN };
+    } else if(naEncountered) {
+      return new double[] { DoubleVector.NA, DoubleVector.NA };
+    } else {
+      return new double[] { min, max };
+    }
+  }
+}
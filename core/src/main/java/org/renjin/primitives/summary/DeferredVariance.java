@@ -0,0 +1,40 @@
+package org.renjin.primitives.summary;
+
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Vector;
+
+/**
+ * The sample variance of a vector, as computed by {@code var(x)}.
+ */
+public class DeferredVariance extends DeferredSummary {
+
+  public DeferredVariance(Vector vector, AttributeMap attributes) {
+    super(vector, attributes);
+  }
+
+  @Override
+  protected double calculate() {
+    double n = 0;
+    double mean = 0;
+    double m2 = 0;
+    for(int i=0;i!=vector.length();++i) {
+      double x = vector.getElementAsDouble(i);
+      n += 1;
+      double delta = x - mean;
+      mean += delta / n;
+      m2 += delta * (x - mean);
+    }
+    return m2 / (n - 1);
+  }
+
+  @Override
+  public String getComputationName() {
+    return "var";
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DeferredVariance(vector, attributes);
+  }
+}
@@ -278,16 +278,15 @@ public class Text {
    * @return  the string with replacements made
    */
   @Internal
-  @DataParallel
-  public static String sub(String pattern, String replacement,
-                           @Recycle String x,
-                           boolean ignoreCase,
-                           boolean perl,
-                           boolean fixed,
-                           boolean useBytes) {
+  public static StringVector sub(String pattern, String replacement,
+                                 StringVector x,
+                                 boolean ignoreCase,
+                                 boolean perl,
+                                 boolean fixed,
+                                 boolean useBytes) {
     
     RE re = REFactory.compile(pattern, ignoreCase, perl, fixed, useBytes);
-    return  re.subst(x, replacement, ExtendedRE.REPLACE_FIRSTONLY | ExtendedRE.REPLACE_BACKREFERENCES );
+    return substitute(re, replacement, x, ExtendedRE.REPLACE_FIRSTONLY | ExtendedRE.REPLACE_BACKREFERENCES);
   }
 
 
@@ -305,16 +304,33 @@ public class Text {
    * @return  the string with replacements made
    */
   @Internal
-  @DataParallel
-  public static String gsub(String pattern, String replacement,
-                            @Recycle String x,
-                            boolean ignoreCase,
-                            boolean perl,
-                            boolean fixed,
-                            boolean useBytes) {
+  public static StringVector gsub(String pattern, String replacement,
+                                  StringVector x,
+                                  boolean ignoreCase,
+                                  boolean perl,
+                                  boolean fixed,
+                                  boolean useBytes) {
 
     RE re = REFactory.compile(pattern, ignoreCase, perl, fixed, useBytes);
-    return re.subst(x, replacement, ExtendedRE.REPLACE_ALL | ExtendedRE.REPLACE_BACKREFERENCES );
+    return substitute(re, replacement, x, ExtendedRE.REPLACE_ALL | ExtendedRE.REPLACE_BACKREFERENCES);
+  }
+
+  /**
+   * Substitutes {@code replacement} for matches of {@code re} in each element of {@code x},
+   * using a single compiled pattern for all elements.
+   */
+  private static StringVector substitute(RE re, String replacement, StringVector x, int flags) {
+    StringVector.Builder result = new StringArrayVector.Builder(0, x.length());
+    for (int i = 0; i < x.length(); i++) {
+      String element = x.getElementAsString(i);
+      if(element == null) {
+        result.addNA();
+      } else {
+        result.add(re.subst(element, replacement, flags));
+      }
+    }
+    result.combineStructuralAttributesFrom(x);
+    return result.build();
   }
 
   /**
@@ -0,0 +1,416 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997--2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.renjin.primitives.text.regex;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Translates patterns accepted by {@link RECompiler} into equivalent {@link java.util.regex.Pattern}s.
+ *
+ * <p>Only a conservative subset of the syntax is translated: literals, {@code .}, anchors,
+ * groups, alternation, greedy and reluctant closures, simple bracket expressions and the
+ * {@code \w \d \s} classes. Patterns using anything else, such as backreferences, word
+ * boundaries or escapes within bracket expressions, are left to {@link ExtendedRE}, as their
+ * meaning differs subtly between the two engines.</p>
+ *
+ * <p>While translating, the longest run of literal characters that must appear in any match
+ * is recorded, so that {@link JavaRE} can reject most non-matching strings with
+ * {@link String#indexOf(String, int)} alone.</p>
+ */
+final class JavaPatternTranslator {
+
+  /**
+   * The result of a successful translation
+   */
+  static final class Translation {
+    final Pattern pattern;
+
+    /**
+     * A string which must be present in any match, or {@code null}
+     */
+    final String requiredLiteral;
+
+    private Translation(Pattern pattern, String requiredLiteral) {
+      this.pattern = pattern;
+      this.requiredLiteral = requiredLiteral;
+    }
+  }
+
+  private final String source;
+  private final boolean ignoreCase;
+  private int idx;
+  private int depth;
+
+  private final StringBuilder out = new StringBuilder();
+
+  private boolean topLevelAlternation;
+  private final StringBuilder literalRun = new StringBuilder();
+  private String longestLiteral = "";
+
+  private JavaPatternTranslator(String source, boolean ignoreCase) {
+    this.source = source;
+    this.ignoreCase = ignoreCase;
+  }
+
+  /**
+   * @param pattern a pattern which has already been successfully compiled by {@link RECompiler}
+   * @return the translated pattern, or {@code null} if the pattern cannot be translated
+   */
+  static Translation translate(String pattern, boolean ignoreCase) {
+    if(ignoreCase && !isAscii(pattern)) {
+      // Case folding of non-ASCII characters differs between the two engines
+      return null;
+    }
+    JavaPatternTranslator translator = new JavaPatternTranslator(pattern, ignoreCase);
+    if(!translator.translate()) {
+      return null;
+    }
+    int flags = 0;
+    if(ignoreCase) {
+      flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+    }
+    Pattern compiled;
+    try {
+      compiled = Pattern.compile(translator.out.toString(), flags);
+    } catch (PatternSyntaxException e) {
+      return null;
+    }
+    if(compiled.matcher("").groupCount() >= ExtendedRE.MAX_PAREN) {
+      return null;
+    }
+    return new Translation(compiled, translator.requiredLiteral());
+  }
+
+  private String requiredLiteral() {
+    flushLiteral();
+    if(ignoreCase || topLevelAlternation || longestLiteral.isEmpty()) {
+      return null;
+    }
+    return longestLiteral;
+  }
+
+  private boolean translate() {
+    int len = source.length();
+    while(idx < len) {
+      char c = source.charAt(idx);
+      String atom;
+      int literal = -1;
+
+      switch (c) {
+        case '\\':
+          if(idx + 1 >= len) {
+            return false;
+          }
+          char escaped = source.charAt(idx + 1);
+          idx += 2;
+          switch (escaped) {
+            case 'w':
+              atom = "[\\p{javaLetterOrDigit}_]";
+              break;
+            case 'W':
+              atom = "[^\\p{javaLetterOrDigit}_]";
+              break;
+            case 'd':
+              atom = "\\p{javaDigit}";
+              break;
+            case 'D':
+              atom = "\\P{javaDigit}";
+              break;
+            case 's':
+              atom = "\\p{javaWhitespace}";
+              break;
+            case 'S':
+              atom = "\\P{javaWhitespace}";
+              break;
+            case 't':
+              literal = '\t';
+              atom = "\\t";
+              break;
+            case 'n':
+              literal = '\n';
+              atom = "\\n";
+              break;
+            case 'r':
+              literal = '\r';
+              atom = "\\r";
+              break;
+            case 'f':
+              literal = '\f';
+              atom = "\\f";
+              break;
+            default:
+              if(Character.isLetterOrDigit(escaped)) {
+                // Backreferences, word boundaries, octal and hex escapes
+                return false;
+              }
+              literal = escaped;
+              atom = literal(escaped);
+              break;
+          }
+          break;
+
+        case '[':
+          atom = bracketExpression();
+          if(atom == null) {
+            return false;
+          }
+          break;
+
+        case '(':
+          flushLiteral();
+          if(idx + 1 < len && source.charAt(idx + 1) == '?') {
+            if(idx + 2 < len && source.charAt(idx + 2) == ':') {
+              out.append("(?:");
+              idx += 3;
+            } else {
+              return false;
+            }
+          } else {
+            out.append('(');
+            idx++;
+          }
+          depth++;
+          continue;
+
+        case ')':
+          depth--;
+          idx++;
+          atom = ")";
+          break;
+
+        case '|':
+          flushLiteral();
+          if(depth == 0) {
+            topLevelAlternation = true;
+          }
+          out.append('|');
+          idx++;
+          continue;
+
+        case '^':
+          flushLiteral();
+          out.append('^');
+          idx++;
+          continue;
+
+        case '$':
+          // ExtendedRE only matches '$' at the very end of the input,
+          // never before a trailing newline
+          flushLiteral();
+          out.append("\\z");
+          idx++;
+          continue;
+
+        case '.':
+          atom = ".";
+          idx++;
+          break;
+
+        case '*':
+        case '+':
+        case '?':
+        case '{':
+          return false;
+
+        default:
+          literal = c;
+          atom = literal(c);
+          idx++;
+          break;
+      }
+
+      int closureStart = idx;
+      if(!closure()) {
+        return false;
+      }
+      String closure = source.substring(closureStart, idx);
+      out.append(atom).append(closure);
+
+      if(depth > 0 || literal == -1) {
+        flushLiteral();
+      } else if(closure.isEmpty()) {
+        literalRun.append((char) literal);
+      } else {
+        // The character must appear at least once for '+' and '{n,m}' with n > 0,
+        // but the literal run ends here
+        if(closure.charAt(0) == '+' || (closure.charAt(0) == '{' && closure.charAt(1) != '0')) {
+          literalRun.append((char) literal);
+        }
+        flushLiteral();
+      }
+    }
+    return depth == 0;
+  }
+
+  /**
+   * Consumes a closure following an atom, if any, which has the same syntax and
+   * meaning in both engines.
+   */
+  private boolean closure() {
+    int len = source.length();
+    if(idx >= len) {
+      return true;
+    }
+    switch (source.charAt(idx)) {
+      case '*':
+      case '+':
+      case '?':
+        idx++;
+        if(idx < len && source.charAt(idx) == '?') {
+          idx++;
+        }
+        break;
+
+      case '{':
+        int end = source.indexOf('}', idx);
+        if(end == -1 || !source.substring(idx + 1, end).matches("\\d+(,\\d*)?")) {
+          return false;
+        }
+        idx = end + 1;
+        break;
+
+      default:
+        return true;
+    }
+    if(idx < len) {
+      switch (source.charAt(idx)) {
+        case '*':
+        case '+':
+        case '?':
+        case '{':
+          return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Translates the bracket expression at the current position
+   *
+   * @return the translated expression, or {@code null} if it cannot be translated
+   */
+  private String bracketExpression() {
+    int len = source.length();
+    StringBuilder sb = new StringBuilder("[");
+    int i = idx + 1;
+    if(i < len && source.charAt(i) == '^') {
+      sb.append('^');
+      i++;
+    }
+    if(i < len && source.charAt(i) == ']') {
+      return null;
+    }
+    while(i < len && source.charAt(i) != ']') {
+      char c = source.charAt(i);
+      if(c == '\\') {
+        return null;
+      }
+      if(c == '[' && i + 1 < len && source.charAt(i + 1) == ':') {
+        int end = source.indexOf(":]", i + 2);
+        if(end == -1) {
+          return null;
+        }
+        String posixClass = posixClass(source.substring(i + 2, end));
+        if(posixClass == null) {
+          return null;
+        }
+        sb.append(posixClass);
+        i = end + 2;
+        continue;
+      }
+      if(i + 2 < len && source.charAt(i + 1) == '-' && source.charAt(i + 2) != ']') {
+        char to = source.charAt(i + 2);
+        if(!isSimpleRange(c, to)) {
+          return null;
+        }
+        sb.append(c).append('-').append(to);
+        i += 3;
+        continue;
+      }
+      sb.append(literal(c));
+      i++;
+    }
+    if(i >= len) {
+      return null;
+    }
+    idx = i + 1;
+    return sb.append(']').toString();
+  }
+
+  private static String posixClass(String name) {
+    switch (name) {
+      case "alpha":
+        return "A-Za-z";
+      case "alnum":
+        return "A-Za-z0-9";
+      case "blank":
+        return " \\t";
+      case "digit":
+        return "0-9";
+      case "upper":
+        return "A-Z";
+      case "lower":
+        return "a-z";
+      case "space":
+        return " \\t\\r\\n\\x0B\\f";
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * @return true if {@code from-to} is a range of lower case letters, upper case letters or
+   * digits, which both engines interpret identically, even when ignoring case.
+   */
+  private static boolean isSimpleRange(char from, char to) {
+    if(from >= to) {
+      return false;
+    }
+    return (from >= 'a' && to <= 'z') ||
+           (from >= 'A' && to <= 'Z') ||
+           (from >= '0' && to <= '9');
+  }
+
+  private static String literal(char c) {
+    if(c > ' ' && c < 127 && !Character.isLetterOrDigit(c)) {
+      return "\\" + c;
+    }
+    return String.valueOf(c);
+  }
+
+  private void flushLiteral() {
+    if(literalRun.length() > longestLiteral.length()) {
+      longestLiteral = literalRun.toString();
+    }
+    literalRun.setLength(0);
+  }
+
+  private static boolean isAscii(String pattern) {
+    for (int i = 0; i < pattern.length(); i++) {
+      if(pattern.charAt(i) >= 128) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
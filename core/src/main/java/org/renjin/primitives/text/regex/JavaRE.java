@@ -0,0 +1,84 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1995, 1996  Robert Gentleman and Ross Ihaka
+ * Copyright (C) 1997--2008  The R Development Core Team
+ * Copyright (C) 2003, 2004  The R Foundation
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.renjin.primitives.text.regex;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An {@link ExtendedRE} which finds matches in strings using an equivalent
+ * {@link java.util.regex.Pattern} produced by {@link JavaPatternTranslator},
+ * rather than by interpreting the {@link REProgram}.
+ *
+ * <p>Only the search itself is replaced: the positions of the match and its groups are
+ * stored exactly as {@link ExtendedRE} would store them, so that {@code subst()},
+ * {@code split()} and {@code getParen()} behave identically with either engine.</p>
+ *
+ * <p>Like the interpreted engine, {@code java.util.regex} backtracks, so a pattern such as {@code (a|aa)*b}
+ * can still take time exponential in the length of a run of {@code a}s that is not followed by a match.
+ * Only inputs which do not contain the required literal, here {@code b}, are rejected without backtracking.</p>
+ */
+public class JavaRE extends ExtendedRE {
+
+  private final Pattern pattern;
+  private final String requiredLiteral;
+
+  private Matcher matcher;
+  private String matcherInput;
+
+  JavaRE(REProgram program, int matchFlags, Pattern pattern, String requiredLiteral) {
+    super(program, matchFlags);
+    this.pattern = pattern;
+    this.requiredLiteral = requiredLiteral;
+  }
+
+  @Override
+  public boolean match(String search, int i) {
+    if(i > search.length() ||
+        (requiredLiteral != null && search.indexOf(requiredLiteral, i) == -1)) {
+      parenCount = 0;
+      return false;
+    }
+
+    if(matcher == null) {
+      matcher = pattern.matcher(search);
+    } else if(matcherInput != search) {
+      matcher.reset(search);
+    }
+    if(matcherInput != search) {
+      this.search = new StringCharacterIterator(search);
+      this.matcherInput = search;
+    }
+
+    if(!matcher.find(i)) {
+      parenCount = 0;
+      return false;
+    }
+
+    parenCount = Math.min(matcher.groupCount() + 1, maxParen);
+    for (int group = 0; group < parenCount; group++) {
+      setParenStart(group, matcher.start(group));
+      setParenEnd(group, matcher.end(group));
+    }
+    return true;
+  }
+}
@@ -21,7 +21,10 @@
 
 package org.renjin.primitives.text.regex;
 
+import com.google.common.base.Objects;
 import com.google.common.base.Predicate;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.renjin.eval.EvalException;
 
 /**
@@ -30,7 +33,77 @@ import org.renjin.eval.EvalException;
 public class REFactory {
 
   /**
-   * Compiles the pattern based on the supplied arguments.
+   * The maximum number of compiled patterns to keep
+   */
+  private static final int MAX_CACHED_PROGRAMS = 500;
+
+  /**
+   * If true, patterns which can be translated to an equivalent {@link java.util.regex.Pattern}
+   * are matched using the JDK's engine. Otherwise all patterns are matched by interpreting
+   * the {@link REProgram}.
+   */
+  public static boolean JDK_BACKEND = !Boolean.getBoolean("renjin.regex.interpreted");
+
+  /**
+   * Recently compiled regular expressions. {@link Compiled} programs are immutable
+   * and can be shared between threads, while the {@link ExtendedRE} matchers which hold
+   * the state of a match are created for each use.
+   */
+  private static final Cache<Key, Compiled> PROGRAMS = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED_PROGRAMS)
+      .build();
+
+  private static final class Compiled {
+    private final REProgram program;
+
+    /**
+     * The equivalent JDK pattern, or {@code null} if the pattern could not be translated
+     */
+    private final JavaPatternTranslator.Translation translation;
+
+    private Compiled(REProgram program, JavaPatternTranslator.Translation translation) {
+      this.program = program;
+      this.translation = translation;
+    }
+  }
+
+  private static final class Key {
+    private final String pattern;
+    private final boolean ignoreCase;
+    private final boolean perl;
+    private final boolean fixed;
+    private final boolean useBytes;
+
+    private Key(String pattern, boolean ignoreCase, boolean perl, boolean fixed, boolean useBytes) {
+      this.pattern = pattern;
+      this.ignoreCase = ignoreCase;
+      this.perl = perl;
+      this.fixed = fixed;
+      this.useBytes = useBytes;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if(!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return pattern.equals(other.pattern) &&
+          ignoreCase == other.ignoreCase &&
+          perl == other.perl &&
+          fixed == other.fixed &&
+          useBytes == other.useBytes;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hashCode(pattern, ignoreCase, perl, fixed, useBytes);
+    }
+  }
+
+  /**
+   * Compiles the pattern based on the supplied arguments, reusing the program
+   * compiled for a recent call with the same pattern and flags.
    *
    * @param pattern  the matching pattern
    * @param ignoreCase whether case should be ignored
@@ -51,7 +124,19 @@ public class REFactory {
           return new FixedRE(pattern);
         }
       } else {
-        return new ExtendedRE(pattern, ignoreCase);
+        Key key = new Key(pattern, ignoreCase, perl, fixed, useBytes);
+        Compiled compiled = PROGRAMS.getIfPresent(key);
+        if(compiled == null) {
+          REProgram program = new RECompiler().compile(pattern);
+          compiled = new Compiled(program, JavaPatternTranslator.translate(pattern, ignoreCase));
+          PROGRAMS.put(key, compiled);
+        }
+        int matchFlags = ignoreCase ? ExtendedRE.MATCH_CASEINDEPENDENT : ExtendedRE.MATCH_NORMAL;
+        if(JDK_BACKEND && compiled.translation != null) {
+          return new JavaRE(compiled.program, matchFlags,
+              compiled.translation.pattern, compiled.translation.requiredLiteral);
+        }
+        return new ExtendedRE(compiled.program, matchFlags);
       }
     } catch (RESyntaxException e) {
       throw new EvalException("Invalid pattern '%s': %s (perl=%s, fixed=%s)",
@@ -0,0 +1,214 @@
+package org.renjin.primitives.vector;
+
+import org.renjin.compiler.pipeline.SimpleVectorPipeliner;
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.DoubleArrayVector;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.Vector;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base class for deferred double vectors which store their elements once they have been
+ * read often enough that recomputing them would cost more than keeping them in memory.
+ *
+ * <p>Deferred vectors are normally recomputed each time they are read, so that in
+ * {@code y <- exp(x) * 2; sum(y); mean(y); var(y)}, {@code exp} is computed three times for each element.
+ * Instead, each vector counts the elements read, whether one by one or by a full scan in the
+ * {@link org.renjin.compiler.pipeline.VectorPipeliner}. Once {@link #SCAN_THRESHOLD} full scans have been
+ * read, the next scan stores the elements it computes, and later reads no longer recompute anything.
+ * Vectors which are only read once, such as the temporary {@code x * y} in {@code sum(x * y)}, are never
+ * stored.</p>
+ *
+ * <p>A scan by the pipeliner is stored by computing this vector on its own in a single jitted loop, which is
+ * then read by the scan in place of this vector's computation. Elements read one by one are stored once
+ * the vector has been read {@code SCAN_THRESHOLD + 1} times over, in whatever order, by computing it
+ * in the same way. As an optimization, a scan which reads the elements in order from the first one
+ * stores them as it computes them, so that the elements are not computed again.</p>
+ *
+ * <p>The count is not synchronized, as it only needs to be approximate: at worst, a vector
+ * which is read from several threads is stored a little later, or more than once. The elements
+ * captured by an in-order scan are only written and stored by the thread which started the scan,
+ * so that other threads never see a partly filled array.</p>
+ */
+public abstract class AdaptiveDoubleVector extends DoubleVector implements DeferredComputation {
+
+  /**
+   * The number of full scans of a vector's elements which are computed without being stored, or
+   * a negative number to always recompute the elements.
+   */
+  public static final int SCAN_THRESHOLD = Integer.getInteger("renjin.deferred.memoize.threshold", 1);
+
+  private static final AtomicLong MATERIALIZED_COUNT = new AtomicLong();
+  private static final AtomicLong RECOMPUTATIONS_AVOIDED = new AtomicLong();
+
+  /**
+   * Reads of stored elements are added to {@code RECOMPUTATIONS_AVOIDED} in batches
+   * of this size, to avoid contention
+   */
+  private static final int READ_BATCH_SIZE = 4096;
+
+  private long readCount;
+  private int storedReadCount;
+  private volatile double[] values;
+
+  /**
+   * The in-order scan whose elements are being captured, or {@code null}
+   */
+  private Capture capture;
+
+  /**
+   * True while this vector is being computed by the pipeliner in order to store its elements
+   */
+  private boolean materializing;
+
+  /**
+   * The elements computed so far by an in-order scan. Only the thread which started the scan
+   * writes to a capture.
+   */
+  private static final class Capture {
+    private final Thread owner = Thread.currentThread();
+    private final double first;
+    private double[] values;
+    private int count = 1;
+
+    private Capture(double first) {
+      this.first = first;
+    }
+  }
+
+  protected AdaptiveDoubleVector(AttributeMap attributes) {
+    super(attributes);
+  }
+
+  @Override
+  public final double getElementAsDouble(int index) {
+    double[] values = this.values;
+    if(values != null) {
+      if(++storedReadCount == READ_BATCH_SIZE) {
+        RECOMPUTATIONS_AVOIDED.addAndGet(READ_BATCH_SIZE);
+        storedReadCount = 0;
+      }
+      return values[index];
+    }
+    if(materializing) {
+      return computeElementAsDouble(index);
+    }
+
+    long reads = ++readCount;
+    double value = computeElementAsDouble(index);
+
+    // A scan which starts in order once the threshold has been reached is stored as it goes.
+    // The array is only allocated once the second element has been read in order, so that
+    // repeated reads of the first element alone allocate nothing.
+    if(index == 0) {
+      if(scanThresholdReached(reads - 1)) {
+        capture = new Capture(value);
+      }
+    } else {
+      Capture capture = this.capture;
+      if(capture != null && capture.count == index && capture.owner == Thread.currentThread()) {
+        if(capture.values == null) {
+          capture.values = new double[length()];
+          capture.values[0] = capture.first;
+        }
+        capture.values[index] = value;
+        if(++capture.count == capture.values.length) {
+          store(capture.values);
+          return value;
+        }
+      }
+    }
+
+    // Elements which are not read in order are stored once the vector has been read once more
+    if(SCAN_THRESHOLD >= 0 && reads >= (SCAN_THRESHOLD + 1L) * length()) {
+      materialize();
+    }
+    return value;
+  }
+
+  /**
+   * Computes the element at {@code index}
+   */
+  protected abstract double computeElementAsDouble(int index);
+
+  /**
+   * Records that all of this vector's elements are about to be read by the
+   * {@link org.renjin.compiler.pipeline.VectorPipeliner}.
+   *
+   * @return a vector of the stored elements, with this vector's attributes, which should be read instead of
+   * computing this vector, or {@code null} if the elements have not been stored.
+   */
+  public Vector recordScan() {
+    double[] values = this.values;
+    if(values != null) {
+      RECOMPUTATIONS_AVOIDED.addAndGet(values.length);
+    } else {
+      if(materializing) {
+        return null;
+      }
+      if(!scanThresholdReached(readCount)) {
+        readCount += length();
+        return null;
+      }
+      values = materialize();
+    }
+    return DoubleArrayVector.unsafe(values, getAttributes());
+  }
+
+  /**
+   * @return true if this vector's elements have been computed and stored.
+   */
+  public boolean isMaterialized() {
+    return values != null;
+  }
+
+  private boolean scanThresholdReached(long reads) {
+    return SCAN_THRESHOLD >= 0 && reads >= (long) SCAN_THRESHOLD * length();
+  }
+
+  /**
+   * Computes all of the elements in a single jitted loop, as the pipeliner would have done for this scan.
+   */
+  private double[] materialize() {
+    Vector result;
+    materializing = true;
+    try {
+      result = new SimpleVectorPipeliner().simplify(this);
+    } finally {
+      materializing = false;
+    }
+    double[] values;
+    if(result instanceof DoubleArrayVector) {
+      values = ((DoubleArrayVector) result).toDoubleArrayUnsafe();
+    } else {
+      values = new double[length()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = computeElementAsDouble(i);
+      }
+    }
+    store(values);
+    return values;
+  }
+
+  private void store(double[] values) {
+    this.values = values;
+    this.capture = null;
+    MATERIALIZED_COUNT.incrementAndGet();
+  }
+
+  /**
+   * @return the number of deferred vectors whose elements have been stored in this JVM.
+   */
+  public static long getMaterializedCount() {
+    return MATERIALIZED_COUNT.get();
+  }
+
+  /**
+   * @return the approximate number of elements which have been read from stored elements rather
+   * than computed again.
+   */
+  public static long getRecomputationsAvoided() {
+    return RECOMPUTATIONS_AVOIDED.get();
+  }
+}
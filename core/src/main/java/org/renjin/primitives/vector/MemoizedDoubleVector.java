@@ -36,6 +36,20 @@ public abstract class MemoizedDoubleVector extends DoubleVector implements Memoi
     return length;
   }
 
+  @Override
+  public Vector forceResult() {
+    if(result == null) {
+      result = calculate();
+    }
+    return result;
+  }
+
+  /**
+   * Computes the result in the interpreter, if it has not already been
+   * set by the {@link org.renjin.compiler.pipeline.VectorPipeliner}
+   */
+  protected abstract Vector calculate();
+
   @Override
   public void setResult(Vector result) {
     this.result = result;
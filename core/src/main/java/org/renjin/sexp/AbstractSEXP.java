@@ -36,6 +36,8 @@ public abstract class AbstractSEXP implements SEXP {
 
   private boolean object;
 
+  private boolean unshared;
+
   protected AbstractSEXP() {
     this.attributes = AttributeMap.EMPTY;
     this.object = false;
@@ -65,6 +67,28 @@ public abstract class AbstractSEXP implements SEXP {
     return 1;
   }
 
+  @Override
+  public final boolean isShared() {
+    return !unshared;
+  }
+
+  @Override
+  public final void markShared() {
+    // avoid writing to values which are already shared, as they
+    // may be read concurrently by other sessions
+    if(unshared) {
+      unshared = false;
+    }
+  }
+
+  /**
+   * Marks this value as referenced by a single variable binding. This must only be
+   * called on a newly allocated value which is about to be bound.
+   */
+  public final void markUnshared() {
+    unshared = true;
+  }
+
   @Override
   public final boolean hasAttributes() {
     return attributes != AttributeMap.EMPTY;
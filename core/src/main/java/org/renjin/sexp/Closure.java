@@ -22,6 +22,7 @@
 package org.renjin.sexp;
 
 import com.google.common.base.Objects;
+import org.renjin.compiler.ClosureCompiler;
 import org.renjin.eval.ClosureDispatcher;
 import org.renjin.eval.Context;
 import org.renjin.primitives.special.ReturnException;
@@ -42,6 +43,13 @@ public class Closure extends AbstractSEXP implements Function {
   private Environment enclosingEnvironment;
   private SEXP body;
   private PairList formals;
+  private ClosureCompiler compiler;
+
+  /**
+   * The names of this closure's formals, which are given slots in the frame of each
+   * call to this closure. Computed on the first call.
+   */
+  private Symbol[] formalNames;
 
   public Closure(Environment enclosingEnvironment, PairList formals, SEXP body, AttributeMap attributes) {
     super(attributes);
@@ -106,6 +114,44 @@ public class Closure extends AbstractSEXP implements Function {
   public SEXP doApply(Context functionContext) {
     return functionContext.evaluate(body);
   }
+
+  /**
+   * @return a new, empty frame to hold the arguments and local variables of a
+   * call to this closure.
+   */
+  public Frame newCallFrame() {
+    Symbol[] names = formalNames;
+    if(names == null) {
+      names = new Symbol[formals.length()];
+      int i = 0;
+      for (PairList.Node formal : formals.nodes()) {
+        names[i++] = formal.getTag();
+      }
+      formalNames = names;
+    }
+    if(names.length > SlotFrame.MAX_SLOTS) {
+      return new HashFrame();
+    }
+    return new SlotFrame(names);
+  }
+
+  /**
+   * @return the {@code ClosureCompiler} which counts calls to this closure and
+   * holds its compiled body.
+   */
+  public ClosureCompiler getCompiler() {
+    if(compiler == null) {
+      compiler = new ClosureCompiler(this);
+    }
+    return compiler;
+  }
+
+  /**
+   * @return true if this closure's body has been compiled, either at runtime or ahead of time
+   */
+  public boolean hasCompiledBody() {
+    return compiler != null && compiler.getSpecializationCount() > 0;
+  }
    
 
   /**
@@ -175,6 +175,15 @@ public final class DoubleArrayVector extends DoubleVector {
     return Arrays.copyOf(this.values, this.values.length);
   }
 
+  /**
+   * Modifies the element at {@code index} in place. This may only be
+   * called on a vector which is not {@link #isShared() shared}.
+   */
+  public void setElementUnsafe(int index, double value) {
+    assert !isShared();
+    values[index] = value;
+  }
+
 
   public static class Builder extends AbstractAtomicBuilder {
     private static final int MIN_INITIAL_CAPACITY = 50;
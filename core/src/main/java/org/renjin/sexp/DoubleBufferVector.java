@@ -0,0 +1,53 @@
+package org.renjin.sexp;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * A {@code DoubleVector} backed by a {@link DoubleBuffer}, such as a view of a memory-mapped
+ * file. Elements are decoded from the buffer as they are accessed.
+ */
+public class DoubleBufferVector extends DoubleVector {
+
+  private final DoubleBuffer buffer;
+  private final int length;
+
+  public DoubleBufferVector(DoubleBuffer buffer, int length) {
+    this.buffer = buffer;
+    this.length = length;
+  }
+
+  public DoubleBufferVector(DoubleBuffer buffer, int length, AttributeMap attributes) {
+    super(attributes);
+    this.buffer = buffer;
+    this.length = length;
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+
+  @Override
+  public double getElementAsDouble(int index) {
+    return buffer.get(index);
+  }
+
+  @Override
+  public double[] toDoubleArray() {
+    double[] array = new double[length];
+    DoubleBuffer source = buffer.duplicate();
+    source.rewind();
+    source.get(array);
+    return array;
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return true;
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DoubleBufferVector(buffer, length, attributes);
+  }
+}
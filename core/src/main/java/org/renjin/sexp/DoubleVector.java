@@ -157,6 +157,9 @@ public abstract class DoubleVector extends AbstractAtomicVector implements Itera
   @Override
   public int indexOf(AtomicVector vector, int vectorIndex, int startIndex) {
     double value = vector.getElementAsDouble(vectorIndex);
+    if (isNaN(value)) {
+      return indexOfNaN(isNA(value), startIndex);
+    }
     for (int i = startIndex; i < length(); ++i) {
       if (value == getElementAsDouble(i)) {
         return i;
@@ -165,6 +168,20 @@ public abstract class DoubleVector extends AbstractAtomicVector implements Itera
     return -1;
   }
 
+  /**
+   * NA and NaN never compare equal with ==, but R treats NaN as matching NaN, and NA
+   * as matching NA.
+   */
+  private int indexOfNaN(boolean na, int startIndex) {
+    for (int i = startIndex; i < length(); ++i) {
+      double element = getElementAsDouble(i);
+      if (isNaN(element) && isNA(element) == na) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
   @Override
   public int compare(int index1, int index2) {
     return Double.compare(getElementAsDouble(index1), getElementAsDouble(index2));
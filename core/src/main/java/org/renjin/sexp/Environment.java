@@ -29,6 +29,7 @@ import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The Environment data type.
@@ -71,6 +72,16 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
    * environment.
    */
   private transient int modCount = 0;
+
+  /**
+   * Incremented each time any environment's parent is changed, or its frame cleared.
+   * Together with {@link Symbol#getBindingVersion()}, this allows function lookups
+   * cached at call sites to be validated without searching the environments again.
+   *
+   * <p>The version is shared by all sessions, and must be incremented atomically, as a lost update
+   * would allow a cached lookup to be wrongly validated.</p>
+   */
+  private static final AtomicInteger chainVersion = new AtomicInteger(0);
   
   /**
    * The root of the environment hierarchy.
@@ -154,10 +165,12 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
 
   public void remove(Symbol symbol) {
     frame.remove(symbol);
+    symbol.bindingChanged();
   }
   
   public void clear() {
     frame.clear();
+    chainVersion.incrementAndGet();
   }
 
 
@@ -179,6 +192,7 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
   public void setParent(Environment parent) {
     this.parent = parent;
     modCount ++;
+    chainVersion.incrementAndGet();
   }
 
   @Override
@@ -225,7 +239,38 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
   }
 
   public void setVariable(Symbol symbol, SEXP value) {
-    
+    value.markShared();
+    bind(symbol, value);
+  }
+
+  /**
+   * Binds a newly allocated value to {@code symbol} without marking it as shared, so
+   * that it can subsequently be modified in place for as long as this binding
+   * holds the only reference to it.
+   *
+   * @see SEXP#isShared()
+   */
+  public void setUnsharedVariable(Symbol symbol, AbstractSEXP value) {
+    value.markUnshared();
+    bind(symbol, value);
+  }
+
+  /**
+   * Binds a matched argument into a function environment which has just been created for a call,
+   * and which is not yet visible to any other code.
+   *
+   * <p>Unlike {@link #setVariable(Symbol, SEXP)}, the symbol's binding version is not changed: no
+   * cached lookup can depend on an environment which did not exist when it was cached, and
+   * invalidating every cached lookup of common argument names such as {@code x} on each
+   * call would make those caches useless.</p>
+   */
+  public void setArgument(Symbol symbol, SEXP value) {
+    value.markShared();
+    frame.setVariable(symbol, value);
+    modCount++;
+  }
+
+  private void bind(Symbol symbol, SEXP value) {
     if(value == Symbol.UNBOUND_VALUE) {
       throw new EvalException("Unbound: " + symbol);
     }
@@ -237,6 +282,7 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
     }
     frame.setVariable(symbol, value);
     modCount++;
+    symbol.bindingChanged();
   }
 
   /**
@@ -253,6 +299,7 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
   public SEXP findVariable(Context context, Symbol symbol, Predicate<SEXP> predicate, boolean inherits) {
     SEXP value = frame.getVariable(symbol);
     if(value != Symbol.UNBOUND_VALUE) {
+      value.markShared();
       if(value instanceof Promise) {
         value = value.force(context);
       }
@@ -279,6 +326,7 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
     }
     SEXP value = frame.getVariable(symbol);
     if(value != Symbol.UNBOUND_VALUE) {
+      value.markShared();
       return value;
     }
     return parent.findVariable(symbol);
@@ -319,6 +367,55 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
     return parent.findFunction(context, symbol);
   }
   
+  /**
+   * Finds the function bound to {@code symbol}, as {@link #findFunction(Context, Symbol)},
+   * but using the inline cache of the call site {@code call} to avoid searching the
+   * enclosing environments on each call.
+   *
+   * <p>Only this environment's own frame, typically the frame of the closure call being evaluated, is
+   * searched on every call. The function found in the enclosing environments is cached at the call site
+   * together with the enclosing environment, and reused as long as the same environment is reached
+   * and the symbol has not been rebound, nor any environment's parent changed, in the meantime.</p>
+   */
+  public Function findFunction(Context context, Symbol symbol, FunctionCall call) {
+    if(frame.isMissingArgument(symbol)) {
+      throw new EvalException("argument '%s' is missing, with no default", symbol.toString());
+    }
+    Function value = frame.getFunction(context, symbol);
+    if(value != null) {
+      return value;
+    }
+
+    FunctionCall.CachedFunction cached = call.cachedFunction;
+    if(cached != null &&
+        cached.environment == parent &&
+        cached.symbol == symbol &&
+        cached.bindingVersion == symbol.getBindingVersion() &&
+        cached.chainVersion == chainVersion.get()) {
+      return cached.function;
+    }
+
+    int bindingVersion = symbol.getBindingVersion();
+    int currentChainVersion = chainVersion.get();
+    value = parent.findFunction(context, symbol);
+
+    // Only cache the result if the search itself, which may force promises,
+    // did not change any bindings
+    if(value != null && bindingVersion == symbol.getBindingVersion() && currentChainVersion == chainVersion.get()) {
+      call.cachedFunction = new FunctionCall.CachedFunction(parent, symbol, bindingVersion, currentChainVersion, value);
+    }
+    return value;
+  }
+
+  /**
+   * @return a number which changes each time the parent of any environment is changed,
+   * or any environment is cleared.
+   * @see Symbol#getBindingVersion()
+   */
+  public static int getChainVersion() {
+    return chainVersion.get();
+  }
+
   public Function findFunctionOrThrow(Context context, Symbol symbol) {
     Function function = findFunction(context, symbol);
     if(function == null) {
@@ -395,7 +492,9 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
   }
 
   public SEXP getVariable(Symbol symbol) {
-    return frame.getVariable(symbol);
+    SEXP value = frame.getVariable(symbol);
+    value.markShared();
+    return value;
   }
 
   public SEXP getVariable(String symbolName) {
@@ -21,6 +21,8 @@
 
 package org.renjin.sexp;
 
+import org.renjin.eval.ArgumentMatchPlan;
+
 /**
  * Expression representing a call to an R function, consisting of
  * a function reference and a list of arguments.
@@ -32,6 +34,18 @@ public class FunctionCall extends PairList.Node {
   public static final String TYPE_NAME = "language";
   public static final String IMPLICIT_CLASS = "call";
 
+  /**
+   * The function to which this call's function symbol was last resolved.
+   *
+   * @see Environment#findFunction(org.renjin.eval.Context, Symbol, FunctionCall)
+   */
+  transient CachedFunction cachedFunction;
+
+  /**
+   * The plan last used to match this call's arguments to the formals of a closure
+   */
+  private transient ArgumentMatchPlan argumentMatchPlan;
+
   public FunctionCall(SEXP function, PairList arguments) {
     super(function, arguments);
   }
@@ -48,6 +62,14 @@ public class FunctionCall extends PairList.Node {
     return new FunctionCall(listExp.value, listExp.nextNode);
   }
 
+  public ArgumentMatchPlan getArgumentMatchPlan() {
+    return argumentMatchPlan;
+  }
+
+  public void setArgumentMatchPlan(ArgumentMatchPlan argumentMatchPlan) {
+    this.argumentMatchPlan = argumentMatchPlan;
+  }
+
   public SEXP getFunction() {
     return value;
   }
@@ -174,4 +196,23 @@ public class FunctionCall extends PairList.Node {
 
   }
 
+  /**
+   * An inline cache entry recording the function found for {@code symbol} by searching
+   * from {@code environment}.
+   */
+  static final class CachedFunction {
+    final Environment environment;
+    final Symbol symbol;
+    final int bindingVersion;
+    final int chainVersion;
+    final Function function;
+
+    CachedFunction(Environment environment, Symbol symbol, int bindingVersion, int chainVersion, Function function) {
+      this.environment = environment;
+      this.symbol = symbol;
+      this.bindingVersion = bindingVersion;
+      this.chainVersion = chainVersion;
+      this.function = function;
+    }
+  }
 }
@@ -84,6 +84,15 @@ public class IntArrayVector extends IntVector {
     return values;
   }
 
+  /**
+   * Modifies the element at {@code index} in place. This may only be
+   * called on a vector which is not {@link #isShared() shared}.
+   */
+  public void setElementUnsafe(int index, int value) {
+    assert !isShared();
+    values[index] = value;
+  }
+
   /**
    * Creates a new IntArrayVector from the given array, without copying.
    * {@code array} MUST NOT be subsequently modified.
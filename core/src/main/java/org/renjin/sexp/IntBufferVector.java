@@ -28,6 +28,15 @@ public class IntBufferVector extends IntVector {
     return buffer.get(i);
   }
 
+  @Override
+  public int[] toIntArray() {
+    int[] array = new int[length];
+    IntBuffer source = buffer.duplicate();
+    source.rewind();
+    source.get(array);
+    return array;
+  }
+
   @Override
   public boolean isConstantAccessTime() {
     return true;
@@ -67,8 +67,8 @@ public abstract class LogicalVector extends AbstractAtomicVector implements Iter
 
   @Override
   public int indexOf(AtomicVector vector, int vectorIndex, int startIndex) {
-    int value = vector.getElementAsRawLogical(startIndex);
-    for(int i=0;i<length();++i) {
+    int value = vector.getElementAsRawLogical(vectorIndex);
+    for(int i=startIndex;i<length();++i) {
       if(value ==  getElementAsRawLogical(i)) {
         return i;
       }
@@ -83,6 +83,9 @@ public class Promise extends AbstractSEXP implements Recursive {
   public SEXP force(Context context) {
     if (result == null) {
       this.result = doEval(context);
+      // the result is retained by this promise, as well as
+      // being returned to the caller
+      this.result.markShared();
     }
     return result;
   }
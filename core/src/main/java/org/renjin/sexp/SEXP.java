@@ -74,6 +74,22 @@ public interface SEXP {
    */
   boolean isObject();
 
+  /**
+   * Similar to GNU R's NAMED field, indicates whether this value may be referenced from
+   * more than one place.
+   *
+   * <p>Values are always considered shared unless they have been explicitly marked
+   * otherwise by {@link AbstractSEXP#markUnshared()}, in which case they are bound to exactly one
+   * variable and may be modified in place by replacement functions such as {@code x[i] <- value}.</p>
+   */
+  boolean isShared();
+
+  /**
+   * Records that this value may now be referenced from more than one place, and so
+   * may no longer be modified in place.
+   */
+  void markShared();
+
   /**
    * 
    * R possesses a simple generic function mechanism which can be used
@@ -0,0 +1,164 @@
+package org.renjin.sexp;
+
+import org.renjin.eval.Context;
+import org.renjin.eval.EvalException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A compact {@link Frame} for the environment of a closure call.
+ *
+ * <p>The closure's formal arguments are stored in an array of slots, laid out once
+ * for each {@link Closure}, and found by comparing symbols by reference. Any other
+ * variable assigned in the function's body, or through {@code assign()} or other
+ * manipulation of the function's environment, is stored in a hash map that is only
+ * allocated when the first such variable is set.</p>
+ */
+public class SlotFrame implements Frame {
+
+  /**
+   * Closures with more formals than this are given a {@link HashFrame}, as searching
+   * the slots would be slower than hashing.
+   */
+  public static final int MAX_SLOTS = 16;
+
+  private final Symbol[] slotNames;
+  private final SEXP[] slotValues;
+
+  private IdentityHashMap<Symbol, SEXP> overflow;
+
+  /**
+   * Bloom-esque filter keeping track of which functions have
+   * been (potentially) set into this frame.
+   */
+  private int functionFilter = 0;
+
+  /**
+   * @param slotNames the names of the closure's formals. This array is shared by all
+   *                  calls to the closure and must not be modified.
+   */
+  public SlotFrame(Symbol[] slotNames) {
+    this.slotNames = slotNames;
+    this.slotValues = new SEXP[slotNames.length];
+  }
+
+  private int slotIndex(Symbol name) {
+    for (int i = 0; i < slotNames.length; i++) {
+      if(slotNames[i] == name) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private SEXP get(Symbol name) {
+    int slot = slotIndex(name);
+    if(slot != -1) {
+      return slotValues[slot];
+    }
+    if(overflow != null) {
+      return overflow.get(name);
+    }
+    return null;
+  }
+
+  @Override
+  public Set<Symbol> getSymbols() {
+    Set<Symbol> symbols = Collections.newSetFromMap(new IdentityHashMap<Symbol, Boolean>());
+    for (int i = 0; i < slotNames.length; i++) {
+      if(slotValues[i] != null) {
+        symbols.add(slotNames[i]);
+      }
+    }
+    if(overflow != null) {
+      symbols.addAll(overflow.keySet());
+    }
+    return symbols;
+  }
+
+  @Override
+  public SEXP getVariable(Symbol name) {
+    SEXP value = get(name);
+    return value == null ? Symbol.UNBOUND_VALUE : value;
+  }
+
+  @Override
+  public Function getFunction(Context context, Symbol name) {
+    if(functionFilter != 0 && (functionFilter & name.hashBit()) != 0) {
+      SEXP value = get(name);
+      if(value != null) {
+        value = value.force(context);
+        if(value == Symbol.MISSING_ARG) {
+          throw new EvalException("argument '%s' is missing with no default", name.toString());
+        }
+        if(value instanceof Function) {
+          return (Function)value;
+        }
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public boolean isMissingArgument(Symbol name) {
+    if(functionFilter != 0 && (functionFilter & name.hashBit()) != 0) {
+      return get(name) == Symbol.MISSING_ARG;
+    }
+    return false;
+  }
+
+  @Override
+  public void setVariable(Symbol name, SEXP value) {
+    int slot = slotIndex(name);
+    if(slot != -1) {
+      slotValues[slot] = value;
+    } else {
+      if(overflow == null) {
+        overflow = new IdentityHashMap<>(4);
+      }
+      overflow.put(name, value);
+    }
+    // we add Promises to the function filter because they *could* be
+    // functions
+    if(value instanceof Function || value instanceof Promise ||
+        value == Symbol.MISSING_ARG) {
+      functionFilter |= name.hashBit();
+    }
+  }
+
+  @Override
+  public void remove(Symbol name) {
+    int slot = slotIndex(name);
+    if(slot != -1) {
+      slotValues[slot] = null;
+    } else if(overflow != null) {
+      overflow.remove(name);
+    }
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(slotValues, null);
+    overflow = null;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < slotNames.length; i++) {
+      if(slotValues[i] != null) {
+        sb.append(slotNames[i]).append(" = ").append(slotValues[i]).append("\n");
+      }
+    }
+    if(overflow != null) {
+      for(Map.Entry<Symbol,SEXP> entry : overflow.entrySet()) {
+        sb.append(entry.getKey()).append(" = ").append(entry.getValue()).append("\n");
+      }
+    }
+    return sb.toString();
+  }
+}
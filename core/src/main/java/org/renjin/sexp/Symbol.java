@@ -25,6 +25,7 @@ import com.google.common.collect.Maps;
 import org.renjin.eval.EvalException;
 
 import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 public final class Symbol extends AbstractSEXP {
 
@@ -51,6 +52,16 @@ public final class Symbol extends AbstractSEXP {
    * A hash of this symbol's name.
    */
   private final int hashBit;
+
+  /**
+   * Incremented each time this symbol is bound, rebound or removed in any
+   * environment, so that cached function lookups can be cheaply invalidated.
+   * Symbols are shared by all sessions, so the version is incremented atomically.
+   */
+  private volatile int bindingVersion = 0;
+
+  private static final AtomicIntegerFieldUpdater<Symbol> BINDING_VERSION =
+      AtomicIntegerFieldUpdater.newUpdater(Symbol.class, "bindingVersion");
   
   /**
    * Hash bit for very frequently used and very rarely redefined 
@@ -201,6 +212,18 @@ public final class Symbol extends AbstractSEXP {
     }
   }
 
+  /**
+   * @return a number which changes each time a value is bound to, or removed from,
+   * this symbol in any environment.
+   */
+  public int getBindingVersion() {
+    return bindingVersion;
+  }
+
+  void bindingChanged() {
+    BINDING_VERSION.incrementAndGet(this);
+  }
+
   public boolean isReservedWord() {
     return hashBit == 1;
   }
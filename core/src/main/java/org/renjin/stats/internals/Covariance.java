@@ -5,12 +5,17 @@ package org.renjin.stats.internals;
 import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.Builtin;
 import org.renjin.invoke.annotations.Internal;
-import org.renjin.sexp.AtomicVector;
-import org.renjin.sexp.DoubleVector;
-import org.renjin.sexp.Vector;
+import org.renjin.primitives.summary.DeferredVariance;
+import org.renjin.primitives.vector.DeferredComputation;
+import org.renjin.sexp.*;
 
 public class Covariance {
 
+  /**
+   * The {@code na.method} which propagates NAs to the result
+   */
+  private static final int EVERYTHING = 4;
+
   @Internal
   public static DoubleVector cor(AtomicVector x, AtomicVector y, int naMethod, boolean kendall) {
 
@@ -30,6 +35,12 @@ public class Covariance {
       throw new EvalException("kendall=true nyi");
     }
 
+    // var(x) of a deferred vector, using all observations
+    if(y == Null.INSTANCE && naMethod == EVERYTHING && x instanceof DeferredComputation &&
+        x instanceof DoubleVector && x.getAttributes().getDim() == Null.INSTANCE) {
+      return new DeferredVariance(x, AttributeMap.EMPTY);
+    }
+
     return new VarianceCalculator(x, y, naMethod)
     .withCovarianceMethod()
     .calculate();
@@ -23,6 +23,7 @@ package org.renjin;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.renjin.primitives.S3DispatchCache;
 import org.renjin.sexp.Logical;
 
 import java.io.IOException;
@@ -135,4 +136,26 @@ public class S3DispatchTest extends EvalTestCase {
 
   }
 
+  @Test
+  public void dispatchCacheIsInvalidatedByNewMethods() {
+    S3DispatchCache cache = topLevelContext.getSession().getSingleton(S3DispatchCache.class);
+
+    eval(" describe <- function(x) UseMethod('describe') ");
+    eval(" describe.default <- function(x) 'default' ");
+    eval(" x <- structure(1, class = c('b', 'a')) ");
+
+    assertThat( eval("describe(x)"), equalTo(c("default")));
+    long hits = cache.getHitCount();
+    assertThat( eval("describe(x)"), equalTo(c("default")));
+    assertThat( cache.getHitCount(), equalTo(hits + 1));
+
+    eval(" describe.a <- function(x) 'a' ");
+    assertThat( eval("describe(x)"), equalTo(c("a")));
+
+    eval(" describe.b <- function(x) 'b' ");
+    assertThat( eval("describe(x)"), equalTo(c("b")));
+
+    eval(" rm(describe.b) ");
+    assertThat( eval("describe(x)"), equalTo(c("a")));
+  }
 }
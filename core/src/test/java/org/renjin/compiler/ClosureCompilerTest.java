@@ -0,0 +1,84 @@
+package org.renjin.compiler;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.eval.ClosureDispatcher;
+import org.renjin.sexp.Closure;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class ClosureCompilerTest extends EvalTestCase {
+
+  @Before
+  public void enableClosureCompiler() {
+    ClosureDispatcher.COMPILE_CLOSURES = true;
+  }
+
+  @After
+  public void disableClosureCompiler() {
+    ClosureDispatcher.COMPILE_CLOSURES = false;
+  }
+
+  @Test
+  public void hotScalarFunction() {
+    eval(" score <- function(x, w) x * w + 1 ");
+    eval(" s <- 0 ");
+    eval(" for(i in 1:2000) s <- s + score(i, 0.5) ");
+
+    assertThat(eval("s"), closeTo(c(1002500), 1e-6));
+    assertThat(specializationCount("score"), equalTo(1));
+  }
+
+  @Test
+  public void guardFailsForNewTypes() {
+    eval(" f <- function(x) x * 2 ");
+    eval(" for(i in 1:2000) f(1.5) ");
+
+    assertThat(eval("f(3)"), equalTo(c(6)));
+    assertThat(eval("f(3L)"), equalTo(c_i(6)));
+    assertThat(eval("f(c(1, 2))"), equalTo(c(2, 4)));
+  }
+
+  @Test
+  public void argumentsWithSideEffectsAreInterpreted() {
+    eval(" f <- function(x) x + 1 ");
+    eval(" n <- 0 ");
+    eval(" g <- function() { n <<- n + 1; n } ");
+    eval(" for(i in 1:2000) f(g()) ");
+
+    assertThat(eval("n"), equalTo(c(2000)));
+    assertThat(specializationCount("f"), equalTo(0));
+  }
+
+  @Test
+  public void returnFromCompiledBody() {
+    eval(" f <- function(x) { if(x > 10) return(x * 2); x } ");
+    eval(" s <- 0 ");
+    eval(" for(i in 1:2000) s <- s + f(i) ");
+
+    assertThat(eval("s"), equalTo(c(4001945)));
+  }
+
+  @Test
+  public void guardFailsWhenEnclosingBindingsChange() {
+    eval(" k <- 2 ");
+    eval(" f <- function(x) sqrt(x) * k ");
+    eval(" for(i in 1:2000) f(4) ");
+    assertThat(eval("f(4)"), equalTo(c(4)));
+
+    eval(" k <- c(1, 2) ");
+    assertThat(eval("f(4)"), equalTo(c(2, 4)));
+
+    eval(" k <- 2 ");
+    eval(" sqrt <- function(x) 10 ");
+    assertThat(eval("f(4)"), equalTo(c(20)));
+  }
+
+  private int specializationCount(String name) {
+    Closure closure = (Closure) global.getVariable(name);
+    return closure.getCompiler().getSpecializationCount();
+  }
+}
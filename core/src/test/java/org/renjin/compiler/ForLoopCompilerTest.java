@@ -101,4 +101,64 @@ public class ForLoopCompilerTest extends EvalTestCase {
 
   }
 
+  @Test
+  public void whileLoop() {
+    eval(" s <- 0 ");
+    eval(" i <- 0 ");
+    eval(" while(i < 1000) { i <- i + 1; s <- s + sqrt(i) } ");
+
+    assertThat(eval("i"), equalTo(c(1000)));
+    assertThat(eval("s"), closeTo(c(21097.46), 0.01));
+  }
+
+  @Test
+  public void whileLoopWithSideEffectsInCondition() {
+    eval(" i <- 0 ");
+    eval(" n <- 0 ");
+    eval(" while((i <- i + 1) <= 500) { n <- n + 1 } ");
+
+    assertThat(eval("i"), equalTo(c(501)));
+    assertThat(eval("n"), equalTo(c(500)));
+  }
+
+  @Test
+  public void repeatLoop() {
+    eval(" i <- 0 ");
+    eval(" repeat { i <- i + 1; if(i >= 1000) break } ");
+
+    assertThat(eval("i"), equalTo(c(1000)));
+  }
+
+  @Test
+  public void returnFromLoop() {
+    eval(" f <- function() { i <- 0; repeat { i <- i + 1; if(i >= 1000) return(i) }; -1 } ");
+
+    assertThat(eval("f()"), equalTo(c(1000)));
+  }
+
+  @Test
+  public void compiledLoopIsReused() {
+    CompiledLoopCache cache = topLevelContext.getSession().getSingleton(CompiledLoopCache.class);
+
+    eval(" f <- function(n) { s <- 0; for(i in 1:n) s <- s + i; s } ");
+
+    assertThat(eval("f(500)"), equalTo(c(125250)));
+    long misses = cache.getMissCount();
+
+    assertThat(eval("f(1000)"), equalTo(c(500500)));
+    assertThat(cache.getMissCount(), equalTo(misses));
+    assertThat(cache.getHitCount(), equalTo(1L));
+  }
+
+  @Test
+  public void compiledLoopIsNotReusedForNewTypes() {
+    CompiledLoopCache cache = topLevelContext.getSession().getSingleton(CompiledLoopCache.class);
+
+    eval(" f <- function(s) { for(i in 1:500) s <- s + i; s } ");
+
+    assertThat(eval("f(0)"), equalTo(c(125250)));
+    assertThat(eval("f(0L)"), equalTo(c_i(125250)));
+    assertThat(cache.getHitCount(), equalTo(0L));
+  }
+
 }
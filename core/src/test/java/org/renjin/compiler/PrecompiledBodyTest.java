@@ -0,0 +1,128 @@
+package org.renjin.compiler;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.eval.Context;
+import org.renjin.repackaged.asm.ClassWriter;
+import org.renjin.repackaged.asm.MethodVisitor;
+import org.renjin.repackaged.asm.Opcodes;
+import org.renjin.repackaged.asm.Type;
+import org.renjin.sexp.Closure;
+import org.renjin.sexp.Environment;
+import org.renjin.sexp.Null;
+import org.renjin.sexp.SEXP;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class PrecompiledBodyTest extends EvalTestCase {
+
+  @Test
+  public void compiledBodyIsUsedAfterReading() throws IOException {
+    eval(" f <- function(x) x * 2 + 1 ");
+
+    List<PrecompiledBody> bodies = PrecompiledBody.tryCompile(topLevelContext, closure("f"));
+    assertTrue(!bodies.isEmpty());
+
+    eval(" g <- function(x) x * 2 + 1 ");
+    for (PrecompiledBody body : roundTrip(bodies)) {
+      body.attachTo(closure("g"));
+    }
+
+    assertTrue(closure("g").hasCompiledBody());
+    assertThat(eval("g(3)"), equalTo(c(7)));
+    assertThat(eval("g(c(1, 2))"), equalTo(c(3, 5)));
+
+    // Calls for which the guard fails are interpreted
+    assertThat(eval("g(3L)"), equalTo(c(7)));
+  }
+
+  @Test
+  public void functionsWhichCallClosuresAreNotCompiled() {
+    eval(" h <- function(x) x + 1 ");
+    eval(" f <- function(x) h(x) * 2 ");
+
+    assertTrue(PrecompiledBody.tryCompile(topLevelContext, closure("f")).isEmpty());
+  }
+
+  @Test
+  public void bodiesWhichCannotBeLinkedAreInterpreted() throws IOException {
+    eval(" g <- function(x) x * 2 + 1 ");
+
+    // A body which calls a method that does not exist in this build, under a guard with no assumptions
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(baos);
+    out.writeInt(0);
+    out.writeInt(0);
+    out.writeUTF("BrokenBody");
+    byte[] classFile = brokenBodyClass("BrokenBody");
+    out.writeInt(classFile.length);
+    out.write(classFile);
+    out.close();
+
+    PrecompiledBody body = PrecompiledBody.read(new DataInputStream(new ByteArrayInputStream(baos.toByteArray())));
+    body.attachTo(closure("g"));
+    assertTrue(closure("g").hasCompiledBody());
+
+    assertThat(eval("g(3)"), equalTo(c(7)));
+    assertTrue(body.isUnusable());
+    assertFalse(closure("g").hasCompiledBody());
+  }
+
+  private byte[] brokenBodyClass(String className) {
+    ClassWriter cw = new ClassWriter(0);
+    cw.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, className, null, "java/lang/Object",
+        new String[] { Type.getInternalName(CompiledBody.class) });
+
+    MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+    mv.visitCode();
+    mv.visitVarInsn(Opcodes.ALOAD, 0);
+    mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+    mv.visitInsn(Opcodes.RETURN);
+    mv.visitMaxs(1, 1);
+    mv.visitEnd();
+
+    mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "evaluate",
+        Type.getMethodDescriptor(Type.getType(SEXP.class), Type.getType(Context.class), Type.getType(Environment.class)),
+        null, null);
+    mv.visitCode();
+    mv.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(Null.class), "noSuchMethod",
+        Type.getMethodDescriptor(Type.getType(SEXP.class)), false);
+    mv.visitInsn(Opcodes.ARETURN);
+    mv.visitMaxs(1, 3);
+    mv.visitEnd();
+
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+
+  private List<PrecompiledBody> roundTrip(List<PrecompiledBody> bodies) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(baos);
+    for (PrecompiledBody body : bodies) {
+      body.write(out);
+    }
+    out.close();
+
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(baos.toByteArray()));
+    List<PrecompiledBody> read = new ArrayList<>();
+    for (int i = 0; i < bodies.size(); i++) {
+      read.add(PrecompiledBody.read(in));
+    }
+    return read;
+  }
+
+  private Closure closure(String name) {
+    return (Closure) global.getVariable(name);
+  }
+}
@@ -0,0 +1,103 @@
+package org.renjin.compiler.pipeline;
+
+import com.google.common.io.Files;
+import org.junit.Test;
+import org.renjin.RenjinVersion;
+import org.renjin.primitives.summary.DeferredSum;
+import org.renjin.repackaged.asm.ClassWriter;
+import org.renjin.repackaged.asm.MethodVisitor;
+import org.renjin.repackaged.asm.Opcodes;
+import org.renjin.repackaged.asm.Type;
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.DoubleArrayVector;
+
+import java.io.File;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class DeferredJitCacheTest {
+
+  @Test
+  public void classesAreLoadedFromDisk() {
+    File cacheDir = Files.createTempDir();
+    DoubleArrayVector x = new DoubleArrayVector(1, 2, 3);
+    DeferredNode node = new DeferredGraph(new DeferredSum(x, AttributeMap.EMPTY)).getRoot();
+
+    DeferredJitCache first = new DeferredJitCache(cacheDir);
+    first.compile(node);
+
+    assertThat(first.getCompileCount(), equalTo(1L));
+    assertThat(first.getDiskHitCount(), equalTo(0L));
+
+    // A new cache, as in a new JVM, should find the class written by the first
+    DeferredJitCache second = new DeferredJitCache(cacheDir);
+    JittedComputation computation = second.compile(node);
+
+    assertThat(second.getCompileCount(), equalTo(0L));
+    assertThat(second.getDiskHitCount(), equalTo(1L));
+    assertThat(computation.compute(node.flattenVectors())[0], equalTo(6d));
+  }
+
+  @Test
+  public void classesWhichCannotBeLinkedAreGeneratedAgain() {
+    File cacheDir = Files.createTempDir();
+    DoubleArrayVector x = new DoubleArrayVector(1, 2, 3);
+    DeferredNode node = new DeferredGraph(new DeferredSum(x, AttributeMap.EMPTY)).getRoot();
+
+    // Store a class which calls a method that does not exist in this build
+    new PersistentJitCache(cacheDir, RenjinVersion.getBuildFingerprint())
+        .write(node.jitKey(), "JitBroken", brokenComputationClass("JitBroken"), 0);
+
+    DeferredJitCache cache = new DeferredJitCache(cacheDir);
+    JittedComputation computation = cache.compile(node);
+    assertThat(cache.getDiskHitCount(), equalTo(1L));
+
+    assertThat(computation.compute(node.flattenVectors())[0], equalTo(6d));
+    assertThat(cache.getCompileCount(), equalTo(1L));
+
+    // The regenerated class replaces the broken one on disk
+    DeferredJitCache next = new DeferredJitCache(cacheDir);
+    assertThat(next.compile(node).compute(node.flattenVectors())[0], equalTo(6d));
+    assertThat(next.getCompileCount(), equalTo(0L));
+  }
+
+  private byte[] brokenComputationClass(String className) {
+    ClassWriter cw = new ClassWriter(0);
+    cw.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, className, null, "java/lang/Object",
+        new String[] { Type.getInternalName(JittedComputation.class) });
+
+    MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+    mv.visitCode();
+    mv.visitVarInsn(Opcodes.ALOAD, 0);
+    mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+    mv.visitInsn(Opcodes.RETURN);
+    mv.visitMaxs(1, 1);
+    mv.visitEnd();
+
+    for (String descriptor : new String[] { "([Lorg/renjin/sexp/Vector;)[D", "([Lorg/renjin/sexp/Vector;II)[D" }) {
+      mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "compute", descriptor, null, null);
+      mv.visitCode();
+      mv.visitMethodInsn(Opcodes.INVOKESTATIC, Type.getInternalName(DoubleArrayVector.class), "noSuchMethod",
+          "()[D", false);
+      mv.visitInsn(Opcodes.ARETURN);
+      mv.visitMaxs(1, 4);
+      mv.visitEnd();
+    }
+
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+
+  @Test
+  public void keysAreStable() {
+    DoubleArrayVector x = new DoubleArrayVector(1, 2, 3);
+    DoubleArrayVector y = new DoubleArrayVector(4, 5);
+
+    JitKey a = new DeferredGraph(new DeferredSum(x, AttributeMap.EMPTY)).getRoot().jitKey();
+    JitKey b = new DeferredGraph(new DeferredSum(y, AttributeMap.EMPTY)).getRoot().jitKey();
+
+    assertThat(a, equalTo(b));
+    assertThat(a.getDigest(), equalTo(b.getDigest()));
+  }
+}
@@ -0,0 +1,98 @@
+package org.renjin.compiler.pipeline;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.primitives.matrix.DeferredColMeans;
+import org.renjin.primitives.matrix.DeferredColSums;
+import org.renjin.primitives.matrix.DeferredRowSums;
+import org.renjin.primitives.summary.*;
+import org.renjin.primitives.vector.DeferredComputation;
+import org.renjin.sexp.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class DeferredJitterTest extends EvalTestCase {
+
+  private final DoubleArrayVector x = new DoubleArrayVector(3, -1, 4, 1.5);
+
+  @Test
+  public void summaries() {
+    assertThat(materialize(new DeferredProd(x, AttributeMap.EMPTY)), equalTo(c(-18)));
+    assertThat(materialize(new DeferredMin(x, AttributeMap.EMPTY)), equalTo(c(-1)));
+    assertThat(materialize(new DeferredMax(x, AttributeMap.EMPTY)), equalTo(c(4)));
+    assertThat(materialize(new DeferredRange(x, AttributeMap.EMPTY)), equalTo(c(-1, 4)));
+    assertThat(materialize(new DeferredVariance(x, AttributeMap.EMPTY)), closeTo(c(4.7291667), 1e-6));
+    assertThat(materialize(new DeferredCumsum(x, AttributeMap.EMPTY)), equalTo(c(3, 2, 6, 7.5)));
+  }
+
+  @Test
+  public void logicalSummaries() {
+    DoubleArrayVector zeros = new DoubleArrayVector(0, 0, 0);
+
+    assertThat(materialize(new DeferredAny(x, AttributeMap.EMPTY)), equalTo(c(true)));
+    assertThat(materialize(new DeferredAny(zeros, AttributeMap.EMPTY)), equalTo(c(false)));
+    assertThat(materialize(new DeferredAll(x, AttributeMap.EMPTY)), equalTo(c(true)));
+    assertThat(materialize(new DeferredAll(zeros, AttributeMap.EMPTY)), equalTo(c(false)));
+  }
+
+  @Test
+  public void margins() {
+    // 2x2 matrix
+    assertThat(materialize(new DeferredColSums(x, 2)), equalTo(c(2, 5.5)));
+    assertThat(materialize(new DeferredColMeans(x, 2)), equalTo(c(1, 2.75)));
+    assertThat(materialize(new DeferredRowSums(x, 2)), equalTo(c(7, 0.5)));
+  }
+
+  @Test
+  public void missingValues() {
+    DoubleArrayVector na = new DoubleArrayVector(1, DoubleVector.NA, 2);
+    DoubleArrayVector naAndNaN = new DoubleArrayVector(1, DoubleVector.NA, Double.NaN);
+
+    assertThat(materialize(new DeferredMin(na, AttributeMap.EMPTY)), equalTo(c(DoubleVector.NA)));
+    assertThat(materialize(new DeferredMax(naAndNaN, AttributeMap.EMPTY)), equalTo(c(Double.NaN)));
+    assertThat(materialize(new DeferredProd(naAndNaN, AttributeMap.EMPTY)), equalTo(c(DoubleVector.NA)));
+    assertThat(materialize(new DeferredCumsum(na, AttributeMap.EMPTY)), equalTo(c(1, DoubleVector.NA, DoubleVector.NA)));
+    assertThat(materialize(new DeferredAny(new DoubleArrayVector(0, DoubleVector.NA), AttributeMap.EMPTY)),
+        equalTo(c(Logical.NA)));
+    assertThat(materialize(new DeferredAll(new DoubleArrayVector(1, DoubleVector.NA), AttributeMap.EMPTY)),
+        equalTo(c(Logical.NA)));
+  }
+
+  @Test
+  public void chunkedReductions() {
+    double[] values = new double[1000];
+    for(int i=0;i!=values.length;++i) {
+      values[i] = i + 1;
+    }
+    DoubleArrayVector y = DoubleArrayVector.unsafe(values);
+    ForkJoinPool pool = new ForkJoinPool(4);
+    SimpleVectorPipeliner pipeliner = new SimpleVectorPipeliner(pool, 10);
+
+    DeferredSum sum = new DeferredSum(y, AttributeMap.EMPTY);
+    DeferredMean mean = new DeferredMean(y, AttributeMap.EMPTY);
+    DeferredRange range = new DeferredRange(y, AttributeMap.EMPTY);
+    DeferredAll all = new DeferredAll(y, AttributeMap.EMPTY);
+    pipeliner.materialize(sum);
+    pipeliner.materialize(mean);
+    pipeliner.materialize(range);
+    pipeliner.materialize(all);
+
+    assertThat(sum, equalTo(c(500500)));
+    assertThat(mean, closeTo(c(500.5), 1e-9));
+    assertThat(range, equalTo(c(1, 1000)));
+    assertThat(all, equalTo(c(true)));
+
+    pool.shutdown();
+  }
+
+  /**
+   * Computes {@code vector} with the jitted pipeline, and returns the memoized result
+   */
+  private SEXP materialize(DeferredComputation vector) {
+    new SimpleVectorPipeliner().materialize(vector);
+    return vector;
+  }
+}
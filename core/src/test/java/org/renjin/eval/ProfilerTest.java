@@ -0,0 +1,74 @@
+package org.renjin.eval;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ProfilerTest extends EvalTestCase {
+
+  @Test
+  public void instrumentingRecordsCollapsedStacks() {
+    Profiler profiler = topLevelContext.getSession().getProfiler();
+
+    eval("f <- function(x) g(x)");
+    eval("g <- function(x) sum(x)");
+
+    profiler.start(Profiler.Mode.INSTRUMENTING, 0);
+    eval("f(1)");
+    profiler.stop();
+
+    assertThat(profiler.isRunning(), equalTo(false));
+    assertThat(collapsedStacks(profiler), containsString("f;g;sum "));
+  }
+
+  @Test
+  public void functionsAppliedByLapplyAreRecorded() {
+    Profiler profiler = topLevelContext.getSession().getProfiler();
+
+    profiler.start(Profiler.Mode.INSTRUMENTING, 0);
+    eval("lapply(list(1, 2), function(x) sum(x))");
+    eval("vapply(1:2, function(x) sum(x), 1)");
+    profiler.stop();
+
+    assertThat(collapsedStacks(profiler), containsString("FUN;sum "));
+  }
+
+  @Test
+  public void profilersAreSessionScoped() {
+    Session other = new SessionBuilder().build();
+
+    topLevelContext.getSession().getProfiler().start(Profiler.Mode.SAMPLING, 1000);
+    try {
+      assertThat(other.getProfiler().isRunning(), equalTo(false));
+    } finally {
+      topLevelContext.getSession().getProfiler().stop();
+    }
+  }
+
+  @Test
+  public void stoppedProfilerIsNotReturnedWhileOtherSessionProfiles() {
+    Session other = new SessionBuilder().build();
+
+    other.getProfiler().start(Profiler.Mode.INSTRUMENTING, 0);
+    try {
+      assertThat(Profiler.runningProfiler(topLevelContext.getSession()), nullValue());
+      assertThat(Profiler.runningProfiler(other), sameInstance(other.getProfiler()));
+    } finally {
+      other.getProfiler().stop();
+    }
+  }
+
+  private String collapsedStacks(Profiler profiler) {
+    StringWriter writer = new StringWriter();
+    profiler.writeCollapsedStacks(new PrintWriter(writer));
+    return writer.toString();
+  }
+}
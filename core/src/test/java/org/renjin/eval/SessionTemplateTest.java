@@ -0,0 +1,108 @@
+package org.renjin.eval;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.*;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class SessionTemplateTest {
+
+  private static SessionTemplate template;
+
+  @BeforeClass
+  public static void buildTemplate() {
+    template = new SessionBuilder().buildTemplate();
+  }
+
+  @Test
+  public void baseFunctionsAreAvailable() {
+    Session session = template.newSession();
+
+    assertThat(eval(session, "paste('a', 'b')"), equalTo((SEXP) StringVector.valueOf("a b")));
+    assertThat(eval(session, "sapply(1:3, function(x) x * 2)"), equalTo((SEXP) new DoubleArrayVector(2, 4, 6)));
+  }
+
+  @Test
+  public void functionsAreBoundToTheNewSession() {
+    Session session = template.newSession();
+
+    assertThat(eval(session, "environment(paste)"), sameInstance((SEXP) session.getBaseNamespaceEnv()));
+    assertThat(eval(session, "getOption('warn')"), equalTo((SEXP) new DoubleArrayVector(0)));
+  }
+
+  @Test
+  public void sessionsAreIsolated() {
+    Session a = template.newSession();
+    Session b = template.newSession();
+
+    eval(a, "x <- 42");
+    eval(a, "assign('paste', function(...) 'replaced', envir = baseenv())");
+    eval(a, "options(digits = 3)");
+
+    assertThat(eval(b, "exists('x')"), equalTo((SEXP) LogicalVector.FALSE));
+    assertThat(eval(b, "paste('a', 'b')"), equalTo((SEXP) StringVector.valueOf("a b")));
+    assertThat(eval(b, "getOption('digits')"), not(equalTo(eval(a, "getOption('digits')"))));
+  }
+
+  @Test
+  public void packagesAreLoadedIntoEachSession() {
+    SessionTemplate statsTemplate = new SessionBuilder()
+        .withPackage("stats")
+        .buildTemplate();
+
+    Session a = statsTemplate.newSession();
+    Session b = statsTemplate.newSession();
+
+    assertThat(eval(a, "sd(c(1, 2, 3))"), equalTo((SEXP) new DoubleArrayVector(1)));
+    assertThat(eval(a, "environment(sd)"), not(sameInstance(eval(b, "environment(sd)"))));
+    assertThat(eval(a, "environment(sd)"), sameInstance(eval(a, "asNamespace('stats')")));
+  }
+
+  @Test
+  public void environmentsEnclosedByEmptyEnvAreCopied() {
+    Session source = new SessionBuilder().build();
+    Session target = new SessionBuilder().build();
+    eval(source, "e <- new.env(parent = emptyenv())");
+    eval(source, "assign('a', 1, envir = e)");
+
+    Environment copy = (Environment) new TemplateCopier(source, target).copy(eval(source, "e"));
+
+    assertThat(copy, not(sameInstance(eval(source, "e"))));
+    assertThat(copy.getParent(), sameInstance((Environment) Environment.EMPTY));
+    assertThat(copy.getVariable(Symbol.get("a")), equalTo((SEXP) new DoubleArrayVector(1)));
+  }
+
+  @Test
+  public void closuresInGlobalEnvAreBoundToNewGlobalEnv() {
+    Session source = new SessionBuilder().build();
+    Session target = new SessionBuilder().build();
+    eval(source, "f <- function(x) x + 1");
+
+    Closure copy = (Closure) new TemplateCopier(source, target).copy(eval(source, "f"));
+
+    assertThat(copy.getEnclosingEnvironment(), sameInstance(target.getGlobalEnvironment()));
+  }
+
+  @Test
+  public void selfReferencingClosuresAreCopied() {
+    Session source = new SessionBuilder().build();
+    Session target = new SessionBuilder().build();
+    eval(source, "g <- local({ h <- function(x) if(x > 0) h(x - 1) else 42; function(y) h(y) })");
+
+    SEXP copy = new TemplateCopier(source, target).copy(eval(source, "g"));
+    target.getGlobalEnvironment().setVariable(Symbol.get("g"), copy);
+
+    assertThat(eval(target, "g(3)"), equalTo((SEXP) new DoubleArrayVector(42)));
+    assertThat(eval(target, "environment(environment(g)$h)"), sameInstance(eval(target, "environment(g)")));
+    assertThat(eval(target, "environment(g)"), not(sameInstance(eval(source, "environment(g)"))));
+  }
+
+  private static SEXP eval(Session session, String source) {
+    return session.getTopLevelContext().evaluate(RParser.parseSource(source + "\n"));
+  }
+}
@@ -0,0 +1,115 @@
+package org.renjin.packaging;
+
+import com.google.common.base.Function;
+import com.google.common.io.Files;
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.RenjinVersion;
+import org.renjin.primitives.io.serialization.RDataWriter;
+import org.renjin.sexp.Closure;
+import org.renjin.sexp.NamedValue;
+
+import java.io.*;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class LazyLoadFrameTest extends EvalTestCase {
+
+  @Test
+  public void compiledBodiesAreLoaded() throws IOException {
+    eval(" f <- function(x) x * 2 + 1 ");
+
+    File dir = Files.createTempDir();
+    new LazyLoadFrameBuilder(topLevelContext)
+        .outputTo(dir)
+        .compileClosures(true)
+        .build(global);
+
+    Closure f = loadClosure(fromDirectory(dir), "f");
+    assertTrue(f.hasCompiledBody());
+  }
+
+  @Test
+  public void bodiesCompiledByOtherBuildsAreIgnored() throws IOException {
+    eval(" f <- function(x) x * 2 + 1 ");
+
+    Closure f = loadClosure(index("another build", new byte[] { 1, 2, 3 }), "f");
+    assertFalse(f.hasCompiledBody());
+    assertThat(eval("f(3)"), equalTo(c(7)));
+  }
+
+  @Test
+  public void bodiesWhichCannotBeReadAreIgnored() throws IOException {
+    eval(" f <- function(x) x * 2 + 1 ");
+
+    // A guard which assumes a builtin that this build does not have
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(body);
+    out.writeInt(0);
+    out.writeInt(1);
+    out.writeUTF("f");
+    out.writeBoolean(true);
+    out.writeUTF("no.such.builtin");
+    out.close();
+
+    Closure f = loadClosure(index(RenjinVersion.getBuildFingerprint(), body.toByteArray()), "f");
+    assertFalse(f.hasCompiledBody());
+  }
+
+  /**
+   * Writes a version 3 index with a single compiled body for the closure {@code f}
+   */
+  private Function<String, InputStream> index(String fingerprint, byte[] body) throws IOException {
+    ByteArrayOutputStream serialized = new ByteArrayOutputStream();
+    new RDataWriter(topLevelContext, serialized).serialize(global.getVariable("f"));
+
+    final ByteArrayOutputStream index = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(index);
+    out.writeInt(3);
+    out.writeUTF(fingerprint);
+    out.writeInt(1);
+    out.writeUTF("f");
+    out.writeInt(1);
+    out.writeInt(body.length);
+    out.write(body);
+    out.writeInt(1);
+    out.writeUTF("f");
+    out.writeInt(serialized.size());
+    serialized.writeTo(out);
+    out.close();
+
+    return new Function<String, InputStream>() {
+      @Override
+      public InputStream apply(String name) {
+        return new ByteArrayInputStream(index.toByteArray());
+      }
+    };
+  }
+
+  private Function<String, InputStream> fromDirectory(final File dir) {
+    return new Function<String, InputStream>() {
+      @Override
+      public InputStream apply(String name) {
+        try {
+          return new FileInputStream(new File(dir, name));
+        } catch (FileNotFoundException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+  }
+
+  private Closure loadClosure(Function<String, InputStream> resourceProvider, String name) throws IOException {
+    for (NamedValue namedValue : LazyLoadFrame.load(topLevelContext, resourceProvider)) {
+      if(namedValue.getName().equals(name)) {
+        Closure closure = (Closure) namedValue.getValue().force(topLevelContext);
+        global.setVariable(name, closure);
+        return closure;
+      }
+    }
+    throw new AssertionError(name + " not loaded");
+  }
+}
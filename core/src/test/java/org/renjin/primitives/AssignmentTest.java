@@ -23,6 +23,7 @@ package org.renjin.primitives;
 
 import org.junit.Test;
 import org.renjin.EvalTestCase;
+import org.renjin.sexp.IntVector;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
@@ -40,4 +41,55 @@ public class AssignmentTest extends EvalTestCase {
     eval(" x <- 1");
     assertThat( eval("x"), equalTo( c(1) ));
   }
+
+  @Test
+  public void elementReplacementDoesNotModifyCopies() {
+    eval("x <- c(1, 2, 3)");
+    eval("y <- x");
+    eval("x[2] <- 9");
+    eval("x[3] <- 10");
+    assertThat( eval("x"), equalTo( c(1, 9, 10) ));
+    assertThat( eval("y"), equalTo( c(1, 2, 3) ));
+
+    eval("y <- x");
+    eval("x[[1]] <- 0");
+    assertThat( eval("x"), equalTo( c(0, 9, 10) ));
+    assertThat( eval("y"), equalTo( c(1, 9, 10) ));
+  }
+
+  @Test
+  public void elementReplacementInLoop() {
+    eval("x <- numeric(5)");
+    eval("for(i in 1:5) x[i] <- i * 2");
+    assertThat( eval("x"), equalTo( c(2, 4, 6, 8, 10) ));
+
+    eval("x <- numeric(4)");
+    eval("x[1] <- 1");
+    eval("for(i in 2:4) x[i] <- x[i-1] * 2");
+    assertThat( eval("x"), equalTo( c(1, 2, 4, 8) ));
+  }
+
+  @Test
+  public void elementReplacementAfterValueIsCaptured() {
+    eval("x <- c(1, 2)");
+    eval("x[1] <- 3");
+    eval("l <- list(x)");
+    eval("x[2] <- 4");
+    assertThat( eval("l[[1]]"), equalTo( c(3, 2) ));
+
+    eval("f <- function(v) { v[1] <- 100; v }");
+    eval("z <- f(x)");
+    assertThat( eval("x"), equalTo( c(3, 4) ));
+    assertThat( eval("z"), equalTo( c(100, 4) ));
+  }
+
+  @Test
+  public void integerElementReplacement() {
+    eval("x <- 1:3");
+    eval("x[2] <- 7L");
+    eval("y <- x");
+    eval("x[[3]] <- NA");
+    assertThat( eval("x"), equalTo( c_i(1, 7, IntVector.NA) ));
+    assertThat( eval("y"), equalTo( c_i(1, 7, 3) ));
+  }
 }
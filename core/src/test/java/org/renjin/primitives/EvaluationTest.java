@@ -923,5 +923,66 @@ public class EvaluationTest extends EvalTestCase {
     eval("f <- function(x = NULL) g(y = x)");
     assertThat(eval("f()"), equalTo(c(false)));
   }
-}
 
+  @Test
+  public void redefinedFunctionIsFoundAtSameCallSite() {
+    eval("g <- function() 1");
+    eval("f <- function() g()");
+    assertThat(eval("f()"), equalTo(c(1)));
+
+    eval("g <- function() 2");
+    assertThat(eval("f()"), equalTo(c(2)));
+
+    // Shadow g in an environment between the closure and the global environment
+    eval("e <- new.env()");
+    eval("environment(f) <- e");
+    assertThat(eval("f()"), equalTo(c(2)));
+    eval("assign('g', function() 3, envir = e)");
+    assertThat(eval("f()"), equalTo(c(3)));
+
+    eval("rm('g', envir = e)");
+    assertThat(eval("f()"), equalTo(c(2)));
+
+    // Change the enclosure of e itself
+    eval("e2 <- new.env()");
+    eval("assign('g', function() 4, envir = e2)");
+    eval("parent.env(e) <- e2");
+    assertThat(eval("f()"), equalTo(c(4)));
+  }
+
+  @Test
+  public void closureFrameWithExtraLocals() {
+    eval("f <- function(a, b = 2) { x <- a + b; assign('y', 10); rm(a); " +
+        "c(x, y, exists('a', inherits = FALSE), length(ls())) }");
+    assertThat(eval("f(1)"), equalTo(c(3, 10, 0, 3)));
+
+    eval("g <- function(a) { e <- environment(); e$a <- 5; e$z <- 6; a + z }");
+    assertThat(eval("g(1)"), equalTo(c(11)));
+  }
+
+  @Test
+  public void argumentMatchingAtSameCallSite() {
+    eval("f <- function(alpha, beta = 2, ...) c(alpha, beta, length(list(...)))");
+    eval("g <- function(...) f(...)");
+
+    assertThat(eval("g(1)"), equalTo(c(1, 2, 0)));
+    assertThat(eval("g(be = 3, 1)"), equalTo(c(1, 3, 0)));
+    assertThat(eval("g(1, 2, 3, 4)"), equalTo(c(1, 2, 2)));
+    assertThat(eval("g(alpha = 5, 6, z = 7)"), equalTo(c(5, 6, 1)));
+    assertThat(eval("g(1)"), equalTo(c(1, 2, 0)));
+  }
+
+  @Test
+  public void bindingArgumentsDoesNotInvalidateCallSites() {
+    eval("g <- function() 1");
+    eval("h <- function(g) g");
+    int version = Symbol.get("g").getBindingVersion();
+    eval("h(2)");
+    assertThat(Symbol.get("g").getBindingVersion(), equalTo(version));
+
+    // Arguments still shadow functions of the same name
+    eval("k <- function(g) g()");
+    assertThat(eval("k(function() 5)"), equalTo(c(5)));
+    assertThat(eval("k(function() 6)"), equalTo(c(6)));
+  }
+}
@@ -102,6 +102,26 @@ public class SortTest extends EvalTestCase {
     assertThat( eval(".Internal(order(TRUE,TRUE,c(1,1,1), c(1,2,1), c(3,9,1)))"), equalTo(c_i(2,1,3)));
   }
 
+  @Test
+  public void orderWithMissingValues() {
+    assertThat( eval(".Internal(order(TRUE,FALSE,c(3,NA,-1,NaN,-0,0)))"), equalTo(c_i(3,5,6,1,2,4)));
+    assertThat( eval(".Internal(order(FALSE,FALSE,c(3L,NA,-1L)))"), equalTo(c_i(2,3,1)));
+    assertThat( eval(".Internal(order(TRUE,TRUE,c('b',NA,'a','c')))"), equalTo(c_i(4,1,3,2)));
+  }
+
+  @Test
+  public void orderIsStable() {
+    assertThat( eval(".Internal(order(TRUE,FALSE,c(2L,1L,2L,1L), c(TRUE,TRUE,FALSE,TRUE)))"), equalTo(c_i(2,4,3,1)));
+    assertThat( eval(".Internal(order(TRUE,TRUE,c(-1e10,5,5,1e10)))"), equalTo(c_i(4,2,3,1)));
+  }
+
+  @Test
+  public void radixSort() {
+    assertThat( eval(".Internal(radixsort(c(30L,-2L,NA,7L), TRUE, FALSE))"), equalTo(c_i(2,4,1,3)));
+    assertThat( eval("sort(c(3.5,-1,2), method='radix')"), equalTo(c(-1, 2, 3.5)));
+    assertThat( eval("sort(c('b','c','a'), decreasing=TRUE, method='radix')"), equalTo(c("c", "b", "a")));
+  }
+
   @Test
   public void qsort() {
     assertThat( eval(".Internal(qsort(c(3,1,5,0), FALSE))"), equalTo(c(0, 1, 3, 5)));
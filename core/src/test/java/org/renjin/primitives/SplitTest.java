@@ -2,6 +2,7 @@ package org.renjin.primitives;
 
 import org.junit.Test;
 import org.renjin.EvalTestCase;
+import org.renjin.sexp.*;
 
 import java.io.IOException;
 
@@ -75,5 +76,27 @@ public class SplitTest extends EvalTestCase {
     assertThat(eval("names(x)"), equalTo(c("1", "2")));
     assertThat(eval("names(x[[1]])"), equalTo(c("x")));
   }
+
+  @Test
+  public void splitKeepsEmptyLevelsInOrder() {
+    assumingBasePackagesLoad();
+
+    eval("x <- split(c(TRUE, FALSE, NA), factor(c('b', 'b', 'c'), levels = c('c', 'a', 'b')))");
+    assertThat(eval("names(x)"), equalTo(c("c", "a", "b")));
+    assertThat(eval("x$a"), equalTo((SEXP) LogicalVector.EMPTY));
+    assertThat(eval("x$b"), equalTo(c(true, false)));
+  }
+
+  @Test
+  public void tapplyGroupedReductions() {
+    assumingBasePackagesLoad();
+
+    eval("g <- factor(c('a','b','a','b','a'), levels = c('a', 'b', 'z'))");
+    assertThat(eval("as.vector(tapply(1:5, g, sum))"), equalTo(c_i(9, 6, IntVector.NA)));
+    assertThat(eval("as.vector(tapply(c(1,2,3,4,NA), g, sum))"), equalTo(c(DoubleVector.NA, 6, DoubleVector.NA)));
+    assertThat(eval("as.vector(tapply(c(1,2,3,4,5), g, mean))"), equalTo(c(3, 3, DoubleVector.NA)));
+    assertThat(eval("as.vector(tapply(c(1,2,3,4,5), g, length))"), equalTo(c_i(3, 2, IntVector.NA)));
+    assertThat(eval("dimnames(tapply(1:5, g, sum))[[1]]"), equalTo(c("a", "b", "z")));
+  }
   
 }
@@ -60,6 +60,20 @@ public class SummaryTest extends EvalTestCase {
     assertThat(eval("range(1L,99L, NA)"), equalTo(c_i(IntVector.NA, IntVector.NA)));
   }
 
+  @Test
+  public void rangeOfOnlyNAs() {
+    // Short vectors are summarized by the RangeCalculator, long ones are deferred
+    eval("x <- rep(NA_real_, 10)");
+    eval("y <- rep(NA_real_, 400)");
+
+    for (String vector : new String[] { "x", "y", "y * 2" }) {
+      assertThat(eval("min(" + vector + ")"), equalTo(c(DoubleVector.NA)));
+      assertThat(eval("max(" + vector + ")"), equalTo(c(DoubleVector.NA)));
+      assertThat(eval("range(" + vector + ")"), equalTo(c(DoubleVector.NA, DoubleVector.NA)));
+    }
+    assertThat(eval("min(NA_integer_)"), equalTo(c_i(IntVector.NA)));
+  }
+
   @Test
   public void maxTestWithNA() {
     assertThat(eval("max(4,NA)"), equalTo(c(DoubleVector.NA)));
@@ -82,6 +82,18 @@ public class TextTest extends EvalTestCase {
         equalTo( c("datasets", "utils", "grDevices", "graphics", "stats", "methods")) );
   }
 
+  @Test
+  public void gsubWithCachedPatterns() {
+    eval("x <- c('Aa', NA)");
+    assertThat( eval(".Internal(gsub('a', '-', x, TRUE, FALSE, FALSE, FALSE))"),
+        equalTo( c("--", StringVector.NA)) );
+    assertThat( eval(".Internal(gsub('a', '-', x, FALSE, FALSE, FALSE, FALSE))"),
+        equalTo( c("A-", StringVector.NA)) );
+    eval("names(x) <- c('a', 'b')");
+    assertThat( eval("names(.Internal(sub('a', '-', x, FALSE, FALSE, FALSE, FALSE)))"),
+        equalTo( c("a", "b")) );
+  }
+
   @Test
   public void posixCharacterClass() {
 
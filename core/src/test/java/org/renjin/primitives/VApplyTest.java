@@ -36,4 +36,28 @@ public class VApplyTest extends EvalTestCase {
   public void vapplyTypeProblem() {
     eval("vapply(c(4,16,64), sqrt, TRUE)");
   }
+
+  @Test
+  public void vapplyClosure() {
+    assertThat(eval("vapply(1:3, function(x) x * 2L, 1L)"), equalTo(c_i(2,4,6)));
+    assertThat(eval("vapply(1:3, function(x, y) x > y, TRUE, 1)"), equalTo(c(false, true, true)));
+    assertThat(eval("vapply(list(a=1,b=2:3), function(x) sum(x), 1)"), equalTo(eval("c(a=1,b=5)")));
+  }
+
+  @Test
+  public void vapplyClosureMatrix() {
+    eval("m <- vapply(1:2, function(x) c(x, -x), c(1, 1))");
+    assertThat(eval("dim(m)"), equalTo(c_i(2,2)));
+    assertThat(eval("c(m)"), equalTo(c(1,-1,2,-2)));
+  }
+
+  @Test
+  public void vapplyClosureSeesElementCall() {
+    assertThat(eval("vapply(c(3,4), function(x) is.call(substitute(x)), TRUE)"), equalTo(c(true, true)));
+  }
+
+  @Test(expected=EvalException.class)
+  public void vapplyClosureTypeProblem() {
+    eval("vapply(1:3, function(x) 'a', 1)");
+  }
 }
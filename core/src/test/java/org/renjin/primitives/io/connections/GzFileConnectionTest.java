@@ -21,6 +21,7 @@
 
 package org.renjin.primitives.io.connections;
 
+import com.google.common.io.ByteStreams;
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.VFS;
 import org.junit.Test;
@@ -28,11 +29,17 @@ import org.renjin.EvalTestCase;
 import org.renjin.sexp.SEXP;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 public class GzFileConnectionTest extends EvalTestCase {
 
@@ -69,4 +76,27 @@ public class GzFileConnectionTest extends EvalTestCase {
     assertThat(reader.readLine(), equalTo("Hello again, dear world"));
   }
 
+  @Test
+  public void writeAndReadLargeCompressedFile() throws IOException {
+
+    // Several blocks, compressed in parallel and large enough to be read ahead
+    byte[] data = new byte[3 * 1024 * 1024 + 17];
+    new Random(42).nextBytes(data);
+
+    File tempFile = File.createTempFile("parallel", ".gz");
+    tempFile.deleteOnExit();
+    FileObject file = VFS.getManager().resolveFile(tempFile.getAbsolutePath());
+
+    GzFileConnection out = new GzFileConnection(file);
+    OutputStream outputStream = out.getOutputStream();
+    outputStream.write(data);
+    out.close();
+
+    GzFileConnection in = new GzFileConnection(file);
+    InputStream inputStream = in.getInputStream();
+    assertTrue(inputStream instanceof PipelinedInputStream);
+    assertTrue(Arrays.equals(ByteStreams.toByteArray(inputStream), data));
+    in.close();
+  }
+
 }
@@ -26,8 +26,12 @@ import org.junit.Test;
 import org.renjin.EvalTestCase;
 import org.renjin.sexp.*;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 import java.util.zip.GZIPInputStream;
 
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -179,6 +183,28 @@ public class RDataReaderTest extends EvalTestCase {
     assertThat(df.getAttribute(Symbol.get("row.names")).length(), equalTo(1000));
   }
 
+  @Test
+  public void readMappedFile() throws IOException {
+    SEXP list = eval("list(x = seq(0, 1, length.out = 5000), y = 1:3000, z = c(1.5, NA), w = c(TRUE, NA))");
+
+    File file = File.createTempFile("mapped", ".rds");
+    file.deleteOnExit();
+    try(FileOutputStream out = new FileOutputStream(file)) {
+      new RDataWriter(topLevelContext, out, Serialization.SerializationType.XDR).serialize(list);
+    }
+
+    try(FileChannel channel = new RandomAccessFile(file, "r").getChannel()) {
+      RDataReader reader = new RDataReader(topLevelContext, channel);
+      ListVector mapped = (ListVector) reader.readFile();
+
+      assertThat(mapped.getElementAsSEXP(0), instanceOf(DoubleBufferVector.class));
+      assertThat(mapped.getElementAsSEXP(1), instanceOf(IntBufferVector.class));
+      assertThat(mapped.getElementAsSEXP(2), instanceOf(DoubleArrayVector.class));
+      assertThat(reader.getMappedPosition(), equalTo(channel.size()));
+      assertThat((SEXP) mapped, equalTo(list));
+    }
+  }
+
   protected Symbol symbol(String name){
     return Symbol.get(name);
   }
@@ -66,6 +66,31 @@ public class MatchTest extends EvalTestCase {
     
   }
 
+  @Test
+  public void matchAgainstLargeTables() {
+    assertThat( eval(".Internal(match(c(5L, 99L, 1L, NA), c(1:50, NA), NA_integer_, NULL))"), equalTo( c_i(5, IntVector.NA, 1, 51) ));
+    assertThat( eval(".Internal(match(c(5, 99, 1.5), as.double(1:50), 0L, NULL))"), equalTo( c_i(5, 0, 0) ));
+    assertThat( eval(".Internal(match(c('c', 'z', 'a'), rep(letters, 2), NA_integer_, NULL))"), equalTo( c_i(3, IntVector.NA, 1) ));
+    assertThat( eval(".Internal(match(c(3, 30), as.character(1:40), NA_integer_, NULL))"), equalTo( c_i(3, 30) ));
+  }
+
+  @Test
+  public void matchLargeTablesWithNaNs() {
+    eval("t <- c(as.double(1:20), NaN, NA, -0)");
+    assertThat( eval(".Internal(match(c(NA, NaN, 0, 20), t, NA_integer_, NULL))"), equalTo( c_i(22, 21, 23, 20) ));
+    assertThat( eval(".Internal(match(c(NaN, 3), t, NA_integer_, NaN))"), equalTo( c_i(IntVector.NA, 3) ));
+  }
+
+  @Test
+  public void matchNaNInSmallTables() {
+    assertThat( eval(".Internal(match(c(NaN, NA), c(NA, NaN), NA_integer_, NULL))"), equalTo( c_i(2, 1) ));
+  }
+
+  @Test
+  public void matchLogicals() {
+    assertThat( eval(".Internal(match(c(FALSE, TRUE), c(TRUE, FALSE), NA_integer_, NULL))"), equalTo( c_i(2, 1) ));
+  }
+
   @Test
   public void pmatch() {
     eval(" pmatch <- function (x, table, nomatch = NA_integer_, duplicates.ok = FALSE) \n" +
@@ -24,6 +24,8 @@ package org.renjin.primitives.match;
 import org.hamcrest.CoreMatchers;
 import org.junit.Test;
 import org.renjin.EvalTestCase;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.Logical;
 
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertThat;
@@ -46,6 +48,21 @@ public class UniqueTest extends EvalTestCase {
     assertThat( eval(" .Internal(unique(1L, FALSE, FALSE)) "), CoreMatchers.equalTo(c_i(1)));
   }
   
+  @Test
+  public void uniqueDoublesWithMissingValues() {
+    assertThat( eval(".Internal(unique(c(NA, NaN, 0, -0, NA, NaN), FALSE, FALSE))"), equalTo( c(DoubleVector.NA, DoubleVector.NaN, 0)) );
+  }
+
+  @Test
+  public void uniqueLogicalsWithNA() {
+    assertThat( eval(".Internal(unique(c(TRUE, NA, TRUE, NA), FALSE, FALSE))"), equalTo( c(Logical.TRUE, Logical.NA)) );
+  }
+
+  @Test
+  public void uniqueStrings() {
+    assertThat( eval(".Internal(unique(c('b', NA, 'a', 'b', NA), FALSE, TRUE))"), equalTo( c("a", "b", null)) );
+  }
+
   @Test
   public void falseIncomparablesIsTreatedAsNull() {
     assertThat( eval(" .Internal(unique(c(0, 1, 0, 0, 0, 0, 0, 0), FALSE, FALSE))"), equalTo(c(0,1)));
@@ -23,7 +23,10 @@ package org.renjin.primitives.text.regex;
 
 import org.junit.Test;
 
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 public class RETest {
@@ -46,4 +49,32 @@ public class RETest {
     // make sure that normal character ranges still work
     assertTrue(new ExtendedRE("^[a-z4]+$").match("qf444ee"));
   }
+
+  @Test
+  public void jdkBackendMatchesInterpreter() throws RESyntaxException {
+    String[] patterns = { "^foo", "\\.csv$", "[[:alpha:]]+_[0-9]{2,3}", "(a|b)+c",
+        "x(y)?z", "a.*?b", "^\\s+|\\s+$", "[^[:digit:]-]" };
+    String[] strings = { "", "foo", "data.csv", "data.csv\n", "abc_1999", "aabbc",
+        "xyz xz", "a1b2b", "  trim  ", "12-3" };
+
+    for (String pattern : patterns) {
+      RE jdk = REFactory.compile(pattern, false, false, false, false);
+      ExtendedRE interpreted = new ExtendedRE(new RECompiler().compile(pattern), ExtendedRE.MATCH_NORMAL);
+      assertThat(jdk, instanceOf(JavaRE.class));
+
+      for (String string : strings) {
+        assertThat(pattern + " on " + string, jdk.match(string), equalTo(interpreted.match(string)));
+        assertThat(pattern + " on " + string,
+            jdk.subst(string, "<\\1>", RE.REPLACE_ALL | RE.REPLACE_BACKREFERENCES),
+            equalTo(interpreted.subst(string, "<\\1>", RE.REPLACE_ALL | RE.REPLACE_BACKREFERENCES)));
+      }
+    }
+  }
+
+  @Test
+  public void untranslatablePatternsAreInterpreted() {
+    assertFalse(REFactory.compile("(a)\\1", false, false, false, false) instanceof JavaRE);
+    assertFalse(REFactory.compile("\\bword", false, false, false, false) instanceof JavaRE);
+    assertTrue(REFactory.compile("(a)\\1", false, false, false, false).match("xaa"));
+  }
 }
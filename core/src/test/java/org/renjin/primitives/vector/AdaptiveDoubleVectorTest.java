@@ -0,0 +1,145 @@
+package org.renjin.primitives.vector;
+
+import org.junit.Test;
+import org.renjin.compiler.pipeline.SimpleVectorPipeliner;
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Vector;
+
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class AdaptiveDoubleVectorTest {
+
+  @Test
+  public void elementsAreStoredAfterRepeatedReads() {
+    CountingVector vector = new CountingVector(200);
+
+    for (int scan = 0; scan < AdaptiveDoubleVector.SCAN_THRESHOLD; scan++) {
+      assertThat(sum(vector), equalTo(39800.0));
+    }
+    assertFalse(vector.isMaterialized());
+
+    long avoided = AdaptiveDoubleVector.getRecomputationsAvoided();
+    for (int scan = 0; scan < 30; scan++) {
+      assertThat(sum(vector), equalTo(39800.0));
+    }
+    assertTrue(vector.isMaterialized());
+    assertThat(vector.computed, equalTo((AdaptiveDoubleVector.SCAN_THRESHOLD + 1) * 200));
+    assertTrue(AdaptiveDoubleVector.getRecomputationsAvoided() > avoided);
+  }
+
+  @Test
+  public void elementsReadOutOfOrderAreStored() {
+    CountingVector vector = new CountingVector(200);
+    Random random = new Random(42);
+
+    int reads = (AdaptiveDoubleVector.SCAN_THRESHOLD + 1) * 200;
+    for (int read = 0; read < reads; read++) {
+      int index = random.nextInt(200);
+      assertThat(vector.getElementAsDouble(index), equalTo(index * 2.0));
+    }
+    assertTrue(vector.isMaterialized());
+
+    int computed = vector.computed;
+    for (int index = 199; index >= 0; index--) {
+      assertThat(vector.getElementAsDouble(index), equalTo(index * 2.0));
+    }
+    assertThat(vector.computed, equalTo(computed));
+  }
+
+  @Test
+  public void repeatedReadsOfFirstElementAreStored() {
+    CountingVector vector = new CountingVector(200);
+
+    int reads = (AdaptiveDoubleVector.SCAN_THRESHOLD + 1) * 200;
+    for (int read = 0; read < reads; read++) {
+      assertThat(vector.getElementAsDouble(0), equalTo(0.0));
+    }
+    assertTrue(vector.isMaterialized());
+  }
+
+  @Test
+  public void pipelinerReadsStoredElements() {
+    CountingVector vector = new CountingVector(200);
+    SimpleVectorPipeliner pipeliner = new SimpleVectorPipeliner();
+
+    for (int scan = 0; scan <= AdaptiveDoubleVector.SCAN_THRESHOLD; scan++) {
+      pipeliner.materialize(vector);
+    }
+    assertTrue(vector.isMaterialized());
+
+    // The scan which stored the elements computed each of them once
+    assertThat(vector.computed, equalTo(200));
+
+    int computed = vector.computed;
+    Vector result = pipeliner.materialize(vector);
+    assertThat(vector.computed, equalTo(computed));
+    assertThat(result.getElementAsDouble(199), equalTo(398.0));
+  }
+
+  @Test
+  public void singleScanIsNotStored() {
+    CountingVector vector = new CountingVector(200);
+    SimpleVectorPipeliner pipeliner = new SimpleVectorPipeliner();
+
+    for (int scan = 0; scan < AdaptiveDoubleVector.SCAN_THRESHOLD; scan++) {
+      pipeliner.materialize(vector);
+    }
+    assertFalse(vector.isMaterialized());
+  }
+
+  private static double sum(DoubleVector vector) {
+    double sum = 0;
+    for (int i = 0; i < vector.length(); i++) {
+      sum += vector.getElementAsDouble(i);
+    }
+    return sum;
+  }
+
+  private static class CountingVector extends AdaptiveDoubleVector {
+    private final int length;
+    private int computed;
+
+    CountingVector(int length) {
+      super(AttributeMap.EMPTY);
+      this.length = length;
+    }
+
+    @Override
+    protected double computeElementAsDouble(int index) {
+      computed++;
+      return index * 2;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public Vector[] getOperands() {
+      return new Vector[0];
+    }
+
+    @Override
+    public String getComputationName() {
+      return "count";
+    }
+
+    @Override
+    public boolean isConstantAccessTime() {
+      return false;
+    }
+
+    @Override
+    protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
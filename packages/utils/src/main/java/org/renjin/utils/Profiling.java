@@ -0,0 +1,69 @@
+package org.renjin.utils;
+
+import org.apache.commons.vfs2.FileObject;
+import org.renjin.eval.Context;
+import org.renjin.eval.Profiler;
+import org.renjin.invoke.annotations.Current;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * Implementation of {@code Rprof()}, which controls the session's {@link Profiler}.
+ *
+ * <p>Unlike GNU R, the profile is written to the file in the "collapsed stacks" format used
+ * by flame graph tools, when profiling is stopped.</p>
+ */
+public class Profiling {
+
+  /**
+   * The file to which the running profile is to be written, kept per session.
+   */
+  public static class Output {
+    private String filename;
+    private boolean append;
+  }
+
+  /**
+   * Starts profiling, writing the profile of any previous run to its file.
+   *
+   * @param interval the sampling interval, in seconds
+   * @param instrumenting true to time every call, rather than sampling the stack
+   */
+  public static void start(@Current Context context, String filename, boolean append,
+                           double interval, boolean instrumenting) throws IOException {
+    stop(context);
+
+    Output output = context.getSession().getSingleton(Output.class);
+    output.filename = filename;
+    output.append = append;
+
+    long intervalMicros = Math.max(1, Math.round(interval * 1e6));
+
+    Profiler profiler = context.getSession().getProfiler();
+    profiler.reset();
+    profiler.start(instrumenting ? Profiler.Mode.INSTRUMENTING : Profiler.Mode.SAMPLING, intervalMicros);
+  }
+
+  /**
+   * Stops profiling, and writes the collapsed stacks to the file given to {@link #start}
+   */
+  public static void stop(@Current Context context) throws IOException {
+    Profiler profiler = context.getSession().getProfiler();
+    if(!profiler.isRunning()) {
+      return;
+    }
+    profiler.stop();
+
+    Output output = context.getSession().getSingleton(Output.class);
+    if(output.filename != null) {
+      FileObject file = context.resolveFile(output.filename);
+      try(PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+          file.getContent().getOutputStream(output.append), "UTF-8"))) {
+        profiler.writeCollapsedStacks(writer);
+      }
+      output.filename = null;
+    }
+  }
+}
@@ -54,6 +54,8 @@ public class GimpleCompiler  {
 
   private boolean verbose;
 
+  private boolean contextLocalGlobals;
+
   private GlobalSymbolTable globalSymbolTable;
 
   private Collection<GimpleRecordTypeDef> recordTypeDefs;
@@ -193,7 +195,8 @@ public class GimpleCompiler  {
             typeOracle,
             globalSymbolTable,
             providedVariables,
-            unit, className);
+            unit, className,
+            contextLocalGlobals);
         unitClassGenerators.add(generator);
       }
 
@@ -202,6 +205,9 @@ public class GimpleCompiler  {
       for (UnitClassGenerator generator : unitClassGenerators) {
         generator.emit(codegenLogger);
         writeClass(generator.getClassName(), generator.toByteArray());
+        if(generator.hasGlobalsClass()) {
+          writeClass(generator.getGlobalsClassName(), generator.globalsClassToByteArray());
+        }
       }
 
       // Write link metadata to META-INF/org.renjin.gcc.symbols
@@ -377,6 +383,21 @@ public class GimpleCompiler  {
     this.verbose = verbose;
   }
 
+  public boolean isContextLocalGlobals() {
+    return contextLocalGlobals;
+  }
+
+  /**
+   * Sets whether global variables should be allocated once per {@link org.renjin.gcc.runtime.GlobalVarContext}
+   * rather than as static fields shared by the whole JVM.
+   *
+   * <p>This allows several independent callers, such as Renjin sessions, to use the same compiled library
+   * concurrently, at the cost of an additional lookup each time a global variable is accessed.</p>
+   */
+  public void setContextLocalGlobals(boolean contextLocalGlobals) {
+    this.contextLocalGlobals = contextLocalGlobals;
+  }
+
   private void transform(List<GimpleCompilationUnit> units) {
 
     for (GimpleCompilationUnit unit : units) {
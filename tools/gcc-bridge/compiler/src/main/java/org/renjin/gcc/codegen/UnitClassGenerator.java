@@ -55,10 +55,17 @@ public class UnitClassGenerator {
                             GlobalSymbolTable functionTable,
                             Map<String, Field> providedVariables, GimpleCompilationUnit unit,
                             String className) {
+    this(typeOracle, functionTable, providedVariables, unit, className, false);
+  }
+
+  public UnitClassGenerator(TypeOracle typeOracle,
+                            GlobalSymbolTable functionTable,
+                            Map<String, Field> providedVariables, GimpleCompilationUnit unit,
+                            String className, boolean contextLocalGlobals) {
     this.unit = unit;
     this.className = className;
     this.typeOracle = typeOracle;
-    this.globalVarAllocator = new GlobalVarAllocator(className);
+    this.globalVarAllocator = new GlobalVarAllocator(className, contextLocalGlobals);
     this.symbolTable = new UnitSymbolTable(functionTable);
   
     for (GimpleVarDecl decl : unit.getGlobalVariables()) {
@@ -149,9 +156,25 @@ public class UnitClassGenerator {
     // write actual field declarations
     globalVarAllocator.writeFields(cv);
     
-    // and any static initialization that is required
+    // and any static initialization that is required. If the globals are context-local,
+    // the initialization is instead run each time a new context first uses this unit.
     ExprFactory exprFactory = new ExprFactory(typeOracle, symbolTable);
-    MethodGenerator mv = new MethodGenerator(cv.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null));
+    MethodGenerator mv;
+    if(globalVarAllocator.isContextLocal()) {
+      MethodGenerator clinit = new MethodGenerator(cv.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null));
+      clinit.visitCode();
+      globalVarAllocator.writeSlotAllocation(clinit);
+      clinit.visitInsn(RETURN);
+      clinit.visitMaxs(1, 1);
+      clinit.visitEnd();
+
+      globalVarAllocator.writeGlobalsMethod(cv);
+
+      // Package-private, so that it can be called by the holder class
+      mv = new MethodGenerator(cv.visitMethod(ACC_STATIC, GlobalVarAllocator.INIT_METHOD, "()V", null, null));
+    } else {
+      mv = new MethodGenerator(cv.visitMethod(ACC_STATIC, "<clinit>", "()V", null, null));
+    }
     mv.visitCode();
     
     globalVarAllocator.writeFieldInitialization(mv);
@@ -206,4 +229,20 @@ public class UnitClassGenerator {
     cv.visitEnd();
     return cw.toByteArray();
   }
+
+  /**
+   * @return true if this unit's global variables are held by a separate class, one instance per
+   * {@link org.renjin.gcc.runtime.GlobalVarContext}
+   */
+  public boolean hasGlobalsClass() {
+    return globalVarAllocator.isContextLocal();
+  }
+
+  public String getGlobalsClassName() {
+    return globalVarAllocator.getHolderClassName();
+  }
+
+  public byte[] globalsClassToByteArray() {
+    return globalVarAllocator.writeHolderClass();
+  }
 }
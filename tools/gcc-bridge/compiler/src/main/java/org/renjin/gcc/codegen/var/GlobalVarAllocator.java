@@ -7,7 +7,11 @@ import org.renjin.gcc.InternalCompilerException;
 import org.renjin.gcc.codegen.MethodGenerator;
 import org.renjin.gcc.codegen.expr.JExpr;
 import org.renjin.gcc.codegen.expr.JLValue;
+import org.renjin.gcc.runtime.GlobalVarContext;
 import org.renjin.repackaged.asm.ClassVisitor;
+import org.renjin.repackaged.asm.ClassWriter;
+import org.renjin.repackaged.asm.Label;
+import org.renjin.repackaged.asm.MethodVisitor;
 import org.renjin.repackaged.asm.Opcodes;
 import org.renjin.repackaged.asm.Type;
 
@@ -17,16 +21,33 @@ import java.util.Set;
 
 /**
  * Allocates global variables as static fields within a class.
+ *
+ * <p>If the globals are <em>context-local</em>, they are instead allocated as instance fields of a
+ * separate holder class, of which each {@link GlobalVarContext} has its own instance. The declaring
+ * class then has a static {@code $globals()} method which finds the holder for the current context,
+ * which creates and initializes it on first use through {@link GlobalVarContext#initialize}.</p>
  */
 public class GlobalVarAllocator extends VarAllocator {
 
-  private class StaticField implements JLValue {
+  /**
+   * The name of the static method which returns the holder of the current context
+   */
+  public static final String GLOBALS_METHOD = "$globals";
+
+  /**
+   * The name of the static method which initializes a new holder
+   */
+  public static final String INIT_METHOD = "$initGlobals";
+
+  private static final String SLOT_FIELD = "$globalsSlot";
+
+  private class GlobalField implements JLValue {
 
     private String name;
     private Type type;
     private Optional<JExpr> initialValue;
 
-    public StaticField(String name, Type type, Optional<JExpr> initialValue) {
+    public GlobalField(String name, Type type, Optional<JExpr> initialValue) {
       this.name = name;
       this.type = type;
       this.initialValue = initialValue;
@@ -40,22 +61,45 @@ public class GlobalVarAllocator extends VarAllocator {
 
     @Override
     public void load(@Nonnull MethodGenerator mv) {
-      mv.visitFieldInsn(Opcodes.GETSTATIC, declaringClass.getInternalName(), name, type.getDescriptor());
+      if(contextLocal) {
+        loadHolder(mv);
+        mv.visitFieldInsn(Opcodes.GETFIELD, holderClass.getInternalName(), name, type.getDescriptor());
+      } else {
+        mv.visitFieldInsn(Opcodes.GETSTATIC, declaringClass.getInternalName(), name, type.getDescriptor());
+      }
     }
 
     @Override
     public void store(MethodGenerator mv, JExpr value) {
-      value.load(mv);
-      mv.visitFieldInsn(Opcodes.PUTSTATIC, declaringClass.getInternalName(), name, type.getDescriptor());
+      if(contextLocal) {
+        loadHolder(mv);
+        value.load(mv);
+        mv.visitFieldInsn(Opcodes.PUTFIELD, holderClass.getInternalName(), name, type.getDescriptor());
+      } else {
+        value.load(mv);
+        mv.visitFieldInsn(Opcodes.PUTSTATIC, declaringClass.getInternalName(), name, type.getDescriptor());
+      }
     }
   }
   
   private final Type declaringClass;
-  private final List<StaticField> fields = Lists.newArrayList();
+  private final boolean contextLocal;
+  private final Type holderClass;
+  private final List<GlobalField> fields = Lists.newArrayList();
   private final Set<String> fieldNames = Sets.newHashSet();
 
   public GlobalVarAllocator(String declaringClass) {
+    this(declaringClass, false);
+  }
+
+  /**
+   * @param declaringClass the internal name of the class to which the variables belong
+   * @param contextLocal true if each {@link GlobalVarContext} should have its own copy of the variables
+   */
+  public GlobalVarAllocator(String declaringClass, boolean contextLocal) {
     this.declaringClass = Type.getType(declaringClass);
+    this.contextLocal = contextLocal;
+    this.holderClass = Type.getObjectType(this.declaringClass.getInternalName() + "$Globals");
   }
 
   @Override
@@ -69,7 +113,7 @@ public class GlobalVarAllocator extends VarAllocator {
       throw new InternalCompilerException("Duplicate field name generated '" + name + "' [" + fieldName + "]");
     }
     fieldNames.add(fieldName);
-    StaticField field = new StaticField(fieldName, type, initialValue);
+    GlobalField field = new GlobalField(fieldName, type, initialValue);
     fields.add(field);
     return field;
   }
@@ -79,14 +123,29 @@ public class GlobalVarAllocator extends VarAllocator {
     return reserve(name, type, Optional.of(initialValue));
   }
 
+  public boolean isContextLocal() {
+    return contextLocal;
+  }
+
+  /**
+   * @return the internal name of the class which holds context-local variables
+   */
+  public String getHolderClassName() {
+    return holderClass.getInternalName();
+  }
+
   public void writeFields(ClassVisitor cv) {
-    for (StaticField field : fields) {
-      cv.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, field.name, field.type.getDescriptor(), null, null);
+    if(contextLocal) {
+      cv.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_FINAL, SLOT_FIELD, "I", null, null);
+    } else {
+      for (GlobalField field : fields) {
+        cv.visitField(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC, field.name, field.type.getDescriptor(), null, null);
+      }
     }
   }
   
   public boolean needsStaticInitializer() {
-    for (StaticField field : fields) {
+    for (GlobalField field : fields) {
       if(field.initialValue.isPresent()) {
         return true;
       }
@@ -95,13 +154,99 @@ public class GlobalVarAllocator extends VarAllocator {
   }
   
   public void writeFieldInitialization(MethodGenerator mv) {
-    for (StaticField field : fields) {
+    for (GlobalField field : fields) {
       if(field.initialValue.isPresent()) {
-        JExpr initialValue = field.initialValue.get();
-        initialValue.load(mv);
-        mv.putstatic(declaringClass.getInternalName(), field.name, field.type.getDescriptor());
+        field.store(mv, field.initialValue.get());
       }
     }
   }
-  
+
+  /**
+   * Writes the allocation of the declaring class' slot, from its static initializer.
+   */
+  public void writeSlotAllocation(MethodGenerator mv) {
+    mv.invokestatic(GlobalVarContext.class, "allocateSlot", "()I");
+    mv.putstatic(declaringClass.getInternalName(), SLOT_FIELD, "I");
+  }
+
+  /**
+   * Writes the {@code $globals()} method, which returns the holder of the current context, and
+   * creates it with {@link GlobalVarContext#initialize} when the context first uses this unit.
+   */
+  public void writeGlobalsMethod(ClassVisitor cv) {
+    Type contextType = Type.getType(GlobalVarContext.class);
+    Type objectType = Type.getType(Object.class);
+
+    MethodGenerator mv = new MethodGenerator(cv.visitMethod(Opcodes.ACC_PUBLIC | Opcodes.ACC_STATIC,
+        GLOBALS_METHOD, Type.getMethodDescriptor(holderClass), null, null));
+    mv.visitCode();
+
+    // GlobalVarContext context = GlobalVarContext.current();
+    // Object holder = context.get(SLOT);
+    mv.invokestatic(GlobalVarContext.class, "current", Type.getMethodDescriptor(contextType));
+    mv.store(0, contextType);
+    mv.load(0, contextType);
+    mv.getstatic(declaringClass.getInternalName(), SLOT_FIELD, "I");
+    mv.invokevirtual(GlobalVarContext.class, "get", objectType, Type.INT_TYPE);
+    mv.store(1, objectType);
+
+    // if(holder != null) return holder;
+    Label create = new Label();
+    mv.load(1, objectType);
+    mv.ifnull(create);
+    mv.load(1, objectType);
+    mv.checkcast(holderClass);
+    mv.areturn(holderClass);
+
+    // return context.initialize(SLOT, new Globals());
+    mv.visitLabel(create);
+    mv.load(0, contextType);
+    mv.getstatic(declaringClass.getInternalName(), SLOT_FIELD, "I");
+    mv.anew(holderClass);
+    mv.dup();
+    mv.invokeconstructor(holderClass);
+    mv.invokevirtual(GlobalVarContext.class, "initialize", objectType, Type.INT_TYPE,
+        Type.getType(GlobalVarContext.Holder.class));
+    mv.checkcast(holderClass);
+    mv.areturn(holderClass);
+
+    mv.visitMaxs(0, 0);
+    mv.visitEnd();
+  }
+
+  /**
+   * @return the class file of the class which holds context-local variables
+   */
+  public byte[] writeHolderClass() {
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    cw.visit(Opcodes.V1_7, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, holderClass.getInternalName(), null,
+        "java/lang/Object", new String[] { Type.getInternalName(GlobalVarContext.Holder.class) });
+
+    for (GlobalField field : fields) {
+      cw.visitField(Opcodes.ACC_PUBLIC, field.name, field.type.getDescriptor(), null, null);
+    }
+
+    MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+    mv.visitCode();
+    mv.visitVarInsn(Opcodes.ALOAD, 0);
+    mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+    mv.visitInsn(Opcodes.RETURN);
+    mv.visitMaxs(1, 1);
+    mv.visitEnd();
+
+    // The initializers are compiled into the declaring class, as they may refer to its other members
+    mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "initialize", "()V", null, null);
+    mv.visitCode();
+    mv.visitMethodInsn(Opcodes.INVOKESTATIC, declaringClass.getInternalName(), INIT_METHOD, "()V", false);
+    mv.visitInsn(Opcodes.RETURN);
+    mv.visitMaxs(0, 1);
+    mv.visitEnd();
+
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+
+  private void loadHolder(MethodGenerator mv) {
+    mv.invokestatic(declaringClass, GLOBALS_METHOD, Type.getMethodDescriptor(holderClass));
+  }
 }
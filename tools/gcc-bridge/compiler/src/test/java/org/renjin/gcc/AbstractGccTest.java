@@ -25,6 +25,15 @@ public abstract class AbstractGccTest {
   
   public static final String PACKAGE_NAME = "org.renjin.gcc";
 
+  private boolean contextLocalGlobals = false;
+
+  /**
+   * Compiles global variables so that each {@link org.renjin.gcc.runtime.GlobalVarContext} has its own copy.
+   */
+  protected void setContextLocalGlobals(boolean contextLocalGlobals) {
+    this.contextLocalGlobals = contextLocalGlobals;
+  }
+
   protected Integer call(Class clazz, String methodName, double x) throws Exception {
     Method method = clazz.getMethod(methodName, double.class);
     return (Integer) method.invoke(null, x);
@@ -156,6 +165,7 @@ public abstract class AbstractGccTest {
     compiler.addReferenceClass(RStubs.class);
     compiler.addReferenceClass(GimpleAssert.class);
     compiler.addMathLibrary();
+    compiler.setContextLocalGlobals(contextLocalGlobals);
     compiler.compile(units);
   }
 }
@@ -384,6 +384,45 @@ public class GimpleCompilerTest extends AbstractGccTest {
     
   }
 
+  @Test
+  public void contextLocalGlobals() throws Exception {
+    setContextLocalGlobals(true);
+    Class clazz = compile("context_globals.c");
+
+    Method nextCount = clazz.getMethod("next_count");
+    Method getScale = clazz.getMethod("get_scale");
+    Method setScale = clazz.getMethod("set_scale", double.class);
+
+    final GlobalVarContext[] current = new GlobalVarContext[1];
+    GlobalVarContext.setProvider(new GlobalVarContext.Provider() {
+      @Override
+      public GlobalVarContext current() {
+        return current[0];
+      }
+    });
+    try {
+      GlobalVarContext first = new GlobalVarContext();
+      GlobalVarContext second = new GlobalVarContext();
+
+      current[0] = first;
+      assertThat((Integer) nextCount.invoke(null), equalTo(11));
+      assertThat((Integer) nextCount.invoke(null), equalTo(12));
+      setScale.invoke(null, 4.0);
+
+      // The second context starts from the initial values
+      current[0] = second;
+      assertThat((Integer) nextCount.invoke(null), equalTo(11));
+      assertThat((Double) getScale.invoke(null), equalTo(2.5));
+
+      current[0] = first;
+      assertThat((Integer) nextCount.invoke(null), equalTo(13));
+      assertThat((Double) getScale.invoke(null), equalTo(4.0));
+
+    } finally {
+      GlobalVarContext.setProvider(null);
+    }
+  }
+
   @Test
   public void enums() throws Exception {
     Class clazz = compile("enum.c");
@@ -0,0 +1,19 @@
+
+// compiled with context-local globals: each context
+// should get its own, initialized, copy of these variables
+
+static int counter = 10;
+
+double scale = 2.5;
+
+int next_count() {
+    return ++counter;
+}
+
+double get_scale() {
+    return scale;
+}
+
+void set_scale(double x) {
+    scale = x;
+}
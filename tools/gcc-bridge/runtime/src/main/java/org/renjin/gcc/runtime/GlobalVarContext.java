@@ -0,0 +1,139 @@
+package org.renjin.gcc.runtime;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the global variables of code compiled with per-context globals.
+ *
+ * <p>By default, the global variables of C code are compiled to static fields, which are shared by
+ * everything running in the JVM. When compiled with per-context globals, each compilation unit instead
+ * stores its global variables in the instance fields of a holder object. Each unit is assigned a slot
+ * when its class is loaded, and each {@code GlobalVarContext} keeps its own holder in that slot,
+ * which is created and initialized the first time the unit's globals are used in the context.</p>
+ *
+ * <p>Holders are initialized while holding a lock on their context, and are only visible to other
+ * threads once they have been initialized, so that several threads may share a context.</p>
+ *
+ * <p>The context in which compiled code runs is found through the {@link Provider} installed by the
+ * host, for example the Renjin session which is calling into the compiled code. Code which is called
+ * outside of any context uses a single default context.</p>
+ */
+public final class GlobalVarContext {
+
+  /**
+   * Finds the context in which compiled code is currently running.
+   */
+  public interface Provider {
+
+    /**
+     * @return the current context, or {@code null} to use the default context.
+     */
+    GlobalVarContext current();
+  }
+
+  /**
+   * The holder of a compilation unit's global variables.
+   */
+  public interface Holder {
+
+    /**
+     * Sets the variables to their initial values.
+     */
+    void initialize();
+  }
+
+  private static final AtomicInteger NEXT_SLOT = new AtomicInteger(0);
+
+  private static final GlobalVarContext DEFAULT = new GlobalVarContext();
+
+  private static volatile Provider provider;
+
+  /**
+   * The holders of each compilation unit, indexed by slot. The array is replaced, never modified,
+   * so that it can be read without locking.
+   */
+  private volatile Object[] holders = new Object[0];
+
+  private final ReentrantLock initializationLock = new ReentrantLock();
+
+  /**
+   * The holders which are being initialized by the thread holding {@code initializationLock}
+   */
+  private final Map<Integer, Holder> initializing = new HashMap<>();
+
+  public static void setProvider(Provider provider) {
+    GlobalVarContext.provider = provider;
+  }
+
+  /**
+   * @return the context in which compiled code is currently running.
+   */
+  public static GlobalVarContext current() {
+    Provider provider = GlobalVarContext.provider;
+    if(provider != null) {
+      GlobalVarContext context = provider.current();
+      if(context != null) {
+        return context;
+      }
+    }
+    return DEFAULT;
+  }
+
+  /**
+   * Assigns a slot to a compilation unit. Called from the unit's static initializer.
+   */
+  public static int allocateSlot() {
+    return NEXT_SLOT.getAndIncrement();
+  }
+
+  /**
+   * @return the holder stored in {@code slot}, or {@code null} if the unit has not yet been used
+   * in this context.
+   */
+  public Object get(int slot) {
+    Object[] holders = this.holders;
+    if(slot < holders.length) {
+      return holders[slot];
+    }
+    return null;
+  }
+
+  /**
+   * Stores {@code holder} in {@code slot} and initializes it, unless another holder has already been stored.
+   *
+   * <p>The initializers may themselves refer to the unit's variables, and so call this method again from the
+   * same thread before {@code holder} has been stored. The holder being initialized is then returned.</p>
+   *
+   * @return the holder stored in {@code slot}
+   */
+  public Object initialize(int slot, Holder holder) {
+    initializationLock.lock();
+    try {
+      Object existing = get(slot);
+      if(existing != null) {
+        return existing;
+      }
+      Holder pending = initializing.get(slot);
+      if(pending != null) {
+        return pending;
+      }
+      initializing.put(slot, holder);
+      try {
+        holder.initialize();
+      } finally {
+        initializing.remove(slot);
+      }
+      Object[] updated = Arrays.copyOf(holders, Math.max(holders.length, slot + 1));
+      updated[slot] = holder;
+      holders = updated;
+      return holder;
+
+    } finally {
+      initializationLock.unlock();
+    }
+  }
+}
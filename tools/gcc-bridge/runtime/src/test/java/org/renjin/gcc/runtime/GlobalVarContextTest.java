@@ -0,0 +1,85 @@
+package org.renjin.gcc.runtime;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+
+public class GlobalVarContextTest {
+
+  @Test
+  public void contextsHaveSeparateHolders() {
+    int slot = GlobalVarContext.allocateSlot();
+    GlobalVarContext a = new GlobalVarContext();
+    GlobalVarContext b = new GlobalVarContext();
+
+    CountingHolder holderA = new CountingHolder();
+    assertThat(a.get(slot), nullValue());
+    assertThat(a.initialize(slot, holderA), sameInstance((Object) holderA));
+    assertThat(a.get(slot), sameInstance((Object) holderA));
+    assertThat(holderA.initialized, equalTo(1));
+    assertThat(b.get(slot), nullValue());
+  }
+
+  @Test
+  public void firstHolderIsKept() {
+    int slot = GlobalVarContext.allocateSlot();
+    GlobalVarContext context = new GlobalVarContext();
+
+    CountingHolder first = new CountingHolder();
+    CountingHolder second = new CountingHolder();
+    assertThat(context.initialize(slot, first), sameInstance((Object) first));
+    assertThat(context.initialize(slot, second), sameInstance((Object) first));
+    assertThat(second.initialized, equalTo(0));
+  }
+
+  @Test
+  public void holderIsOnlyVisibleOnceInitialized() {
+    final int slot = GlobalVarContext.allocateSlot();
+    final GlobalVarContext context = new GlobalVarContext();
+    final Object[] seenDuringInitialization = new Object[2];
+
+    GlobalVarContext.Holder holder = new GlobalVarContext.Holder() {
+      @Override
+      public void initialize() {
+        // The initializers may refer to the holder being initialized
+        seenDuringInitialization[0] = context.initialize(slot, new CountingHolder());
+        seenDuringInitialization[1] = context.get(slot);
+      }
+    };
+    context.initialize(slot, holder);
+
+    assertThat(seenDuringInitialization[0], sameInstance((Object) holder));
+    assertThat(seenDuringInitialization[1], nullValue());
+    assertThat(context.get(slot), sameInstance((Object) holder));
+  }
+
+  @Test
+  public void providerSelectsContext() {
+    final GlobalVarContext context = new GlobalVarContext();
+    GlobalVarContext.setProvider(new GlobalVarContext.Provider() {
+      @Override
+      public GlobalVarContext current() {
+        return context;
+      }
+    });
+    try {
+      assertThat(GlobalVarContext.current(), sameInstance(context));
+    } finally {
+      GlobalVarContext.setProvider(null);
+    }
+    assertThat(GlobalVarContext.current() == context, equalTo(false));
+  }
+
+  private static class CountingHolder implements GlobalVarContext.Holder {
+    private int initialized;
+
+    @Override
+    public void initialize() {
+      initialized++;
+    }
+  }
+}
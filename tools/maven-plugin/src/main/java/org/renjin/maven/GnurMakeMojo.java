@@ -101,6 +101,13 @@ public class GnurMakeMojo extends AbstractMojo {
   
   @Parameter(defaultValue = "false", property = "gcc.bridge.logging")
   private boolean loggingEnabled;
+
+  /**
+   * If true, the global variables of the native sources are allocated once per Renjin session
+   * rather than shared by all sessions in the JVM.
+   */
+  @Parameter(defaultValue = "false", property = "gcc.bridge.sessionGlobals")
+  private boolean sessionGlobals;
   
 
   @Override
@@ -224,6 +231,7 @@ public class GnurMakeMojo extends AbstractMojo {
     compiler.setOutputDirectory(outputDirectory);
     compiler.setPackageName(project.getGroupId() + "." + project.getArtifactId());
     compiler.setClassName(project.getArtifactId());
+    compiler.setContextLocalGlobals(sessionGlobals);
     
     if(loggingEnabled) {
       compiler.setLogger(new HtmlTreeLogger(logDir));
@@ -93,6 +93,13 @@ public class NamespaceMojo extends AbstractMojo {
   @Parameter
   private List defaultPackages;
 
+  /**
+   * Compile the package's functions to JVM byte code where possible, so that they do not need
+   * to be interpreted, or compiled again, when the package is loaded.
+   */
+  @Parameter(defaultValue = "false")
+  private boolean compileClosures;
+
   @Override
   public void execute() throws MojoExecutionException, MojoFailureException {
     copyResources();
@@ -110,10 +117,19 @@ public class NamespaceMojo extends AbstractMojo {
       Thread.currentThread().setContextClassLoader(classLoader);
 
       Object builder = classLoader.loadClass("org.renjin.packaging.NamespaceBuilder").newInstance();
-      builder.getClass()
-          .getMethod("build", String.class, String.class, File.class, File.class, List.class, File.class, List.class)
-          .invoke(builder, groupId, namespaceName, namespaceFile, sourceDirectory, sourceFiles, getEnvironmentFile(),
-              defaultPackages);
+      if(compileClosures) {
+        builder.getClass()
+            .getMethod("build", String.class, String.class, File.class, File.class, List.class, File.class, List.class,
+                boolean.class)
+            .invoke(builder, groupId, namespaceName, namespaceFile, sourceDirectory, sourceFiles, getEnvironmentFile(),
+                defaultPackages, compileClosures);
+      } else {
+        // Also works with versions of Renjin which cannot compile closures
+        builder.getClass()
+            .getMethod("build", String.class, String.class, File.class, File.class, List.class, File.class, List.class)
+            .invoke(builder, groupId, namespaceName, namespaceFile, sourceDirectory, sourceFiles, getEnvironmentFile(),
+                defaultPackages);
+      }
 
     } catch(Exception e) {
       throw new MojoExecutionException("exception", e);
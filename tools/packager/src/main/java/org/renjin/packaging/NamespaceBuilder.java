@@ -31,17 +31,31 @@ public class NamespaceBuilder {
   private List<String> sourceFiles;
   private File environmentFile;
   private List<String> defaultPackages;
+  private boolean compileClosures;
 
   public void build(String groupId, String namespaceName, File namespaceFile,
                     File sourceDirectory, List<String> sourceFiles,
                     File environmentFile, List<String> defaultPackages) throws IOException {
 
+    build(groupId, namespaceName, namespaceFile, sourceDirectory, sourceFiles, environmentFile, defaultPackages, false);
+  }
+
+  /**
+   * @param compileClosures true if the package's functions should also be compiled to JVM byte code, where
+   *                        possible, and stored alongside the serialized namespace.
+   */
+  public void build(String groupId, String namespaceName, File namespaceFile,
+                    File sourceDirectory, List<String> sourceFiles,
+                    File environmentFile, List<String> defaultPackages,
+                    boolean compileClosures) throws IOException {
+
     this.name = new FqPackageName(groupId, namespaceName);
     this.namespaceFile = namespaceFile;
     this.sourceDirectory = sourceDirectory;
     this.sourceFiles = sourceFiles;
     this.environmentFile = environmentFile;
     this.defaultPackages = defaultPackages;
+    this.compileClosures = compileClosures;
 
     compileNamespaceEnvironment();
   }
@@ -189,6 +203,7 @@ public class NamespaceBuilder {
     try {
       LazyLoadFrameBuilder builder = new LazyLoadFrameBuilder(context);
       builder.outputTo(environmentFile.getParentFile());
+      builder.compileClosures(compileClosures);
       builder.build(namespaceEnv);
     } catch(IOException e) {
       throw new RuntimeException("Exception encountered serializing namespace environment", e);